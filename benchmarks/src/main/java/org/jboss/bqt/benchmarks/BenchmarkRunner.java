@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, accepting the same arguments as the JMH command line.  Unless
+ * a result format is given (i.e., <code>-rf</code>), the results are written as JSON to
+ * a file named by the time of the run, in the directory named by the <code>bqt.benchmarks.dir</code>
+ * system property (default <code>benchmark-results</code>), so the runs can be tracked over time.
+ */
+public class BenchmarkRunner {
+	
+	public static final String RESULTS_DIR = "bqt.benchmarks.dir"; //$NON-NLS-1$
+	
+	private static final String DEFAULT_RESULTS_DIR = "benchmark-results"; //$NON-NLS-1$
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+		if (cmd.shouldList()) {
+			new Runner(cmd).list();
+			return;
+		}
+		
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+		if (!cmd.getResultFormat().hasValue()) {
+			File dir = new File(System.getProperty(RESULTS_DIR, DEFAULT_RESULTS_DIR));
+			dir.mkdirs();
+			File results = new File(dir, "bqt-benchmarks_"  //$NON-NLS-1$
+					+ new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".json"); //$NON-NLS-1$ //$NON-NLS-2$
+			options.resultFormat(ResultFormatType.JSON).result(results.getAbsolutePath());
+			
+			System.out.println("Writing the benchmark results to " + results.getAbsolutePath()); //$NON-NLS-1$
+		}
+		
+		new Runner(options.build()).run();
+	}
+
+}
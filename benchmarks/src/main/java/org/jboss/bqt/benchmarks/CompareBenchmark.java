@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.benchmarks;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.xml.XMLCompareResults;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TestResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks comparing the actual results with the expected results, where the
+ * actual results are read from a result set, as they are from a driver.  The unordered 
+ * comparison, and {@link XMLCompareResults#sortRecords(List, boolean)}, are given the 
+ * rows in a different order than expected, so they're sorted before being compared.
+ * The inputs each invocation consumes are built before it, so only the comparison, or 
+ * the sort, is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompareBenchmark {
+	
+	@Param({"100", "10000"})
+	public int rows;
+	
+	@Param({"4", "32"})
+	public int columns;
+	
+	@Param({"STRING", "NUMERIC", "MIXED"})
+	public SyntheticResults.Mix mix;
+	
+	private SyntheticResults results;
+	private List<List<Object>> expectedRows;
+	private List<List<Object>> shuffledRows;
+	private XMLCompareResults compare;
+	private QueryTest test;
+	
+	// built for each invocation
+	private TestCase testcase;
+	private ExpectedResultsHolder expected;
+	private ResultSet orderedResults;
+	private ResultSet unorderedResults;
+	private List<List<Object>> unsortedRows;
+	
+	@Setup
+	public void setup() {
+		this.results = SyntheticResults.create(rows, columns, mix);
+		this.expectedRows = results.copyRows();
+		this.shuffledRows = results.shuffledRows(rows);
+		this.compare = XMLCompareResults.create(new Properties());
+		this.test = new QueryTest("benchmark", "compare", "synthetic", new QuerySQL[0]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+	
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		this.testcase = new TestCase(test);
+		this.testcase.setTestResult(new TestResult(test.getQuerySetID(), test.getQueryID()));
+		
+		this.expected = new ExpectedResultsHolder(TagNames.Elements.QUERY_RESULTS, test);
+		this.expected.setIdentifiers(results.getIdentifiers());
+		this.expected.setTypes(results.getTypes());
+		this.expected.setRows(results.copyRows());
+		
+		this.orderedResults = results.newResultSet(expectedRows);
+		this.unorderedResults = results.newResultSet(shuffledRows);
+		this.unsortedRows = results.shuffledRows(rows);
+	}
+	
+	@Benchmark
+	public TestResult compareOrdered() throws Exception {
+		return compare(orderedResults, true);
+	}
+	
+	@Benchmark
+	public TestResult compareUnordered() throws Exception {
+		return compare(unorderedResults, false);
+	}
+	
+	@Benchmark
+	public List<List<Object>> sortRecords() {
+		XMLCompareResults.sortRecords(unsortedRows, true);
+		return unsortedRows;
+	}
+	
+	private TestResult compare(ResultSet actual, boolean ordered) throws Exception {
+		compare.compareResults(testcase, expected, actual, ordered);
+		return testcase.getTestResult();
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.client.xml.XMLResultsStreamWriter;
+
+/**
+ * SyntheticResults generates the rows of a result, of a given width, row count and mix 
+ * of column types, and exposes them as a forward only {@link ResultSet} or an expected 
+ * results file, the same as they'd be read from a driver or written by the tool.
+ * The values are generated from a fixed seed, so every run benchmarks the same data.
+ */
+public final class SyntheticResults {
+	
+	/**
+	 * The types of the columns, which are repeated across the width of the result.
+	 */
+	public enum Mix {
+		STRING(TagNames.Elements.STRING),
+		NUMERIC(TagNames.Elements.INTEGER, TagNames.Elements.LONG, TagNames.Elements.DOUBLE, TagNames.Elements.BIGDECIMAL),
+		MIXED(TagNames.Elements.STRING, TagNames.Elements.INTEGER, TagNames.Elements.DOUBLE, 
+				TagNames.Elements.BIGDECIMAL, TagNames.Elements.TIMESTAMP, TagNames.Elements.LONG);
+		
+		final String[] types;
+		
+		Mix(String... types) {
+			this.types = types;
+		}
+	}
+	
+	private static final long SEED = 20031001L;
+	
+	// one in this many values is null
+	private static final int NULL_FREQUENCY = 20;
+	
+	private final List<String> identifiers;
+	private final List<String> types;
+	private final List<List<Object>> rows;
+	
+	private SyntheticResults(List<String> identifiers, List<String> types, List<List<Object>> rows) {
+		this.identifiers = identifiers;
+		this.types = types;
+		this.rows = rows;
+	}
+	
+	/**
+	 * @param rowCount
+	 * @param columns
+	 * @param mix
+	 * @return SyntheticResults
+	 */
+	public static SyntheticResults create(int rowCount, int columns, Mix mix) {
+		Random random = new Random(SEED);
+		
+		List<String> identifiers = new ArrayList<String>(columns);
+		List<String> types = new ArrayList<String>(columns);
+		for (int c = 0; c < columns; c++) {
+			identifiers.add("col" + c); //$NON-NLS-1$
+			types.add(mix.types[c % mix.types.length]);
+		}
+		
+		List<List<Object>> rows = new ArrayList<List<Object>>(rowCount);
+		for (int r = 0; r < rowCount; r++) {
+			List<Object> row = new ArrayList<Object>(columns);
+			for (int c = 0; c < columns; c++) {
+				// the first column is never null, so the rows sort the same every time
+				row.add(c > 0 && random.nextInt(NULL_FREQUENCY) == 0 ? null : createValue(types.get(c), random));
+			}
+			rows.add(row);
+		}
+		return new SyntheticResults(identifiers, types, rows);
+	}
+	
+	private static Object createValue(String type, Random random) {
+		if (TagNames.Elements.INTEGER.equals(type)) {
+			return Integer.valueOf(random.nextInt());
+		} else if (TagNames.Elements.LONG.equals(type)) {
+			return Long.valueOf(random.nextLong());
+		} else if (TagNames.Elements.DOUBLE.equals(type)) {
+			return Double.valueOf(random.nextDouble() * 1000000);
+		} else if (TagNames.Elements.BIGDECIMAL.equals(type)) {
+			return BigDecimal.valueOf(random.nextInt(100000000), 2);
+		} else if (TagNames.Elements.TIMESTAMP.equals(type)) {
+			// whole seconds, so the value survives being written as text
+			return new Timestamp(1000000000000L + random.nextInt(Integer.MAX_VALUE) * 1000L);
+		}
+		char[] chars = new char[8 + random.nextInt(24)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+	
+	public List<String> getIdentifiers() {
+		return this.identifiers;
+	}
+	
+	public List<String> getTypes() {
+		return this.types;
+	}
+	
+	/**
+	 * @return a copy of the rows, which can be sorted without changing the original order
+	 */
+	public List<List<Object>> copyRows() {
+		return new ArrayList<List<Object>>(this.rows);
+	}
+	
+	/**
+	 * @param seed
+	 * @return a copy of the rows in a different order
+	 */
+	public List<List<Object>> shuffledRows(long seed) {
+		List<List<Object>> copy = copyRows();
+		Collections.shuffle(copy, new Random(seed));
+		return copy;
+	}
+	
+	/**
+	 * @param rows
+	 * @return a forward only result set of the rows
+	 */
+	public ResultSet newResultSet(List<List<Object>> rows) {
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class[] {ResultSet.class}, new Cursor(rows));
+	}
+	
+	/**
+	 * Write the rows as an expected results file, the same as they're written when generated.
+	 * @param file
+	 * @param name the name of the result
+	 * @return the file
+	 * @throws Exception
+	 */
+	public File writeExpectedResults(File file, String name) throws Exception {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			XMLResultsStreamWriter writer = new XMLResultsStreamWriter(out);
+			writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
+			writer.writeCDataElement(TagNames.Elements.QUERY, "select * from synthetic"); //$NON-NLS-1$
+			writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, 
+					TagNames.Attributes.NAME, name);
+			writer.writeResults(newResultSet(this.rows));
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.close();
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+	
+	/**
+	 * Implements the methods of the result set, and its metadata, that the tool uses 
+	 * to read results.  Any other method returns the default of its return type.
+	 */
+	private final class Cursor implements InvocationHandler {
+		private final List<List<Object>> cursorRows;
+		private final ResultSetMetaData metadata;
+		private int row = -1;
+		private boolean closed = false;
+		private boolean wasNull = false;
+		
+		Cursor(List<List<Object>> rows) {
+			this.cursorRows = rows;
+			this.metadata = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), 
+					new Class[] {ResultSetMetaData.class}, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("getColumnCount")) { //$NON-NLS-1$
+						return Integer.valueOf(identifiers.size());
+					} else if (name.equals("getColumnName") || name.equals("getColumnLabel")) { //$NON-NLS-1$ //$NON-NLS-2$
+						return identifiers.get(((Integer) args[0]).intValue() - 1);
+					} else if (name.equals("getColumnTypeName")) { //$NON-NLS-1$
+						return types.get(((Integer) args[0]).intValue() - 1);
+					}
+					return defaultValue(method.getReturnType());
+				}
+			});
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("next")) { //$NON-NLS-1$
+				return Boolean.valueOf(++this.row < this.cursorRows.size());
+			} else if (name.equals("getObject") || name.equals("getString")) { //$NON-NLS-1$ //$NON-NLS-2$
+				Object value = this.cursorRows.get(this.row).get(((Integer) args[0]).intValue() - 1);
+				this.wasNull = (value == null);
+				return (value != null && name.equals("getString") ? value.toString() : value); //$NON-NLS-1$
+			} else if (name.equals("wasNull")) { //$NON-NLS-1$
+				return Boolean.valueOf(this.wasNull);
+			} else if (name.equals("getMetaData")) { //$NON-NLS-1$
+				return this.metadata;
+			} else if (name.equals("close")) { //$NON-NLS-1$
+				this.closed = true;
+				return null;
+			} else if (name.equals("isClosed")) { //$NON-NLS-1$
+				return Boolean.valueOf(this.closed);
+			} else if (name.equals("getType")) { //$NON-NLS-1$
+				return Integer.valueOf(ResultSet.TYPE_FORWARD_ONLY);
+			} else if (name.equals("hashCode")) { //$NON-NLS-1$
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if (name.equals("equals")) { //$NON-NLS-1$
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			return defaultValue(method.getReturnType());
+		}
+	}
+	
+	private static Object defaultValue(Class<?> type) {
+		if (type == Boolean.TYPE) {
+			return Boolean.FALSE;
+		} else if (type == Integer.TYPE) {
+			return Integer.valueOf(0);
+		} else if (type == Long.TYPE) {
+			return Long.valueOf(0);
+		} else if (type == Double.TYPE) {
+			return Double.valueOf(0);
+		} else if (type == Float.TYPE) {
+			return Float.valueOf(0);
+		} else if (type == Short.TYPE) {
+			return Short.valueOf((short) 0);
+		} else if (type == Byte.TYPE) {
+			return Byte.valueOf((byte) 0);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
+import org.jdom.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading an expected results file into memory, and converting a result set
+ * to XML, using the {@link XMLQueryVisitationStrategy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLResultsBenchmark {
+	
+	@Param({"100", "10000"})
+	public int rows;
+	
+	@Param({"4", "32"})
+	public int columns;
+	
+	@Param({"STRING", "NUMERIC", "MIXED"})
+	public SyntheticResults.Mix mix;
+	
+	private SyntheticResults results;
+	private File resultsFile;
+	private XMLQueryVisitationStrategy strategy;
+	private QueryTest test;
+	
+	@Setup
+	public void setup() throws Exception {
+		this.results = SyntheticResults.create(rows, columns, mix);
+		this.resultsFile = File.createTempFile("bqt-benchmark", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.results.writeExpectedResults(resultsFile, "benchmark_synthetic"); //$NON-NLS-1$
+		this.strategy = new XMLQueryVisitationStrategy();
+		this.test = new QueryTest("benchmark", "xml", "synthetic", new QuerySQL[0]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+	
+	@TearDown
+	public void tearDown() {
+		this.resultsFile.delete();
+	}
+	
+	@Benchmark
+	public ExpectedResultsHolder parseXMLResultsFile() throws Exception {
+		return strategy.parseXMLResultsFile(test, test.getQuerySetID(), resultsFile);
+	}
+	
+	@Benchmark
+	public Element produceResults() throws Exception {
+		return strategy.produceResults(results.newResultSet(results.copyRows()));
+	}
+
+}
@@ -38,6 +38,11 @@ public class QuerySQL {
 	private int updateCnt = -1;
 	private int rowCnt = -1;
 	private int runtimes = 1;
+	// warm-up and measured executions, -1 indicates the query isn't benchmarked
+	private int warmup = -1;
+	private int iterations = -1;
+	// seconds, -1 indicates the default timeout is used
+	private int timeout = -1;
 	
 	// payload is set on the statement before execution
 	private Serializable payload;
@@ -64,6 +69,50 @@ public class QuerySQL {
 		this.runtimes = times;
 	}
 
+	/**
+	 * @return the number of executions to warm up, before those measured, or -1 when not set
+	 */
+	public int getWarmup() {
+		return this.warmup;
+	}
+	
+	public void setWarmup(int warmup) {
+		this.warmup = warmup;
+	}
+	
+	/**
+	 * @return the number of executions measured, or -1 when not set
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+	
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+	
+	/**
+	 * A benchmarked query is executed {@link #getWarmup() warmup} times, and then {@link #getIterations() iterations}
+	 * times, and unlike {@link #getRunTimes() runtimes}, the results of the last execution are 
+	 * still compared, or generated.
+	 * @return true when either the warm-up or measured iterations are set
+	 */
+	public boolean isBenchmark() {
+		return this.warmup > 0 || this.iterations > 0;
+	}
+
+	/**
+	 * @return the query timeout in seconds, where 0 indicates no timeout,  
+	 * and -1 indicates the default timeout is to be used
+	 */
+	public int getTimeout() {
+		return this.timeout;
+	}
+	
+	public void setTimeout(int seconds) {
+		this.timeout = seconds;
+	}
+
 	public int getUpdateCnt() {
 		return updateCnt;
 	}
@@ -105,6 +154,12 @@ public class QuerySQL {
 		sb.append(updateCnt);
 		sb.append("Run#Times: ");
 		sb.append(runtimes);
+		sb.append("Warmup: ");
+		sb.append(warmup);
+		sb.append("Iterations: ");
+		sb.append(iterations);
+		sb.append("Timeout: ");
+		sb.append(timeout);
 
 		return sb.toString();
 	}
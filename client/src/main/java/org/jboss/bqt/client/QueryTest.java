@@ -38,6 +38,7 @@ public class QueryTest extends ActualTest {
 	private String querySetID;
 	private String queryID;
 	private String queryScenarioID;
+	private boolean batch = false;
 
 	public QueryTest(String queryScenarioID, String querySetID, String queryID, 
 			QuerySQL[] queries) {
@@ -63,6 +64,20 @@ public class QueryTest extends ActualTest {
 		return this.queryScenarioID;
 	}
 	
+	/**
+	 * Set whether the {@link QuerySQL SQL} queries are executed as JDBC batches, instead of one
+	 * at a time.  The consecutive queries without parameters are executed as one batch, and the 
+	 * consecutive parameter sets of the same SQL as a prepared statement batch.
+	 * @param batch
+	 */
+	public void setBatch(boolean batch) {
+		this.batch = batch;
+	}
+	
+	public boolean isBatch() {
+		return this.batch;
+	}
+	
 	
 	
 	/**
@@ -24,9 +24,18 @@ package org.jboss.bqt.client;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jboss.bqt.client.api.ExpectedResultsReader;
 import org.jboss.bqt.client.api.QueryReader;
@@ -35,6 +44,7 @@ import org.jboss.bqt.core.exception.FrameworkRuntimeException;
 import org.jboss.bqt.core.util.ArgCheck;
 import org.jboss.bqt.core.util.FileUtils;
 import org.jboss.bqt.core.util.PropertiesUtils;
+import org.jboss.bqt.framework.ConfigContext;
 import org.jboss.bqt.framework.ConfigPropertyLoader;
 import org.jboss.bqt.framework.TestCaseLifeCycle;
 import org.jboss.bqt.framework.TransactionAPI;
@@ -65,8 +75,6 @@ public class TestClient {
 			"HH:mm:ss.SSS"); //$NON-NLS-1$
 	
 	public static ConfigPropertyLoader CONFIG = null;
-	
-	private QueryScenario scenario;
 
 	public TestClient() {
 
@@ -120,16 +128,15 @@ public class TestClient {
 		try {
 
 			List<File> scenarios = getScenarios();
-			for (File f:scenarios) {
-				runScenario(f);
-				
-				// reset for reloading cause there are points that call setProperty(..)
-				// on the ConfigurationProperties
-
-				ConfigPropertyLoader.reset();
-				
-				CONFIG = ConfigPropertyLoader.getInstance();
-				
+			
+			int threads = PropertiesUtils.getIntProperty(CONFIG.getProperties(), TestProperties.PROP_SCENARIO_THREADS, 1);
+			
+			if (threads > 1 && scenarios.size() > 1) {
+				runScenarios(scenarios, threads);
+			} else {
+				for (File f:scenarios) {
+					runScenario(f);
+				}
 			}
 
 
@@ -141,6 +148,54 @@ public class TestClient {
 
 	}
 	
+	/**
+	 * Run the scenarios concurrently, using at most <code>threads</code> at a time.
+	 * Each scenario has its own {@link ConfigContext}, and therefore, its own 
+	 * connection and testrun directory.  A failure in one scenario does not stop the others.
+	 * @param scenarios
+	 * @param threads
+	 * @throws InterruptedException
+	 */
+	private void runScenarios(List<File> scenarios, int threads) throws InterruptedException {
+		ClientPlugin.LOGGER.info("Running " + scenarios.size() + " scenarios using " + threads + " threads");
+		
+		final Set<String> testrunDirs = Collections.synchronizedSet(new HashSet<String>());
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, scenarios.size()));
+		List<Future<?>> futures = new ArrayList<Future<?>>(scenarios.size());
+		try {
+			for (final File f : scenarios) {
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						try {
+							ConfigContext context = init(f);
+							String testrunDir = context.getProperty(TestProperties.PROP_TESTRUN_DIR);
+							if (testrunDir != null && !testrunDirs.add(new File(testrunDir).getAbsolutePath())) {
+								throw new FrameworkRuntimeException(ClientPlugin.Util.getString("TestClient.duplicateTestRunDir", f.getName(), testrunDir)); //$NON-NLS-1$
+							}
+							runScenario(context);
+						} catch (Exception e) {
+							throw e;
+						} catch (Throwable t) {
+							throw new FrameworkRuntimeException(t);
+						}
+						return null;
+					}
+				}));
+			}
+			
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException ee) {
+					ClientPlugin.LOGGER.error(ee.getCause(), "Scenario " + scenarios.get(i).getName() + " failed: " + ee.getCause().getMessage());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
 	private List<File> getScenarios() throws Exception {
 
 		String scenario_file = CONFIG.getProperty(TestProperties.PROP_SCENARIO_FILE);
@@ -169,40 +224,41 @@ public class TestClient {
 
 	public void runScenario(File scenarioFile) throws Throwable {
 		
-		String scenario_name = init(scenarioFile);
+		runScenario(init(scenarioFile));
+	}
+	
+	private void runScenario(ConfigContext context) throws Throwable {
 
-		
-		this.scenario = QueryScenario.createInstance(scenario_name, CONFIG.getProperties());
+		QueryScenario scenario = QueryScenario.createInstance(context.getName(), context.getProperties());
 		
 		if (scenario.isSQL()) {
-			this.createSQL(scenario);
+			this.createSQL(scenario, context);
 			return;
 		}
 		ClientPlugin.LOGGER.info("Starting scenario: " + scenario.getQueryScenarioIdentifier());
 		
-		TransactionAPI tc = getTransactionContainer(CONFIG.getProperties());
+		TransactionAPI tc = getTransactionContainer(context.getProperties());
 
 		TestCaseLifeCycle testCase = scenario.getTestCase();
 		
-		testCase.setup(tc);
-		
-		testCase.runTestCase();
-		
-		testCase.cleanup();
+		// a failed scenario doesn't stop the others, so it has to release its connections
+		try {
+			testCase.setup(tc);
+			
+			testCase.runTestCase();
+		} finally {
+			testCase.cleanup();
+		}
 		
 		ClientPlugin.LOGGER.info("Completed scenario: " + scenario.getQueryScenarioIdentifier());
 
 	}
 	
-	protected QueryScenario getScenario() {
-		return this.scenario;
-	}
-	
 	protected TransactionAPI getTransactionContainer(Properties props) {
-		return TransactionFactory.create(CONFIG.getProperties());
+		return TransactionFactory.create(props);
 	}
 	
-	private String init(File scenarioFile) throws Exception {
+	private ConfigContext init(File scenarioFile) throws Exception {
 		
 		Properties sc_props = PropertiesUtils.load(scenarioFile.getAbsolutePath());
 		
@@ -233,12 +289,10 @@ public class TestClient {
 			}
 		}
 				
-		CONFIG.setProperties(sc_props);
-		
-		return scenario_name;
+		return CONFIG.createContext(scenario_name, sc_props);
 	}
 		
-	private void createSQL(QueryScenario scenario) throws Throwable {
+	private void createSQL(QueryScenario scenario, ConfigContext context) throws Throwable {
 		ClientPlugin.LOGGER.info("Start creating sql for scenario: " + scenario.getQueryScenarioIdentifier());
 
 		try {
@@ -246,19 +300,21 @@ public class TestClient {
 			//		of test case, so the testcase is executed directly
 			TestCaseLifeCycle createsqltrans = scenario.getTestCase();
 			
-			Properties props = new Properties();
+			Properties props = context.getProperties();
 			props.setProperty(TransactionFactory.TRANSACTION_TYPE, TransactionFactory.TRANSACTION_TYPES.USEDEFAULT_TRANSACTION);
 			TransactionAPI tc = getTransactionContainer(props);
 		
-			createsqltrans.setup(tc);
-			createsqltrans.runTestCase();
-			createsqltrans.cleanup();
+			try {
+				createsqltrans.setup(tc);
+				createsqltrans.runTestCase();
+			} finally {
+				createsqltrans.cleanup();
+			}
 		
 		} finally {
 
 
 			// userTxn.getConnectionStrategy().shutdown();
-			ConfigPropertyLoader.reset();
 		}
 		
 		ClientPlugin.LOGGER.info("Completed creating sql: " + scenario.getQueryScenarioIdentifier() );
@@ -87,6 +87,13 @@ public interface TestProperties {
 	 * query files
 	 */
 	public static final String PROP_QUERY_FILES_DIR_LOC = "bqt.queryfiles.loc";
+	
+	/**
+	 * {@link #PROP_QUERY_CATALOG} indicates the location of the precompiled query catalog
+	 * (see {@link org.jboss.bqt.client.query.xml.XMLQueryCatalog}) used to load the query files 
+	 * without parsing them.  When not set, the catalog is looked for in the query files directory.
+	 */
+	public static final String PROP_QUERY_CATALOG = "bqt.query.catalog";
 
 	/**
 	 * The {@link #QUERY_SET_NAME} property indicates the name of directory that
@@ -100,6 +107,14 @@ public interface TestProperties {
 	 */
 	public static final String PROP_EXPECTED_RESULTS_DIR_LOC = "bqt.expectedresults.loc";
 
+	/**
+	 * PROP_SCENARIO_THREADS indicates the number of scenarios that can be run at the same time,
+	 * when {@link #PROP_SCENARIO_FILE} refers to a directory of scenario files.  Each scenario
+	 * uses its own configuration context and writes to its own {@link #PROP_TESTRUN_DIR}.
+	 * Default is 1, which runs the scenarios one after another.
+	 */
+	public static final String PROP_SCENARIO_THREADS = "bqt.scenario.threads";
+
 	/**
 	 * PROP_RESULT_MODE controls what to do with the execution results.
 	 * 
@@ -136,6 +151,14 @@ public interface TestProperties {
 		 */
 		static final String SQL = "SQL";
 		
+		/**
+		 * LOAD - will have {@link TestProperties#PROP_LOAD_CLIENTS} clients replay the queries
+		 * for a fixed duration or number of iterations, and the summary will report the
+		 * throughput (QPS), latency percentiles and error rate, per client and overall.
+		 * The results are not compared or generated.
+		 */
+		static final String LOAD = "LOAD";
+		
 
 	}
 	
@@ -190,6 +213,219 @@ public interface TestProperties {
 	 */
 	public static final String PROP_EXECUTE_TIME_MINEMUM = "bqt.exectimemin";	 // milliseconds
 	
+	/**
+	 * PROP_COMPARE_STREAMING, when true, will compare the results of an ordered query (i.e., ORDER BY)
+	 * by reading the actual results and the expected results file row by row in lockstep,
+	 * stopping at the first mismatch, instead of loading both into memory before comparing.
+	 * The results of an unordered query are sorted using no more than {@link #PROP_COMPARE_SORT_MEMORY},
+	 * and then compared the same way.
+	 * Default is true.
+	 */
+	public static final String PROP_COMPARE_STREAMING = "bqt.compare.streaming";	
+	
+	/**
+	 * PROP_COMPARE_SORT_MEMORY indicates the number of megabytes the rows of an unordered query 
+	 * can use while being sorted for comparison.  Once exceeded, the sorted rows are written 
+	 * to temporary files and merged when compared.  The budget is split between the actual
+	 * and expected results.
+	 * Default is 64.
+	 */
+	public static final String PROP_COMPARE_SORT_MEMORY = "bqt.compare.sortmemory";	 // megabytes
+	
+	/**
+	 * PROP_COMPARE_UNORDERED indicates how the results of an unordered query are compared
+	 * when {@link #PROP_COMPARE_STREAMING} is enabled.  See {@link COMPARE_UNORDERED} for the options.
+	 * Default is {@link COMPARE_UNORDERED#SORT}.
+	 */
+	public static final String PROP_COMPARE_UNORDERED = "bqt.compare.unordered";	
+	
+	/**
+	 * PROP_EXPECTED_RESULTS_CACHE_SIZE indicates the number of megabytes the parsed expected results
+	 * can use while cached.  The cache is shared by all the scenarios run in the same process,
+	 * and keeps the most recently used expected results.  Set to 0 to disable the cache.
+	 * Default is 32.
+	 */
+	public static final String PROP_EXPECTED_RESULTS_CACHE_SIZE = "bqt.expectedresults.cachesize";	 // megabytes
+	
+	/**
+	 * PROP_EXPECTED_RESULTS_PREFETCH indicates the number of query tests, starting with the one being executed,
+	 * whose expected results are loaded on background threads while the queries run, so that
+	 * reading the expected results files overlaps with waiting on the database.  Only used when
+	 * comparing results, and requires the {@link #PROP_EXPECTED_RESULTS_CACHE_SIZE expected results cache}.
+	 * Default is 0, which loads the expected results when each query test is compared.
+	 */
+	public static final String PROP_EXPECTED_RESULTS_PREFETCH = "bqt.expectedresults.prefetch";	
+	
+	/**
+	 * PROP_EXPECTED_RESULTS_PREFETCH_MEMORY indicates the number of megabytes the prefetched expected results, 
+	 * that have not yet been compared, can use.  Expected results files that don't fit are loaded when 
+	 * their query test is compared.  It cannot be more than the {@link #PROP_EXPECTED_RESULTS_CACHE_SIZE}.
+	 * Default is 16.
+	 */
+	public static final String PROP_EXPECTED_RESULTS_PREFETCH_MEMORY = "bqt.expectedresults.prefetchmemory";	 // megabytes
+	
+	public interface COMPARE_UNORDERED {
+		/**
+		 * SORT - both results are sorted, and then compared row by row
+		 */
+		static final String SORT = "sort";
+		/**
+		 * HASH - the rows of both results are counted by their hash, which requires no sorting,
+		 * and the rows whose counts do not match are reported
+		 */
+		static final String HASH = "hash";
+	}
+	
+	/**
+	 * PROP_QUERY_TIMEOUT indicates the default number of seconds a query can run before it is canceled,
+	 * and the test is marked as timed out.  A query can override the default by specifying
+	 * the <code>timeout</code> attribute on the query (or sql) in the query file.
+	 * Default is 0, which indicates there is no timeout.
+	 */
+	public static final String PROP_QUERY_TIMEOUT = "bqt.query.timeout";	 // seconds
+	
+	/**
+	 * PROP_QUERY_TIMEOUT_HISTORY_FACTOR, when greater than 0, gives each query that doesn't
+	 * specify a <code>timeout</code> attribute a timeout of its highest p99 latency, over the runs
+	 * kept by the run history (see {@link #PROP_HISTORY_ENABLED}, which has to be true), times 
+	 * this factor, rounded up to seconds.  The latency is the time to execute, while the timeout 
+	 * also covers reading the results, so the factor should allow for that.  A query that has 
+	 * no history uses {@link #PROP_QUERY_TIMEOUT}.
+	 * Default is 0, which doesn't derive the timeouts.
+	 */
+	public static final String PROP_QUERY_TIMEOUT_HISTORY_FACTOR = "bqt.query.timeout.historyfactor";	
+	
+	/**
+	 * PROP_RESULTSET_FORWARD_ONLY, when true, executes the queries with forward only result sets,
+	 * so that the driver can stream the results from the server as they are read, instead of
+	 * buffering them to allow scrolling.  None of the result modes require scrolling.
+	 * Default is true.  Set to false to use scroll insensitive result sets.
+	 */
+	public static final String PROP_RESULTSET_FORWARD_ONLY = "bqt.resultset.forwardonly";	
+	
+	/**
+	 * PROP_FETCH_SIZE indicates the number of rows the driver fetches from the server at a time
+	 * while the results are read.  
+	 * Default is 0, which leaves the fetch size to the driver.
+	 */
+	public static final String PROP_FETCH_SIZE = "bqt.fetchsize";	
+	
+	/**
+	 * PROP_FETCH_SIZE_ADAPTIVE, when true, learns the fetch size of each query test from the row count, 
+	 * average row width and time until the first row of its results, and uses it the next time
+	 * the query test is run (see <code>FetchSizeAdvisor</code>).  A query test
+	 * that hasn't been learned uses {@link #PROP_FETCH_SIZE}.
+	 * Default is false.
+	 */
+	public static final String PROP_FETCH_SIZE_ADAPTIVE = "bqt.fetchsize.adaptive";	
+	
+	/**
+	 * PROP_FETCH_SIZE_MEMORY indicates the number of megabytes a single fetch of a learned 
+	 * fetch size can use, based on the observed row width.
+	 * Default is 4.
+	 */
+	public static final String PROP_FETCH_SIZE_MEMORY = "bqt.fetchsize.memory";	 // megabytes
+	
+	/**
+	 * PROP_FETCH_SIZE_FILE indicates the file the learned fetch sizes are kept in between runs.
+	 * The fetch sizes are kept per scenario, so the scenarios can share the file.
+	 * Default is <code>fetchsizes.properties</code> in the {@link #PROP_OUTPUT_DIR}.
+	 */
+	public static final String PROP_FETCH_SIZE_FILE = "bqt.fetchsize.file";	
+	
+	/**
+	 * PROP_STATEMENT_CACHE_SIZE indicates the number of prepared (and callable) statements that are
+	 * cached for each connection, keyed by their SQL, so that a query executed more than once
+	 * (i.e., <code>numtimes</code>, or by other query tests) reuses the statement.  The least recently
+	 * used statement is closed when the cache is full.  The hits and misses are shown in the summary.
+	 * Default is 0, which indicates statements aren't cached.
+	 */
+	public static final String PROP_STATEMENT_CACHE_SIZE = "bqt.statementcache.size";	
+	
+	/**
+	 * PROP_PHASE_TIMINGS, when true, will time the phases of processing each query test 
+	 * (i.e., execute, first row, fetch, expected results parse, compare and error file write),
+	 * which are shown in the summaries.  Fetching is timed by wrapping the result set, 
+	 * so this can be turned off to read the driver's result set directly.
+	 * Default is true.
+	 */
+	public static final String PROP_PHASE_TIMINGS = "bqt.timing.phases";	
+	
+	/**
+	 * PROP_HISTORY_ENABLED, when true, will keep the median latency of each query test 
+	 * over the last {@link #PROP_HISTORY_RUNS} runs, and write the query tests whose latency
+	 * regressed from those runs to the <code>Regressions_</code> report in the {@link #PROP_OUTPUT_DIR}.
+	 * Default is false.
+	 */
+	public static final String PROP_HISTORY_ENABLED = "bqt.history.enabled";	
+	
+	/**
+	 * PROP_HISTORY_FILE indicates the file the run history is kept in.
+	 * The history is kept per scenario, so the scenarios can share the file.
+	 * Default is <code>runhistory.properties</code> in the {@link #PROP_OUTPUT_DIR}.
+	 */
+	public static final String PROP_HISTORY_FILE = "bqt.history.file";	
+	
+	/**
+	 * PROP_HISTORY_RUNS indicates the number of runs kept for each query test.
+	 * Default is 20.
+	 */
+	public static final String PROP_HISTORY_RUNS = "bqt.history.runs";	
+	
+	/**
+	 * PROP_HISTORY_MIN_RUNS indicates the number of previous runs a query test needs 
+	 * before its latency can be flagged as a regression.
+	 * Default is 5.
+	 */
+	public static final String PROP_HISTORY_MIN_RUNS = "bqt.history.minruns";	
+	
+	/**
+	 * PROP_HISTORY_THRESHOLD indicates the robust z-score (the number of scaled median absolute
+	 * deviations above the median of the previous runs) a run has to exceed to be a regression.
+	 * Default is 3.5.
+	 */
+	public static final String PROP_HISTORY_THRESHOLD = "bqt.history.threshold";	
+	
+	/**
+	 * PROP_EXECUTION_THREADS indicates the number of worker threads that will execute
+	 * the queries within a query set.  Each worker uses its own transaction and connection,
+	 * and takes the next query test from a queue shared by all the workers.  
+	 * The results (i.e., summaries and error files) are the same as running serially.
+	 * Default is 1, which executes the queries one after another.
+	 */
+	public static final String PROP_EXECUTION_THREADS = "bqt.execution.threads";	
+	
+	/**
+	 * PROP_EXECUTION_VIRTUAL_THREADS, when true, will execute each query test on its own thread, 
+	 * using virtual threads when the JVM supports them, instead of using a fixed set of workers.
+	 * The {@link #PROP_EXECUTION_THREADS} then indicates the maximum number of query tests
+	 * that can be in-flight at one time.  This is intended for putting load on the server
+	 * with a large number of concurrent queries.
+	 * Default is false.
+	 */
+	public static final String PROP_EXECUTION_VIRTUAL_THREADS = "bqt.execution.virtualthreads";	
+	
+
+	/**
+	 * PROP_LOAD_CLIENTS indicates the number of clients, each with its own connection,
+	 * that will replay the query set concurrently when using {@link RESULT_MODES#LOAD}.
+	 * Default is 1.
+	 */
+	public static final String PROP_LOAD_CLIENTS = "bqt.load.clients";
+	
+	/**
+	 * PROP_LOAD_DURATION indicates the number of seconds each client will replay the 
+	 * query set when using {@link RESULT_MODES#LOAD}.  When set, it takes
+	 * precedence over {@link #PROP_LOAD_ITERATIONS}.
+	 */
+	public static final String PROP_LOAD_DURATION = "bqt.load.duration";	 // seconds
+	
+	/**
+	 * PROP_LOAD_ITERATIONS indicates the number of times each client will replay the
+	 * query set when using {@link RESULT_MODES#LOAD} and no {@link #PROP_LOAD_DURATION}
+	 * is specified.  Default is 1.
+	 */
+	public static final String PROP_LOAD_ITERATIONS = "bqt.load.iterations";	
 
 	public interface PRE1_0_SCENARIO_SUPPORT {
 		public static final String SUPPORT_PRE1_0_SCENARIO = "support.pre1.0.scenario";
@@ -39,11 +39,14 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.jboss.bqt.client.api.QueryScenario;
 import org.jboss.bqt.framework.TestResult;
+import org.jboss.bqt.framework.util.LatencyHistogram;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -51,6 +54,10 @@ public class TestResultsSummary {
 
 	private static final String OVERALL_SUMMARY_FILE = "Summary_totals.txt";
 	private static final String OVERALL_SUMMARY_ERROR_FILE = "Summary_errors.txt";
+	private static final String LATENCY_FILE_EXT = ".hist"; //$NON-NLS-1$
+	
+	private static final double[] PERCENTILES = new double[] {50, 90, 99, 99.9};
+	private static final String LATENCY_HEADING = "p50\tp90\tp99\tp999\tMax(mils)"; //$NON-NLS-1$
 	private static final SimpleDateFormat FILE_NAME_DATE_FORMATER = new SimpleDateFormat(
 			"yyyyMMdd_HHmmss"); //$NON-NLS-1$
 
@@ -62,12 +69,20 @@ public class TestResultsSummary {
 	private int total_fail = 0;
 	private int total_querysets = 0;
 	private long total_seconds = 0;
+	private long total_statement_cache_hits = 0;
+	private long total_statement_cache_misses = 0;
+	private LatencyHistogram total_latencies = new LatencyHistogram();
+	private LatencyHistogram total_cold_latencies = new LatencyHistogram();
+	private long[] total_phase_times = new long[TestResult.PHASE.NAMES.length];
 	private List<String> failed_queries = new ArrayList<String>();
 	private List<String> query_sets = new ArrayList<String>(10);
 	private QueryScenario scenario = null;
 
 	private Map<String, Collection<TestResult>> TestResults = Collections
 			.synchronizedMap(new HashMap<String, Collection<TestResult>>());
+	
+	// load executions are folded into these as they complete, rather than kept
+	private Map<String, LoadResults> loadResults = new HashMap<String, LoadResults>();
 
 	public TestResultsSummary(QueryScenario queryscenario) {
 		this.scenario = queryscenario;
@@ -77,6 +92,7 @@ public class TestResultsSummary {
 		failed_queries.clear();
 		query_sets.clear();
 		TestResults.clear();
+		loadResults.clear();
 		scenario=null;
 	}
 
@@ -100,6 +116,22 @@ public class TestResultsSummary {
 
 	}
 
+	/**
+	 * Add the result of a load execution.  Unlike {@link #addTest(String, TestResult)}, the 
+	 * result isn't kept, it's added to the statistics of its client and query, so that the
+	 * memory used doesn't grow with the length of the load run.
+	 * @param querySetID
+	 * @param result
+	 */
+	public synchronized void addLoadTest(String querySetID, TestResult result) {
+		LoadResults results = this.loadResults.get(querySetID);
+		if (results == null) {
+			results = new LoadResults();
+			this.loadResults.put(querySetID, results);
+		}
+		results.add(result);
+	}
+
 	public Collection<TestResult> getTests(String querySetID) {
 		return this.TestResults.get(querySetID);
 	}
@@ -284,15 +316,262 @@ public class TestResultsSummary {
 				.println("Of Pass, Number Expected Failures: " + passFailGenMap.get(MAP_EXP_FAIL)); //$NON-NLS-1$ //$NON-NLS-2$
 		outputStream
 				.println("Number Failed    : " + passFailGenMap.get(MAP_FAIL)); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		long hits = 0;
+		long misses = 0;
+		for (Iterator it = results.iterator(); it.hasNext();) {
+			TestResult stat = (TestResult) it.next();
+			hits += stat.getStatementCacheHits();
+			misses += stat.getStatementCacheMisses();
+		}
+		printStatementCache(outputStream, hits, misses);
+		
+		LatencyHistogram latencies = getLatencies(results);
+		outputStream.println("Latency          : " + LATENCY_HEADING); //$NON-NLS-1$
+		outputStream.println("                   " + formatLatencies(latencies)); //$NON-NLS-1$
+		printColdLatencies(outputStream, getColdLatencies(results));
+		outputStream.println("Phases (mils)    : " + getPhaseHeading()); //$NON-NLS-1$
+		outputStream.println("                   " + formatPhaseTimes(getPhaseTimes(results))); //$NON-NLS-1$
 
 		Iterator resultItr = results.iterator();
 		while (resultItr.hasNext()) {
 			TestResult stat = (TestResult) resultItr.next();
 			writeQueryResult(outputStream, formatter, stat);
 		}
+		
+		outputStream.println("=================="); //$NON-NLS-1$
+		outputStream.println(pad("Query", 30, ' ') + "\tExecs\t" + LATENCY_HEADING + "\t" + getPhaseHeading()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		resultItr = results.iterator();
+		while (resultItr.hasNext()) {
+			TestResult stat = (TestResult) resultItr.next();
+			LatencyHistogram h = stat.getLatencies();
+			outputStream.println(pad(stat.getQueryID(), 30, ' ') 
+					+ "\t" + h.getCount() //$NON-NLS-1$
+					+ "\t" + formatLatencies(h) //$NON-NLS-1$
+					+ "\t" + formatPhaseTimes(getPhaseTimes(Collections.singletonList(stat)))); //$NON-NLS-1$
+			
+			LatencyHistogram cold = stat.getColdLatencies();
+			if (cold.getCount() > 0) {
+				outputStream.println(pad(stat.getQueryID() + " (cold)", 30, ' ')  //$NON-NLS-1$
+						+ "\t" + cold.getCount() //$NON-NLS-1$
+						+ "\t" + formatLatencies(cold)); //$NON-NLS-1$
+			}
+		}
 
 	}
 	
+	/**
+	 * Merge the latencies of the tests that didn't fail.
+	 */
+	private static LatencyHistogram getLatencies(Collection results) {
+		LatencyHistogram latencies = new LatencyHistogram();
+		for (Iterator it = results.iterator(); it.hasNext();) {
+			TestResult stat = (TestResult) it.next();
+			if (!stat.isFailure()) {
+				latencies.add(stat.getLatencies());
+			}
+		}
+		return latencies;
+	}
+	
+	/**
+	 * Merge the latencies of the warm-up executions, of the tests that didn't fail.
+	 */
+	private static LatencyHistogram getColdLatencies(Collection results) {
+		LatencyHistogram latencies = new LatencyHistogram();
+		for (Iterator it = results.iterator(); it.hasNext();) {
+			TestResult stat = (TestResult) it.next();
+			if (!stat.isFailure()) {
+				latencies.add(stat.getColdLatencies());
+			}
+		}
+		return latencies;
+	}
+	
+	/**
+	 * The cold latencies are only printed when queries were warmed up.
+	 */
+	private static void printColdLatencies(PrintStream outputStream, LatencyHistogram cold) {
+		if (cold.getCount() > 0) {
+			outputStream.println("Cold Latency     : " + LATENCY_HEADING); //$NON-NLS-1$
+			outputStream.println("                   " + formatLatencies(cold)); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * @return the percentiles and max of the latencies, in milliseconds, separated by tabs
+	 */
+	static String formatLatencies(LatencyHistogram latencies) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			sb.append(formatMillis(latencies.getValueAtPercentile(PERCENTILES[i]))).append('\t');
+		}
+		sb.append(formatMillis(latencies.getMax()));
+		return sb.toString();
+	}
+	
+	/**
+	 * @return the total nanoseconds spent in each {@link TestResult.PHASE} by the tests
+	 */
+	private static long[] getPhaseTimes(Collection results) {
+		long[] times = new long[TestResult.PHASE.NAMES.length];
+		for (Iterator it = results.iterator(); it.hasNext();) {
+			TestResult stat = (TestResult) it.next();
+			for (int p = 0; p < times.length; p++) {
+				times[p] += stat.getPhaseTime(p);
+			}
+		}
+		return times;
+	}
+	
+	private static String getPhaseHeading() {
+		return StringUtils.join(TestResult.PHASE.NAMES, '\t');
+	}
+	
+	private static String formatPhaseTimes(long[] nanos) {
+		StringBuffer sb = new StringBuffer();
+		for (int p = 0; p < nanos.length; p++) {
+			if (p > 0) sb.append('\t');
+			sb.append(formatMillis(nanos[p]));
+		}
+		return sb.toString();
+	}
+	
+	private static String formatMillis(long nanos) {
+		return (nanos < 0 ? "-1" : formatDecimal(nanos / 1000000.0)); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Print the results of a load run, which are the throughput, latency percentiles and 
+	 * error rate, overall, per client and per query.  The individual executions
+	 * are not printed, because there can be a very large number of them.
+	 */
+	private void printLoadTests(PrintStream outputStream,
+			Date testStartTS, Date endTS, Date length, int numberOfClients, int runNumber,
+			LoadResults results) {
+		
+		double elapsedSecs = length.getTime() / 1000.0;
+		LoadStats overall = results.overall;
+		
+		outputStream.println("Load TestResult Results [" + this.scenario.getResultsMode() + "]"); //$NON-NLS-1$
+		outputStream.println("=================="); //$NON-NLS-1$
+		outputStream.println("Start        Time: " + testStartTS); //$NON-NLS-1$
+		outputStream.println("End          Time: " + endTS); //$NON-NLS-1$
+		outputStream
+				.println("Elapsed      Time: " + (length.getTime() / 1000) + " seconds"); //$NON-NLS-1$ //$NON-NLS-2$
+		outputStream.println("Number of Clients: " + numberOfClients); //$NON-NLS-1$
+		outputStream.println("Run Number       : " + runNumber); //$NON-NLS-1$
+		outputStream.println("Executions       : " + overall.count); //$NON-NLS-1$
+		outputStream.println("Number Failed    : " + overall.failed); //$NON-NLS-1$
+		outputStream.println("Error Rate (%)   : " + formatDecimal(overall.getErrorRate())); //$NON-NLS-1$
+		outputStream.println("QPS              : " + formatDecimal(overall.getQPS(elapsedSecs))); //$NON-NLS-1$
+
+		outputStream.println("=================="); //$NON-NLS-1$
+		printLoadStatsHeading(outputStream, "Client"); //$NON-NLS-1$
+		printLoadStats(outputStream, overall, elapsedSecs);
+		for (LoadStats cs : results.clients.values()) {
+			printLoadStats(outputStream, cs, elapsedSecs);
+		}
+		
+		outputStream.println("=================="); //$NON-NLS-1$
+		printLoadStatsHeading(outputStream, "Query"); //$NON-NLS-1$
+		for (LoadStats qs : results.queries.values()) {
+			printLoadStats(outputStream, qs, elapsedSecs);
+		}
+		outputStream.println("=================="); //$NON-NLS-1$
+	}
+	
+	private static void printLoadStatsHeading(PrintStream outputStream, String name) {
+		outputStream.println(pad(name, 30, ' ') + "\tExecs\tFailed\tError%\tQPS\t" + LATENCY_HEADING); //$NON-NLS-1$
+	}
+
+	private static void printLoadStats(PrintStream outputStream, LoadStats stats, double elapsedSecs) {
+		outputStream.println(pad(stats.name, 30, ' ') 
+				+ "\t" + stats.count //$NON-NLS-1$
+				+ "\t" + stats.failed //$NON-NLS-1$
+				+ "\t" + formatDecimal(stats.getErrorRate()) //$NON-NLS-1$
+				+ "\t" + formatDecimal(stats.getQPS(elapsedSecs)) //$NON-NLS-1$
+				+ "\t" + formatLatencies(stats.latencies)); //$NON-NLS-1$
+	}
+	
+	private static String formatDecimal(double d) {
+		return String.valueOf(Math.round(d * 100) / 100.0);
+	}
+	
+	/**
+	 * Accumulates the latencies for a set of load executions.  Only
+	 * successful executions are included in the latency.
+	 */
+	private static class LoadStats {
+		final String name;
+		int count = 0;
+		int failed = 0;
+		LatencyHistogram latencies = new LatencyHistogram();
+		
+		LoadStats(String name) {
+			this.name = name;
+		}
+		
+		void add(TestResult stat) {
+			++count;
+			if (stat.isFailure()) {
+				++failed;
+			} else {
+				latencies.add(stat.getLatencies());
+			}
+		}
+		
+		double getErrorRate() {
+			return (count > 0 ? (failed * 100.0) / count : 0);
+		}
+		
+		double getQPS(double elapsedSecs) {
+			return (elapsedSecs > 0 ? count / elapsedSecs : -1.0);
+		}
+	}
+	
+	/**
+	 * The statistics of the load executions of a query set, overall, per client and per query.  
+	 * Only the first failure of each query is kept for the summary of failed queries.
+	 */
+	private static class LoadResults {
+		final LoadStats overall = new LoadStats("Overall"); //$NON-NLS-1$
+		final Map<Integer, LoadStats> clients = new TreeMap<Integer, LoadStats>();
+		final Map<String, LoadStats> queries = new TreeMap<String, LoadStats>();
+		final Map<String, String> failures = new LinkedHashMap<String, String>();
+		final long[] phaseTimes = new long[TestResult.PHASE.NAMES.length];
+		long statementCacheHits = 0;
+		long statementCacheMisses = 0;
+		
+		void add(TestResult stat) {
+			overall.add(stat);
+			
+			Integer c = Integer.valueOf(stat.getClientNum());
+			LoadStats cs = clients.get(c);
+			if (cs == null) {
+				cs = new LoadStats("Client " + c); //$NON-NLS-1$
+				clients.put(c, cs);
+			}
+			cs.add(stat);
+			
+			LoadStats qs = queries.get(stat.getQueryID());
+			if (qs == null) {
+				qs = new LoadStats(stat.getQueryID());
+				queries.put(stat.getQueryID(), qs);
+			}
+			qs.add(stat);
+			
+			if (stat.isFailure() && !failures.containsKey(stat.getQueryID())) {
+				failures.put(stat.getQueryID(), stat.getExceptionMsg());
+			}
+			for (int p = 0; p < phaseTimes.length; p++) {
+				phaseTimes[p] += stat.getPhaseTime(p);
+			}
+			statementCacheHits += stat.getStatementCacheHits();
+			statementCacheMisses += stat.getStatementCacheMisses();
+		}
+	}
+	
 	private static final String MAP_QUERIES = "queries";
 	private static final String MAP_PASS = "pass";
 	private static final String MAP_FAIL = "fail";
@@ -312,6 +591,7 @@ public class TestResultsSummary {
 			++queries;
 			switch (stat.getStatus()) {
 			case TestResult.RESULT_STATE.TEST_EXCEPTION:
+			case TestResult.RESULT_STATE.TEST_TIMEOUT:
 				++fail;
 				break;
 			case TestResult.RESULT_STATE.TEST_SUCCESS:
@@ -336,11 +616,7 @@ public class TestResultsSummary {
 		int queries = 0;
 		int pass = 0;
 		int fail = 0;
-		int succeed = 0;
-		
-		double avg;
-		double totalFullMilliSecs = 0.0;
-
+		LatencyHistogram latencies = new LatencyHistogram();
 
 		String queryset = null;
 
@@ -353,8 +629,11 @@ public class TestResultsSummary {
 			}
 
 			++queries;
+			total_statement_cache_hits += stat.getStatementCacheHits();
+			total_statement_cache_misses += stat.getStatementCacheMisses();
 			switch (stat.getStatus()) {
 			case TestResult.RESULT_STATE.TEST_EXCEPTION:
+			case TestResult.RESULT_STATE.TEST_TIMEOUT:
 				++fail;
 
 				String msg = 
@@ -369,10 +648,8 @@ public class TestResultsSummary {
 				break;
 			case TestResult.RESULT_STATE.TEST_SUCCESS:
 				++pass;
-				++succeed;
-				
-				totalFullMilliSecs += ( stat.getEndTS() - stat.getBeginTS());
-				
+				latencies.add(stat.getLatencies());
+				total_cold_latencies.add(stat.getColdLatencies());
 				break;
 			case TestResult.RESULT_STATE.TEST_EXPECTED_EXCEPTION:
 				++pass;
@@ -380,10 +657,14 @@ public class TestResultsSummary {
 			}
 		}
 		
-		avg = (succeed > 0 ? totalFullMilliSecs / succeed: -1.0);	
+		total_latencies.add(latencies);
+		long[] phaseTimes = getPhaseTimes(results);
+		for (int p = 0; p < phaseTimes.length; p++) {
+			total_phase_times[p] += phaseTimes[p];
+		}
 
 		this.query_sets.add("\t" + pad(queryset, 42, ' ') + "\t" + pass + "\t" + fail
-				+ "\t" + queries + "\t" + (lengthTime.getTime() / 1000) + "\t\t" + avg);
+				+ "\t" + queries + "\t" + (lengthTime.getTime() / 1000) + "\t\t" + formatLatencies(latencies));
 
 		total_fail = total_fail + fail;
 		total_pass = total_pass + pass;
@@ -421,6 +702,14 @@ public class TestResultsSummary {
 
 		String testname = scenario.getQueryScenarioIdentifier();
 		Collection<TestResult> TestResults = getTests(querySetID);
+		LoadResults load = null;
+		synchronized (this) {
+			load = this.loadResults.get(querySetID);
+		}
+		if (load != null) {
+			printLoadResults(querySetID, testStartTS, endTS, numberOfClients, runNumber, load);
+			return;
+		}
 		// Properties props = scenario.getProperties();
 		String outputDir = scenario.getTestRunDir();
 
@@ -465,6 +754,15 @@ public class TestResultsSummary {
 					numberOfClients, TestClient.TSFORMAT, TestResults);
 			printQueryTests(overwriteStream, starttest, endtest,
 					diffdate, numberOfClients, TestClient.TSFORMAT, TestResults);
+			
+			// HTML version of the output
+			PrintStream htmlStream = getSummaryStream(outputDir, querySetID + "_" + scenario.getResultsMode() + ".html", true); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				printHtmlQueryTests(htmlStream, testStartTS, endTS, numberOfClients, 
+						TestClient.TSFORMAT, TestResults);
+			} finally {
+				htmlStream.close();
+			}
 
 
 			// Wiki Update
@@ -520,7 +818,73 @@ public class TestResultsSummary {
 		}
 	}
 
+	/**
+	 * Print the results of the load executions of the query set, which were added
+	 * by {@link #addLoadTest(String, TestResult)}.
+	 */
+	private void printLoadResults(String querySetID, long testStartTS, long endTS, 
+			int numberOfClients, int runNumber, LoadResults load) throws IOException {
+		
+		if (load.overall.count == 0) {
+			return;
+		}
+		String outputDir = scenario.getTestRunDir();
+		PrintStream outputStream = getSummaryStream(outputDir, 
+				generateFileName(querySetID, scenario.getResultsMode(), System.currentTimeMillis()));
+		PrintStream overwriteStream = getSummaryStream(outputDir, querySetID + "_" + scenario.getResultsMode(), true); //$NON-NLS-1$
+		
+		Date starttest = new Date(testStartTS);
+		Date endtest = new Date(endTS);
+		Date diffdate = new Date(endTS - testStartTS);
+		total_seconds = total_seconds + (endTS - testStartTS);
+		
+		addTotalLoad(querySetID, load, diffdate);
+		try {
+			printLoadTests(outputStream, starttest, endtest, diffdate,
+					numberOfClients, runNumber, load);
+			printLoadTests(overwriteStream, starttest, endtest, diffdate,
+					numberOfClients, runNumber, load);
+		} finally {
+			outputStream.close();
+			overwriteStream.close();
+		}
+	}
+	
+	private void addTotalLoad(String querySetID, LoadResults load, Date lengthTime) {
+		int queries = load.overall.count;
+		int fail = load.overall.failed;
+		int pass = queries - fail;
+		
+		total_querysets++;
+		total_statement_cache_hits += load.statementCacheHits;
+		total_statement_cache_misses += load.statementCacheMisses;
+		for (int p = 0; p < total_phase_times.length; p++) {
+			total_phase_times[p] += load.phaseTimes[p];
+		}
+		total_latencies.add(load.overall.latencies);
+		
+		for (Map.Entry<String, String> failure : load.failures.entrySet()) {
+			String msg = StringUtils.remove(StringUtils.remove(failure.getValue(), '\r'), '\n');
+			this.failed_queries.add(querySetID + "." + failure.getKey() + "~" + msg); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		
+		this.query_sets.add("\t" + pad(querySetID, 42, ' ') + "\t" + pass + "\t" + fail
+				+ "\t" + queries + "\t" + (lengthTime.getTime() / 1000) + "\t\t" + formatLatencies(load.overall.latencies));
+
+		total_fail = total_fail + fail;
+		total_pass = total_pass + pass;
+		total_queries = total_queries + queries;
+	}
+
 	public void printTotals() throws Exception {
+		// the overall summary files are shared by all the scenarios written
+		// to the same output directory, which can be running concurrently
+		synchronized (TestResultsSummary.class) {
+			writeTotals();
+		}
+	}
+
+	private void writeTotals() throws Exception {
 		// String outputDir = scenario.getResultsGenerator().getOutputDir();
 		String scenario_name = scenario.getQueryScenarioIdentifier();
 		String querysetname = scenario.getQuerySetName();
@@ -552,7 +916,7 @@ public class TestResultsSummary {
 		outputStream.println("=================="); //$NON-NLS-1$
 		outputStream
 				.println("\t" + pad("Name", 42, ' ') +  
-						"\t" + "Pass" + "\t" + "Fail" + "\t" + "Total" + "\t" + "Time(sec)" + "\t"+ " Avg(mils)"); //$NON-NLS-1$
+						"\t" + "Pass" + "\t" + "Fail" + "\t" + "Total" + "\t" + "Time(sec)" + "\t\t" + LATENCY_HEADING); //$NON-NLS-1$
 
 		if (!this.query_sets.isEmpty()) {
 			// sort so that like failed queries are show together
@@ -567,7 +931,20 @@ public class TestResultsSummary {
 
 		outputStream.println("\t" + pad("Totals", 42, ' ')
 				+ "\t" + total_pass + "\t"
-				+ total_fail + "\t" + total_queries + "\t" +  (total_seconds / 1000) );
+				+ total_fail + "\t" + total_queries + "\t" +  (total_seconds / 1000) 
+				+ "\t\t" + formatLatencies(total_latencies));
+		printStatementCache(outputStream, total_statement_cache_hits, total_statement_cache_misses);
+		printColdLatencies(outputStream, total_cold_latencies);
+		outputStream.println("Phases (mils)    : " + getPhaseHeading()); //$NON-NLS-1$
+		outputStream.println("                   " + formatPhaseTimes(total_phase_times)); //$NON-NLS-1$
+		
+		// the histogram is written so the latencies of runs on other machines can be merged with it
+		try {
+			total_latencies.write(new File(summarydir, 
+					"Latency_" + querysetname + "_" + scenario_name + LATENCY_FILE_EXT)); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException ioe) {
+			ClientPlugin.LOGGER.error(ioe, "Failed to write the latency histogram for scenario " + scenario_name); //$NON-NLS-1$
+		}
 
 		try {
 			overallsummary.write(pad(scenario_name, 42, ' ') + " \t"
@@ -631,6 +1008,16 @@ public class TestResultsSummary {
 
 	}
 
+	/**
+	 * Print the hits and misses of the statement cache, when statements were cached.
+	 */
+	private static void printStatementCache(PrintStream outputStream, long hits, long misses) {
+		if (hits + misses == 0) {
+			return;
+		}
+		outputStream.println("Statement Cache  : " + hits + " hits, " + misses + " misses"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
 	private static String pad(String src, int padTo, char padChar) {
 		int numPad = padTo - src.length();
 		if (numPad > 0) {
@@ -648,7 +1035,7 @@ public class TestResultsSummary {
 
 	private static String generateFileName(String configName, String resultmode, long timestamp) {
 		return configName + "_" + resultmode
-				+ "_" + FILE_NAME_DATE_FORMATER.format(new Date(timestamp));
+				+ "_" + getFormattedTimestamp(FILE_NAME_DATE_FORMATER, timestamp);
 		//+ "_Run-" + runNumber; //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
@@ -701,6 +1088,11 @@ public class TestResultsSummary {
 		addTableRow(htmlCode, "QPS :", Double.toString(responseTimes.qps)); //$NON-NLS-1$ 
 		//        addTableRow(htmlCode, "Ave First Resp   :", Double.toString(responseTimes.first)); //$NON-NLS-1$ 
 		//        addTableRow(htmlCode, "Ave Full Resp    :", Double.toString(responseTimes.full)); //$NON-NLS-1$ 
+		
+		long[] phaseTimes = getPhaseTimes(results);
+		for (int p = 0; p < phaseTimes.length; p++) {
+			addTableRow(htmlCode, TestResult.PHASE.NAMES[p] + " (mils) :", formatMillis(phaseTimes[p])); //$NON-NLS-1$
+		}
 
 		htmlCode.append("</table> <p>").append(NL); //$NON-NLS-1$
 		htmlCode.append("<table border=\"1\">").append(NL); //$NON-NLS-1$
@@ -712,6 +1104,9 @@ public class TestResultsSummary {
 		addTableData(htmlCode, "Result"); //$NON-NLS-1$
 		addTableData(htmlCode, "First Response"); //$NON-NLS-1$
 		addTableData(htmlCode, "Total Seconds"); //$NON-NLS-1$
+		for (int p = 0; p < TestResult.PHASE.NAMES.length; p++) {
+			addTableData(htmlCode, TestResult.PHASE.NAMES[p] + " (mils)"); //$NON-NLS-1$
+		}
 		addTableData(htmlCode, "Exception"); //$NON-NLS-1$
 		addTableData(htmlCode, "Error File (if any)"); //$NON-NLS-1$
 		htmlCode.append("</tr>").append(NL); //$NON-NLS-1$
@@ -728,9 +1123,13 @@ public class TestResultsSummary {
 
 			// Long.toString(stat.getBeginTS()));
 			addTableData(htmlCode,
-					Long.toString((stat.getEndTS() - stat.getBeginTS() / 1000)));
+					Long.toString(stat.getExecutionTime() / 1000));
 			// Long.toString(stat.getEndTS()));
-			if (stat.getStatus() == TestResult.RESULT_STATE.TEST_EXCEPTION) {
+			for (int p = 0; p < TestResult.PHASE.NAMES.length; p++) {
+				addTableData(htmlCode, formatMillis(stat.getPhaseTime(p)));
+			}
+			if (stat.getStatus() == TestResult.RESULT_STATE.TEST_EXCEPTION 
+					|| stat.getStatus() == TestResult.RESULT_STATE.TEST_TIMEOUT) {
 				addTableData(htmlCode, stat.getExceptionMsg());
 				if (stat.getErrorfile() != null
 						&& !stat.getErrorfile().equals("null")) { //$NON-NLS-1$
@@ -745,6 +1144,8 @@ public class TestResultsSummary {
 			htmlCode.append("</tr>").append(NL); //$NON-NLS-1$
 		}
 		htmlCode.append("</table>").append(NL); //$NON-NLS-1$
+		htmlCode.append("</body>").append(NL); //$NON-NLS-1$
+		htmlCode.append("</html>").append(NL); //$NON-NLS-1$
 		outputStream.print(htmlCode.toString());
 	}
 
@@ -858,7 +1259,10 @@ public class TestResultsSummary {
 
 	private static String getFormattedTimestamp(SimpleDateFormat format,
 			long millis) {
-		return format.format(new Date(millis));
+		// the formats are shared across scenarios that may run concurrently
+		synchronized (format) {
+			return format.format(new Date(millis));
+		}
 	}
 
 	private static class ResponseTimes {
@@ -101,6 +101,22 @@ public abstract class ExpectedResultsReader {
 	 * @since
 	 */
 	public abstract ExpectedResults getExpectedResults(ActualTest queryTest) throws FrameworkRuntimeException;
+	
+	/**
+	 * Called ahead of the test being run, from a background thread, to load its 
+	 * expected results so that they are ready when {@link #getExpectedResults(ActualTest)} 
+	 * is called.  All the rows are loaded, even when they would otherwise be streamed.
+	 * The default does not prefetch.
+	 * 
+	 * @param queryTest
+	 * @param maxLength the size of the largest expected results file to load
+	 * @return ExpectedResults that were loaded, or <code>null</code> if none were 
+	 * 		loaded (i.e., the file does not exist or is larger than <code>maxLength</code>)
+	 * @throws FrameworkRuntimeException
+	 */
+	public ExpectedResults prefetchExpectedResults(ActualTest queryTest, long maxLength) throws FrameworkRuntimeException {
+		return null;
+	}
 
 	/**
 	 * Called to compare the <code>ResultSet</code> from the executed query to
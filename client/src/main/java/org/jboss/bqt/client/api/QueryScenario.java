@@ -24,7 +24,9 @@ package org.jboss.bqt.client.api;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.jboss.bqt.client.ClientPlugin;
@@ -36,6 +38,7 @@ import org.jboss.bqt.client.TestResultsSummary;
 import org.jboss.bqt.client.resultmode.Compare;
 import org.jboss.bqt.client.resultmode.CreateSQLQuery;
 import org.jboss.bqt.client.resultmode.GenerateExpectedResults;
+import org.jboss.bqt.client.resultmode.Load;
 import org.jboss.bqt.client.resultmode.None;
 import org.jboss.bqt.client.testcase.ProcessResults;
 import org.jboss.bqt.client.util.BQTUtil;
@@ -68,6 +71,7 @@ public abstract class QueryScenario {
 	protected QueryWriter writer = null;
 	protected ExpectedResultsReader resultsReader = null;
 	
+	private Map<String, List<ExpectedResultsReader>> resultsReaders = new HashMap<String, List<ExpectedResultsReader>>();
 	private List<ExpectedResultsWriter> resultsWriters = null;
 	private ErrorWriter errorWriter = null;
 	private TestResultsSummary summary = null;
@@ -90,6 +94,8 @@ public abstract class QueryScenario {
 			scenario = new GenerateExpectedResults(scenarioName, properties);
 		} else if (resultModeStr.equals(TestProperties.RESULT_MODES.NONE)) {
 			scenario = new None(scenarioName, properties);
+		} else if (resultModeStr.equals(TestProperties.RESULT_MODES.LOAD)) {
+			scenario = new Load(scenarioName, properties);
 		} else {
 			// default is SQL
 			scenario = new CreateSQLQuery(scenarioName, properties);
@@ -182,6 +188,10 @@ public abstract class QueryScenario {
 		return false;
 	}
 	
+	public boolean isLoad() {
+		return false;
+	}
+	
 
 	public boolean isExpectedResultsNeeded() {
 		return (isCompare());
@@ -264,12 +274,32 @@ public abstract class QueryScenario {
 	 */
 	public abstract void handleTestResult(TestCase testcase, TransactionAPI transaction) throws QueryTestFailedException, FrameworkException;
 
+	/**
+	 * Return the {@link ExpectedResultsReader}s for the query set of the test.  The readers 
+	 * are created the first time a query set is used, and are reused for the rest of its tests.
+	 * @param testCase
+	 * @return List of ExpectedResultsReader
+	 */
 	public List<ExpectedResultsReader> getExpectedResultsReaders(TestCase testCase) {
-		return fileType.getExpectedResultsReaders(this, getProperties(), ( (QueryTest)testCase.getActualTest()).getQuerySetID());
+		return getExpectedResultsReaders(( (QueryTest)testCase.getActualTest()).getQuerySetID());
+	}
+	
+	/**
+	 * Return the {@link ExpectedResultsReader}s for the query set.
+	 * @param querySetID
+	 * @return List of ExpectedResultsReader
+	 */
+	public synchronized List<ExpectedResultsReader> getExpectedResultsReaders(String querySetID) {
+		List<ExpectedResultsReader> readers = resultsReaders.get(querySetID);
+		if (readers == null) {
+			readers = fileType.getExpectedResultsReaders(this, getProperties(), querySetID);
+			resultsReaders.put(querySetID, readers);
+		}
+		return readers;
 	}
 
 	
-	public List<ExpectedResultsWriter> getExpectedResultsWriters() throws FrameworkException {
+	public synchronized List<ExpectedResultsWriter> getExpectedResultsWriters() throws FrameworkException {
 		if (resultsWriters == null) {
 			resultsWriters = fileType.getExpectedResultsWriters(this, getProperties());
 		}
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.binary.BinaryResultsFile;
+import org.jboss.bqt.client.results.binary.BinaryResultsReader;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.client.xml.XMLErrorWriter;
+import org.jboss.bqt.client.xml.XMLResultsStreamWriter;
+
+/**
+ * BinaryErrorWriter writes the same XML error files as {@link XMLErrorWriter},
+ * reading the expected results from a {@link BinaryResultsFile binary expected
+ * results file} so that the error files stay readable.
+ */
+public class BinaryErrorWriter extends XMLErrorWriter {
+
+	public BinaryErrorWriter(QueryScenario scenario, Properties props) {
+		super(scenario, props);
+	}
+
+	@Override
+	protected void writeExpectedResults(XMLResultsStreamWriter writer,
+			File expectedResultFile, String name) throws XMLStreamException,
+			IOException {
+		if (!BinaryResultsFile.isBinaryResultsFile(expectedResultFile)) {
+			super.writeExpectedResults(writer, expectedResultFile, name);
+			return;
+		}
+		
+		BinaryResultsReader reader = null;
+		try {
+			reader = new BinaryResultsReader(expectedResultFile);
+		} catch (Throwable e) {
+			writer.writeException(e);
+			return;
+		}
+		try {
+			if (reader.isException()) {
+				String className = reader.getExceptionClassName();
+				writer.writeStartElement(name);
+				writer.writeElement(TagNames.Elements.EXCEPTION_TYPE, 
+						className.substring(className.lastIndexOf('.') + 1));
+				writer.writeElement(TagNames.Elements.MESSAGE, reader.getExceptionMsg());
+				writer.writeElement(TagNames.Elements.CLASS, className);
+				writer.writeEndElement();
+			} else if (reader.getIdentifiers().isEmpty()) {
+				writer.writeElement(name, null);
+			} else {
+				writer.writeStartElement(name);
+				writer.writeResults(reader.getIdentifiers(), reader.getTypes(), reader);
+				writer.writeEndElement();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.binary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.api.ExpectedResultsReader;
+import org.jboss.bqt.client.api.ExpectedResultsWriter;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.binary.BinaryExpectedResultsReader;
+import org.jboss.bqt.client.results.binary.BinaryExpectedResultsWriter;
+import org.jboss.bqt.client.results.teiid.TeiidQueryPlanReader;
+import org.jboss.bqt.client.results.teiid.TeiidQueryPlanWriter;
+import org.jboss.bqt.client.xml.XMLFileType;
+import org.jboss.bqt.core.util.PropertiesUtils;
+
+/**
+ * BinaryFileType keeps the query files in XML, but reads and writes the expected 
+ * results as {@link org.jboss.bqt.client.results.binary.BinaryResultsFile binary 
+ * expected results files}.  Select it by setting the <code>file.type.classname</code>
+ * property to this class name.  Existing XML expected results can be migrated with
+ * {@link org.jboss.bqt.client.results.binary.BinaryResultsConverter}.
+ */
+public class BinaryFileType extends XMLFileType {
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see org.jboss.bqt.client.FileType#getErrorWriterClassName()
+	 */
+	@Override
+	public String getErrorWriterClassName() {
+		return BinaryErrorWriter.class.getName();
+	}
+
+	@Override
+	public List<ExpectedResultsReader> getExpectedResultsReaders(QueryScenario scenario, Properties properties, String querySetID) {
+		List<ExpectedResultsReader> resultsReaders = new ArrayList<ExpectedResultsReader>(2);
+		
+		Collection<Object> args = new ArrayList<Object>(3);
+		args.add(scenario);
+		args.add(querySetID);
+		args.add(properties);
+
+		resultsReaders.add( (ExpectedResultsReader) createInstance(BinaryExpectedResultsReader.class.getName(), args) );
+
+		boolean queryPlan = PropertiesUtils.getBooleanProperty(properties, TestProperties.QUERY_PLAN, false);
+
+		if (queryPlan) {
+			resultsReaders.add( (ExpectedResultsReader) createInstance(TeiidQueryPlanReader.class.getName(), args) );
+		}
+		
+		return resultsReaders;
+	}
+
+	@Override
+	public List<ExpectedResultsWriter> getExpectedResultsWriters(QueryScenario scenario, Properties properties)  {
+		List<ExpectedResultsWriter> resultsWriters = new ArrayList<ExpectedResultsWriter>(2);
+		
+		resultsWriters.add( createExpectedResultsWriter(scenario, properties, BinaryExpectedResultsWriter.class.getName() ) );
+		
+		boolean queryPlan = PropertiesUtils.getBooleanProperty(properties, TestProperties.QUERY_PLAN, false);
+
+		if (queryPlan) {
+			resultsWriters.add( createExpectedResultsWriter(scenario, properties, TeiidQueryPlanWriter.class.getName() ) );
+		}
+		
+		return resultsWriters;
+	}
+
+}
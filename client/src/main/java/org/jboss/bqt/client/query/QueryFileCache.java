@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.bqt.client.QueryTest;
+
+/**
+ * QueryFileCache holds the query tests parsed from each query file, so that a query file
+ * is parsed once per process no matter how many scenarios use it.  The query tests are 
+ * keyed by the canonical path of the query file, and are only returned while the file has 
+ * the same length and modification time as when it was parsed.
+ * <p>
+ * Because a {@link QueryTest} identifies the scenario it is run for, each scenario
+ * is given its own copies of the query tests, which share the parsed {@link org.jboss.bqt.client.QuerySQL}s.
+ */
+public final class QueryFileCache {
+	
+	private static final QueryFileCache INSTANCE = new QueryFileCache();
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private long hits = 0;
+	private long misses = 0;
+	
+	public static QueryFileCache getInstance() {
+		return INSTANCE;
+	}
+	
+	QueryFileCache() {
+	}
+	
+	/**
+	 * Return copies of the query tests parsed from the query file for the scenario,
+	 * or <code>null</code> when the file hasn't been parsed or has changed since.
+	 * @param queryFile
+	 * @param queryScenarioID
+	 * @return List of QueryTest
+	 */
+	public synchronized List<QueryTest> get(File queryFile, String queryScenarioID) {
+		String key = getKey(queryFile);
+		Entry entry = entries.get(key);
+		if (entry == null || entry.lastModified != queryFile.lastModified() || entry.length != queryFile.length()) {
+			if (entry != null) {
+				entries.remove(key);
+			}
+			misses++;
+			return null;
+		}
+		hits++;
+		
+		List<QueryTest> tests = new ArrayList<QueryTest>(entry.tests.size());
+		for (QueryTest t : entry.tests) {
+			QueryTest test = new QueryTest(queryScenarioID, t.getQuerySetID(), t.getQueryID(), t.getQueries());
+			test.setBatch(t.isBatch());
+			tests.add(test);
+		}
+		return tests;
+	}
+	
+	/**
+	 * Cache the query tests parsed from the query file.
+	 * @param queryFile
+	 * @param tests
+	 */
+	public synchronized void put(File queryFile, List<QueryTest> tests) {
+		entries.put(getKey(queryFile), new Entry(queryFile, new ArrayList<QueryTest>(tests)));
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	private static String getKey(File queryFile) {
+		try {
+			return queryFile.getCanonicalPath();
+		} catch (IOException e) {
+			return queryFile.getAbsolutePath();
+		}
+	}
+	
+	private static final class Entry {
+		final List<QueryTest> tests;
+		final long lastModified;
+		final long length;
+		
+		Entry(File queryFile, List<QueryTest> tests) {
+			this.tests = tests;
+			this.lastModified = queryFile.lastModified();
+			this.length = queryFile.length();
+		}
+	}
+
+}
@@ -0,0 +1,298 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.query.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.util.BQTUtil;
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.core.util.FileUtils;
+
+/**
+ * XMLQueryCatalog is a precompiled, binary form of the query files in a directory, so that
+ * the query tests can be loaded without parsing the XML.  It is created by {@link #compile(File, File)}
+ * (or by running this class), and found by the {@link XMLQueryReader} using 
+ * {@link TestProperties#PROP_QUERY_CATALOG}, or as {@link #DEFAULT_FILE_NAME} in the query files directory.
+ * <p>
+ * Each query file is recorded with its length, modification time and checksum.  The query tests 
+ * of a file are only taken from the catalog while the file is unchanged; a file whose length or 
+ * modification time differ is checksummed to decide.  Files that have changed, or that are 
+ * not in the catalog, are parsed as XML.
+ */
+public final class XMLQueryCatalog {
+	
+	/**
+	 * The name of the catalog in the query files directory when 
+	 * {@link TestProperties#PROP_QUERY_CATALOG} is not set
+	 */
+	public static final String DEFAULT_FILE_NAME = "queries.bqtc"; //$NON-NLS-1$
+	
+	private static final int MAGIC = 0x42515443;
+	private static final int VERSION = 3;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final Map<String, Entry> entries;
+	
+	private XMLQueryCatalog(Map<String, Entry> entries) {
+		this.entries = entries;
+	}
+	
+	/**
+	 * Load the catalog.
+	 * @param catalogFile
+	 * @return XMLQueryCatalog, or <code>null</code> if the catalog doesn't exist or cannot be read
+	 */
+	public static XMLQueryCatalog load(File catalogFile) {
+		if (!catalogFile.exists()) {
+			return null;
+		}
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(catalogFile), BUFFER_SIZE));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				ClientPlugin.LOGGER.warn("Query catalog " + catalogFile.getAbsolutePath() + " is not a valid catalog, the query files will be parsed"); //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			}
+			int count = in.readInt();
+			Map<String, Entry> entries = new HashMap<String, Entry>(count * 2);
+			for (int i = 0; i < count; i++) {
+				Entry entry = readEntry(in);
+				entries.put(entry.fileName, entry);
+			}
+			ClientPlugin.LOGGER.info("Loaded query catalog " + catalogFile.getAbsolutePath() + " of " + count + " query files"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return new XMLQueryCatalog(entries);
+		} catch (Exception e) {
+			ClientPlugin.LOGGER.warn("Unable to read query catalog " + catalogFile.getAbsolutePath() + ", the query files will be parsed: " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Return the query tests of the query file, when the file has not changed since the
+	 * catalog was compiled.
+	 * @param queryFile
+	 * @param queryScenarioID the scenario the query tests are for
+	 * @return List of QueryTest, or <code>null</code> if the file is not in the catalog or has changed
+	 */
+	public List<QueryTest> getQueries(File queryFile, String queryScenarioID) {
+		Entry entry = entries.get(queryFile.getName());
+		if (entry == null) {
+			return null;
+		}
+		if (entry.length != queryFile.length() || entry.lastModified != queryFile.lastModified()) {
+			try {
+				if (entry.length != queryFile.length() || entry.checksum != checksum(queryFile)) {
+					return null;
+				}
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		
+		List<QueryTest> tests = new ArrayList<QueryTest>(entry.tests.size());
+		for (QueryTest t : entry.tests) {
+			QueryTest test = new QueryTest(queryScenarioID, t.getQuerySetID(), t.getQueryID(), t.getQueries());
+			test.setBatch(t.isBatch());
+			tests.add(test);
+		}
+		return tests;
+	}
+	
+	public int getQueryFileCount() {
+		return entries.size();
+	}
+	
+	/**
+	 * Compile the query files in the directory into the catalog.
+	 * @param queryDir
+	 * @param catalogFile
+	 * @return the number of query files compiled
+	 * @throws FrameworkException if a query file cannot be parsed, or the catalog cannot be written
+	 */
+	public static int compile(File queryDir, File catalogFile) throws FrameworkException {
+		File files[] = BQTUtil.getQuerySetFiles(queryDir.getAbsolutePath());
+		
+		// written to a temporary file first, so a reader never sees a partial catalog
+		File tempFile = new File(catalogFile.getAbsolutePath() + ".tmp"); //$NON-NLS-1$
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(files.length);
+				for (int i = 0; i < files.length; i++) {
+					File queryFile = files[i];
+					String querySetID = FileUtils.getFilenameWithoutExtension(queryFile.getName());
+					List<QueryTest> tests = XMLQueryReader.parseQueries(null, queryFile, querySetID);
+					writeEntry(out, new Entry(queryFile.getName(), queryFile.length(), 
+							queryFile.lastModified(), checksum(queryFile), tests));
+					out.reset();
+				}
+			} finally {
+				out.close();
+			}
+			if (catalogFile.exists() && !catalogFile.delete()) {
+				throw new IOException("Unable to replace " + catalogFile.getAbsolutePath()); //$NON-NLS-1$
+			}
+			if (!tempFile.renameTo(catalogFile)) {
+				throw new IOException("Unable to rename " + tempFile.getAbsolutePath()); //$NON-NLS-1$
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			throw new FrameworkException(e, "Failed to compile the query catalog " + catalogFile.getAbsolutePath()); //$NON-NLS-1$
+		}
+		
+		ClientPlugin.LOGGER.info("Compiled " + files.length + " query files into " + catalogFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+		return files.length;
+	}
+	
+	static long checksum(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				crc.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+	
+	private static void writeEntry(ObjectOutputStream out, Entry entry) throws IOException {
+		out.writeUTF(entry.fileName);
+		out.writeLong(entry.length);
+		out.writeLong(entry.lastModified);
+		out.writeLong(entry.checksum);
+		out.writeInt(entry.tests.size());
+		for (QueryTest t : entry.tests) {
+			out.writeObject(t.getQuerySetID());
+			out.writeObject(t.getQueryID());
+			out.writeBoolean(t.isBatch());
+			QuerySQL[] queries = t.getQueries();
+			out.writeInt(queries.length);
+			for (int i = 0; i < queries.length; i++) {
+				QuerySQL sql = queries[i];
+				out.writeObject(sql.getSql());
+				out.writeObject(sql.getParms());
+				out.writeInt(sql.getUpdateCnt());
+				out.writeInt(sql.getRowCnt());
+				out.writeInt(sql.getRunTimes());
+				out.writeInt(sql.getWarmup());
+				out.writeInt(sql.getIterations());
+				out.writeInt(sql.getTimeout());
+				out.writeObject(sql.getPayLoad());
+			}
+		}
+	}
+	
+	private static Entry readEntry(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		String fileName = in.readUTF();
+		long length = in.readLong();
+		long lastModified = in.readLong();
+		long checksum = in.readLong();
+		int count = in.readInt();
+		List<QueryTest> tests = new ArrayList<QueryTest>(count);
+		for (int i = 0; i < count; i++) {
+			String querySetID = (String) in.readObject();
+			String queryID = (String) in.readObject();
+			boolean batch = in.readBoolean();
+			QuerySQL[] queries = new QuerySQL[in.readInt()];
+			for (int q = 0; q < queries.length; q++) {
+				QuerySQL sql = new QuerySQL((String) in.readObject(), (Object[]) in.readObject());
+				sql.setUpdateCnt(in.readInt());
+				sql.setRowCnt(in.readInt());
+				sql.setRunTimes(in.readInt());
+				sql.setWarmup(in.readInt());
+				sql.setIterations(in.readInt());
+				sql.setTimeout(in.readInt());
+				sql.setPayLoad((Serializable) in.readObject());
+				queries[q] = sql;
+			}
+			QueryTest test = new QueryTest(null, querySetID, queryID, queries);
+			test.setBatch(batch);
+			tests.add(test);
+		}
+		return new Entry(fileName, length, lastModified, checksum, tests);
+	}
+	
+	private static final class Entry {
+		final String fileName;
+		final long length;
+		final long lastModified;
+		final long checksum;
+		final List<QueryTest> tests;
+		
+		Entry(String fileName, long length, long lastModified, long checksum, List<QueryTest> tests) {
+			this.fileName = fileName;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.checksum = checksum;
+			this.tests = tests;
+		}
+	}
+	
+	/**
+	 * Compile the query files: <code>XMLQueryCatalog &lt;query files dir&gt; [catalog file]</code>
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: XMLQueryCatalog <query files dir> [catalog file]"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		File queryDir = new File(args[0]);
+		File catalogFile = (args.length > 1 ? new File(args[1]) : new File(queryDir, DEFAULT_FILE_NAME));
+		int count = compile(queryDir, catalogFile);
+		System.out.println("Compiled " + count + " query files into " + catalogFile.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
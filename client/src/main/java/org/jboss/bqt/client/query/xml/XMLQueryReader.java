@@ -37,6 +37,7 @@ import org.jboss.bqt.client.QueryTest;
 import org.jboss.bqt.client.TestProperties;
 import org.jboss.bqt.client.api.QueryReader;
 import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.query.QueryFileCache;
 import org.jboss.bqt.client.util.BQTUtil;
 import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
 import org.jboss.bqt.core.exception.FrameworkRuntimeException;
@@ -47,6 +48,10 @@ public class XMLQueryReader extends QueryReader {
 	private String query_dir_loc = null;
 
 	private Map<String, File> querySetIDToFileMap = new HashMap<String, File>();
+	
+	// loaded when a query file is first needed that isn't already cached
+	private File catalogFile = null;
+	private XMLQueryCatalog catalog = null;
 
 	public XMLQueryReader(QueryScenario scenario, Properties props) {
 		super(scenario, props);
@@ -57,6 +62,10 @@ public class XMLQueryReader extends QueryReader {
 		}
 
 		loadQuerySetIDtoFileMap();
+		
+		String catalogLoc = props.getProperty(TestProperties.PROP_QUERY_CATALOG);
+		catalogFile = (catalogLoc != null ? new File(catalogLoc) 
+				: new File(query_dir_loc, XMLQueryCatalog.DEFAULT_FILE_NAME));
 	}
 	
 	
@@ -104,7 +113,6 @@ public class XMLQueryReader extends QueryReader {
 
 	}
 
-	@SuppressWarnings("unchecked")
 	private List<QueryTest> loadQueries(String querySetID, File queryFile)
 			throws IOException {
 
@@ -116,12 +124,42 @@ public class XMLQueryReader extends QueryReader {
 		}
 		// Get query set name
 		//			String querySet = getQuerySetName(queryFileName) ; //$NON-NLS-1$
-
+		
+		// the same query file may have already been parsed for another scenario
+		String queryScenarioID = this.getQueryScenario().getQueryScenarioIdentifier();
+		List<QueryTest> tests = QueryFileCache.getInstance().get(queryFile, queryScenarioID);
+		if (tests != null) {
+			return tests;
+		}
+		
+		if (catalogFile != null) {
+			catalog = XMLQueryCatalog.load(catalogFile);
+			catalogFile = null;
+		}
+		if (catalog != null) {
+			tests = catalog.getQueries(queryFile, queryScenarioID);
+		}
+		if (tests == null) {
+			tests = parseQueries(queryScenarioID, queryFile, querySetID);
+		}
+		QueryFileCache.getInstance().put(queryFile, tests);
+		return tests;
+	}
+	
+	/**
+	 * Parse the query tests from the query file, and check that their names are unique.
+	 * @param queryScenarioID
+	 * @param queryFile
+	 * @param querySetID
+	 * @return List of QueryTest
+	 * @throws IOException if the query file cannot be parsed
+	 */
+	@SuppressWarnings("unchecked")
+	static List<QueryTest> parseQueries(String queryScenarioID, File queryFile, String querySetID) throws IOException {
 		XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
 		List<QueryTest> tests = null;
 		try {
-			tests = jstrat.parseXMLQueryFile(this.getQueryScenario().getQueryScenarioIdentifier(),
-					queryFile, querySetID);
+			tests = jstrat.parseXMLQueryFile(queryScenarioID, queryFile, querySetID);
 		} catch (Exception e) {
 			String msg = "Error reading query file: " + queryFile.getName(); //$NON-NLS-1$ //$NON-NLS-2$
 			ClientPlugin.LOGGER.error(e, msg);
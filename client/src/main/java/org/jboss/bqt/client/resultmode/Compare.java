@@ -29,8 +29,10 @@ import org.jboss.bqt.client.api.ExpectedResults;
 import org.jboss.bqt.client.api.ExpectedResultsReader;
 import org.jboss.bqt.client.api.QueryScenario;
 import org.jboss.bqt.client.api.QueryWriter;
+import org.jboss.bqt.client.util.BQTUtil;
 import org.jboss.bqt.core.exception.FrameworkException;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
+import org.jboss.bqt.framework.AbstractQuery;
 import org.jboss.bqt.framework.TestCase;
 import org.jboss.bqt.framework.TestResult;
 import org.jboss.bqt.framework.TransactionAPI;
@@ -89,9 +91,20 @@ public class Compare extends QueryScenario {
 		 for (ExpectedResultsReader reader : readers) {	
 			 ExpectedResults es = null;
 			 Throwable testException = null;
+				long begin = System.nanoTime();
 				try {
 					es = reader.getExpectedResults(testCase.getActualTest());
-					reader.compareResults(testCase, transaction, es, isOrdered(tr.getQuery()));
+					tr.addPhaseTime(TestResult.PHASE.EXPECTED_PARSE, System.nanoTime() - begin);
+					
+					// the rows read while comparing are timed as fetched
+					long fetched = getFetchNanos(transaction);
+					begin = System.nanoTime();
+					try {
+						reader.compareResults(testCase, transaction, es, BQTUtil.isOrdered(tr.getQuery()));
+					} finally {
+						tr.addPhaseTime(TestResult.PHASE.COMPARE, System.nanoTime() - begin 
+								- (getFetchNanos(transaction) - fetched));
+					}
 
 				} catch (QueryTestFailedException qtf) {
 					testException = qtf;
@@ -113,13 +126,7 @@ public class Compare extends QueryScenario {
 		 }	
 	}
 	
-	private boolean isOrdered(String sql) {
-		if (sql == null) return false;
-
-		if (sql.toLowerCase().indexOf(" order by ") > 0) {
-			return true;
-		}
-		return false;
-
+	private static long getFetchNanos(TransactionAPI transaction) {
+		return (transaction instanceof AbstractQuery ? ((AbstractQuery) transaction).getFetchNanos() : 0);
 	}
 }
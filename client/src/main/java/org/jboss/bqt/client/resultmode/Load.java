@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.resultmode;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.api.QueryWriter;
+import org.jboss.bqt.client.testcase.LoadTest;
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.core.util.ArgCheck;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TestCaseLifeCycle;
+import org.jboss.bqt.framework.TestResult;
+import org.jboss.bqt.framework.TransactionAPI;
+
+/**
+ * The Load Result Mode controls the process for putting load on the server, by having
+ * multiple clients replay the queries.  Like {@link None}, no post execution processing is 
+ * done, other than creating error files.  The summary reports the throughput and latency.
+ * <p>
+ * Because every client replays the same queries, only the first failure of a query
+ * creates its error file, otherwise the clients would write the same file at the same time.
+ * The rest of the failures are counted in the summary.
+ * </p>
+ */
+public class Load extends QueryScenario {
+	
+	// the queries, by querySetID.queryID, that an error file was written for
+	private final ConcurrentMap<String, Boolean> errorFiles = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * @param scenarioName
+	 * @param queryProperties
+	 */
+	public Load(String scenarioName, Properties queryProperties) {
+		super(scenarioName, queryProperties);
+
+	}
+	
+	@Override
+	public boolean isLoad() {
+		return true;
+	}
+	
+	@Override
+	public String getResultsMode()
+	{
+		return TestProperties.RESULT_MODES.LOAD;
+	}
+	
+	@Override
+	public synchronized QueryWriter getQueryWriter() {
+		return null;
+	}
+	
+	@Override
+	public TestCaseLifeCycle getTestCase() {
+		return new LoadTest(this);
+	}
+
+	@Override
+	public void handleTestResult(TestCase testCase, TransactionAPI transaction) throws FrameworkException {
+		// create error files for any query that doesn't execute successfully
+		ArgCheck.isNotNull(testCase, "TestResult must be passed in");
+
+		TestResult result = testCase.getTestResult();
+		if (result.getStatus() == TestResult.RESULT_STATE.TEST_EXCEPTION) {
+			String key = result.getQuerySetID() + "." + result.getQueryID(); //$NON-NLS-1$
+			if (errorFiles.putIfAbsent(key, Boolean.TRUE) == null) {
+				this.getErrorWriter().generateErrorFile(result, result.getException());
+			} else {
+				ClientPlugin.LOGGER.debug("Error file already written for QueryID [" + key + "], client " + result.getClientNum()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.util.ExternalRecordSorter;
+import org.jboss.bqt.core.util.PropertiesUtils;
+
+/**
+ * ExpectedResultsCache holds the most recently used {@link ExpectedResultsHolder expected results}, 
+ * keyed by their expected results file, so that re-running a query set, or running the same 
+ * query sets under several scenarios, does not parse the same files again.  
+ * <p>
+ * The cache is shared by the whole process and is bounded by the estimated size of the
+ * cached rows, {@link TestProperties#PROP_EXPECTED_RESULTS_CACHE_SIZE}, evicting the least 
+ * recently used entries first.  An entry is only returned while its file has the same length 
+ * and modification time as when it was loaded, so regenerated files are read again.
+ * <p>
+ * A cached holder is shared, and therefore must not be changed once it has been cached.
+ */
+public class ExpectedResultsCache {
+	
+	/**
+	 * The default {@link TestProperties#PROP_EXPECTED_RESULTS_CACHE_SIZE}, in megabytes
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 32;
+	
+	// rough size of an entry without its rows
+	private static final long ENTRY_OVERHEAD = 512;
+
+	private static ExpectedResultsCache INSTANCE = null;
+	
+	private final long maxSize;
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+	
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	
+	/**
+	 * Return the cache shared by the process.  It is created using the 
+	 * {@link TestProperties#PROP_EXPECTED_RESULTS_CACHE_SIZE} of the first caller.
+	 * @param props
+	 * @return ExpectedResultsCache
+	 */
+	public static synchronized ExpectedResultsCache getInstance(Properties props) {
+		if (INSTANCE == null) {
+			INSTANCE = new ExpectedResultsCache(PropertiesUtils.getLongProperty(props, 
+					TestProperties.PROP_EXPECTED_RESULTS_CACHE_SIZE, DEFAULT_CACHE_SIZE) * 1024L * 1024L);
+		}
+		return INSTANCE;
+	}
+	
+	/**
+	 * @param maxSize the number of bytes the cached expected results can use,
+	 * 		where 0 disables the cache
+	 */
+	public ExpectedResultsCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Return the expected results loaded from the file, or <code>null</code>
+	 * if they are not cached or the file has changed since.
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder
+	 */
+	public synchronized ExpectedResultsHolder get(File resultsFile) {
+		if (maxSize <= 0) {
+			return null;
+		}
+		String key = resultsFile.getAbsolutePath();
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (entry.lastModified == resultsFile.lastModified() && entry.length == resultsFile.length()) {
+				hits++;
+				return entry.holder;
+			}
+			entries.remove(key);
+			size -= entry.size;
+		}
+		misses++;
+		return null;
+	}
+	
+	/**
+	 * Cache the expected results loaded from the file.  Results larger than
+	 * the cache are not cached.
+	 * @param resultsFile
+	 * @param holder
+	 */
+	public synchronized void put(File resultsFile, ExpectedResultsHolder holder) {
+		if (maxSize <= 0 || !resultsFile.exists()) {
+			return;
+		}
+		Entry entry = new Entry(resultsFile, holder);
+		if (entry.size > maxSize) {
+			return;
+		}
+		Entry previous = entries.put(resultsFile.getAbsolutePath(), entry);
+		if (previous != null) {
+			size -= previous.size;
+		}
+		size += entry.size;
+		
+		Iterator<Entry> iter = entries.values().iterator();
+		while (size > maxSize && iter.hasNext()) {
+			size -= iter.next().size;
+			iter.remove();
+		}
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+	
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+	
+	/**
+	 * @return the estimated number of bytes used by the cached expected results
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Estimate the heap used by the expected results.
+	 * @param holder
+	 * @return the estimated number of bytes
+	 */
+	@SuppressWarnings("rawtypes")
+	public static long estimateSize(ExpectedResultsHolder holder) {
+		long est = ENTRY_OVERHEAD;
+		if (holder.getIdentifiers() != null) {
+			est += ExternalRecordSorter.estimateSize(holder.getIdentifiers()) * 2;
+		}
+		List rows = holder.getRows();
+		if (rows != null) {
+			for (int i = 0; i < rows.size(); i++) {
+				est += ExternalRecordSorter.estimateSize((List) rows.get(i));
+			}
+		}
+		return est;
+	}
+	
+	private static final class Entry {
+		final ExpectedResultsHolder holder;
+		final long lastModified;
+		final long length;
+		final long size;
+		
+		Entry(File resultsFile, ExpectedResultsHolder holder) {
+			this.holder = holder;
+			this.lastModified = resultsFile.lastModified();
+			this.length = resultsFile.length();
+			this.size = estimateSize(holder);
+		}
+	}
+
+}
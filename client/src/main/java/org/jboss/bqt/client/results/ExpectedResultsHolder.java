@@ -49,6 +49,10 @@ public class ExpectedResultsHolder extends ExpectedResults {
 	private List rows;
 	private List types;
 	private List identifiers;
+	
+	// when true, the rows were not loaded and will be read from the 
+	// expected results file while comparing
+	private boolean rowsStreamed = false;
 
 	// Exception
 	private String exceptionClassName;
@@ -128,6 +132,20 @@ public class ExpectedResultsHolder extends ExpectedResults {
 		this.identifiers = identifiers;
 	}
 
+	/**
+	 * Returns true when the rows were not loaded into this holder, and instead
+	 * are to be read from the {@link #getExpectedResultsFile() expected results file}
+	 * as the comparison advances through the actual results.
+	 * @return boolean true if the rows are streamed
+	 */
+	public boolean isRowsStreamed() {
+		return rowsStreamed;
+	}
+
+	public void setRowsStreamed(boolean rowsStreamed) {
+		this.rowsStreamed = rowsStreamed;
+	}
+
 	public String getExceptionClassName() {
 		return exceptionClassName;
 	}
@@ -0,0 +1,45 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results;
+
+import java.util.List;
+
+/**
+ * An ExpectedRowReader is a forward-only cursor over the rows of an expected 
+ * results file, used to compare the rows without loading them all into memory.
+ * Each {@link org.jboss.bqt.client.FileType} format provides its own.
+ */
+public interface ExpectedRowReader {
+	
+	/**
+	 * Read the next expected row.
+	 * @return List of the cell values, or <code>null</code> when there are no more rows
+	 */
+	List<Object> nextRow();
+	
+	/**
+	 * Release the file being read.
+	 */
+	void close();
+
+}
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.api.ExpectedResults;
+import org.jboss.bqt.client.api.ExpectedResultsReader;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.xml.XMLCompareResults;
+import org.jboss.bqt.core.exception.FrameworkRuntimeException;
+import org.jboss.bqt.core.exception.QueryTestFailedException;
+import org.jboss.bqt.core.util.PropertiesUtils;
+import org.jboss.bqt.framework.AbstractQuery;
+import org.jboss.bqt.framework.ActualTest;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TransactionAPI;
+
+/**
+ * FileExpectedResultsReader reads the expected results of each query from its own file, 
+ * in the format of the subclass, and compares them using {@link XMLCompareResults}.
+ * <p>
+ * The expected results are kept in the {@link ExpectedResultsCache}.  When 
+ * {@link TestProperties#PROP_COMPARE_STREAMING} is true, only the header of the file is 
+ * loaded, and the rows are read while they're compared, unless they were 
+ * {@link #prefetchExpectedResults(ActualTest, long) prefetched}.
+ * </p>
+ */
+public abstract class FileExpectedResultsReader extends ExpectedResultsReader {
+	
+	private XMLCompareResults compare;
+	private ExpectedResults lastResults;
+	private ActualTest lastTest;
+	private boolean streaming;
+	private ExpectedResultsCache cache;
+
+	public FileExpectedResultsReader(QueryScenario scenario, String querySetID, Properties props) {
+		super(scenario, querySetID, props);
+
+		File dir = new File(this.getExpectResultsLocation() + File.separator + querySetID);
+		if (!dir.exists()) {
+			if (this.getQueryScenario().isExpectedResultsNeeded()) {			
+				throw new FrameworkRuntimeException("Query expected results directory "
+						+ dir.getAbsolutePath() + " does not exist");
+			}
+		} else if (dir.list() == null) {
+			throw new FrameworkRuntimeException("Query expected results directory "
+					+ dir.getAbsolutePath() + " does not contain any files");
+		}
+		
+		compare = XMLCompareResults.create(props);
+		streaming = PropertiesUtils.getBooleanProperty(props, TestProperties.PROP_COMPARE_STREAMING, true);
+		cache = ExpectedResultsCache.getInstance(props);
+
+		ClientPlugin.LOGGER.debug("Expected results loc: " + dir.getAbsolutePath());
+	}
+	
+	/**
+	 * @return the extension, including the period, of the expected results files
+	 */
+	protected abstract String getFileExtension();
+	
+	/**
+	 * Load the header of the expected results, so the rows can be read while they're compared.
+	 * @param test
+	 * @param resultsFile that exists
+	 * @return the expected results without their rows, or <code>null</code> if the 
+	 * 		file can't be streamed, in which case it's {@link #load(QueryTest, File) loaded}
+	 */
+	protected abstract ExpectedResultsHolder loadHeader(QueryTest test, File resultsFile);
+	
+	/**
+	 * Load the expected results, including all their rows.
+	 * @param test
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder
+	 */
+	protected abstract ExpectedResultsHolder load(QueryTest test, File resultsFile);
+
+	@Override
+	public synchronized ExpectedResults getExpectedResults(ActualTest queryTest) {
+		if (lastTest != null && lastTest.equals(queryTest)) {
+			return lastResults;
+		}
+		
+		File er = findExpectedResultsFile((QueryTest) queryTest);
+		ExpectedResultsHolder rh = cache.get(er);
+		if (rh == null) {
+			// the rows are compared while reading the file, so only the header is loaded
+			if (streaming && er.exists()) {
+				rh = loadHeader((QueryTest) queryTest, er);
+			}
+			if (rh == null) {
+				rh = load((QueryTest) queryTest, er);
+			}
+			cache.put(er, rh);
+		}
+
+		this.lastResults = rh;
+		this.lastTest = queryTest;
+		
+		return rh;
+	}
+
+	@Override
+	public ExpectedResults prefetchExpectedResults(ActualTest queryTest, long maxLength) {
+		File er = findExpectedResultsFile((QueryTest) queryTest);
+		if (!er.exists() || er.length() > maxLength) {
+			return null;
+		}
+		ExpectedResultsHolder rh = cache.get(er);
+		if (rh == null || rh.isRowsStreamed()) {
+			rh = load((QueryTest) queryTest, er);
+			cache.put(er, rh);
+		}
+		return rh;
+	}
+
+	@Override
+	public void compareResults(final TestCase testcase,
+			final TransactionAPI transaction, final ExpectedResults expectedResults, final boolean isOrdered) throws QueryTestFailedException {
+
+		ResultSet resultSet = ((AbstractQuery) transaction).getResultSet();
+		compare.compareResults(testcase, expectedResults, resultSet, isOrdered);
+	}
+
+	private File findExpectedResultsFile(QueryTest test)  {
+		String resultFileName = this.getQueryScenario().getFileType().getExpectedResultsFileName(
+				this.getQueryScenario(), test, getFileExtension());
+		File file = new File(this.getExpectResultsLocation() + File.separator + this.getQuerySetID(),
+				resultFileName);
+		if (!file.exists() && this.getQueryScenario().isExpectedResultsNeeded()) {
+			throw new FrameworkRuntimeException("Query results file "
+					+ file.getAbsolutePath() + " cannot be found");
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.FileExpectedResultsReader;
+
+/**
+ * BinaryExpectedResultsReader reads the expected results from {@link BinaryResultsFile binary}
+ * files, and compares them the same as the XML expected results are compared.
+ */
+public class BinaryExpectedResultsReader extends FileExpectedResultsReader {
+	
+	public BinaryExpectedResultsReader(QueryScenario scenario, String querySetID, Properties props) {
+		super(scenario, querySetID, props);
+	}
+	
+	@Override
+	protected String getFileExtension() {
+		return BinaryResultsFile.EXTENSION;
+	}
+
+	@Override
+	protected ExpectedResultsHolder loadHeader(QueryTest test, File resultsFile) {
+		return BinaryResultsReader.loadHeader(test, resultsFile);
+	}
+
+	@Override
+	protected ExpectedResultsHolder load(QueryTest test, File resultsFile) {
+		return BinaryResultsReader.load(test, resultsFile);
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.api.ExpectedResults;
+import org.jboss.bqt.client.api.ExpectedResultsWriter;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.core.util.ExceptionUtil;
+import org.jboss.bqt.core.util.FileUtils;
+import org.jboss.bqt.framework.AbstractQuery;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TransactionAPI;
+import org.jdom.JDOMException;
+
+/**
+ * BinaryExpectedResultsWriter generates {@link BinaryResultsFile binary} expected results 
+ * files, writing each row as it is read from the ResultSet.
+ * <p>
+ * The values are stored as they would be read back from a generated XML expected 
+ * results file (e.g., text trimmed, a LOB as its contents), so that a result generated 
+ * in either format, or converted by {@link BinaryResultsConverter}, compares the same.
+ * </p>
+ */
+public class BinaryExpectedResultsWriter extends ExpectedResultsWriter {
+
+	public BinaryExpectedResultsWriter(QueryScenario scenario, Properties props) {
+		super(scenario, props);
+
+		File d = new File(getGenerateDir());
+		if (d.exists()) {
+			FileUtils.removeDirectoryAndChildren(d);
+		}
+		if (!d.exists()) {
+			d.mkdirs();
+		}
+
+		ClientPlugin.LOGGER.info("BinaryExpectedResultsWriter: creating expected results " + d.getAbsolutePath());
+	}
+
+	@Override
+	public ExpectedResults generateExpectedResultFile(TestCase testcase,
+			TransactionAPI transaction) throws FrameworkException {
+		
+		ResultSet result = ((AbstractQuery) transaction).getResultSet();
+		
+		String querySetID = testcase.getTestResult().getQuerySetID();
+		String query = testcase.getTestResult().getQuery();
+		Throwable ex = testcase.getTestResult().getException();
+		QueryTest test = (QueryTest) testcase.getActualTest();
+
+		String filename = this.getQueryScenario().getFileType().getExpectedResultsFileName(this.getQueryScenario(), test, BinaryResultsFile.EXTENSION);
+		File resultsFile = createNewResultsFile(querySetID, getGenerateDir(), filename);
+		
+		ExpectedResultsHolder rh = null;
+		BinaryResultsWriter writer = null;
+		try {
+			writer = new BinaryResultsWriter(resultsFile);
+			
+			// the query is trimmed the same as when written to xml
+			String sql = (query != null ? query.trim() : null);
+
+			if (result != null) {
+				rh = new ExpectedResultsHolder(TagNames.Elements.QUERY, test);
+				
+				long time = (testcase.getTestResult().getEndTS() - testcase.getTestResult().getBeginTS());
+				writeResults(writer, sql, time, result);
+			} else {
+				rh = new ExpectedResultsHolder(TagNames.Elements.EXCEPTION, test);
+				if (ex != null) {
+					String msg = StringUtils.remove(ExceptionUtil.getExceptionMessage(ex), '\r');
+					writer.writeException(sql, ex.getClass().getName(), 
+							(msg != null ? msg.trim() : ""), false, false); //$NON-NLS-1$
+				} else {
+					List<String> none = new ArrayList<String>(0);
+					writer.writeResults(sql, -1, none, none);
+				}
+			}
+			
+			rh.setExpectedResultsFile(resultsFile);
+			
+		} catch (SQLException e) {
+			throw new FrameworkException(
+					"Failed to convert results: " + e.getMessage()); //$NON-NLS-1$
+		} catch (JDOMException e) {
+			throw new FrameworkException(
+					"Failed to convert results: " + e.getMessage()); //$NON-NLS-1$
+		} catch (IOException e) {
+			throw new FrameworkException(
+					"Failed to output new results to " + resultsFile.getPath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		return rh;
+	}
+	
+	private static void writeResults(BinaryResultsWriter writer, String query, long time, ResultSet result) 
+			throws SQLException, JDOMException, IOException {
+		XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+		
+		ResultSetMetaData rmdata = result.getMetaData();
+		int colCount = rmdata.getColumnCount();
+		List<String> identifiers = new ArrayList<String>(colCount);
+		List<String> types = new ArrayList<String>(colCount);
+		for (int i = 1; i <= colCount; i++) {
+			identifiers.add(rmdata.getColumnName(i));
+			types.add(rmdata.getColumnTypeName(i));
+		}
+		writer.writeResults(query, time, identifiers, types);
+		
+		List<Object> row = new ArrayList<Object>(colCount);
+		while (result.next()) {
+			row.clear();
+			for (int i = 1; i <= colCount; i++) {
+				Object value = result.getObject(i);
+				if (value != null) {
+					// convert the value as it would be written to, and then read from, xml
+					String text = jstrat.produceCellText(value);
+					value = jstrat.consumeCell(jstrat.produceCellName(value), (text != null ? text.trim() : "")); //$NON-NLS-1$
+				}
+				row.add(value);
+			}
+			writer.writeRow(row);
+		}
+	}
+
+	private File createNewResultsFile(String querySetID, String genDir, String filename) {
+
+		String targetDirname = genDir + File.separator + querySetID; 
+
+		File dir = new File(targetDirname);
+		if (!dir.exists()) {
+			dir.mkdirs();
+			ClientPlugin.LOGGER.info("BinaryExpectedResultsWriter: creating query set directory " + dir.getAbsolutePath());
+		}
+
+		return new File(targetDirname, filename);
+	}
+
+}
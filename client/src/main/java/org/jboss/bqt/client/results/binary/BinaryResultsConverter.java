@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.xml.XMLExpectedResultsRowReader;
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.core.util.ExceptionUtil;
+
+/**
+ * BinaryResultsConverter converts a tree of XML expected results files into 
+ * {@link BinaryResultsFile binary} files, keeping the same directory structure and
+ * file names, with the {@link BinaryResultsFile#EXTENSION binary extension}.  The files 
+ * are converted in parallel, and each file is read and written a row at a time.
+ * <p>
+ * Usage: <code>BinaryResultsConverter &lt;xml results dir&gt; &lt;binary results dir&gt; [threads]</code>
+ * </p>
+ */
+public class BinaryResultsConverter {
+	
+	private static final String XML_EXTENSION = ".xml"; //$NON-NLS-1$
+	
+	private final int threads;
+	
+	public BinaryResultsConverter(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Convert every XML expected results file found under the directory.
+	 * @param xmlDir the root of the XML expected results
+	 * @param binaryDir the root of the binary expected results to be written
+	 * @return the number of files converted
+	 * @throws FrameworkException if any file could not be converted, after 
+	 * 		all the others have been converted
+	 */
+	public int convert(File xmlDir, File binaryDir) throws FrameworkException {
+		if (!xmlDir.isDirectory()) {
+			throw new FrameworkException("Expected results directory " + xmlDir.getAbsolutePath() + " does not exist"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		List<File[]> files = new ArrayList<File[]>();
+		findFiles(xmlDir, binaryDir, files);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+		List<Future<File>> futures = new ArrayList<Future<File>>(files.size());
+		try {
+			for (final File[] file : files) {
+				futures.add(executor.submit(new Callable<File>() {
+					public File call() throws Exception {
+						convertFile(file[0], file[1]);
+						return file[1];
+					}
+				}));
+			}
+			
+			int converted = 0;
+			List<String> failures = new ArrayList<String>();
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+					converted++;
+				} catch (ExecutionException e) {
+					String msg = files.get(i)[0].getAbsolutePath() + ": " + ExceptionUtil.getExceptionMessage(e.getCause()); //$NON-NLS-1$
+					ClientPlugin.LOGGER.error("Failed to convert " + msg); //$NON-NLS-1$
+					failures.add(msg);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new FrameworkException(e, "Interrupted converting the expected results"); //$NON-NLS-1$
+				}
+			}
+			if (!failures.isEmpty()) {
+				throw new FrameworkException(failures.size() + " of " + files.size() //$NON-NLS-1$
+						+ " expected results files failed to convert, first: " + failures.get(0)); //$NON-NLS-1$
+			}
+			ClientPlugin.LOGGER.info("Converted " + converted + " expected results files to " + binaryDir.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+			return converted;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Convert one XML expected results file.
+	 * @param xmlFile
+	 * @param binaryFile
+	 * @throws IOException
+	 */
+	public static void convertFile(File xmlFile, File binaryFile) throws IOException {
+		XMLExpectedResultsRowReader rows = new XMLExpectedResultsRowReader(xmlFile);
+		try {
+			BinaryResultsWriter writer = new BinaryResultsWriter(binaryFile);
+			try {
+				if (rows.isException()) {
+					// exceptions are small, so are loaded entirely to get the message match
+					String name = xmlFile.getName();
+					QueryTest test = new QueryTest(null, xmlFile.getParentFile().getName(), 
+							name.substring(0, name.length() - XML_EXTENSION.length()), null);
+					ExpectedResultsHolder expectedResults = XMLExpectedResultsRowReader.load(test, xmlFile);
+					writer.writeException(expectedResults);
+				} else {
+					writer.writeResults(rows.getQuery(), rows.getExecutionTime(), rows.getIdentifiers(), rows.getTypes());
+					List<Object> row;
+					while ((row = rows.nextRow()) != null) {
+						writer.writeRow(row);
+					}
+				}
+			} finally {
+				writer.close();
+			}
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void findFiles(File xmlDir, File binaryDir, List<File[]> files) {
+		File[] children = xmlDir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				findFiles(child, new File(binaryDir, child.getName()), files);
+			} else if (child.getName().endsWith(XML_EXTENSION)) {
+				binaryDir.mkdirs();
+				String name = child.getName();
+				files.add(new File[] {child, new File(binaryDir, 
+						name.substring(0, name.length() - XML_EXTENSION.length()) + BinaryResultsFile.EXTENSION)});
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args == null || args.length < 2) {
+			System.out.println("Usage: BinaryResultsConverter <xml results dir> <binary results dir> [threads]"); //$NON-NLS-1$
+			return;
+		}
+		int threads = (args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+		new BinaryResultsConverter(threads).convert(new File(args[0]), new File(args[1]));
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * BinaryResultsFile defines the layout of a binary expected results file.  The
+ * column metadata is stored once, followed by the rows, where each cell is a type
+ * tag and the value in its binary form, with strings and numbers of arbitrary
+ * size prefixed by their length:
+ * <pre>
+ *   int     magic ("BQTR")
+ *   byte    version
+ *   string  query
+ *   long    execution time
+ *   byte    RESULTS | EXCEPTION
+ *   RESULTS:    int column count, (string name, string type) per column,
+ *               (ROW, cell per column)* END, int row count
+ *   EXCEPTION:  string class name, string message, byte message match
+ * </pre>
+ * The cell values are the same java types as those read from an XML 
+ * expected results file, so the two formats compare the same.
+ */
+public final class BinaryResultsFile {
+	
+	/** the extension of a binary expected results file */
+	public static final String EXTENSION = ".bqtr"; //$NON-NLS-1$
+	
+	static final int MAGIC = 0x42515452;
+	static final byte VERSION = 1;
+	
+	static final byte RESULTS = 0;
+	static final byte EXCEPTION = 1;
+	
+	static final byte END = 0;
+	static final byte ROW = 1;
+
+	static final byte MESSAGE_EQUALS = 0;
+	static final byte MESSAGE_STARTSWITH = 1;
+	static final byte MESSAGE_CONTAINS = 2;
+	
+	static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+	
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	// the cell type tags
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte BOOLEAN = 2;
+	private static final byte BYTE = 3;
+	private static final byte SHORT = 4;
+	private static final byte CHAR = 5;
+	private static final byte INTEGER = 6;
+	private static final byte LONG = 7;
+	private static final byte FLOAT = 8;
+	private static final byte DOUBLE = 9;
+	private static final byte BIGINTEGER = 10;
+	private static final byte BIGDECIMAL = 11;
+	private static final byte DATE = 12;
+	private static final byte TIME = 13;
+	private static final byte TIMESTAMP = 14;
+	
+	private BinaryResultsFile() {
+	}
+	
+	/**
+	 * @param resultsFile
+	 * @return true if the file is a binary expected results file
+	 */
+	public static boolean isBinaryResultsFile(File resultsFile) {
+		return (resultsFile != null && resultsFile.getName().endsWith(EXTENSION));
+	}
+	
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+	
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+	
+	static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong(((Long) value).longValue());
+		} else if (value instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) value;
+			out.writeByte(BIGDECIMAL);
+			out.writeInt(decimal.scale());
+			writeBytes(out, decimal.unscaledValue().toByteArray());
+		} else if (value instanceof Timestamp) {
+			Timestamp timestamp = (Timestamp) value;
+			out.writeByte(TIMESTAMP);
+			out.writeLong(timestamp.getTime());
+			out.writeInt(timestamp.getNanos());
+		} else if (value instanceof java.sql.Date) {
+			out.writeByte(DATE);
+			out.writeLong(((java.sql.Date) value).getTime());
+		} else if (value instanceof Time) {
+			out.writeByte(TIME);
+			out.writeLong(((Time) value).getTime());
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat(((Float) value).floatValue());
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(((Boolean) value).booleanValue());
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort(((Short) value).shortValue());
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte(((Byte) value).byteValue());
+		} else if (value instanceof Character) {
+			out.writeByte(CHAR);
+			out.writeChar(((Character) value).charValue());
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIGINTEGER);
+			writeBytes(out, ((BigInteger) value).toByteArray());
+		} else {
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}
+	}
+	
+	static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return Integer.valueOf(in.readInt());
+		case LONG:
+			return Long.valueOf(in.readLong());
+		case BIGDECIMAL:
+			int scale = in.readInt();
+			return new BigDecimal(new BigInteger(readBytes(in)), scale);
+		case TIMESTAMP:
+			Timestamp timestamp = new Timestamp(in.readLong());
+			timestamp.setNanos(in.readInt());
+			return timestamp;
+		case DATE:
+			return new java.sql.Date(in.readLong());
+		case TIME:
+			return new Time(in.readLong());
+		case DOUBLE:
+			return Double.valueOf(in.readDouble());
+		case FLOAT:
+			return Float.valueOf(in.readFloat());
+		case BOOLEAN:
+			return Boolean.valueOf(in.readBoolean());
+		case SHORT:
+			return Short.valueOf(in.readShort());
+		case BYTE:
+			return Byte.valueOf(in.readByte());
+		case CHAR:
+			return Character.valueOf(in.readChar());
+		case BIGINTEGER:
+			return new BigInteger(readBytes(in));
+		default:
+			throw new IOException("Unknown value type " + type); //$NON-NLS-1$
+		}
+	}
+
+}
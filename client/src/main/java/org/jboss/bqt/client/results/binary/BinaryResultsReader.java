@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.ExpectedRowReader;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.core.exception.FrameworkRuntimeException;
+
+/**
+ * BinaryResultsReader is a forward-only cursor over a {@link BinaryResultsFile binary 
+ * expected results file}.  The header is read when the reader is opened, and each
+ * call to {@link #nextRow()} decodes only the next row.
+ */
+public class BinaryResultsReader implements ExpectedRowReader {
+	
+	private final File resultsFile;
+	private final DataInputStream in;
+	
+	private String query;
+	private long executionTime = -1;
+	private List<String> identifiers = new ArrayList<String>();
+	private List<String> types = new ArrayList<String>();
+	private boolean exception = false;
+	private String exceptionClassName;
+	private String exceptionMsg;
+	private byte messageMatch = BinaryResultsFile.MESSAGE_EQUALS;
+	private boolean hasRows = false;
+	private int rowCount = 0;
+
+	public BinaryResultsReader(File resultsFile) {
+		this.resultsFile = resultsFile;
+		try {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(resultsFile), BinaryResultsFile.BUFFER_SIZE));
+		} catch (IOException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to load expected results: " + e.getMessage()); //$NON-NLS-1$
+		}
+		try {
+			readHeader();
+		} catch (IOException e) {
+			close();
+			throw new FrameworkRuntimeException(
+					"Unable to load expected results " + resultsFile.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Open the expected results file and, when it contains a result set, return
+	 * a holder with only the header loaded and the rows marked as 
+	 * {@link ExpectedResultsHolder#isRowsStreamed() streamed}.  
+	 * @param test
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder, or <code>null</code> if the expected results
+	 * 		is an exception, which then needs to be loaded entirely
+	 */
+	public static ExpectedResultsHolder loadHeader(QueryTest test, File resultsFile) {
+		BinaryResultsReader rows = new BinaryResultsReader(resultsFile);
+		try {
+			if (rows.isException() || rows.getIdentifiers().isEmpty()) {
+				return null;
+			}
+			ExpectedResultsHolder expectedResults = new ExpectedResultsHolder( TagNames.Elements.QUERY_RESULTS, test );
+			rows.setHeader(expectedResults);
+			expectedResults.setRowsStreamed(true);
+			return expectedResults;
+		} finally {
+			rows.close();
+		}
+	}
+
+	/**
+	 * Load the entire expected results file.
+	 * @param test
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder
+	 */
+	public static ExpectedResultsHolder load(QueryTest test, File resultsFile) {
+		BinaryResultsReader rows = new BinaryResultsReader(resultsFile);
+		try {
+			final ExpectedResultsHolder expectedResults;
+			if (!rows.isException() && !rows.getIdentifiers().isEmpty()) {
+				expectedResults = new ExpectedResultsHolder( TagNames.Elements.QUERY_RESULTS, test );
+				rows.setHeader(expectedResults);
+				
+				final List<List<Object>> records = new ArrayList<List<Object>>();
+				List<Object> row;
+				while ((row = rows.nextRow()) != null) {
+					records.add(row);
+				}
+				if (records.size() > 0) {
+					expectedResults.setRows(records);
+				}
+			} else {
+				expectedResults = new ExpectedResultsHolder( TagNames.Elements.EXCEPTION,  test );
+				expectedResults.setQuery(rows.getQuery());
+				if (rows.isException()) {
+					expectedResults.setExceptionClassName(rows.getExceptionClassName());
+					expectedResults.setExceptionMsg(rows.getExceptionMsg());
+					expectedResults.setExceptionStartsWith(rows.isExceptionStartsWith());
+					expectedResults.setExceptionContains(rows.isExceptionContains());
+				}
+				expectedResults.setExpectedResultsFile(resultsFile);
+			}
+			return expectedResults;
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private void setHeader(ExpectedResultsHolder expectedResults) {
+		expectedResults.setQuery(query);
+		expectedResults.setExecutionTime(executionTime);
+		expectedResults.setIdentifiers(identifiers);
+		expectedResults.setTypes(types);
+		expectedResults.setExpectedResultsFile(resultsFile);
+	}
+
+	private void readHeader() throws IOException {
+		if (in.readInt() != BinaryResultsFile.MAGIC) {
+			throw new IOException("not a binary expected results file"); //$NON-NLS-1$
+		}
+		byte version = in.readByte();
+		if (version != BinaryResultsFile.VERSION) {
+			throw new IOException("unsupported version " + version); //$NON-NLS-1$
+		}
+		query = BinaryResultsFile.readString(in);
+		executionTime = in.readLong();
+		if (in.readByte() == BinaryResultsFile.EXCEPTION) {
+			exception = true;
+			exceptionClassName = BinaryResultsFile.readString(in);
+			exceptionMsg = BinaryResultsFile.readString(in);
+			messageMatch = in.readByte();
+			return;
+		}
+		int columnCount = in.readInt();
+		for (int i = 0; i < columnCount; i++) {
+			identifiers.add(BinaryResultsFile.readString(in));
+			types.add(BinaryResultsFile.readString(in));
+		}
+		hasRows = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see org.jboss.bqt.client.results.ExpectedRowReader#nextRow()
+	 */
+	public List<Object> nextRow() {
+		if (!hasRows) {
+			return null;
+		}
+		try {
+			if (in.readByte() == BinaryResultsFile.ROW) {
+				List<Object> row = new ArrayList<Object>(identifiers.size());
+				for (int i = 0; i < identifiers.size(); i++) {
+					row.add(BinaryResultsFile.readValue(in));
+				}
+				rowCount++;
+				return row;
+			}
+			hasRows = false;
+			int expectedCount = in.readInt();
+			if (expectedCount != rowCount) {
+				throw new IOException("the file has " + rowCount + " rows, but " + expectedCount + " were written"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return null;
+		} catch (EOFException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to read expected results " + resultsFile.getAbsolutePath() + ": the file is truncated"); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to read expected results " + resultsFile.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public long getExecutionTime() {
+		return executionTime;
+	}
+
+	public List<String> getIdentifiers() {
+		return identifiers;
+	}
+
+	public List<String> getTypes() {
+		return types;
+	}
+
+	public boolean isException() {
+		return exception;
+	}
+
+	public String getExceptionClassName() {
+		return exceptionClassName;
+	}
+
+	public String getExceptionMsg() {
+		return exceptionMsg;
+	}
+
+	public boolean isExceptionStartsWith() {
+		return messageMatch == BinaryResultsFile.MESSAGE_STARTSWITH;
+	}
+
+	public boolean isExceptionContains() {
+		return messageMatch == BinaryResultsFile.MESSAGE_CONTAINS;
+	}
+
+	/**
+	 * @return the number of rows read so far
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see org.jboss.bqt.client.results.ExpectedRowReader#close()
+	 */
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+
+/**
+ * BinaryResultsWriter writes a {@link BinaryResultsFile binary expected results file}:
+ * the header with either the result's columns or the exception, and then each row 
+ * as it is given, so that the rows are not held in memory.
+ */
+public class BinaryResultsWriter {
+	
+	private final DataOutputStream out;
+	private int columnCount = -1;
+	private int rowCount = 0;
+	
+	public BinaryResultsWriter(File resultsFile) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(resultsFile), BinaryResultsFile.BUFFER_SIZE));
+		out.writeInt(BinaryResultsFile.MAGIC);
+		out.writeByte(BinaryResultsFile.VERSION);
+	}
+	
+	/**
+	 * Write the header of a result, which must be followed by its rows.
+	 * @param query
+	 * @param executionTime
+	 * @param identifiers the column names
+	 * @param types the column type names
+	 * @throws IOException
+	 */
+	public void writeResults(String query, long executionTime, List<String> identifiers, List<String> types) throws IOException {
+		BinaryResultsFile.writeString(out, query);
+		out.writeLong(executionTime);
+		out.writeByte(BinaryResultsFile.RESULTS);
+		out.writeInt(identifiers.size());
+		for (int i = 0; i < identifiers.size(); i++) {
+			BinaryResultsFile.writeString(out, identifiers.get(i));
+			BinaryResultsFile.writeString(out, types.get(i));
+		}
+		columnCount = identifiers.size();
+	}
+	
+	/**
+	 * Write the next row of the result.
+	 * @param row the cell values, as read from an expected results file
+	 * @throws IOException
+	 */
+	public void writeRow(List<?> row) throws IOException {
+		if (columnCount < 0) {
+			throw new IllegalStateException("The results header has not been written"); //$NON-NLS-1$
+		}
+		if (row.size() != columnCount) {
+			throw new IllegalArgumentException("Row " + (rowCount + 1) + " has " + row.size() //$NON-NLS-1$ //$NON-NLS-2$
+					+ " values, but there are " + columnCount + " columns"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		out.writeByte(BinaryResultsFile.ROW);
+		for (int i = 0; i < columnCount; i++) {
+			BinaryResultsFile.writeValue(out, row.get(i));
+		}
+		rowCount++;
+	}
+	
+	/**
+	 * Write the expected exception.
+	 * @param query
+	 * @param exceptionClassName
+	 * @param message
+	 * @param startsWith true if the message only needs to start the actual message
+	 * @param contains true if the message only needs to be contained in the actual message
+	 * @throws IOException
+	 */
+	public void writeException(String query, String exceptionClassName, String message, 
+			boolean startsWith, boolean contains) throws IOException {
+		BinaryResultsFile.writeString(out, query);
+		out.writeLong(-1);
+		out.writeByte(BinaryResultsFile.EXCEPTION);
+		BinaryResultsFile.writeString(out, exceptionClassName);
+		BinaryResultsFile.writeString(out, message);
+		out.writeByte(startsWith ? BinaryResultsFile.MESSAGE_STARTSWITH 
+				: (contains ? BinaryResultsFile.MESSAGE_CONTAINS : BinaryResultsFile.MESSAGE_EQUALS));
+	}
+	
+	/**
+	 * Write the expected exception of the holder.
+	 * @param expectedResults
+	 * @throws IOException
+	 */
+	public void writeException(ExpectedResultsHolder expectedResults) throws IOException {
+		writeException(expectedResults.getQuery(), expectedResults.getExceptionClassName(), 
+				expectedResults.getExceptionMsg(), expectedResults.isExceptionStartsWith(), 
+				expectedResults.isExceptionContains());
+	}
+	
+	/**
+	 * @return the number of rows written
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	/**
+	 * Finish the file, writing the end of the rows when it is a result.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		try {
+			if (columnCount >= 0) {
+				out.writeByte(BinaryResultsFile.END);
+				out.writeInt(rowCount);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+}
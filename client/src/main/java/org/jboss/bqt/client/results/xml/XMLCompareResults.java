@@ -22,6 +22,7 @@
 
 package org.jboss.bqt.client.results.xml;
 
+import java.io.File;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.ResultSet;
@@ -32,6 +33,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
@@ -41,20 +43,38 @@ import org.jboss.bqt.client.QueryTest;
 import org.jboss.bqt.client.TestProperties;
 import org.jboss.bqt.client.api.ExpectedResults;
 import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.ExpectedRowReader;
+import org.jboss.bqt.client.results.binary.BinaryResultsFile;
+import org.jboss.bqt.client.results.binary.BinaryResultsReader;
+import org.jboss.bqt.client.util.ExternalRecordSorter;
 import org.jboss.bqt.client.util.ListNestedSortComparator;
+import org.jboss.bqt.client.util.LongCountMap;
 import org.jboss.bqt.client.xml.TagNames;
 import org.jboss.bqt.client.xml.TagNames.Elements;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
 import org.jboss.bqt.core.util.ExceptionUtil;
 import org.jboss.bqt.core.util.ObjectConverterUtil;
+import org.jboss.bqt.core.util.PropertiesUtils;
 import org.jboss.bqt.framework.TestCase;
 import org.jboss.bqt.framework.TestResult;
 
 public class XMLCompareResults {
 	private static String newline = System.getProperty("line.separator"); //$NON-NLS-1$
 	
-	private static double exceed_percent = -0.99999;
-	private static long exec_minumin_time = -1;
+	// megabytes
+	private static final long DEFAULT_SORT_MEMORY = 64;
+	
+	// the number of differing rows included in the message when comparing by hash
+	private static final int MAX_REPORTED_ROWS = 10;
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+	
+	private double exceed_percent = -0.99999;
+	private long exec_minumin_time = -1;
+	private long sort_memory = DEFAULT_SORT_MEMORY * 1024L * 1024L;
+	private boolean hash_unordered = false;
 
 	private XMLCompareResults(Properties props) {
 		
@@ -73,6 +93,10 @@ public class XMLCompareResults {
 		}		
 		// if exceed percent was set and exec time was not, set exec time to minimum of 1 mil
 		if (exceed_percent > 0 && exec_minumin_time < 0) exec_minumin_time = 1;
+		
+		sort_memory = PropertiesUtils.getLongProperty(props, TestProperties.PROP_COMPARE_SORT_MEMORY, DEFAULT_SORT_MEMORY) * 1024L * 1024L;
+		hash_unordered = TestProperties.COMPARE_UNORDERED.HASH.equalsIgnoreCase(
+				props.getProperty(TestProperties.PROP_COMPARE_UNORDERED, TestProperties.COMPARE_UNORDERED.SORT).trim());
 	
 	}
 
@@ -145,6 +169,11 @@ public class XMLCompareResults {
 			break;
 
 		default:
+			
+			if (expectedResults.isRowsStreamed()) {
+				compareStreamedResults(testcase, resultSet, expectedResults, isOrdered, eMsg);
+				break;
+			}
 
 			// Convert results to ResultsHolder
 			actualResults = new ExpectedResultsHolder(TagNames.Elements.QUERY_RESULTS, (QueryTest) testcase.getActualTest());
@@ -157,7 +186,7 @@ public class XMLCompareResults {
 //			 ClientPlugin.LOGGER.info("*** 2 Actual Results (ResultSet): " +
 //			 actualResults);
 			
-			convertResults(resultSet, testcase.getTestResult().getUpdateCount(), actualResults);
+			convertResults(resultSet, actualResults);
 
 			if (expectedResults.getRows().size() > 0) {
 				compareResults(testcase, actualResults, expectedResults, eMsg, isOrdered);
@@ -198,22 +227,19 @@ public class XMLCompareResults {
 
 
 	/**
-	 * Helper to convert results into records and record first batch response
-	 * time.
+	 * Helper to convert results into records.  The time to the first row, and to
+	 * read the rows, is recorded by the monitor of the result set.
 	 * 
 	 * @param results
-	 * @param batchSize
 	 * @param resultsHolder
 	 *            Modified - results added by this method.
-	 * @return List of sorted results.
 	 * @throws QueryTestFailedException
 	 *             replaced SQLException.
 	 */
-	private static final long convertResults(final ResultSet results,
-			final long batchSize, ExpectedResultsHolder resultsHolder)
+	private static final void convertResults(final ResultSet results,
+			ExpectedResultsHolder resultsHolder)
 			throws QueryTestFailedException {
 
-		long firstBatchResponseTime = 0;
 		final List<List<Object>> records = new ArrayList<List<Object>>();
 		final List<String> columnTypeNames = new ArrayList<String>();
 		final List<String> columnTypes = new ArrayList<String>();
@@ -239,18 +265,13 @@ public class XMLCompareResults {
 			// Get rows
 			try {
 				// Read all the rows
-				for (int row = 0; results.next(); row++) {
+				while (results.next()) {
 					final List<Object> currentRecord = new ArrayList<Object>(colCount);
 					// Read values for this row
 					for (int col = 1; col <= colCount; col++) {
 						currentRecord.add(results.getObject(col));
 					}
 					records.add(currentRecord);
-					// If this row is the (fetch size - 1)th row, record first batch
-					// response time
-					if (row == batchSize) {
-						firstBatchResponseTime = System.currentTimeMillis();
-					}
 				}
 			} catch (SQLException qre) {
 				throw new QueryTestFailedException(
@@ -264,8 +285,6 @@ public class XMLCompareResults {
 		resultsHolder.setRows(records);
 		resultsHolder.setIdentifiers(columnTypeNames);
 		resultsHolder.setTypes(columnTypes);
-
-		return firstBatchResponseTime;
 	}
 
 	/**
@@ -278,7 +297,7 @@ public class XMLCompareResults {
 	 * @param isOrdered
 	 * @throws QueryTestFailedException
 	 */
-	private static void compareResults(final TestCase testCase, final ExpectedResultsHolder actualResults,
+	private void compareResults(final TestCase testCase, final ExpectedResultsHolder actualResults,
 			final ExpectedResultsHolder expectedResults, final String eMsg,
 			boolean isOrdered) throws QueryTestFailedException {
 		// if (actualResults.isException() && expectedResults.isException()) {
@@ -288,6 +307,7 @@ public class XMLCompareResults {
 
 		// if (actualResults.isResult() && expectedResults.isResult()) {
 		// Compare results
+		List expectedRows = expectedResults.getRows();
 		if (isOrdered == false && actualResults.hasRows()
 				&& expectedResults.hasRows()) {
 			// If the results are not ordered, we can sort both
@@ -300,24 +320,29 @@ public class XMLCompareResults {
 			sortRecords(actualRows, true);
 			actualResults.setRows(actualRows);
 
-			// sort the expectedResults with ascending order
-			final List expectedRows = expectedResults.getRows();
+			// sort a copy of the expectedResults with ascending order,
+			// because the expected results may be cached and shared
+			expectedRows = new ArrayList(expectedResults.getRows());
 			sortRecords(expectedRows, true);
-			expectedResults.setRows(expectedRows);
 		}
 
 		compareResultSets(actualResults.getRows(), actualResults.getTypes(),
-				actualResults.getIdentifiers(), expectedResults.getRows(),
+				actualResults.getIdentifiers(), expectedRows,
 				expectedResults.getTypes(), expectedResults.getIdentifiers(),
 				eMsg);
 		
-		long a =  actualResults.getExecutionTime();
-		long e = expectedResults.getExecutionTime();
+		checkExecutionTime(testCase, actualResults.getExecutionTime(), 
+				expectedResults.getExecutionTime(), eMsg);
+	}
 
-		
+	/**
+	 * When {@link TestProperties#PROP_EXECUTE_EXCEED_PERCENT} is set, mark the test as failed
+	 * if the actual execution time exceeded the expected by more than the allowed percent.
+	 */
+	private void checkExecutionTime(final TestCase testCase, final long a, final long e, final String eMsg) {
 		if (exec_minumin_time > 0 && e > exec_minumin_time &&  a > e) {
 				double allowediff = e * (exceed_percent / 100);
-				ClientPlugin.LOGGER.info("EXEC MIN TIME: " + exec_minumin_time + "  EXEC PER: " + exceed_percent + "  expected exec time: " + expectedResults.getExecutionTime());
+				ClientPlugin.LOGGER.info("EXEC MIN TIME: " + exec_minumin_time + "  EXEC PER: " + exceed_percent + "  expected exec time: " + e);
 				ClientPlugin.LOGGER.info("   expected exec time: " + e + "  actual exec time: " + a);
 				if ( ( a - allowediff) > e ) {
 					String msg = "Actual: " + a + " Expected: " + e + 
@@ -335,25 +360,402 @@ public class XMLCompareResults {
 	}
 
 	/**
-	 * sort one result that is composed of records of all columns
+	 * Compare the results by advancing the actual <code>ResultSet</code> and the 
+	 * expected results file one row at a time, so that only the current row
+	 * of each is held in memory.  The comparison stops at the first row that doesn't match.
+	 * 
+	 * @param testCase
+	 * @param resultSet
+	 * @param expectedResults holder with only the header loaded
+	 * @param isOrdered when false, the rows are sorted before being compared
+	 * @param eMsg
+	 * @throws QueryTestFailedException
+	 */
+	private void compareStreamedResults(final TestCase testCase, final ResultSet resultSet,
+			final ExpectedResultsHolder expectedResults, final boolean isOrdered, final String eMsg) throws QueryTestFailedException {
+		
+		if (!isOrdered) {
+			if (hash_unordered) {
+				compareHashedResults(testCase, resultSet, expectedResults, eMsg);
+			} else {
+				compareSortedResults(testCase, resultSet, expectedResults, eMsg);
+			}
+			return;
+		}
+		
+		final List<String> columnTypeNames = new ArrayList<String>();
+		final List<String> columnTypes = new ArrayList<String>();
+		final int colCount = readMetadata(resultSet, columnTypeNames, columnTypes);
+		
+		final ExpectedRowReader expectedRows = openExpectedRows(expectedResults);
+		try {
+			List<Object> expectedRecord = expectedRows.nextRow();
+			if (expectedRecord == null) {
+				final int actualRowCount = countRows(resultSet, 0);
+				if (actualRowCount > 0) {
+					throw new QueryTestFailedException(
+							eMsg + "Expected results indicated no results, but actual shows " + actualRowCount + " rows."); //$NON-NLS-1$	      		    		      		    
+				}
+				return;
+			}
+			
+			compareIdentifiers(columnTypeNames, expectedResults.getIdentifiers(), 
+					columnTypes, expectedResults.getTypes());
+			
+			int row = 0;
+			while (expectedRecord != null) {
+				if (resultSet == null || !resultSet.next()) {
+					// Check for less records than in expected results
+					int expectedRowCount = row + 1;
+					while (expectedRows.nextRow() != null) {
+						expectedRowCount++;
+					}
+					throw new QueryTestFailedException(eMsg
+							+ "Expected " + expectedRowCount + //$NON-NLS-1$
+							" records but received only " + row); //$NON-NLS-1$
+				}
+				
+				final List<Object> actualRecord = new ArrayList<Object>(colCount);
+				for (int col = 1; col <= colCount; col++) {
+					actualRecord.add(resultSet.getObject(col));
+				}
+				row++;
+				compareRecord(actualRecord, expectedRecord, row, colCount, eMsg);
+				
+				expectedRecord = expectedRows.nextRow();
+			}
+			
+			// Check also for more records than expected
+			final int actualRowCount = countRows(resultSet, row);
+			if (actualRowCount > row) {
+				throw new QueryTestFailedException(eMsg
+						+ "Expected " + row + //$NON-NLS-1$
+						" records but received " + actualRowCount); //$NON-NLS-1$
+			}
+		} catch (SQLException qre) {
+			throw new QueryTestFailedException(
+					"Can't get results: " + qre.getMessage()); //$NON-NLS-1$
+		} finally {
+			expectedRows.close();
+		}
+		
+		checkExecutionTime(testCase, testCase.getTestResult().getExecutionTime(), 
+				expectedResults.getExecutionTime(), eMsg);
+	}
+	
+	/**
+	 * Compare the results of an unordered query.  The actual and expected rows are sorted
+	 * the same as {@link #sortRecords(List, boolean)} does, but with an {@link ExternalRecordSorter}
+	 * so that, once the {@link TestProperties#PROP_COMPARE_SORT_MEMORY sort memory} is used, 
+	 * the sorted rows are written to disk and merged as they are compared.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void compareSortedResults(final TestCase testCase, final ResultSet resultSet,
+			final ExpectedResultsHolder expectedResults, final String eMsg) throws QueryTestFailedException {
+
+		final List<String> columnTypeNames = new ArrayList<String>();
+		final List<String> columnTypes = new ArrayList<String>();
+		final int colCount = readMetadata(resultSet, columnTypeNames, columnTypes);
+		
+		// the budget is split between the two sides 
+		final ExternalRecordSorter expectedSorter = new ExternalRecordSorter(
+				createSortComparator(expectedResults.getIdentifiers().size(), true), sort_memory / 2);
+		final ExternalRecordSorter actualSorter = new ExternalRecordSorter(
+				createSortComparator(colCount, true), sort_memory / 2);
+		final ExpectedRowReader expectedRows = openExpectedRows(expectedResults);
+		try {
+			List<Object> expectedRecord;
+			while ((expectedRecord = expectedRows.nextRow()) != null) {
+				expectedSorter.add(expectedRecord);
+			}
+			
+			if (expectedSorter.size() == 0) {
+				final int actualRowCount = countRows(resultSet, 0);
+				if (actualRowCount > 0) {
+					throw new QueryTestFailedException(
+							eMsg + "Expected results indicated no results, but actual shows " + actualRowCount + " rows."); //$NON-NLS-1$	      		    		      		    
+				}
+				return;
+			}
+			
+			compareIdentifiers(columnTypeNames, expectedResults.getIdentifiers(), 
+					columnTypes, expectedResults.getTypes());
+			
+			if (resultSet != null) {
+				while (resultSet.next()) {
+					final List<Object> actualRecord = new ArrayList<Object>(colCount);
+					for (int col = 1; col <= colCount; col++) {
+						// lobs are read now, they may not be valid after moving to the next row
+						actualRecord.add(convertLob(resultSet.getObject(col)));
+					}
+					actualSorter.add(actualRecord);
+				}
+			}
+			
+			final int actualRowCount = actualSorter.size();
+			final int expectedRowCount = expectedSorter.size();
+			if (actualRowCount < expectedRowCount) {
+				throw new QueryTestFailedException(eMsg
+						+ "Expected " + expectedRowCount + //$NON-NLS-1$
+						" records but received only " + actualRowCount); //$NON-NLS-1$
+			} else if (actualRowCount > expectedRowCount) {
+				throw new QueryTestFailedException(eMsg
+						+ "Expected " + expectedRowCount + //$NON-NLS-1$
+						" records but received " + actualRowCount); //$NON-NLS-1$
+			}
+			
+			if (actualSorter.getRunCount() > 0 || expectedSorter.getRunCount() > 0) {
+				ClientPlugin.LOGGER.debug("Sorted " + actualRowCount + " rows using " + actualSorter.getRunCount() //$NON-NLS-1$ //$NON-NLS-2$
+						+ " actual and " + expectedSorter.getRunCount() + " expected runs on disk"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			
+			final Iterator<List> actualIt = actualSorter.sortedIterator();
+			final Iterator<List> expectedIt = expectedSorter.sortedIterator();
+			for (int row = 1; actualIt.hasNext(); row++) {
+				compareRecord(actualIt.next(), expectedIt.next(), row, colCount, eMsg);
+			}
+		} catch (SQLException qre) {
+			throw new QueryTestFailedException(
+					"Can't get results: " + qre.getMessage()); //$NON-NLS-1$
+		} finally {
+			expectedRows.close();
+			expectedSorter.close();
+			actualSorter.close();
+		}
+		
+		checkExecutionTime(testCase, testCase.getTestResult().getExecutionTime(), 
+				expectedResults.getExecutionTime(), eMsg);
+	}
+	
+	/**
+	 * Compare the results of an unordered query by counting the rows of each by their hash.
+	 * Each expected row increments the count for its hash and each actual row decrements it,
+	 * so the results match when every count returns to zero.  An actual row that takes a count 
+	 * below zero was not expected, and the expected rows that were not matched are found by
+	 * reading the expected results again.  A few of each are included in the failure message.
+	 * <p>
+	 * The values are hashed so that the values {@link #compareRecord(List, List, int, int, String)}
+	 * considers equal have the same hash.  A 64 bit hash is used, so different rows
+	 * having the same hash is not a practical concern.
+	 */
+	private void compareHashedResults(final TestCase testCase, final ResultSet resultSet,
+			final ExpectedResultsHolder expectedResults, final String eMsg) throws QueryTestFailedException {
+
+		final List<String> columnTypeNames = new ArrayList<String>();
+		final List<String> columnTypes = new ArrayList<String>();
+		final int colCount = readMetadata(resultSet, columnTypeNames, columnTypes);
+		
+		final LongCountMap counts = new LongCountMap();
+		int expectedRowCount = 0;
+		ExpectedRowReader expectedRows = openExpectedRows(expectedResults);
+		try {
+			List<Object> expectedRecord;
+			while ((expectedRecord = expectedRows.nextRow()) != null) {
+				counts.add(hashRecord(expectedRecord), 1);
+				expectedRowCount++;
+			}
+		} finally {
+			expectedRows.close();
+		}
+
+		if (expectedRowCount == 0) {
+			final int actualRowCount = countRows(resultSet, 0);
+			if (actualRowCount > 0) {
+				throw new QueryTestFailedException(
+						eMsg + "Expected results indicated no results, but actual shows " + actualRowCount + " rows."); //$NON-NLS-1$	      		    		      		    
+			}
+			return;
+		}
+		
+		compareIdentifiers(columnTypeNames, expectedResults.getIdentifiers(), 
+				columnTypes, expectedResults.getTypes());
+		
+		int actualRowCount = 0;
+		int unexpectedCount = 0;
+		final List<List<Object>> unexpected = new ArrayList<List<Object>>();
+		if (resultSet != null) {
+			try {
+				while (resultSet.next()) {
+					final List<Object> actualRecord = new ArrayList<Object>(colCount);
+					for (int col = 1; col <= colCount; col++) {
+						actualRecord.add(convertLob(resultSet.getObject(col)));
+					}
+					actualRowCount++;
+					if (counts.add(hashRecord(actualRecord), -1) < 0) {
+						unexpectedCount++;
+						if (unexpected.size() < MAX_REPORTED_ROWS) {
+							unexpected.add(actualRecord);
+						}
+					}
+				}
+			} catch (SQLException qre) {
+				throw new QueryTestFailedException(
+						"Can't get results: " + qre.getMessage()); //$NON-NLS-1$
+			}
+		}
+		
+		if (unexpectedCount == 0 && counts.sumPositive() == 0) {
+			checkExecutionTime(testCase, testCase.getTestResult().getExecutionTime(), 
+					expectedResults.getExecutionTime(), eMsg);
+			return;
+		}
+		
+		// find the expected rows that were not matched
+		final List<List<Object>> missing = new ArrayList<List<Object>>();
+		expectedRows = openExpectedRows(expectedResults);
+		try {
+			List<Object> expectedRecord;
+			while (missing.size() < MAX_REPORTED_ROWS && (expectedRecord = expectedRows.nextRow()) != null) {
+				final long hash = hashRecord(expectedRecord);
+				if (counts.get(hash) > 0) {
+					counts.add(hash, -1);
+					missing.add(expectedRecord);
+				}
+			}
+		} finally {
+			expectedRows.close();
+		}
+		
+		final StringBuffer msg = new StringBuffer(eMsg);
+		if (actualRowCount < expectedRowCount) {
+			msg.append("Expected " + expectedRowCount + //$NON-NLS-1$
+					" records but received only " + actualRowCount); //$NON-NLS-1$
+		} else if (actualRowCount > expectedRowCount) {
+			msg.append("Expected " + expectedRowCount + //$NON-NLS-1$
+					" records but received " + actualRowCount); //$NON-NLS-1$
+		} else {
+			msg.append(unexpectedCount + " of " + actualRowCount + " records do not match the expected results"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		appendRecords(msg, "Unexpected records: ", unexpected); //$NON-NLS-1$
+		appendRecords(msg, "Missing records: ", missing); //$NON-NLS-1$
+		throw new QueryTestFailedException(msg.toString());
+	}
+	
+	/**
+	 * Open the expected rows of a streamed result in the format of the file.
+	 */
+	private static ExpectedRowReader openExpectedRows(final ExpectedResultsHolder expectedResults) {
+		final File resultsFile = expectedResults.getExpectedResultsFile();
+		if (BinaryResultsFile.isBinaryResultsFile(resultsFile)) {
+			return new BinaryResultsReader(resultsFile);
+		}
+		return new XMLExpectedResultsRowReader(resultsFile);
+	}
+
+	private static void appendRecords(final StringBuffer msg, final String title, final List<List<Object>> records) {
+		if (records.isEmpty()) {
+			return;
+		}
+		msg.append(newline).append(title);
+		for (List<Object> record : records) {
+			msg.append(newline).append("  ").append(record); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Hash the values of the record, in column order.
+	 */
+	private static long hashRecord(final List record) {
+		long h = FNV_OFFSET;
+		for (int col = 0; col < record.size(); col++) {
+			h = (h ^ hashValue(record.get(col))) * FNV_PRIME;
+		}
+		return h;
+	}
+	
+	private static long hashValue(Object value) {
+		if (value == null) {
+			return NULL_HASH;
+		}
+		// dates and times are compared as strings
+		if (value instanceof java.sql.Date || value instanceof java.sql.Time) {
+			value = value.toString();
+		}
+		if (value instanceof String) {
+			return hashString(stripCR((String) value).trim());
+		}
+		// equal values are the same class, the timestamp hashCode doesn't include the nanos
+		final long valueHash = (value instanceof java.sql.Timestamp ? hashString(value.toString()) : (value.hashCode() & 0xffffffffL));
+		return (((long) value.getClass().getName().hashCode()) << 32) ^ valueHash;
+	}
+	
+	private static long hashString(final String value) {
+		long h = FNV_OFFSET;
+		for (int i = 0; i < value.length(); i++) {
+			h = (h ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return h;
+	}
+	
+	/**
+	 * Read the column names and types of the results.
+	 * @return the number of columns
+	 */
+	private static int readMetadata(final ResultSet resultSet, final List<String> columnTypeNames, 
+			final List<String> columnTypes) throws QueryTestFailedException {
+		if (resultSet == null) {
+			return 0;
+		}
+		try {
+			final ResultSetMetaData rsMetadata = resultSet.getMetaData();
+			final int colCount = rsMetadata.getColumnCount();
+			for (int col = 1; col <= colCount; col++) {
+				columnTypeNames.add(rsMetadata.getColumnName(col));
+				columnTypes.add(rsMetadata.getColumnTypeName(col));
+			}
+			return colCount;
+		} catch (SQLException qre) {
+			throw new QueryTestFailedException(
+					"Can't get results metadata: " + qre.getMessage()); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Advance through the remaining rows, without reading them, to get the total row count.
+	 */
+	private static int countRows(final ResultSet resultSet, final int rowsRead) throws QueryTestFailedException {
+		int count = rowsRead;
+		if (resultSet == null) {
+			return count;
+		}
+		try {
+			while (resultSet.next()) {
+				count++;
+			}
+		} catch (SQLException qre) {
+			throw new QueryTestFailedException(
+					"Can't get results: " + qre.getMessage()); //$NON-NLS-1$
+		}
+		return count;
+	}
+
+	/**
+	 * sort one result that is composed of records of all columns.
+	 * Public so that it can be benchmarked.
 	 * @param records 
 	 * @param ascending 
 	 */
-	private static void sortRecords(List records, boolean ascending) {
+	public static void sortRecords(List records, boolean ascending) {
 		// if record's size == 0, don't need to sort
 		if (records.size() != 0) {
 			int nFields = ((List) records.get(0)).size();
-			int[] params = new int[  ( nFields > 3 ? 3 : nFields ) ];
-			for (int k = 0, j = 0; k < params.length; k++, j++) {
-				params[j] = k;
-
-			}
 			if (nFields > 0) {
-				Collections.sort(records, new ListNestedSortComparator(
-					params, ascending));
+				Collections.sort(records, createSortComparator(nFields, ascending));
 			}
 		}
 	}
+	
+	/**
+	 * The records are sorted on, at most, the first 3 columns.
+	 */
+	private static ListNestedSortComparator createSortComparator(int nFields, boolean ascending) {
+		int[] params = new int[  ( nFields > 3 ? 3 : nFields ) ];
+		for (int k = 0, j = 0; k < params.length; k++, j++) {
+			params[j] = k;
+
+		}
+		return new ListNestedSortComparator(params, ascending);
+	}
 
 	private static void compareExceptions(final ExpectedResultsHolder actualResults,
 			final ExpectedResultsHolder expectedResults, String eMsg)
@@ -471,141 +873,156 @@ public class XMLCompareResults {
 
 		// Loop through rows
 		for (int row = 0; row < actualRowCount; row++) {
-
-			// Get actual record
-			final List actualRecord = (List) actualResults.get(row);
-
-			// Get expected record
-			final List expectedRecord = (List) expectedResults.get(row);
-
 			// DEBUG:
 			// debugOut.println("Row: " + (row + 1));
-			// debugOut.println(" expectedRecord: " + expectedRecord);
-			// debugOut.println(" actualRecord: " + actualRecord);
-			// Loop through columns
-			// Compare actual elements with expected elements column by column
-			// in this row
-			for (int col = 0; col < actualColumnCount; col++) {
-				// Get actual value
-				Object actualValue = actualRecord.get(col);
-				// Get expected value
-				Object expectedValue = expectedRecord.get(col);
-
-				// DEBUG:
-				// debugOut.println(" Col: " +(col +1) + ": expectedValue:[" +
-				// expectedValue + "] actualValue:[" + actualValue +
-				// "]");
-
-				// Compare these values
-				if ((expectedValue == null && actualValue != null)
-						|| (actualValue == null && expectedValue != null)) {
-					// Compare nulls
-					throw new QueryTestFailedException(
-							eMsg + "Value mismatch at row " + (row + 1) //$NON-NLS-1$
-									+ " and column " + (col + 1) //$NON-NLS-1$
-									+ ": expected = [" //$NON-NLS-1$
-									+ (expectedValue != null ? expectedValue
-											: "null") + "], actual = [" //$NON-NLS-1$
-									+ (actualValue != null ? actualValue
-											: "null") + "]"); //$NON-NLS-1$
-
-				}
+			compareRecord((List) actualResults.get(row), (List) expectedResults.get(row), 
+					(row + 1), actualColumnCount, eMsg);
+		} // end loop through rows
+	}
 
-				if (expectedValue == null && actualValue == null) {
-					continue;
-				}
+	/**
+	 * Compare one actual record with the expected record, column by column.
+	 * 
+	 * @param actualRecord
+	 * @param expectedRecord
+	 * @param row the row number, starting at 1, used in the error message
+	 * @param colCount
+	 * @param eMsg
+	 * @throws QueryTestFailedException
+	 *             If the records do not match.
+	 */
+	private static void compareRecord(final List actualRecord, final List expectedRecord,
+			final int row, final int colCount, final String eMsg)
+			throws QueryTestFailedException {
 
-				if (actualValue instanceof Blob || actualValue instanceof Clob
-						|| actualValue instanceof SQLXML) {
+		for (int col = 0; col < colCount; col++) {
+			// Get actual value
+			Object actualValue = actualRecord.get(col);
+			// Get expected value
+			Object expectedValue = expectedRecord.get(col);
 
-					if (actualValue instanceof Clob) {
-						Clob c = (Clob) actualValue;
-						try {
-							actualValue = ObjectConverterUtil.convertToString(c
-									.getAsciiStream());
+			// DEBUG:
+			// debugOut.println(" Col: " +(col +1) + ": expectedValue:[" +
+			// expectedValue + "] actualValue:[" + actualValue +
+			// "]");
+
+			// Compare these values
+			if ((expectedValue == null && actualValue != null)
+					|| (actualValue == null && expectedValue != null)) {
+				// Compare nulls
+				throw new QueryTestFailedException(
+						eMsg + "Value mismatch at row " + row //$NON-NLS-1$
+								+ " and column " + (col + 1) //$NON-NLS-1$
+								+ ": expected = [" //$NON-NLS-1$
+								+ (expectedValue != null ? expectedValue
+										: "null") + "], actual = [" //$NON-NLS-1$
+								+ (actualValue != null ? actualValue
+										: "null") + "]"); //$NON-NLS-1$
 
-						} catch (Throwable e) {
-							// TODO Auto-generated catch block
-							throw new QueryTestFailedException(e);
-						}
-					} else if (actualValue instanceof Blob) {
-						Blob b = (Blob) actualValue;
-						try {
-							byte[] ba = ObjectConverterUtil
-									.convertToByteArray(b.getBinaryStream());
+			}
 
-							actualValue = String.valueOf(ba.length);
+			if (expectedValue == null && actualValue == null) {
+				continue;
+			}
 
-							// actualValue =
-							// ObjectConverterUtil.convertToString(b.getBinaryStream());
+			if (actualValue instanceof Blob || actualValue instanceof Clob
+					|| actualValue instanceof SQLXML) {
 
-						} catch (Throwable e) {
-							// TODO Auto-generated catch block
-							throw new QueryTestFailedException(e);
-						}
-					} else if (actualValue instanceof SQLXML) {
-						SQLXML s = (SQLXML) actualValue;
-						try {
-							actualValue = ObjectConverterUtil.convertToString(s
-									.getBinaryStream());
-
-						} catch (Throwable e) {
-							// TODO Auto-generated catch block
-							throw new QueryTestFailedException(e);
-						}
-					}
+				actualValue = convertLob(actualValue);
 
-					if (!(expectedValue instanceof String)) {
-						expectedValue = expectedValue.toString();
-					}
+				if (!(expectedValue instanceof String)) {
+					expectedValue = expectedValue.toString();
 				}
+			}
 
-				// Compare values with equals
-				if (!expectedValue.equals(actualValue)) {
-					// DEBUG:
-					
+			// Compare values with equals
+			if (!expectedValue.equals(actualValue)) {
+				// DEBUG:
+				
 
-					if (expectedValue instanceof java.sql.Date) {
-						expectedValue = expectedValue.toString();
-						actualValue = actualValue.toString();
-						
-					} else if (expectedValue instanceof java.sql.Time) {
-						expectedValue = expectedValue.toString();
-						actualValue = actualValue.toString();
-						
-					}
+				if (expectedValue instanceof java.sql.Date) {
+					expectedValue = expectedValue.toString();
+					actualValue = actualValue.toString();
+					
+				} else if (expectedValue instanceof java.sql.Time) {
+					expectedValue = expectedValue.toString();
+					actualValue = actualValue.toString();
+					
+				}
 
-					if (expectedValue instanceof String) {
-						final String expectedString = (String) expectedValue;
-
-						if (!(actualValue instanceof String)) {
-							throw new QueryTestFailedException(eMsg
-									+ "Value (types) mismatch at row " + (row + 1) //$NON-NLS-1$
-									+ " and column " + (col + 1) //$NON-NLS-1$
-									+ ": expected = [" //$NON-NLS-1$
-									+ expectedValue + ", (String) ], actual = [" //$NON-NLS-1$
-									+ actualValue + ", (" + actualValue.getClass().getName()+ ") ]"); //$NON-NLS-1$
-						} 
-											
-							// Check for String difference
-							assertStringsMatch(  expectedString,
-									(String) actualValue, (row + 1), (col + 1),
-									eMsg);
-
-					} else {
+				if (expectedValue instanceof String) {
+					final String expectedString = (String) expectedValue;
 
+					if (!(actualValue instanceof String)) {
 						throw new QueryTestFailedException(eMsg
-								+ "Value mismatch at row " + (row + 1) //$NON-NLS-1$
+								+ "Value (types) mismatch at row " + row //$NON-NLS-1$
 								+ " and column " + (col + 1) //$NON-NLS-1$
 								+ ": expected = [" //$NON-NLS-1$
-								+ expectedValue + "], actual = [" //$NON-NLS-1$
-								+ actualValue + "]"); //$NON-NLS-1$
+								+ expectedValue + ", (String) ], actual = [" //$NON-NLS-1$
+								+ actualValue + ", (" + actualValue.getClass().getName()+ ") ]"); //$NON-NLS-1$
+					} 
+										
+						// Check for String difference
+						assertStringsMatch(  expectedString,
+								(String) actualValue, row, (col + 1),
+								eMsg);
+
+				} else {
+
+					throw new QueryTestFailedException(eMsg
+							+ "Value mismatch at row " + row //$NON-NLS-1$
+							+ " and column " + (col + 1) //$NON-NLS-1$
+							+ ": expected = [" //$NON-NLS-1$
+							+ expectedValue + "], actual = [" //$NON-NLS-1$
+							+ actualValue + "]"); //$NON-NLS-1$
 
-					}
 				}
+			}
 
-			} // end loop through columns
-		} // end loop through rows
+		} // end loop through columns
+	}
+
+	/**
+	 * Convert a LOB value into the String it is compared as.
+	 */
+	private static Object convertLob(Object actualValue) throws QueryTestFailedException {
+		if (actualValue instanceof Clob) {
+			Clob c = (Clob) actualValue;
+			try {
+				actualValue = ObjectConverterUtil.convertToString(c
+						.getAsciiStream());
+
+			} catch (Throwable e) {
+				// TODO Auto-generated catch block
+				throw new QueryTestFailedException(e);
+			}
+		} else if (actualValue instanceof Blob) {
+			Blob b = (Blob) actualValue;
+			try {
+				byte[] ba = ObjectConverterUtil
+						.convertToByteArray(b.getBinaryStream());
+
+				actualValue = String.valueOf(ba.length);
+
+				// actualValue =
+				// ObjectConverterUtil.convertToString(b.getBinaryStream());
+
+			} catch (Throwable e) {
+				// TODO Auto-generated catch block
+				throw new QueryTestFailedException(e);
+			}
+		} else if (actualValue instanceof SQLXML) {
+			SQLXML s = (SQLXML) actualValue;
+			try {
+				actualValue = ObjectConverterUtil.convertToString(s
+						.getBinaryStream());
+
+			} catch (Throwable e) {
+				// TODO Auto-generated catch block
+				throw new QueryTestFailedException(e);
+			}
+		}
+		return actualValue;
 	}
 
 	private static void compareIdentifiers(List actualIdentifiers,
@@ -0,0 +1,358 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.xml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.ExpectedRowReader;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
+import org.apache.commons.lang.StringUtils;
+import org.jboss.bqt.core.exception.FrameworkRuntimeException;
+import org.jdom.JDOMException;
+
+/**
+ * XMLExpectedResultsRowReader is a forward-only cursor over an expected results file,
+ * using a StAX pull parser so no document is built.
+ * The header (query, execution time, column names and types) is read when the 
+ * reader is opened, and each call to {@link #nextRow()} reads only the next
+ * <code>tableRow</code>, so that a result of any size can be compared without
+ * loading the expected rows into memory.  The cell values are converted to
+ * their java types as they are read.
+ */
+public final class XMLExpectedResultsRowReader implements ExpectedRowReader {
+	
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+	
+	static {
+		FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+	
+	private final File resultsFile;
+	private final InputStream in;
+	private final XMLStreamReader reader;
+	private final XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+	
+	private String query;
+	private long executionTime = -1;
+	private List<String> identifiers = new ArrayList<String>();
+	private List<String> types = new ArrayList<String>();
+	private boolean hasTable = false;
+	private boolean exception = false;
+	private int rowCount = 0;
+
+	public XMLExpectedResultsRowReader(File resultsFile) {
+		this.resultsFile = resultsFile;
+		try {
+			this.in = new BufferedInputStream(new FileInputStream(resultsFile));
+		} catch (IOException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to load expected results: " + e.getMessage()); //$NON-NLS-1$
+		}
+		try {
+			this.reader = FACTORY.createXMLStreamReader(in);
+			readHeader();
+		} catch (XMLStreamException e) {
+			close();
+			throw new FrameworkRuntimeException(
+					"Unable to load expected results: " + e.getMessage()); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Open the expected results file and, when it contains a result set, return
+	 * a holder with only the header loaded and the rows marked as 
+	 * {@link ExpectedResultsHolder#isRowsStreamed() streamed}.  
+	 * @param test
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder, or <code>null</code> if the expected results
+	 * 		is an exception, which then needs to be loaded entirely
+	 */
+	static ExpectedResultsHolder loadHeader(QueryTest test, File resultsFile) {
+		XMLExpectedResultsRowReader rows = new XMLExpectedResultsRowReader(resultsFile);
+		try {
+			if (rows.isException() || rows.getIdentifiers().isEmpty()) {
+				return null;
+			}
+			ExpectedResultsHolder expectedResults = new ExpectedResultsHolder( TagNames.Elements.QUERY_RESULTS, test );
+			expectedResults.setQuery(rows.getQuery());
+			expectedResults.setExecutionTime(rows.getExecutionTime());
+			expectedResults.setIdentifiers(rows.getIdentifiers());
+			expectedResults.setTypes(rows.getTypes());
+			expectedResults.setRowsStreamed(true);
+			expectedResults.setExpectedResultsFile(resultsFile);
+			return expectedResults;
+		} finally {
+			rows.close();
+		}
+	}
+
+	/**
+	 * Load the entire expected results file, the same as 
+	 * {@link XMLQueryVisitationStrategy#parseXMLResultsFile(QueryTest, String, File)}, but 
+	 * reading the rows directly into their values.
+	 * @param test
+	 * @param resultsFile
+	 * @return ExpectedResultsHolder
+	 */
+	public static ExpectedResultsHolder load(QueryTest test, File resultsFile) {
+		XMLExpectedResultsRowReader rows = new XMLExpectedResultsRowReader(resultsFile);
+		try {
+			final ExpectedResultsHolder expectedResults;
+			if (!rows.isException() && !rows.getIdentifiers().isEmpty()) {
+				expectedResults = new ExpectedResultsHolder( TagNames.Elements.QUERY_RESULTS, test );
+				expectedResults.setQuery(rows.getQuery());
+				expectedResults.setExecutionTime(rows.getExecutionTime());
+				expectedResults.setIdentifiers(rows.getIdentifiers());
+				expectedResults.setTypes(rows.getTypes());
+				
+				final List<List<Object>> records = new ArrayList<List<Object>>();
+				List<Object> row;
+				while ((row = rows.nextRow()) != null) {
+					records.add(row);
+				}
+				if (records.size() > 0) {
+					expectedResults.setRows(records);
+				}
+			} else {
+				expectedResults = new ExpectedResultsHolder( TagNames.Elements.EXCEPTION,  test );
+				expectedResults.setQuery(rows.getQuery());
+				if (rows.isException()) {
+					rows.readException(expectedResults);
+				}
+			}
+			expectedResults.setExpectedResultsFile(resultsFile);
+			return expectedResults;
+		} finally {
+			rows.close();
+		}
+	}
+
+	private void readHeader() throws XMLStreamException {
+		boolean inResults = false;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				if (!inResults) {
+					if (name.equals(TagNames.Elements.QUERY)) {
+						query = reader.getElementText();
+					} else if (name.equals(TagNames.Elements.QUERY_RESULTS)) {
+						inResults = true;
+						String execTime = reader.getAttributeValue(null, TagNames.Attributes.EXECUTION_TIME);
+						if (execTime != null && execTime.trim().length() > 0) executionTime = Long.parseLong(execTime);
+					}
+				} else if (name.equals(TagNames.Elements.DATA_ELEMENT)) {
+					types.add(reader.getAttributeValue(null, TagNames.Attributes.TYPE));
+					identifiers.add(reader.getElementText());
+				} else if (name.equals(TagNames.Elements.TABLE)) {
+					hasTable = true;
+					return;
+				} else if (name.equals(TagNames.Elements.EXCEPTION)) {
+					exception = true;
+					return;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT
+					&& inResults && reader.getLocalName().equals(TagNames.Elements.QUERY_RESULTS)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Read the <code>exception</code> element the reader is positioned at.
+	 */
+	private void readException(ExpectedResultsHolder expectedResults) {
+		String className = null;
+		String message = null;
+		String startsWith = null;
+		String contains = null;
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (name.equals(TagNames.Elements.CLASS)) {
+						className = reader.getElementText().trim();
+					} else if (name.equals(TagNames.Elements.MESSAGE)) {
+						message = reader.getElementText().trim();
+					} else if (name.equals(TagNames.Elements.MESSAGE_STARTSWITH)) {
+						startsWith = reader.getElementText().trim();
+					} else if (name.equals(TagNames.Elements.MESSAGE_CONTAINS)) {
+						contains = reader.getElementText().trim();
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& reader.getLocalName().equals(TagNames.Elements.EXCEPTION)) {
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to load expected results: " + e.getMessage()); //$NON-NLS-1$
+		}
+		
+		expectedResults.setExceptionClassName(className);
+		String msg = message;
+		if (msg == null && startsWith != null) {
+			msg = startsWith;
+			expectedResults.setExceptionStartsWith(true);
+		} else if (msg == null && contains != null) {
+			msg = contains;
+			expectedResults.setExceptionContains(true);
+		}
+		expectedResults.setExceptionMsg(StringUtils.remove(msg, '\r'));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @see org.jboss.bqt.client.results.ExpectedRowReader#nextRow()
+	 */
+	public List<Object> nextRow() {
+		if (!hasTable) {
+			return null;
+		}
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT
+						&& reader.getLocalName().equals(TagNames.Elements.TABLE_ROW)) {
+					rowCount++;
+					return readRow();
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& reader.getLocalName().equals(TagNames.Elements.TABLE)) {
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to read expected results " + resultsFile.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (JDOMException e) {
+			throw new FrameworkRuntimeException(
+					"Unable to read expected results " + resultsFile.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		hasTable = false;
+		return null;
+	}
+	
+	private List<Object> readRow() throws XMLStreamException, JDOMException {
+		List<Object> row = new ArrayList<Object>(identifiers.size());
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT
+					&& reader.getLocalName().equals(TagNames.Elements.TABLE_CELL)) {
+				row.add(readCell());
+			} else if (event == XMLStreamConstants.END_ELEMENT
+					&& reader.getLocalName().equals(TagNames.Elements.TABLE_ROW)) {
+				break;
+			}
+		}
+		return row;
+	}
+	
+	private Object readCell() throws XMLStreamException, JDOMException {
+		StringBuffer text = new StringBuffer();
+		Object value = null;
+		boolean hasValue = false;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				// only the first value element is used, same as when the whole file is loaded
+				String name = reader.getLocalName();
+				String cellText = reader.getElementText();
+				if (!hasValue) {
+					value = jstrat.consumeCell(name, cellText);
+					hasValue = true;
+				}
+			} else if (event == XMLStreamConstants.CHARACTERS 
+					|| event == XMLStreamConstants.CDATA) {
+				text.append(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		if (text.toString().trim().equalsIgnoreCase(TagNames.Elements.NULL)) {
+			return null;
+		}
+		if (!hasValue) {
+			throw new JDOMException("No value found for " + TagNames.Elements.TABLE_CELL //$NON-NLS-1$
+					+ " in row " + rowCount); //$NON-NLS-1$
+		}
+		return value;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public long getExecutionTime() {
+		return executionTime;
+	}
+
+	public List<String> getIdentifiers() {
+		return identifiers;
+	}
+
+	public List<String> getTypes() {
+		return types;
+	}
+
+	public boolean isException() {
+		return exception;
+	}
+	
+	/**
+	 * @return the number of rows read so far
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public void close() {
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+		}
+	}
+
+}
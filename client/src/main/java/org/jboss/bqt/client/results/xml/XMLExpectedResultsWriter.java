@@ -31,6 +31,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Properties;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.jboss.bqt.client.ClientPlugin;
 import org.jboss.bqt.client.QueryTest;
 import org.jboss.bqt.client.api.ExpectedResults;
@@ -38,22 +40,13 @@ import org.jboss.bqt.client.api.ExpectedResultsWriter;
 import org.jboss.bqt.client.api.QueryScenario;
 import org.jboss.bqt.client.results.ExpectedResultsHolder;
 import org.jboss.bqt.client.xml.TagNames;
-import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
-import org.jboss.bqt.client.xml.TagNames.Attributes;
-import org.jboss.bqt.client.xml.TagNames.Elements;
+import org.jboss.bqt.client.xml.XMLResultsStreamWriter;
 import org.jboss.bqt.core.exception.FrameworkException;
 import org.jboss.bqt.core.util.ExceptionUtil;
 import org.jboss.bqt.core.util.FileUtils;
-import org.jboss.bqt.core.xml.JdomHelper;
 import org.jboss.bqt.framework.AbstractQuery;
 import org.jboss.bqt.framework.TestCase;
 import org.jboss.bqt.framework.TransactionAPI;
-import org.jdom.Attribute;
-import org.jdom.CDATA;
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.output.XMLOutputter;
 
 public class XMLExpectedResultsWriter extends ExpectedResultsWriter{
 //	private static final int MAX_COL_WIDTH = 65;
@@ -106,77 +99,59 @@ public class XMLExpectedResultsWriter extends ExpectedResultsWriter{
 		}
 
 		try {
-			XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+			XMLResultsStreamWriter writer = new XMLResultsStreamWriter(outputStream);
 
-			// Create root JDOM element
-			Element rootElement = new Element(TagNames.Elements.ROOT_ELEMENT);
+			writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
 
-			// Create Query element
-			Element queryElement = new Element(TagNames.Elements.QUERY);
-			queryElement.addContent(new CDATA(query));
-			rootElement.addContent(queryElement);
+			// Write the Query element
+			writer.writeCDataElement(TagNames.Elements.QUERY, query);
 
-			// create a result attribute for the queryID
-			Attribute resultsIDAttribute = new Attribute(
-					TagNames.Attributes.NAME, querySetID + "_" + queryID);
+			// the result attribute for the queryID
+			String resultsID = querySetID + "_" + queryID;
 
 			if (result != null) {
 				
 				rh = new ExpectedResultsHolder(TagNames.Elements.QUERY, (QueryTest) testcase.getActualTest() );
-				// produce a JDOM element from the results object
-				Element resultsElement = jstrat.produceResults(result);
-				// set the resultsIDAttribute on the results element
-				resultsElement.setAttribute(resultsIDAttribute);
 				
 				long time = (testcase.getTestResult().getEndTS() - testcase.getTestResult().getBeginTS());
 
-				Attribute timeIDAttribute = new Attribute(
+				// write the results as each row is read
+				writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, 
+						TagNames.Attributes.NAME, resultsID,
 						TagNames.Attributes.EXECUTION_TIME, String.valueOf(time));
-
-				resultsElement.setAttribute(timeIDAttribute);
-
-				
-				// add the results elements to the root element
-				rootElement.addContent(resultsElement);
-				// debug:
-				// System.out.println("\n Result: " + printResultSet(result));
+				writer.writeResults(result);
+				writer.writeEndElement();
 			} else {
 				rh = new ExpectedResultsHolder(TagNames.Elements.EXCEPTION, (QueryTest) testcase.getActualTest() );
-				// create a JDOM element from the exception object with the
-				// results tag
-				Element exceptionElement = new Element(
-						TagNames.Elements.QUERY_RESULTS);
-				// produce xml for the actualException and this to the
-				// exceptionElement
+				// write the exception object with the results tag
 				if (ex != null) {
-					exceptionElement.addContent(jstrat.produceMsg(ex, null));
+					writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, 
+							TagNames.Attributes.NAME, resultsID);
+					writer.writeException(ex);
+					writer.writeEndElement();
+				} else {
+					writer.writeElement(TagNames.Elements.QUERY_RESULTS, null, 
+							TagNames.Attributes.NAME, resultsID);
 				}
-				// set the resultsIDAttribute on the exception element
-				exceptionElement.setAttribute(resultsIDAttribute);
-				// add the results elements to the root element
-				rootElement.addContent(exceptionElement);
-
 			}
 			
 			rh.setExpectedResultsFile(resultsFile);
 
-			// Output xml
-			XMLOutputter outputter = new XMLOutputter(JdomHelper.getFormat(
-					"  ", true)); //$NON-NLS-1$
-			outputter.output(new Document(rootElement), outputStream);
+			writer.writeEndDocument();
+			writer.close();
 
 		} catch (SQLException e) {
 			throw new FrameworkException(
-					"Failed to convert results to JDOM: " + e.getMessage()); //$NON-NLS-1$
-		} catch (JDOMException e) {
+					"Failed to convert results to XML: " + e.getMessage()); //$NON-NLS-1$
+		} catch (XMLStreamException e) {
 			throw new FrameworkException(
-					"Failed to convert results to JDOM: " + e.getMessage()); //$NON-NLS-1$
+					"Failed to convert results to XML: " + e.getMessage()); //$NON-NLS-1$
 		} catch (IOException e) {
 			throw new FrameworkException(
 					"Failed to output new results to " + resultsFile.getPath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
 		} catch (Throwable e) {
 			throw new FrameworkException(
-					"Failed to convert results to JDOM: " + ExceptionUtil.getStackTrace(e)); //$NON-NLS-1$
+					"Failed to convert results to XML: " + ExceptionUtil.getStackTrace(e)); //$NON-NLS-1$
 		} finally {
 			try {
 				outputStream.close();
@@ -82,7 +82,9 @@ public class CreateSQLQueryFile implements TestCaseLifeCycle {
 	 * @see org.jboss.bqt.framework.TestCaseLifeCycle#cleanup()
 	 */
 	public void cleanup() {
-		trans.cleanup();
+		if (trans != null) {
+			trans.cleanup();
+		}
 		trans = null;
 		scenario = null;
 		
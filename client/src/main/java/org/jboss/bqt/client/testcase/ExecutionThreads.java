@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.bqt.client.ClientPlugin;
+
+/**
+ * ExecutionThreads creates the executors used by {@link ProcessResults} to run 
+ * query tests concurrently.
+ * <p>
+ * The per-task executor will use virtual threads when the JVM supports them (Java 21 or later),
+ * which is looked up by reflection so the client can still be built and run on older JVMs.
+ * On older JVMs, a cached pool of daemon threads with a reduced stack size is used instead.
+ * </p>
+ */
+final class ExecutionThreads {
+	
+	// the stack size used for the per-task threads when virtual threads aren't available,
+	// the JDBC drivers don't need the default stack size
+	private static final long PER_TASK_STACK_SIZE = 256 * 1024;
+	
+	private static Method virtualThreadExecutor = null;
+	
+	static {
+		try {
+			virtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+		} catch (Exception e) {
+			// not supported by this JVM
+			virtualThreadExecutor = null;
+		}
+	}
+
+	private ExecutionThreads() {
+	}
+	
+	public static boolean isVirtualThreadSupported() {
+		return virtualThreadExecutor != null;
+	}
+	
+	/**
+	 * Create the fixed size pool of workers.
+	 * @param workers
+	 * @param name used to name the threads
+	 * @return ExecutorService
+	 */
+	public static ExecutorService newWorkerPool(int workers, String name) {
+		return Executors.newFixedThreadPool(workers, new NamedThreadFactory(name + "-worker-", 0)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Create the fixed size pool of threads that load expected results ahead of the query tests.
+	 * @param threads
+	 * @param name used to name the threads
+	 * @return ExecutorService
+	 */
+	public static ExecutorService newPrefetchPool(int threads, String name) {
+		return Executors.newFixedThreadPool(threads, new NamedThreadFactory(name + "-prefetch-", 0)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Create an executor that starts a new thread for each task that is submitted.  The
+	 * caller is responsible for limiting the number of tasks that are in-flight.
+	 * @param name used to name the threads
+	 * @return ExecutorService
+	 */
+	public static ExecutorService newPerTaskExecutor(String name) {
+		if (virtualThreadExecutor != null) {
+			try {
+				return (ExecutorService) virtualThreadExecutor.invoke(null);
+			} catch (Exception e) {
+				ClientPlugin.LOGGER.warn("Unable to create the virtual thread executor, using platform threads: " + e.getMessage());
+			}
+		}
+		return Executors.newCachedThreadPool(new NamedThreadFactory(name + "-task-", PER_TASK_STACK_SIZE)); //$NON-NLS-1$
+	}
+	
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger(0);
+		private final String prefix;
+		private final long stackSize;
+		
+		NamedThreadFactory(String prefix, long stackSize) {
+			this.prefix = "BQT-" + prefix; //$NON-NLS-1$
+			this.stackSize = stackSize;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(null, r, prefix + count.incrementAndGet(), stackSize);
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.api.ExpectedResults;
+import org.jboss.bqt.client.api.ExpectedResultsReader;
+import org.jboss.bqt.client.results.ExpectedResultsCache;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+
+/**
+ * ExpectedResultsPrefetcher loads the expected results of the query tests in a query set 
+ * on background threads, starting with the query test being executed and looking ahead
+ * {@link TestProperties#PROP_EXPECTED_RESULTS_PREFETCH} query tests, so that reading the 
+ * expected results files overlaps with the queries waiting on the database.
+ * <p>
+ * The loaded expected results are held by the {@link ExpectedResultsCache}, where the 
+ * readers find them when the query test is compared.  The prefetched results that have 
+ * not yet been compared are limited to the memory budget, and prefetching resumes as the
+ * query tests complete.
+ * </p>
+ */
+final class ExpectedResultsPrefetcher {
+	
+	private final List<ExpectedResultsReader> readers;
+	private final List<QueryTest> queryTests;
+	private final Map<QueryTest, Integer> positions;
+	private final int count;
+	private final long memoryBudget;
+	private final int threads;
+	private final ExecutorService executor;
+	
+	private final Future<?>[] futures;
+	// the estimated size of the prefetched results, that have not been compared, for each query test
+	private final long[] sizes;
+	private final boolean[] compared;
+	private long inUse = 0;
+	private int loading = 0;
+	// the next query test to be prefetched, and the last that can be
+	private int next = 0;
+	private int limit = 0;
+	
+	/**
+	 * @param readers used to load the expected results
+	 * @param queryTests in the order they are executed
+	 * @param count the number of query tests to prefetch ahead
+	 * @param memoryBudget the number of bytes the prefetched results can use
+	 * @param threads the number of threads that load the expected results
+	 * @param name used to name the threads
+	 */
+	ExpectedResultsPrefetcher(List<ExpectedResultsReader> readers, List<QueryTest> queryTests, 
+			int count, long memoryBudget, int threads, String name) {
+		this.readers = readers;
+		this.queryTests = queryTests;
+		this.count = count;
+		this.memoryBudget = memoryBudget;
+		this.threads = threads;
+		this.futures = new Future<?>[queryTests.size()];
+		this.sizes = new long[queryTests.size()];
+		this.compared = new boolean[queryTests.size()];
+		
+		this.positions = new IdentityHashMap<QueryTest, Integer>(queryTests.size());
+		for (int i = 0; i < queryTests.size(); i++) {
+			positions.put(queryTests.get(i), Integer.valueOf(i));
+		}
+		
+		this.executor = ExecutionThreads.newPrefetchPool(threads, name);
+	}
+	
+	/**
+	 * Called when the query test starts executing, to prefetch its expected 
+	 * results and those of the query tests that follow it.
+	 * @param test
+	 */
+	synchronized void started(QueryTest test) {
+		Integer pos = positions.get(test);
+		if (pos == null) {
+			return;
+		}
+		limit = Math.max(limit, Math.min(queryTests.size(), pos.intValue() + count));
+		fill();
+	}
+	
+	/**
+	 * Wait for the expected results of the query test to finish loading,
+	 * before they are compared.  
+	 * @param test
+	 */
+	void await(QueryTest test) {
+		Future<?> future = null;
+		synchronized (this) {
+			Integer pos = positions.get(test);
+			if (pos != null) {
+				future = futures[pos.intValue()];
+			}
+		}
+		if (future == null) {
+			return;
+		}
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// the failure will be reported when the expected results are read for the comparison
+			ClientPlugin.LOGGER.debug("Unable to prefetch the expected results for " + test.getQueryID() + ": " + e.getCause());
+		}
+	}
+	
+	/**
+	 * Called when the query test has been compared, which releases the memory
+	 * used by its prefetched results.
+	 * @param test
+	 */
+	synchronized void completed(QueryTest test) {
+		Integer pos = positions.get(test);
+		if (pos == null) {
+			return;
+		}
+		int i = pos.intValue();
+		compared[i] = true;
+		inUse -= sizes[i];
+		sizes[i] = 0;
+		fill();
+	}
+	
+	void close() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Start loading the next query tests, one per thread, until the look ahead is reached or
+	 * the budget is used.  Each load is limited to the budget remaining when it starts.
+	 */
+	private void fill() {
+		if (executor.isShutdown()) {
+			return;
+		}
+		while (next < limit && inUse < memoryBudget && loading < threads) {
+			final int i = next++;
+			loading++;
+			final long maxLength = memoryBudget - inUse;
+			futures[i] = executor.submit(new Runnable() {
+				public void run() {
+					prefetch(i, maxLength);
+				}
+			});
+		}
+	}
+	
+	private void prefetch(int i, long maxLength) {
+		QueryTest test = queryTests.get(i);
+		long size = 0;
+		try {
+			for (ExpectedResultsReader reader : readers) {
+				ExpectedResults results = reader.prefetchExpectedResults(test, maxLength);
+				if (results instanceof ExpectedResultsHolder) {
+					size += ExpectedResultsCache.estimateSize((ExpectedResultsHolder) results);
+				}
+			}
+		} finally {
+			synchronized (this) {
+				// nothing is held when the query test was compared before the prefetch completed
+				if (!compared[i]) {
+					sizes[i] = size;
+					inUse += size;
+				}
+				loading--;
+				fill();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.framework.util.ResultSetMonitor;
+
+/**
+ * FetchSizeAdvisor learns the fetch size of each query test from how its results were read
+ * the last time it was run, and keeps what it learned in a sidecar file for the next run 
+ * (see {@link TestProperties#PROP_FETCH_SIZE_ADAPTIVE}).
+ * <p>
+ * The fetch size is chosen so the rows are fetched in about as many round trips as the
+ * time until the first row allows within {@link #ROUND_TRIP_BUDGET}, meaning a fast server 
+ * is given smaller fetches and a slow one fewer, larger ones.  The fetch size is bounded 
+ * by {@link #MIN_FETCH_SIZE} and {@link #MAX_FETCH_SIZE}, and so that a fetch of the observed 
+ * row width doesn't exceed the memory ceiling.  A query test that hasn't been learned yet 
+ * uses the default fetch size.
+ * </p>
+ * <p>
+ * Each line of the sidecar file is keyed by the scenario, query set and query id, and records the 
+ * fetch size followed by the row count, average row bytes and first row milliseconds it 
+ * was learned from.  A fetch size learned against one scenario's source isn't used for 
+ * another's, and the file is saved as a {@link SidecarFile}, so concurrent scenarios can share it.
+ * </p>
+ */
+final class FetchSizeAdvisor {
+	
+	public static final String DEFAULT_FILE_NAME = "fetchsizes.properties"; //$NON-NLS-1$
+	
+	static final int MIN_FETCH_SIZE = 10;
+	static final int MAX_FETCH_SIZE = 10000;
+	
+	/**
+	 * The number of milliseconds that can be spent on round trips while the rows are fetched.
+	 */
+	static final long ROUND_TRIP_BUDGET = 1000;
+	
+	private static final String SEPARATOR = ","; //$NON-NLS-1$
+	
+	private final File file;
+	private final String scenario;
+	private final long memoryCeiling;
+	private final int defaultFetchSize;
+	private Properties fetchSizes = new Properties();
+	// the fetch sizes learned since they were last saved
+	private final Properties changes = new Properties();
+	
+	/**
+	 * @param file the sidecar file, which is loaded if it exists
+	 * @param scenario identifies the scenario whose query tests are learned
+	 * @param memoryCeiling the number of bytes a fetch can use
+	 * @param defaultFetchSize used for the query tests that haven't been learned
+	 */
+	FetchSizeAdvisor(File file, String scenario, long memoryCeiling, int defaultFetchSize) {
+		this.file = file;
+		this.scenario = scenario;
+		this.memoryCeiling = memoryCeiling;
+		this.defaultFetchSize = defaultFetchSize;
+		
+		try {
+			this.fetchSizes = SidecarFile.load(file);
+		} catch (IOException e) {
+			ClientPlugin.LOGGER.warn("Unable to load the fetch sizes from " + file.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * @param test
+	 * @return the fetch size learned for the query test, or the default fetch size
+	 */
+	synchronized int getFetchSize(QueryTest test) {
+		String value = this.fetchSizes.getProperty(getKey(test));
+		if (value != null) {
+			int end = value.indexOf(SEPARATOR);
+			try {
+				return Integer.parseInt(end < 0 ? value : value.substring(0, end));
+			} catch (NumberFormatException e) {
+				// relearned the next time its results are read
+			}
+		}
+		return this.defaultFetchSize;
+	}
+	
+	/**
+	 * Learn the fetch size of the query test from the monitor of its results.  Nothing is learned 
+	 * when not all the rows were read, because the row count wouldn't be known.
+	 * @param test
+	 * @param monitor
+	 */
+	synchronized void learn(QueryTest test, ResultSetMonitor monitor) {
+		if (monitor == null || !monitor.isExhausted()) {
+			return;
+		}
+		int fetchSize = computeFetchSize(monitor.getRowCount(), monitor.getAverageRowSize(), 
+				monitor.getFirstRowTime(), this.memoryCeiling);
+		
+		String value = fetchSize + SEPARATOR + monitor.getRowCount() + SEPARATOR 
+				+ monitor.getAverageRowSize() + SEPARATOR + monitor.getFirstRowTime();
+		this.fetchSizes.setProperty(getKey(test), value);
+		this.changes.setProperty(getKey(test), value);
+	}
+	
+	/**
+	 * Merge the fetch sizes learned since they were loaded, or last saved, into the sidecar file.
+	 */
+	synchronized void save() {
+		if (this.changes.isEmpty()) {
+			return;
+		}
+		try {
+			SidecarFile.merge(this.file, this.changes, "BQT learned fetch sizes: fetchsize,rows,rowbytes,firstrowmillis"); //$NON-NLS-1$
+			this.changes.clear();
+		} catch (IOException e) {
+			ClientPlugin.LOGGER.warn("Unable to save the fetch sizes to " + this.file.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * @param rows the number of rows returned
+	 * @param rowSize the average number of bytes in a row
+	 * @param firstRowTime the milliseconds until the first row
+	 * @param memoryCeiling the number of bytes a fetch can use
+	 * @return fetch size
+	 */
+	static int computeFetchSize(long rows, long rowSize, long firstRowTime, long memoryCeiling) {
+		long roundTrips = Math.max(1, ROUND_TRIP_BUDGET / Math.max(1, firstRowTime));
+		
+		// one more than the rows, so the last fetch finds the end of the results
+		long fetchSize = ((rows + roundTrips - 1) / roundTrips) + 1;
+		fetchSize = Math.max(fetchSize, MIN_FETCH_SIZE);
+		fetchSize = Math.min(fetchSize, MAX_FETCH_SIZE);
+		fetchSize = Math.min(fetchSize, memoryCeiling / Math.max(1, rowSize));
+		
+		return (int) Math.max(fetchSize, 1);
+	}
+	
+	private String getKey(QueryTest test) {
+		return this.scenario + "." + test.getQuerySetID() + "." + test.getQueryID(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.TestResultsSummary;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.core.exception.FrameworkRuntimeException;
+import org.jboss.bqt.core.util.PropertiesUtils;
+import org.jboss.bqt.framework.TestResult;
+import org.jboss.bqt.framework.TransactionAPI;
+
+/**
+ * LoadTest is the TestCase used by the {@link TestProperties.RESULT_MODES#LOAD LOAD} result mode.  
+ * For each query set, {@link TestProperties#PROP_LOAD_CLIENTS} clients, each with its own 
+ * {@link TransactionAPI}, replay the queries in the query set for 
+ * {@link TestProperties#PROP_LOAD_DURATION} seconds, or {@link TestProperties#PROP_LOAD_ITERATIONS} 
+ * times.  The {@link TestResultsSummary} is then given the number of clients so that it reports
+ * the throughput, latency and error rate, per client and overall.
+ */
+public class LoadTest extends ProcessResults {
+	
+	private int clients = 1;
+	private long durationMillis = 0;
+	private int iterations = 1;
+	private int runNumber = 0;
+
+	public LoadTest(QueryScenario scenario) {
+		super(scenario);
+	}
+	
+	@Override
+	public void setup(TransactionAPI transaction) {
+		super.setup(transaction);
+		
+		clients = Math.max(1, PropertiesUtils.getIntProperty(getScenario().getProperties(), TestProperties.PROP_LOAD_CLIENTS, 1));
+		durationMillis = PropertiesUtils.getLongProperty(getScenario().getProperties(), TestProperties.PROP_LOAD_DURATION, 0) * 1000;
+		iterations = Math.max(1, PropertiesUtils.getIntProperty(getScenario().getProperties(), TestProperties.PROP_LOAD_ITERATIONS, 1));
+		
+		ClientPlugin.LOGGER.info("Load using " + clients + " clients, " + 
+				(durationMillis > 0 ? "for " + (durationMillis / 1000) + " seconds" : iterations + " iterations"));
+	}
+	
+	@Override
+	public void runTestCase() {
+		
+		Iterator<String> qsetIt = getScenario().getQuerySetIDs().iterator();
+		
+		TestResultsSummary summary = getScenario().getTestResultsSummary();
+
+		FrameworkRuntimeException fre = null;
+		try {
+
+			while (qsetIt.hasNext()) {
+				String querySetID = qsetIt.next();
+
+				ClientPlugin.LOGGER.info("Start Load:  QuerySetID [" + querySetID + "]");
+
+				final List<QueryTest> queryTests = getScenario().getQueries(querySetID);
+
+				long beginTS = System.currentTimeMillis();
+				
+				runClients(queryTests, summary, beginTS);
+
+				long endTS = System.currentTimeMillis();
+
+				ClientPlugin.LOGGER.info("End Load: QuerySetID [" + querySetID + "]");
+
+				try {
+					summary.printResults(querySetID, beginTS, endTS, clients, ++runNumber);
+				} catch (Exception e) {
+					fre = new FrameworkRuntimeException(e);
+					throw fre;
+				}
+
+			}
+
+		} finally {
+			try {
+				summary.printTotals();
+				summary.cleanup();	
+			} catch (Exception e) {
+				if (fre == null) {
+					throw new FrameworkRuntimeException(e);
+				}
+				throw fre;
+
+			}
+		}
+	}
+	
+	private void runClients(final List<QueryTest> queryTests, final TestResultsSummary summary, long beginTS) {
+		final long deadline = (durationMillis > 0 ? beginTS + durationMillis : Long.MAX_VALUE);
+		final int runs = (durationMillis > 0 ? Integer.MAX_VALUE : iterations);
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		
+		List<TransactionAPI> transactions = getWorkerTransactions(clients);
+		
+		List<Future<?>> futures = new ArrayList<Future<?>>(clients);
+		
+		ExecutorService executor = ExecutionThreads.newWorkerPool(clients, getScenario().getQueryScenarioIdentifier() + "-load");
+		FrameworkRuntimeException failure = null;
+		try {
+			for (int c = 0; c < clients; c++) {
+				final int clientNum = c + 1;
+				final TransactionAPI transaction = transactions.get(c);
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						try {
+							for (int r = 0; r < runs && !stop.get(); r++) {
+								for (QueryTest q : queryTests) {
+									if (stop.get() || System.currentTimeMillis() >= deadline) {
+										return;
+									}
+									TestResult result = processQueryTest(q, transaction);
+									result.setClientNum(clientNum);
+									// only the statistics are kept, not the result
+									summary.addLoadTest(result.getQuerySetID(), result);
+								}
+							}
+						} catch (RuntimeException e) {
+							stop.set(true);
+							throw e;
+						}
+					}
+				}));
+			}
+			
+			failure = waitFor(futures);
+		} finally {
+			executor.shutdown();
+		}
+		
+		if (failure != null) throw failure;
+	}
+
+}
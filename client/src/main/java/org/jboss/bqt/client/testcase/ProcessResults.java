@@ -22,8 +22,20 @@
 
 package org.jboss.bqt.client.testcase;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jboss.bqt.client.ClientPlugin;
 import org.jboss.bqt.client.QuerySQL;
@@ -31,28 +43,71 @@ import org.jboss.bqt.client.QueryTest;
 import org.jboss.bqt.client.TestProperties;
 import org.jboss.bqt.client.TestResultsSummary;
 import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.ExpectedResultsCache;
 import org.jboss.bqt.core.exception.FrameworkRuntimeException;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
+import org.jboss.bqt.core.util.PropertiesUtils;
 import org.jboss.bqt.framework.AbstractQuery;
 import org.jboss.bqt.framework.TestCase;
 import org.jboss.bqt.framework.TestCaseLifeCycle;
 import org.jboss.bqt.framework.TestResult;
 import org.jboss.bqt.framework.TransactionAPI;
+import org.jboss.bqt.framework.TransactionFactory;
 import org.jboss.bqt.framework.util.AssertResults;
 
 /**
  * ProcessResults is a TestCase that will process the results of a query test.  
  * For which the QueryScenario will be asked to handle any results generated
  * by the test case.
+ * <p>
+ * When {@link TestProperties#PROP_EXECUTION_THREADS} is greater than 1, the query tests
+ * in a query set are executed by that many workers.  Each worker has its own {@link TransactionAPI}
+ * (and therefore its own connection), and the results are added to the {@link TestResultsSummary}
+ * in the order the queries were read, so the output matches a serial run.
+ * </p>
+ * <p>
+ * When {@link TestProperties#PROP_EXECUTION_VIRTUAL_THREADS} is true, each query test is run on its own 
+ * thread instead (a virtual thread, when supported by the JVM), and {@link TestProperties#PROP_EXECUTION_THREADS}
+ * caps the number of query tests in-flight.  The transactions are reused by the tasks as they complete.
+ * </p>
  * 
  */
 public class ProcessResults implements TestCaseLifeCycle {
+	
+	// megabytes
+	private static final long DEFAULT_PREFETCH_MEMORY = 16;
+	private static final long DEFAULT_FETCH_SIZE_MEMORY = 4;
+	private static final int DEFAULT_HISTORY_RUNS = 20;
+	private static final int DEFAULT_HISTORY_MIN_RUNS = 5;
+	private static final double DEFAULT_HISTORY_THRESHOLD = 3.5;
 
 	private QueryScenario scenario = null;
 	
 	private TransactionAPI trans;
 	
 	private AbstractQuery abQuery;
+	
+	private int executionThreads = 1;
+	
+	private boolean perQueryThreads = false;
+	
+	// seconds, the timeout used for queries that don't specify their own
+	private int defaultQueryTimeout = 0;
+	// when greater than 0, the timeout of a query that doesn't specify its own is derived from its history
+	private double timeoutHistoryFactor = 0;
+	
+	private int fetchSize = 0;
+	private boolean forwardOnly = true;
+	private FetchSizeAdvisor fetchSizeAdvisor = null;
+	private int statementCacheSize = 0;
+	private boolean phaseTimings = true;
+	private RunHistory runHistory = null;
+	
+	// the transactions used by the workers, the first one is always trans
+	private List<TransactionAPI> workerTrans = null;
+	
+	// loads the expected results of the query set being run ahead of the comparisons
+	private volatile ExpectedResultsPrefetcher prefetcher = null;
 
 	public ProcessResults(QueryScenario scenario) {
 		super();
@@ -60,6 +115,10 @@ public class ProcessResults implements TestCaseLifeCycle {
 		
 	}
 	
+	protected QueryScenario getScenario() {
+		return this.scenario;
+	}
+	
 	public String getTestName() {
 		return scenario.getQuerySetName() + ":" + scenario.getQueryScenarioIdentifier();
 	}
@@ -69,6 +128,32 @@ public class ProcessResults implements TestCaseLifeCycle {
 		this.trans = transaction;
 		abQuery = ((AbstractQuery) trans);
 		
+		executionThreads = PropertiesUtils.getIntProperty(scenario.getProperties(), TestProperties.PROP_EXECUTION_THREADS, 1);
+		if (executionThreads < 1) {
+			executionThreads = 1;
+		}
+		
+		defaultQueryTimeout = PropertiesUtils.getIntProperty(scenario.getProperties(), TestProperties.PROP_QUERY_TIMEOUT, 0);
+		
+		fetchSize = PropertiesUtils.getIntProperty(scenario.getProperties(), TestProperties.PROP_FETCH_SIZE, 0);
+		forwardOnly = PropertiesUtils.getBooleanProperty(scenario.getProperties(), TestProperties.PROP_RESULTSET_FORWARD_ONLY, true);
+		fetchSizeAdvisor = createFetchSizeAdvisor();
+		statementCacheSize = PropertiesUtils.getIntProperty(scenario.getProperties(), TestProperties.PROP_STATEMENT_CACHE_SIZE, 0);
+		phaseTimings = PropertiesUtils.getBooleanProperty(scenario.getProperties(), TestProperties.PROP_PHASE_TIMINGS, true);
+		runHistory = createRunHistory();
+		
+		timeoutHistoryFactor = PropertiesUtils.getDoubleProperty(scenario.getProperties(), TestProperties.PROP_QUERY_TIMEOUT_HISTORY_FACTOR, 0);
+		if (timeoutHistoryFactor > 0 && runHistory == null) {
+			ClientPlugin.LOGGER.warn(TestProperties.PROP_QUERY_TIMEOUT_HISTORY_FACTOR + " is ignored, because " 
+					+ TestProperties.PROP_HISTORY_ENABLED + " isn't true");
+		}
+		
+		perQueryThreads = PropertiesUtils.getBooleanProperty(scenario.getProperties(), TestProperties.PROP_EXECUTION_VIRTUAL_THREADS, false);
+		if (perQueryThreads) {
+			ClientPlugin.LOGGER.info("Executing a thread per query test, with at most " + executionThreads + " in-flight, virtual threads " +
+					(ExecutionThreads.isVirtualThreadSupported() ? "are" : "are not") + " supported");
+		}
+		
 	}
 	
 	public void runTestCase() {
@@ -90,46 +175,36 @@ public class ProcessResults implements TestCaseLifeCycle {
 
 				final List<QueryTest> queryTests = scenario.getQueries(querySetID);
 
-				// the iterator to process the query tests
-				Iterator<QueryTest> queryTestIt = queryTests.iterator();
-
 				long beginTS = System.currentTimeMillis();
-
-				while (queryTestIt.hasNext()) {
-					QueryTest q = queryTestIt.next();
-					
-					TestResult testResult = new TestResult(q.getQuerySetID(), q.getQueryID());
-					
-					TestCase testcase = new TestCase(q);
-					testcase.setTestResult(testResult);
-					
-					ClientPlugin.LOGGER.debug("Test: QuerySetID [" + testResult.getQuerySetID() + "-" + testResult.getQueryID() +"]");
-
-					testResult.setResultMode(this.scenario.getResultsMode());
-					testResult.setStatus(TestResult.RESULT_STATE.TEST_PRERUN);
-					
-					try {			
-						abQuery.before(testcase);
-						
-						executeTest(testcase);
-						
-					} catch (QueryTestFailedException qtfe) {
-						// dont set on testResult, handled in transactionAPI
+				
+				prefetcher = createPrefetcher(querySetID, queryTests);
+				try {
+					if (executionThreads > 1 && queryTests.size() > 1) {
+						if (perQueryThreads) {
+							executePerQuery(queryTests, summary);
+						} else {
+							executeInParallel(queryTests, summary);
+						}
 						
-					} catch (Exception rme) {
-						if (ClientPlugin.LOGGER.isDebugEnabled()) {
-							rme.printStackTrace();
+					} else {
+		
+						// the iterator to process the query tests
+						Iterator<QueryTest> queryTestIt = queryTests.iterator();
+			
+						while (queryTestIt.hasNext()) {
+							TestResult testResult = processQueryTest(queryTestIt.next(), trans);
+							
+							summary.addTest(testResult.getQuerySetID(), testResult);
 						}
-						abQuery.setApplicationException(rme);
-
-					} finally {
-						abQuery.after();
 					}
-						
-					after(testcase);
-					
-					trans.cleanup();
-				
+				} finally {
+					if (prefetcher != null) {
+						prefetcher.close();
+						prefetcher = null;
+					}
+					if (fetchSizeAdvisor != null) {
+						fetchSizeAdvisor.save();
+					}
 				}
 
 				long endTS = System.currentTimeMillis();
@@ -142,11 +217,18 @@ public class ProcessResults implements TestCaseLifeCycle {
 					fre = new FrameworkRuntimeException(e);
 					throw fre;
 				}
+				
+				if (runHistory != null) {
+					recordHistory(summary.getTests(querySetID));
+				}
 
 			}
 
 		} finally {
 			try {
+				if (runHistory != null) {
+					writeRegressionReport();
+				}
 				summary.printTotals();
 				summary.cleanup();	
 			} catch (Exception e) {
@@ -164,13 +246,366 @@ public class ProcessResults implements TestCaseLifeCycle {
 			trans.cleanup();
 		}
 		
+		if (workerTrans != null) {
+			// the first is trans, which isn't owned by this class
+			for (int i = 1; i < workerTrans.size(); i++) {
+				AbstractQuery wq = (AbstractQuery) workerTrans.get(i);
+				wq.cleanup();
+				wq.getConnectionStrategy().shutdown();
+			}
+			workerTrans = null;
+		}
+		
 		trans = null;
+		fetchSizeAdvisor = null;
+		runHistory = null;
 
 		this.scenario = null;
 	}
+	
+	/**
+	 * Create the prefetcher for the expected results of the query set, when
+	 * {@link TestProperties#PROP_EXPECTED_RESULTS_PREFETCH} is set and the results are compared.
+	 * @param querySetID
+	 * @param queryTests
+	 * @return ExpectedResultsPrefetcher, or <code>null</code> when not prefetching
+	 */
+	private ExpectedResultsPrefetcher createPrefetcher(String querySetID, List<QueryTest> queryTests) {
+		Properties props = scenario.getProperties();
+		int count = PropertiesUtils.getIntProperty(props, TestProperties.PROP_EXPECTED_RESULTS_PREFETCH, 0);
+		if (count <= 0 || !scenario.isCompare() || queryTests.isEmpty()) {
+			return null;
+		}
+		// the prefetched results are held by the cache, so can't use more than it
+		long memory = Math.min(
+				PropertiesUtils.getLongProperty(props, TestProperties.PROP_EXPECTED_RESULTS_PREFETCH_MEMORY, DEFAULT_PREFETCH_MEMORY),
+				PropertiesUtils.getLongProperty(props, TestProperties.PROP_EXPECTED_RESULTS_CACHE_SIZE, ExpectedResultsCache.DEFAULT_CACHE_SIZE));
+		if (memory <= 0) {
+			return null;
+		}
+		int threads = Math.min(count, Runtime.getRuntime().availableProcessors());
+		
+		ClientPlugin.LOGGER.debug("Prefetching the expected results of " + count + " query tests using " + threads + " threads");
+		
+		return new ExpectedResultsPrefetcher(scenario.getExpectedResultsReaders(querySetID), queryTests,
+				count, memory * 1024L * 1024L, threads, scenario.getQueryScenarioIdentifier());
+	}
+	
+	/**
+	 * Create the advisor of the fetch size of each query test, when 
+	 * {@link TestProperties#PROP_FETCH_SIZE_ADAPTIVE} is set.
+	 * @return FetchSizeAdvisor, or <code>null</code> when the fetch size isn't learned
+	 */
+	private FetchSizeAdvisor createFetchSizeAdvisor() {
+		Properties props = scenario.getProperties();
+		if (!PropertiesUtils.getBooleanProperty(props, TestProperties.PROP_FETCH_SIZE_ADAPTIVE, false)) {
+			return null;
+		}
+		String fileLoc = props.getProperty(TestProperties.PROP_FETCH_SIZE_FILE);
+		File file = (fileLoc != null ? new File(fileLoc) 
+				: new File(scenario.getOutputDir(), FetchSizeAdvisor.DEFAULT_FILE_NAME));
+		long memory = PropertiesUtils.getLongProperty(props, TestProperties.PROP_FETCH_SIZE_MEMORY, DEFAULT_FETCH_SIZE_MEMORY);
+		
+		ClientPlugin.LOGGER.debug("Learning the fetch sizes of the query tests in " + file.getAbsolutePath());
+		
+		return new FetchSizeAdvisor(file, scenario.getQueryScenarioIdentifier(), memory * 1024L * 1024L, fetchSize);
+	}
+	
+	/**
+	 * Create the history of the latencies of the query tests, when
+	 * {@link TestProperties#PROP_HISTORY_ENABLED} is set.
+	 * @return RunHistory, or <code>null</code> when the history isn't kept
+	 */
+	private RunHistory createRunHistory() {
+		Properties props = scenario.getProperties();
+		if (!PropertiesUtils.getBooleanProperty(props, TestProperties.PROP_HISTORY_ENABLED, false)) {
+			return null;
+		}
+		String fileLoc = props.getProperty(TestProperties.PROP_HISTORY_FILE);
+		File file = (fileLoc != null ? new File(fileLoc) 
+				: new File(scenario.getOutputDir(), RunHistory.DEFAULT_FILE_NAME));
+		
+		ClientPlugin.LOGGER.debug("Keeping the run history of the query tests in " + file.getAbsolutePath());
+		
+		return new RunHistory(file, scenario.getQueryScenarioIdentifier(),
+				PropertiesUtils.getIntProperty(props, TestProperties.PROP_HISTORY_RUNS, DEFAULT_HISTORY_RUNS),
+				PropertiesUtils.getIntProperty(props, TestProperties.PROP_HISTORY_MIN_RUNS, DEFAULT_HISTORY_MIN_RUNS),
+				PropertiesUtils.getDoubleProperty(props, TestProperties.PROP_HISTORY_THRESHOLD, DEFAULT_HISTORY_THRESHOLD));
+	}
+	
+	private void recordHistory(Collection<TestResult> results) {
+		if (results == null) {
+			return;
+		}
+		for (TestResult result : results) {
+			RunHistory.Regression r = runHistory.record(result);
+			if (r != null) {
+				ClientPlugin.LOGGER.warn("Latency regression: " + r);
+			}
+		}
+		runHistory.save();
+	}
+	
+	private void writeRegressionReport() {
+		File report = new File(scenario.getOutputDir(), "Regressions_" + scenario.getQuerySetName() //$NON-NLS-1$
+				+ "_" + scenario.getQueryScenarioIdentifier() + ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			runHistory.writeReport(report, scenario.getQueryScenarioIdentifier());
+		} catch (IOException e) {
+			ClientPlugin.LOGGER.error(e, "Failed to write the regression report " + report.getAbsolutePath());
+		}
+	}
+	
+	/**
+	 * Execute the query test, using the transaction, and handle its results.
+	 * @param q
+	 * @param transaction
+	 * @return TestResult for the query test
+	 */
+	protected TestResult processQueryTest(QueryTest q, TransactionAPI transaction) {
+		AbstractQuery query = (AbstractQuery) transaction;
+		
+		TestResult testResult = new TestResult(q.getQuerySetID(), q.getQueryID());
+		
+		TestCase testcase = new TestCase(q);
+		testcase.setTestResult(testResult);
+		
+		ClientPlugin.LOGGER.debug("Test: QuerySetID [" + testResult.getQuerySetID() + "-" + testResult.getQueryID() +"]");
 
+		testResult.setResultMode(this.scenario.getResultsMode());
+		testResult.setStatus(TestResult.RESULT_STATE.TEST_PRERUN);
+		
+		ExpectedResultsPrefetcher prefetch = this.prefetcher;
+		if (prefetch != null) {
+			prefetch.started(q);
+		}
+		
+		try {			
+			query.before(testcase);
+			
+			executeTest(testcase, query);
+			
+		} catch (QueryTestFailedException qtfe) {
+			// dont set on testResult, handled in transactionAPI
+			
+		} catch (Exception rme) {
+			if (ClientPlugin.LOGGER.isDebugEnabled()) {
+				rme.printStackTrace();
+			}
+			query.setApplicationException(rme);
 
+		} finally {
+			query.after();
+		}
+		
+		if (prefetch != null) {
+			prefetch.await(q);
+			try {
+				after(testcase, transaction);
+			} finally {
+				prefetch.completed(q);
+			}
+		} else {
+			after(testcase, transaction);
+		}
+		
+		FetchSizeAdvisor advisor = this.fetchSizeAdvisor;
+		if (advisor != null) {
+			advisor.learn(q, query.getResultSetMonitor());
+		}
+		
+		transaction.cleanup();
+		
+		return testResult;
+	}
+	
+	/**
+	 * Execute the query tests using {@link #executionThreads} workers.  The workers take the 
+	 * next query test off a shared queue until it's empty.  Once all the workers have finished,
+	 * the results are added to the summary in the same order as the query tests.
+	 * @param queryTests
+	 * @param summary
+	 */
+	private void executeInParallel(final List<QueryTest> queryTests, TestResultsSummary summary) {
+		int workers = Math.min(executionThreads, queryTests.size());
+		
+		List<TransactionAPI> transactions = getWorkerTransactions(workers);
+		
+		final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+		for (int i = 0; i < queryTests.size(); i++) {
+			queue.add(Integer.valueOf(i));
+		}
+		
+		final TestResult[] results = new TestResult[queryTests.size()];
+		
+		ClientPlugin.LOGGER.debug("Executing " + queryTests.size() + " query tests using " + workers + " workers");
+		
+		ExecutorService executor = ExecutionThreads.newWorkerPool(workers, scenario.getQueryScenarioIdentifier());
+		List<Future<?>> futures = new ArrayList<Future<?>>(workers);
+		
+		FrameworkRuntimeException failure = null;
+		try {
+			for (int w = 0; w < workers; w++) {
+				final TransactionAPI transaction = transactions.get(w);
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						Integer idx = null;
+						try {
+							while ((idx = queue.poll()) != null) {
+								int i = idx.intValue();
+								results[i] = processQueryTest(queryTests.get(i), transaction);
+							}
+						} catch (RuntimeException e) {
+							// stop the other workers from starting any more tests
+							queue.clear();
+							throw e;
+						}
+					}
+				}));
+			}
+			
+			failure = waitFor(futures);
+		} finally {
+			executor.shutdown();
+		}
+		
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				summary.addTest(results[i].getQuerySetID(), results[i]);
+			}
+		}
+		
+		if (failure != null) throw failure;
+	}
+	
+	/**
+	 * Execute each query test as its own task, allowing at most {@link #executionThreads} 
+	 * to be in-flight at a time.  A task borrows an idle transaction, or creates a new one
+	 * when none are idle, and returns it when the query test completes.
+	 * @param queryTests
+	 * @param summary
+	 */
+	private void executePerQuery(final List<QueryTest> queryTests, TestResultsSummary summary) {
+		final Semaphore inflight = new Semaphore(executionThreads);
+		final ConcurrentLinkedQueue<TransactionAPI> idle = new ConcurrentLinkedQueue<TransactionAPI>(getWorkerTransactions(1));
+		final AtomicReference<Throwable> failed = new AtomicReference<Throwable>();
+		
+		final TestResult[] results = new TestResult[queryTests.size()];
+		List<Future<?>> futures = new ArrayList<Future<?>>(queryTests.size());
+		
+		ExecutorService executor = ExecutionThreads.newPerTaskExecutor(scenario.getQueryScenarioIdentifier());
+		
+		FrameworkRuntimeException failure = null;
+		try {
+			for (int q = 0; q < queryTests.size() && failed.get() == null; q++) {
+				inflight.acquire();
+				final int i = q;
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						try {
+							TransactionAPI transaction = idle.poll();
+							if (transaction == null) {
+								transaction = createWorkerTransaction();
+							}
+							try {
+								results[i] = processQueryTest(queryTests.get(i), transaction);
+							} finally {
+								idle.add(transaction);
+							}
+						} catch (RuntimeException e) {
+							// stop submitting any more tests
+							failed.compareAndSet(null, e);
+							throw e;
+						} finally {
+							inflight.release();
+						}
+					}
+				}));
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			failure = new FrameworkRuntimeException(ie);
+		}
+		
+		try {
+			FrameworkRuntimeException f = waitFor(futures);
+			if (failure == null) failure = f;
+		} finally {
+			executor.shutdown();
+		}
+		
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				summary.addTest(results[i].getQuerySetID(), results[i]);
+			}
+		}
+		
+		if (failure != null) throw failure;
+	}
+	
+	/**
+	 * Return <code>workers</code> transactions, creating any that don't exist yet.  The
+	 * first is always the transaction passed to {@link #setup(TransactionAPI)}.
+	 * @param workers
+	 * @return List of TransactionAPI
+	 */
+	protected List<TransactionAPI> getWorkerTransactions(int workers) {
+		if (workerTrans == null) {
+			workerTrans = new ArrayList<TransactionAPI>(workers);
+			workerTrans.add(trans);
+		}
+		while (workerTrans.size() < workers) {
+			workerTrans.add(createTransaction());
+		}
+		return workerTrans;
+	}
+	
+	/**
+	 * Create the transaction of an additional worker, using the scenario properties.
+	 * @return TransactionAPI
+	 */
+	protected TransactionAPI createTransaction() {
+		return TransactionFactory.create(scenario.getProperties());
+	}
+	
+	private TransactionAPI createWorkerTransaction() {
+		TransactionAPI t = createTransaction();
+		synchronized (this) {
+			workerTrans.add(t);
+		}
+		return t;
+	}
+	
+	/**
+	 * Wait for all the tasks to complete.
+	 * @param futures
+	 * @return the first failure, or null when all completed successfully
+	 */
+	protected FrameworkRuntimeException waitFor(List<Future<?>> futures) {
+		FrameworkRuntimeException failure = null;
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (ExecutionException ee) {
+				if (failure == null) {
+					failure = (ee.getCause() instanceof FrameworkRuntimeException ? 
+							(FrameworkRuntimeException) ee.getCause() : new FrameworkRuntimeException(ee.getCause()));
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				if (failure == null) {
+					failure = new FrameworkRuntimeException(ie);
+				}
+			}
+		}
+		return failure;
+	}
+	
 	public void executeTest(TestCase testcase) throws Exception {
+		executeTest(testcase, abQuery);
+	}
+
+	private void executeTest(TestCase testcase, AbstractQuery query) throws Exception {
 		
 		QueryTest test = (QueryTest) testcase.getActualTest();
 		TestResult testResult = testcase.getTestResult();
@@ -179,7 +614,8 @@ public class ProcessResults implements TestCaseLifeCycle {
 		
 		int l = queries.length;
 		
-		boolean resultModeNone = scenario.isNone();
+		// load doesn't process the results, so its handled the same as NONE
+		boolean resultModeNone = scenario.isNone() || scenario.isLoad();
 	
 		
 		// multiple queries cannot be processed as a single result
@@ -192,14 +628,25 @@ public class ProcessResults implements TestCaseLifeCycle {
 			}
 
 		} 
+		
+		// batches only return update counts, so the same applies
+		if (test.isBatch()) {
+			if (!resultModeNone) {
+				testResult.setResultMode(TestProperties.RESULT_MODES.NONE);
+				ClientPlugin.LOGGER.info("Overriding ResultMode to NONE, batch execution for QueryID [" + testResult.getQueryID() + "]");
+			}
+			executeBatches(test, testResult, query);
+			return;
+		}
 
 		for (int i = 0; i < l; i++) {
 			QuerySQL qsql = queries[i];
 			testResult.setQuery(qsql.getSql());
 			
 			// if runtimes or rowcounts are greater than 1, then no expected results will
-			// be processed, therefore, resultmode is set to NONE for this query
-			if ( !resultModeNone && (qsql.getRunTimes() > 1 || qsql.getRowCnt() > 0)) {
+			// be processed, therefore, resultmode is set to NONE for this query.
+			// A benchmarked query processes the results of its last execution, so runtimes doesn't apply.
+			if ( !resultModeNone && ((!qsql.isBenchmark() && qsql.getRunTimes() > 1) || qsql.getRowCnt() > 0)) {
 				resultModeNone = true;
 				testResult.setResultMode(TestProperties.RESULT_MODES.NONE);
 				ClientPlugin.LOGGER.info("Overriding ResultMode to NONE due to runtimes or rowcount for QueryID [" + testResult.getQueryID() + "]");
@@ -207,17 +654,42 @@ public class ProcessResults implements TestCaseLifeCycle {
 			
 			ClientPlugin.LOGGER.debug("Expecting - ID: " + test.getQuerySetID() + "  -  "
 					+ test.getQueryID() + "ResultMode: " + (resultModeNone ? "NONE" : scenario.getResultsMode()) + ", numtimes: " +
-					qsql.getRunTimes() + " rowcount: "  + qsql.getRowCnt() + " updatecnt: " + 
-					qsql.getUpdateCnt());
+					qsql.getRunTimes() + " warmup: " + qsql.getWarmup() + " iterations: " + qsql.getIterations() + 
+					" rowcount: "  + qsql.getRowCnt() + " updatecnt: " + qsql.getUpdateCnt());
 						
-			for (int r = 0; r < qsql.getRunTimes(); r++) {
+			query.setQueryTimeout(getQueryTimeout(test, qsql));
+			query.setFetchSize(fetchSizeAdvisor != null ? fetchSizeAdvisor.getFetchSize(test) : fetchSize);
+			query.setForwardOnly(forwardOnly);
+			query.setMonitorResults(fetchSizeAdvisor != null || phaseTimings);
+			query.setStatementCacheSize(statementCacheSize);
+			
+			int warmup = (qsql.isBenchmark() ? Math.max(qsql.getWarmup(), 0) : 0);
+			int runs = (qsql.isBenchmark() ? warmup + Math.max(qsql.getIterations(), 1) : qsql.getRunTimes());
+			
+			for (int r = 0; r < runs; r++) {
 
-				abQuery.execute(testResult.getQuery(), qsql.getParms(), qsql.getPayLoad());
+				// the warm-up executions are recorded as the cold latencies
+				testResult.setWarmup(r < warmup);
+				try {
+					query.execute(testResult.getQuery(), qsql.getParms(), qsql.getPayLoad());
+				} finally {
+					testResult.setWarmup(false);
+				}
+				
+				// when benchmarking, the results of every execution but the last are read and discarded,
+				// so that the last is processed the same as a query that's executed once
+				if (qsql.isBenchmark() && r < runs - 1) {
+					if (query.getResultSet() != null) {
+						query.walkResults();
+					}
+					continue;
+				}
+				
 				// check for NONE first, because it can be changed based on conditions
 				// NOTE: isSQL() isn't processed in this class and therefore isn't looked for
 				if (resultModeNone) {
 						if (qsql.getRowCnt() >= 0) {
-							testResult.setRowCount(abQuery.getRowCount());					
+							testResult.setRowCount(query.getRowCount());					
 							AssertResults.assertRowCount(testResult, qsql.getRowCnt());
 						} else if (qsql.getUpdateCnt() >= 0) {
 							AssertResults.assertUpdateCount(testResult, qsql.getUpdateCnt());
@@ -236,7 +708,106 @@ public class ProcessResults implements TestCaseLifeCycle {
 		}		
 	}
 	
-	private void after(TestCase testcase) {
+	/**
+	 * @return the timeout, in seconds, of the query, which is the one it specifies, or the one 
+	 * derived from the p99 latency of its previous runs, or else the default
+	 */
+	private int getQueryTimeout(QueryTest test, QuerySQL qsql) {
+		if (qsql.getTimeout() >= 0) {
+			return qsql.getTimeout();
+		}
+		RunHistory history = this.runHistory;
+		if (timeoutHistoryFactor > 0 && history != null) {
+			long p99 = history.getHighestP99(test.getQuerySetID(), test.getQueryID());
+			if (p99 > 0) {
+				return (int) Math.max(1, Math.ceil(p99 * timeoutHistoryFactor / 1000000.0));
+			}
+		}
+		return defaultQueryTimeout;
+	}
+	
+	/**
+	 * Execute the queries of the test as JDBC batches.  Each query is added as many times as 
+	 * it's to be run.  The consecutive queries without parameters are executed as one statement
+	 * batch, and the consecutive parameter sets of the same SQL as one prepared statement batch.
+	 * The update count of each query, that has an <code>updatecnt</code>, is checked against 
+	 * the count its batch returned.
+	 * @param test
+	 * @param testResult
+	 * @param query
+	 * @throws QueryTestFailedException
+	 */
+	private void executeBatches(QueryTest test, TestResult testResult, AbstractQuery query) throws QueryTestFailedException {
+		List<QuerySQL> queries = new ArrayList<QuerySQL>();
+		QuerySQL[] qsqls = test.getQueries();
+		for (int i = 0; i < qsqls.length; i++) {
+			for (int r = 0; r < qsqls[i].getRunTimes(); r++) {
+				queries.add(qsqls[i]);
+			}
+		}
+		
+		int begin = 0;
+		while (begin < queries.size()) {
+			QuerySQL first = queries.get(begin);
+			boolean prepared = isParameterized(first);
+			int end = begin + 1;
+			while (end < queries.size() && (prepared 
+					? isParameterized(queries.get(end)) && first.getSql().equals(queries.get(end).getSql())
+					: !isParameterized(queries.get(end)))) {
+				end++;
+			}
+			
+			ClientPlugin.LOGGER.debug("Executing batch of " + (end - begin) + " for QueryID [" + testResult.getQueryID() + "]");
+			
+			testResult.setQuery(first.getSql());
+			query.setQueryTimeout(getQueryTimeout(test, first));
+			query.setMonitorResults(false);
+			query.setStatementCacheSize(statementCacheSize);
+			
+			int[] counts;
+			if (prepared) {
+				Object[][] params = new Object[end - begin][];
+				for (int i = begin; i < end; i++) {
+					params[i - begin] = queries.get(i).getParms();
+				}
+				counts = query.executeBatch(first.getSql(), params);
+			} else {
+				String[] sql = new String[end - begin];
+				for (int i = begin; i < end; i++) {
+					sql[i - begin] = queries.get(i).getSql();
+				}
+				counts = query.executeBatch(sql);
+			}
+			
+			for (int i = 0; i < end - begin; i++) {
+				int expected = queries.get(begin + i).getUpdateCnt();
+				if (expected < 0) {
+					continue;
+				}
+				try {
+					if (i >= counts.length) {
+						throw new QueryTestFailedException("Expected update count " + expected + " for statement " + (i + 1)  //$NON-NLS-1$ //$NON-NLS-2$
+								+ " of the batch, but only " + counts.length + " counts were returned"); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+					// the driver isn't required to report the count of each statement
+					if (counts[i] != Statement.SUCCESS_NO_INFO) {
+						testResult.setUpdateCount(counts[i]);
+						AssertResults.assertUpdateCount(testResult, expected);
+					}
+				} catch (QueryTestFailedException e) {
+					query.setApplicationException(e);
+					throw e;
+				}
+			}
+			begin = end;
+		}
+	}
+	
+	private static boolean isParameterized(QuerySQL qsql) {
+		return qsql.getParms() != null && qsql.getParms().length > 0;
+	}
+	
+	private void after(TestCase testcase, TransactionAPI transaction) {
 		
 		FrameworkRuntimeException lastT = null;
 		try {
@@ -248,17 +819,21 @@ public class ProcessResults implements TestCaseLifeCycle {
 			}
 	
 			// if the test was NOT originally resultMode = NONE, but was changed because 
-			// of certain conditions, then need to handle the test results if an error occurs
+			// of certain conditions, then need to handle the test results if an error occurs.
+			// Load handles its own errors, because its clients fail the same queries at the same time
 			if (testcase.getTestResult().getResultMode().equalsIgnoreCase(TestProperties.RESULT_MODES.NONE) && 
-					! this.scenario.isNone()) {
+					! this.scenario.isNone() && ! this.scenario.isLoad()) {
 				if (testcase.getTestResult().getStatus() == TestResult.RESULT_STATE.TEST_EXCEPTION) {
 						this.scenario.getErrorWriter().generateErrorFile(testcase, null, (TransactionAPI) null, testcase.getTestResult().getException());
 				}
 			} else {
-				this.scenario.handleTestResult(testcase, trans);
+				this.scenario.handleTestResult(testcase, transaction);
+			}
+			
+			// the query failed because it was canceled by the timeout
+			if (testcase.getTestResult().isFailure() && ((AbstractQuery) transaction).isTimedOut()) {
+				testcase.getTestResult().setStatus(TestResult.RESULT_STATE.TEST_TIMEOUT);
 			}
-						
-			this.scenario.getTestResultsSummary().addTest(testcase.getTestResult().getQuerySetID(), testcase.getTestResult());
 
 		} catch (FrameworkRuntimeException t) {
 			lastT = t;
@@ -0,0 +1,328 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.framework.TestResult;
+
+/**
+ * RunHistory keeps the latency of each query test over the last runs in a sidecar file, 
+ * and flags the query tests whose latency in this run is a regression from those runs
+ * (see {@link TestProperties#PROP_HISTORY_ENABLED}).
+ * <p>
+ * The latency recorded for a run is the median of the query test's executions.  A run 
+ * is a regression when its robust z-score, which is based on the median and the median 
+ * absolute deviation (MAD) of the previous runs, exceeds the threshold and it's at least 
+ * {@link #MIN_INCREASE} slower than the median.  Unlike a single baseline, an outlier 
+ * among the previous runs hardly moves the median or the MAD.
+ * </p>
+ * <p>
+ * Each line of the sidecar file is keyed by the scenario, query set and query id, and records the 
+ * microseconds of each run, oldest first.  The p99 of each run is kept on the line of the same key,
+ * suffixed by {@link #P99_SUFFIX}, which is used to derive the query timeouts 
+ * (see {@link TestProperties#PROP_QUERY_TIMEOUT_HISTORY_FACTOR}).  The scenario is part of the key because scenarios 
+ * run the same query sets against different sources, and their latencies aren't comparable.
+ * The file is saved as a {@link SidecarFile}, so concurrent scenarios can share it.
+ * </p>
+ */
+final class RunHistory {
+	
+	public static final String DEFAULT_FILE_NAME = "runhistory.properties"; //$NON-NLS-1$
+	
+	/**
+	 * Scales the MAD so the robust z-score is comparable to a standard score of normally
+	 * distributed latencies.
+	 */
+	static final double MAD_SCALE = 0.6745;
+	
+	/**
+	 * The fraction a run has to be slower than the median to be a regression, so a 
+	 * query test with very stable latencies isn't flagged for an insignificant change.
+	 */
+	static final double MIN_INCREASE = 0.10;
+	
+	static final String P99_SUFFIX = ".p99"; //$NON-NLS-1$
+	
+	private static final String SEPARATOR = ","; //$NON-NLS-1$
+	private static final String NL = System.getProperty("line.separator"); //$NON-NLS-1$
+	
+	private final File file;
+	private final String scenario;
+	private final int runs;
+	private final int minRuns;
+	private final double threshold;
+	private Properties history = new Properties();
+	// the runs recorded since the history was last saved
+	private final Properties changes = new Properties();
+	private final List<Regression> regressions = new ArrayList<Regression>();
+	
+	/**
+	 * @param file the sidecar file, which is loaded if it exists
+	 * @param scenario identifies the scenario whose query tests are recorded
+	 * @param runs the number of runs kept for each query test
+	 * @param minRuns the number of previous runs needed before a regression can be flagged
+	 * @param threshold the robust z-score a run has to exceed to be a regression
+	 */
+	RunHistory(File file, String scenario, int runs, int minRuns, double threshold) {
+		this.file = file;
+		this.scenario = scenario;
+		this.runs = Math.max(1, runs);
+		this.minRuns = Math.max(1, minRuns);
+		this.threshold = threshold;
+		
+		try {
+			this.history = SidecarFile.load(file);
+		} catch (IOException e) {
+			ClientPlugin.LOGGER.warn("Unable to load the run history from " + file.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Check the latency of the test against its previous runs, then add it to the history.
+	 * Failed tests, and those that weren't executed, aren't recorded.
+	 * @param result
+	 * @return the regression, or <code>null</code> when the test didn't regress
+	 */
+	synchronized Regression record(TestResult result) {
+		if (result.isFailure() || result.getLatencies().getCount() == 0) {
+			return null;
+		}
+		String key = getKey(result);
+		long micros = result.getLatencies().getValueAtPercentile(50) / 1000;
+		
+		long[] previous = getRuns(key);
+		
+		Regression regression = null;
+		if (previous.length >= this.minRuns) {
+			regression = detect(key, micros, previous, this.threshold);
+			if (regression != null) {
+				this.regressions.add(regression);
+			}
+		}
+		
+		addRun(key, micros);
+		addRun(key + P99_SUFFIX, result.getLatencies().getValueAtPercentile(99) / 1000);
+		
+		return regression;
+	}
+	
+	private void addRun(String key, long micros) {
+		long[] previous = getRuns(key);
+		StringBuffer value = new StringBuffer();
+		for (int i = Math.max(0, previous.length - this.runs + 1); i < previous.length; i++) {
+			value.append(previous[i]).append(SEPARATOR);
+		}
+		value.append(micros);
+		this.history.setProperty(key, value.toString());
+		this.changes.setProperty(key, value.toString());
+	}
+	
+	/**
+	 * @param querySetID
+	 * @param queryID
+	 * @return the highest p99 latency of the query test over the runs kept, in microseconds, 
+	 * or -1 when it has no runs
+	 */
+	synchronized long getHighestP99(String querySetID, String queryID) {
+		long highest = -1;
+		long[] p99s = getRuns(this.scenario + "." + querySetID + "." + queryID + P99_SUFFIX); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < p99s.length; i++) {
+			highest = Math.max(highest, p99s[i]);
+		}
+		return highest;
+	}
+	
+	synchronized List<Regression> getRegressions() {
+		return new ArrayList<Regression>(this.regressions);
+	}
+	
+	/**
+	 * @param result
+	 * @return the key of the query test in the history
+	 */
+	String getKey(TestResult result) {
+		return this.scenario + "." + result.getQuerySetID() + "." + result.getQueryID(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	/**
+	 * @param key
+	 * @return the microseconds of each previous run, oldest first
+	 */
+	synchronized long[] getRuns(String key) {
+		String value = this.history.getProperty(key);
+		if (value == null || value.trim().length() == 0) {
+			return new long[0];
+		}
+		String[] parts = value.split(SEPARATOR);
+		long[] values = new long[parts.length];
+		int n = 0;
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				values[n] = Long.parseLong(parts[i].trim());
+				n++;
+			} catch (NumberFormatException e) {
+				// skip the run, it's replaced as new runs are recorded
+			}
+		}
+		return (n == values.length ? values : Arrays.copyOf(values, n));
+	}
+	
+	/**
+	 * Merge the runs recorded since the history was loaded, or last saved, into the sidecar file.
+	 */
+	synchronized void save() {
+		if (this.changes.isEmpty()) {
+			return;
+		}
+		try {
+			SidecarFile.merge(this.file, this.changes, "BQT run history: median microseconds of each run, oldest first"); //$NON-NLS-1$
+			this.changes.clear();
+		} catch (IOException e) {
+			ClientPlugin.LOGGER.warn("Unable to save the run history to " + this.file.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Write the regressions found in this run, worst first, to the report file.
+	 * @param reportFile
+	 * @param scenarioName
+	 * @throws IOException
+	 */
+	synchronized void writeReport(File reportFile, String scenarioName) throws IOException {
+		List<Regression> sorted = new ArrayList<Regression>(this.regressions);
+		Collections.sort(sorted);
+		
+		reportFile.getParentFile().mkdirs();
+		PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(reportFile)));
+		try {
+			out.print("Scenario " + scenarioName + " Regressions" + NL); //$NON-NLS-1$ //$NON-NLS-2$
+			out.print("==================" + NL); //$NON-NLS-1$
+			out.print("History File     : " + this.file.getAbsolutePath() + NL); //$NON-NLS-1$
+			out.print("Runs Compared    : " + this.minRuns + " to " + this.runs + NL); //$NON-NLS-1$ //$NON-NLS-2$
+			out.print("Threshold        : " + this.threshold + NL); //$NON-NLS-1$
+			out.print("Regressions      : " + sorted.size() + NL); //$NON-NLS-1$
+			out.print("==================" + NL); //$NON-NLS-1$
+			out.print("Query\tRuns\tMedian(mils)\tMAD(mils)\tThis Run(mils)\tScore" + NL); //$NON-NLS-1$
+			for (Regression r : sorted) {
+				out.print(r.toString() + NL);
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * @param key identifies the query test
+	 * @param value the latency of this run
+	 * @param previous the latencies of the previous runs
+	 * @param threshold
+	 * @return the regression, or <code>null</code> when the value isn't one
+	 */
+	static Regression detect(String key, long value, long[] previous, double threshold) {
+		long[] sorted = previous.clone();
+		Arrays.sort(sorted);
+		double median = median(sorted);
+		
+		double[] deviations = new double[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			deviations[i] = Math.abs(sorted[i] - median);
+		}
+		Arrays.sort(deviations);
+		double mad = median(deviations);
+		
+		double score = robustScore(value, median, mad);
+		if (score > threshold && value > median * (1 + MIN_INCREASE)) {
+			return new Regression(key, previous.length, median, mad, value, score);
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the number of scaled MADs the value is above the median, which is 
+	 * infinite when the previous runs didn't vary and the value is larger
+	 */
+	static double robustScore(long value, double median, double mad) {
+		if (mad == 0) {
+			return (value > median ? Double.POSITIVE_INFINITY : 0);
+		}
+		return MAD_SCALE * (value - median) / mad;
+	}
+	
+	static double median(long[] sorted) {
+		int mid = sorted.length / 2;
+		return (sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0);
+	}
+	
+	private static double median(double[] sorted) {
+		int mid = sorted.length / 2;
+		return (sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0);
+	}
+	
+	/**
+	 * A query test whose latency regressed, in microseconds.
+	 */
+	static final class Regression implements Comparable<Regression> {
+		final String key;
+		final int runs;
+		final double median;
+		final double mad;
+		final long value;
+		final double score;
+		
+		Regression(String key, int runs, double median, double mad, long value, double score) {
+			this.key = key;
+			this.runs = runs;
+			this.median = median;
+			this.mad = mad;
+			this.value = value;
+			this.score = score;
+		}
+
+		public int compareTo(Regression o) {
+			return Double.compare(o.score, this.score);
+		}
+		
+		@Override
+		public String toString() {
+			return key + "\t" + runs + "\t" + toMillis(median) + "\t" + toMillis(mad)  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ "\t" + toMillis(value) + "\t" + (Double.isInfinite(score) ? "Inf" : String.valueOf(Math.round(score * 100) / 100.0)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		
+		private static String toMillis(double micros) {
+			return String.valueOf(Math.round(micros / 10) / 100.0);
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+
+/**
+ * SidecarFile reads and writes the properties files that are kept between runs, such as
+ * the {@link RunHistory} and the {@link FetchSizeAdvisor} fetch sizes.  
+ * <p>
+ * The same file can be shared by scenarios that run at the same time, in this process or
+ * others, so the entries changed by a scenario are merged into what's on disk when saved, 
+ * while holding a lock on <code>&lt;file&gt;.lock</code>.  That way, a scenario doesn't 
+ * replace the entries other scenarios saved after it loaded the file.
+ * </p>
+ */
+final class SidecarFile {
+	
+	// a file lock is held by the process, so the threads of this process also have to take turns
+	private static final Object LOCK = new Object();
+	
+	private SidecarFile() {
+	}
+	
+	/**
+	 * @param file
+	 * @return the properties in the file, which are empty when the file doesn't exist
+	 * @throws IOException
+	 */
+	static Properties load(File file) throws IOException {
+		Properties props = new Properties();
+		if (file.exists()) {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				props.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		return props;
+	}
+	
+	/**
+	 * Merge the changed entries into the file.  The file is written to a temporary file 
+	 * first, so a partial file is never loaded.
+	 * @param file
+	 * @param changes the entries to add, or replace, in the file
+	 * @param comment
+	 * @throws IOException
+	 */
+	static void merge(File file, Properties changes, String comment) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		synchronized (LOCK) {
+			RandomAccessFile lockFile = new RandomAccessFile(file.getAbsolutePath() + ".lock", "rw"); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				FileLock lock = lockFile.getChannel().lock();
+				try {
+					Properties merged = load(file);
+					merged.putAll(changes);
+					
+					File tempFile = new File(file.getAbsolutePath() + ".tmp"); //$NON-NLS-1$
+					try {
+						OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+						try {
+							merged.store(out, comment);
+						} finally {
+							out.close();
+						}
+						if (file.exists() && !file.delete()) {
+							throw new IOException("Unable to replace " + file.getAbsolutePath()); //$NON-NLS-1$
+						}
+						if (!tempFile.renameTo(file)) {
+							throw new IOException("Unable to rename " + tempFile.getAbsolutePath()); //$NON-NLS-1$
+						}
+					} finally {
+						tempFile.delete();
+					}
+				} finally {
+					lock.release();
+				}
+			} finally {
+				lockFile.close();
+			}
+		}
+	}
+
+}
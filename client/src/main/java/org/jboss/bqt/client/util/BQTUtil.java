@@ -96,6 +96,8 @@ public class BQTUtil {
 			return TestProperties.RESULT_MODES.SQL;
 		} else if (resultModeStr.startsWith(TestProperties.RESULT_MODES.NONE)) {
 			return TestProperties.RESULT_MODES.NONE;
+		} else if (resultModeStr.startsWith(TestProperties.RESULT_MODES.LOAD)) {
+			return TestProperties.RESULT_MODES.LOAD;
 		} else {
 			final String msg = ClientPlugin.Util.getString(
 					"ResultMode.invalidResultMode", resultModeStr); //$NON-NLS-1$     
@@ -104,6 +106,21 @@ public class BQTUtil {
 
 	}
 
+	/**
+	 * Returns true when the sql orders its results, so the actual and expected results
+	 * can be compared row for row without sorting.
+	 * @param sql
+	 * @return boolean true if the sql contains an ORDER BY
+	 */
+	public static boolean isOrdered(String sql) {
+		if (sql == null) return false;
+
+		if (sql.toLowerCase().indexOf(" order by ") > 0) {
+			return true;
+		}
+		return false;
+	}
+
 	public static FileType createFileType(Properties properties) {
 		String clzzname = properties.getProperty(FileType.FILE_TYPE_CLASSNAME);
 		if (clzzname == null || clzzname.trim().length() == 0
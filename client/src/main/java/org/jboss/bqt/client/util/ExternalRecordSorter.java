@@ -0,0 +1,322 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.jboss.bqt.client.ClientPlugin;
+import org.jboss.bqt.core.exception.FrameworkRuntimeException;
+
+/**
+ * ExternalRecordSorter sorts records (i.e., <code>List</code>s of column values) that 
+ * may not fit in memory.  Records are buffered until the estimated size of the buffer
+ * reaches the memory budget, at which point the buffer is sorted and written to a 
+ * temporary file as a sorted run.  The {@link #sortedIterator() sorted iterator} merges
+ * the runs as it is read, so that only one record per run is held in memory.
+ * <p>
+ * Records that compare as equal are returned in the order they were added, 
+ * the same as when sorting the records in memory with <code>Collections.sort</code>.
+ * The column values must be <code>Serializable</code> once the records are spilled.
+ * <p>
+ * Call {@link #close()} to remove the temporary files.
+ */
+@SuppressWarnings("rawtypes")
+public class ExternalRecordSorter {
+	
+	// rough sizes used to estimate the heap used by the buffered records
+	private static final int RECORD_OVERHEAD = 56;
+	private static final int VALUE_OVERHEAD = 24;
+	
+	// the stream is reset periodically so it doesn't keep a reference to every record written
+	private static final int RESET_INTERVAL = 1000;
+
+	private final Comparator comparator;
+	private final long memoryBudget;
+	
+	private List<List> buffer = new ArrayList<List>();
+	private long bufferSize = 0;
+	private final List<File> runs = new ArrayList<File>();
+	private final List<Integer> runSizes = new ArrayList<Integer>();
+	private final List<ObjectInputStream> openRuns = new ArrayList<ObjectInputStream>();
+	private int size = 0;
+	
+	/**
+	 * @param comparator used to order the records
+	 * @param memoryBudget the number of bytes the buffered records can use 
+	 * 		before they are written to disk
+	 */
+	public ExternalRecordSorter(Comparator comparator, long memoryBudget) {
+		this.comparator = comparator;
+		this.memoryBudget = memoryBudget;
+	}
+	
+	/**
+	 * Add a record to be sorted.
+	 * @param record
+	 */
+	public void add(List record) {
+		buffer.add(record);
+		bufferSize += estimateSize(record);
+		size++;
+		if (bufferSize >= memoryBudget) {
+			spill();
+		}
+	}
+	
+	/**
+	 * @return the number of records added
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the number of sorted runs that were written to disk
+	 */
+	public int getRunCount() {
+		return runs.size();
+	}
+	
+	/**
+	 * Returns the records in sorted order.  No more records can be added once
+	 * this is called.
+	 * @return Iterator of the sorted records
+	 */
+	@SuppressWarnings("unchecked")
+	public Iterator<List> sortedIterator() {
+		Collections.sort(buffer, comparator);
+		if (runs.isEmpty()) {
+			return buffer.iterator();
+		}
+		
+		final List<Iterator<List>> sources = new ArrayList<Iterator<List>>(runs.size() + 1);
+		for (int i = 0; i < runs.size(); i++) {
+			sources.add(new RunIterator(runs.get(i), runSizes.get(i).intValue()));
+		}
+		sources.add(buffer.iterator());
+		
+		return new MergeIterator(sources);
+	}
+	
+	/**
+	 * Remove the temporary files for the sorted runs.
+	 */
+	public void close() {
+		for (ObjectInputStream in : openRuns) {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+		openRuns.clear();
+		for (File run : runs) {
+			if (!run.delete()) {
+				run.deleteOnExit();
+			}
+		}
+		runs.clear();
+		runSizes.clear();
+		buffer = new ArrayList<List>();
+		bufferSize = 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void spill() {
+		Collections.sort(buffer, comparator);
+		
+		ObjectOutputStream out = null;
+		File run = null;
+		try {
+			run = File.createTempFile("bqtsort", ".run"); //$NON-NLS-1$ //$NON-NLS-2$
+			out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+			int cnt = 0;
+			for (List record : buffer) {
+				out.writeObject(record);
+				if (++cnt % RESET_INTERVAL == 0) {
+					out.reset();
+				}
+			}
+		} catch (IOException e) {
+			if (run != null) {
+				run.delete();
+			}
+			throw new FrameworkRuntimeException(e, "Unable to write sorted records: " + e.getMessage()); //$NON-NLS-1$
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		
+		ClientPlugin.LOGGER.debug("Wrote sorted run of " + buffer.size() + " records to " + run.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		runs.add(run);
+		runSizes.add(Integer.valueOf(buffer.size()));
+		buffer = new ArrayList<List>();
+		bufferSize = 0;
+	}
+	
+	/**
+	 * Estimate the heap used by the record and its column values.
+	 * @param record
+	 * @return the estimated number of bytes
+	 */
+	public static long estimateSize(List record) {
+		long est = RECORD_OVERHEAD;
+		for (int i = 0; i < record.size(); i++) {
+			Object value = record.get(i);
+			est += 8;
+			if (value instanceof String) {
+				est += VALUE_OVERHEAD + 16 + (((String) value).length() * 2);
+			} else if (value instanceof Number || value instanceof Date) {
+				est += VALUE_OVERHEAD;
+			} else if (value != null) {
+				est += VALUE_OVERHEAD * 2;
+			}
+		}
+		return est;
+	}
+	
+	/**
+	 * Reads the records of one sorted run back from disk.
+	 */
+	private class RunIterator implements Iterator<List> {
+		private final File run;
+		private final ObjectInputStream in;
+		private int remaining;
+		
+		RunIterator(File run, int size) {
+			this.run = run;
+			this.remaining = size;
+			try {
+				in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(run)));
+			} catch (IOException e) {
+				throw new FrameworkRuntimeException(e, "Unable to read sorted records from " + run.getAbsolutePath()); //$NON-NLS-1$
+			}
+			openRuns.add(in);
+		}
+
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		public List next() {
+			if (remaining <= 0) {
+				throw new NoSuchElementException();
+			}
+			try {
+				List record = (List) in.readObject();
+				if (--remaining == 0) {
+					in.close();
+				}
+				return record;
+			} catch (IOException e) {
+				throw new FrameworkRuntimeException(e, "Unable to read sorted records from " + run.getAbsolutePath()); //$NON-NLS-1$
+			} catch (ClassNotFoundException e) {
+				throw new FrameworkRuntimeException(e, "Unable to read sorted records from " + run.getAbsolutePath()); //$NON-NLS-1$
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * Merges the sorted sources, taking from the earliest source when records are equal
+	 * so the sort remains stable.
+	 */
+	private class MergeIterator implements Iterator<List> {
+		private final List<Iterator<List>> sources;
+		private final PriorityQueue<Head> heads;
+		
+		MergeIterator(List<Iterator<List>> sources) {
+			this.sources = sources;
+			this.heads = new PriorityQueue<Head>(sources.size());
+			for (int i = 0; i < sources.size(); i++) {
+				advance(i);
+			}
+		}
+		
+		private void advance(int source) {
+			Iterator<List> it = sources.get(source);
+			if (it.hasNext()) {
+				heads.add(new Head(it.next(), source));
+			}
+		}
+
+		public boolean hasNext() {
+			return !heads.isEmpty();
+		}
+
+		public List next() {
+			Head head = heads.poll();
+			if (head == null) {
+				throw new NoSuchElementException();
+			}
+			advance(head.source);
+			return head.record;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	private class Head implements Comparable<Head> {
+		final List record;
+		final int source;
+		
+		Head(List record, int source) {
+			this.record = record;
+			this.source = source;
+		}
+
+		@SuppressWarnings("unchecked")
+		public int compareTo(Head o) {
+			int c = comparator.compare(record, o.record);
+			if (c != 0) {
+				return c;
+			}
+			return source < o.source ? -1 : (source == o.source ? 0 : 1);
+		}
+	}
+
+}
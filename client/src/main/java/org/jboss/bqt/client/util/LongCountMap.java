@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.util;
+
+/**
+ * LongCountMap is an open-addressing hash map of <code>long</code> keys to <code>int</code> counts,
+ * stored in primitive arrays so that counting a large number of keys doesn't create an 
+ * object per key.  Keys are expected to already be well distributed hash values.
+ * <p>
+ * Entries are never removed, a count that returns to zero remains in the map.
+ */
+public class LongCountMap {
+	
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	private long[] keys;
+	private int[] counts;
+	private boolean[] used;
+	private int size = 0;
+	private int mask;
+	
+	public LongCountMap() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param expectedSize the number of keys expected to be added
+	 */
+	public LongCountMap(int expectedSize) {
+		int capacity = 16;
+		// keep the load factor at or below 0.5
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+	
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		counts = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Add the delta to the count for the key.
+	 * @param key
+	 * @param delta
+	 * @return the new count
+	 */
+	public int add(long key, int delta) {
+		int slot = find(key);
+		if (!used[slot]) {
+			if ((size + 1) * 2 > keys.length) {
+				resize();
+				slot = find(key);
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+		}
+		counts[slot] += delta;
+		return counts[slot];
+	}
+	
+	/**
+	 * @param key
+	 * @return the count for the key, or 0 if the key was never added
+	 */
+	public int get(long key) {
+		int slot = find(key);
+		return used[slot] ? counts[slot] : 0;
+	}
+	
+	/**
+	 * @return the number of distinct keys added
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the sum of the counts that are greater than zero
+	 */
+	public long sumPositive() {
+		long sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (used[i] && counts[i] > 0) {
+				sum += counts[i];
+			}
+		}
+		return sum;
+	}
+	
+	private int find(long key) {
+		int slot = mix(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private void resize() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		boolean[] oldUsed = used;
+		allocate(keys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = find(oldKeys[i]);
+				used[slot] = true;
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+	
+	private static int mix(long key) {
+		long h = key ^ (key >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		return (int) h;
+	}
+
+}
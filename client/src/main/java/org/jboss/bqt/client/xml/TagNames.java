@@ -125,6 +125,8 @@ public final class TagNames {
 	public static final class Attributes {
 		public static final String TYPE = "type"; //$NON-NLS-1$
 		public static final String EXECUTE_NUM_TIMES = "numtimes"; //$NON-NLS-1$
+		public static final String WARMUP = "warmup"; //$NON-NLS-1$
+		public static final String ITERATIONS = "iterations"; //$NON-NLS-1$
 		public static final String TABLE_ROW_COUNT = "rowCount"; //$NON-NLS-1$
 		public static final String TABLE_COLUMN_COUNT = "columnCount"; //$NON-NLS-1$
 		public static final String NAME = "name"; //$NON-NLS-1$
@@ -133,6 +135,8 @@ public final class TagNames {
 		public static final String STAR = "star"; //$NON-NLS-1$
 		public static final String UPDATE_CNT = "updatecnt"; //$NON-NLS-1$
 		public static final String EXECUTION_TIME = "exectime"; //$NON-NLS-1$
+		public static final String TIMEOUT = "timeout"; //$NON-NLS-1$
+		public static final String BATCH = "batch"; //$NON-NLS-1$
 	}
 
 	/**
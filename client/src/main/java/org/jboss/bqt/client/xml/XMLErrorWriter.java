@@ -30,6 +30,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Properties;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.jboss.bqt.client.ClientPlugin;
 import org.jboss.bqt.client.TestProperties;
 import org.jboss.bqt.client.api.ErrorWriter;
@@ -41,17 +43,10 @@ import org.jboss.bqt.core.exception.FrameworkRuntimeException;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
 import org.jboss.bqt.core.util.ExceptionUtil;
 import org.jboss.bqt.core.util.FileUtils;
-import org.jboss.bqt.core.xml.JdomHelper;
 import org.jboss.bqt.framework.AbstractQuery;
 import org.jboss.bqt.framework.TestCase;
 import org.jboss.bqt.framework.TestResult;
 import org.jboss.bqt.framework.TransactionAPI;
-import org.jdom.Attribute;
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.input.JDOMParseException;
-import org.jdom.output.XMLOutputter;
 
 /**
  * @author vhalbert
@@ -113,6 +108,8 @@ public class XMLErrorWriter extends ErrorWriter {
 		}
 
 		
+		// the result set is not rewound, it may be forward only, so when written 
+		// it is read from where the comparison stopped
 		ResultSet resultSet = ((AbstractQuery) transaction).getResultSet();
 		
 		String errorFileName = null;
@@ -125,17 +122,11 @@ public class XMLErrorWriter extends ErrorWriter {
 			//           CombinedTestClient.log("\t" + this.clientID + ": Writing error file with actual results: " + errorFileName); //$NON-NLS-1$ //$NON-NLS-2$
 			File errorFile = new File(getErrorDirectory(), errorFileName);
 
-			// rewind resultset
-			if (resultSet != null) {
-				resultSet.beforeFirst();
-			}
 			ClientPlugin.LOGGER.warn("**** E 2 Generate Error File");
 		
 			generateErrorResults(testResult, testResult.getQuery(), errorFile,
 					resultSet, expectedResults.getExpectedResultsFile() , ex);
 
-		} catch (SQLException sqle) {
-			throw new QueryTestFailedException(sqle);
 		} catch (FrameworkException fre) {
 			throw fre;
 		} catch (FrameworkRuntimeException e) {
@@ -160,6 +151,18 @@ public class XMLErrorWriter extends ErrorWriter {
 				String sql, File resultsFile, ResultSet actualResult,
 				File expectedResultFile, Throwable ex)
 				throws FrameworkException {
+			long begin = System.nanoTime();
+			try {
+				writeErrorResults(testResult, sql, resultsFile, actualResult, expectedResultFile, ex);
+			} finally {
+				testResult.addPhaseTime(TestResult.PHASE.ERROR_WRITE, System.nanoTime() - begin);
+			}
+		}
+		
+		private void writeErrorResults(TestResult testResult,
+				String sql, File resultsFile, ResultSet actualResult,
+				File expectedResultFile, Throwable ex)
+				throws FrameworkException {
 			OutputStream outputStream;
 			try {
 				FileOutputStream fos = new FileOutputStream(resultsFile);
@@ -170,141 +173,74 @@ public class XMLErrorWriter extends ErrorWriter {
 			}
 
 			try {
-				XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
-
-				// Create root JDOM element
-				Element rootElement = new Element(TagNames.Elements.ROOT_ELEMENT);
-
-				// create a JDOM element for the results
-				Element resultElement = new Element(TagNames.Elements.QUERY_RESULTS);
-				// set the queryIDAttr on the exception element
-				resultElement.setAttribute(new Attribute(TagNames.Attributes.NAME,
-						testResult.getQueryID()));
-				// set the querySQLAttr on the exception element
-				resultElement.setAttribute(new Attribute(TagNames.Attributes.VALUE,
-						(sql != null ? sql : "NULL")));
-
-				// ---------------------
-				// Actual Exception
-				// ---------------------
-				// create a JDOM element from the actual exception object
-				// produce xml for the actualException and this to the
-				// exceptionElement
-				if (ex != null) {
-					
-					ClientPlugin.LOGGER.warn("**** E 3 Generate Error File");
-
-					Element actualExceptionElement = new Element(
-							TagNames.Elements.ACTUAL_EXCEPTION);
-
-					actualExceptionElement = XMLQueryVisitationStrategy
-							.jdomException(ex, actualExceptionElement);
-					resultElement.addContent(actualExceptionElement);
-				} else if (actualResult != null) {
-					ClientPlugin.LOGGER.warn("**** E 4 Generate Error File");
+				XMLResultsStreamWriter writer = new XMLResultsStreamWriter(outputStream);
 
-					// ------------------------------
-					// Got a ResultSet from server
-					// error was in comparing results
-					// ------------------------------
+				writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
 
-					// --------------------------
-					// Actual Result - ResultSet
-					// --------------------------
-					// produce a JDOM element from the actual results object
-					Element actualResultsElement = new Element(
-							TagNames.Elements.ACTUAL_QUERY_RESULTS);
-					actualResultsElement = jstrat.produceMsg(actualResult,
-							actualResultsElement);
+				// the queryID and querySQL attributes of the results element
+				String[] resultAttributes = new String[] {
+						TagNames.Attributes.NAME, testResult.getQueryID(),
+						TagNames.Attributes.VALUE, (sql != null ? sql : "NULL") }; //$NON-NLS-1$
 
-					// add the results elements to the root element
-					resultElement.addContent(actualResultsElement);
-
-				} 
-				
-				if (expectedResultFile != null) {
-				// ---------------------
-				// Expected Results - ...
-				// ---------------------
-				// produce xml for the expected results
-				// Get expected results
-					Element expectedResult = new Element("bogus"); //$NON-NLS-1$
+				if (ex == null && actualResult == null && expectedResultFile == null) {
+					writer.writeElement(TagNames.Elements.QUERY_RESULTS, null, resultAttributes);
+				} else {
+					writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, resultAttributes);
 				
-					try {
-
-						expectedResult = jstrat.parseXMLResultsFile(expectedResultFile,
-								expectedResult);
-						ClientPlugin.LOGGER.warn("**** E 5 Expected: " + expectedResult);
-						
-						if (testResult.isSuccess()) {
-							
-							expectedResult
-							.setName(TagNames.Elements.EXPECTED_QUERY_RESULTS);
-							
-						} else {
-							
-							expectedResult
-							.setName(TagNames.Elements.EXPECTED_EXCEPTION);
-							
-						}
+					// ---------------------
+					// Actual Exception
+					// ---------------------
+					if (ex != null) {
 						
-//						if (expectedResult.getChild(TagNames.Elements.SELECT) != null) {
-//							// ----------------------------------------------------------
-//							// -
-//							// Expected result was a ResultSet set element name to
-//							// reflect
-//							// ----------------------------------------------------------
-//							// -
-//							expectedResult
-//									.setName(TagNames.Elements.EXPECTED_QUERY_RESULTS);
-//						} else {
-//							// ----------------------------------------------------------
-//							// --
-//							// Expected result was an exception set element name to
-//							// reflect
-//							// ----------------------------------------------------------
-//							// --
-//							expectedResult
-//									.setName(TagNames.Elements.EXPECTED_EXCEPTION);
-//						}
-						
-						resultElement.addContent(expectedResult);
-	
-					} catch (Throwable jdomerror) {
-						jstrat.produceMsg(jdomerror, resultElement);
+						ClientPlugin.LOGGER.warn("**** E 3 Generate Error File");
+
+						writer.writeException(TagNames.Elements.ACTUAL_EXCEPTION, ex);
+					} else if (actualResult != null) {
+						ClientPlugin.LOGGER.warn("**** E 4 Generate Error File");
+
+						// ------------------------------
+						// Got a ResultSet from server
+						// error was in comparing results
+						// ------------------------------
+
+						// --------------------------
+						// Actual Result - ResultSet
+						// --------------------------
+						// write the actual results as each row is read
+						writer.writeStartElement(TagNames.Elements.ACTUAL_QUERY_RESULTS);
+						writer.writeResults(actualResult);
+						writer.writeEndElement();
+					} 
+				
+					if (expectedResultFile != null) {
+						// ---------------------
+						// Expected Results - ...
+						// ---------------------
+						// copy the expected results from the file as it is read
+						writeExpectedResults(writer, expectedResultFile, 
+								(testResult.isSuccess() ? TagNames.Elements.EXPECTED_QUERY_RESULTS 
+										: TagNames.Elements.EXPECTED_EXCEPTION));
 					}
+					
+					writer.writeEndElement();
 				}
 
-				// ------------------------------
-				// Got an exeption from the server
-				// error was in comparing exceptions
-				// ------------------------------
-
-				// add the results elements to the root element
-				rootElement.addContent(resultElement);
 				ClientPlugin.LOGGER.warn("**** E 6 Generate Error File");
 
-				// Output xml
-				XMLOutputter outputter = new XMLOutputter(JdomHelper.getFormat(
-						"  ", true)); //$NON-NLS-1$
-				outputter.output(new Document(rootElement), outputStream);
-			} catch (JDOMParseException jde) {
-				ClientPlugin.LOGGER.warn("**** JDOMERROR Generate Error File");
-
-				jde.printStackTrace();
-
+				writer.writeEndDocument();
+				writer.close();
 			} catch (SQLException e) {
 				throw new FrameworkException(
-						"Failed to convert error results to JDOM: " + e.getMessage()); //$NON-NLS-1$
-			} catch (JDOMException e) {
+						"Failed to convert error results to XML: " + e.getMessage()); //$NON-NLS-1$
+			} catch (XMLStreamException e) {
 				throw new FrameworkException(
-						"Failed to convert error results to JDOM: " + e.getMessage()); //$NON-NLS-1$
+						"Failed to convert error results to XML: " + e.getMessage()); //$NON-NLS-1$
 			} catch (IOException e) {
 				throw new FrameworkException(
 						"Failed to output error results to " + resultsFile.getPath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
 			} catch (Throwable e) {
 				throw new FrameworkException(
-						"Failed to convert error results to JDOM: " + ExceptionUtil.getStackTrace(e)); //$NON-NLS-1$
+						"Failed to convert error results to XML: " + ExceptionUtil.getStackTrace(e)); //$NON-NLS-1$
 			} finally {
 				try {
 					outputStream.close();
@@ -313,5 +249,19 @@ public class XMLErrorWriter extends ErrorWriter {
 			}
 		}
 
+		/**
+		 * Write the named element containing the expected results read from the
+		 * expected results file.  Subclasses override this when the expected results
+		 * are not stored as XML.
+		 * @param writer
+		 * @param expectedResultFile
+		 * @param name
+		 * @throws XMLStreamException
+		 * @throws IOException
+		 */
+		protected void writeExpectedResults(XMLResultsStreamWriter writer, 
+				File expectedResultFile, String name) throws XMLStreamException, IOException {
+			writer.writeExpectedResults(expectedResultFile, name);
+		}
 
 }
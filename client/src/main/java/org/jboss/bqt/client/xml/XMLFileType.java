@@ -145,14 +145,14 @@ public class XMLFileType implements FileType {
 
 	}
 	
-	private ExpectedResultsWriter createExpectedResultsWriter(QueryScenario scenario, Properties props, String fileName) {
+	protected ExpectedResultsWriter createExpectedResultsWriter(QueryScenario scenario, Properties props, String fileName) {
 		Collection<Object> args = new ArrayList<Object>(2);
 		args.add(scenario);
 		args.add(props);
 		return (ExpectedResultsWriter) createInstance(fileName, args);
 	}
 	
-	private Object createInstance(String clzzName, final Collection<?> args) {
+	protected Object createInstance(String clzzName, final Collection<?> args) {
 		return ReflectionHelper.create(clzzName,args, null);
 	}
 	
@@ -74,9 +74,6 @@ import org.jdom.input.SAXBuilder;
 
 public class XMLQueryVisitationStrategy {
 
-    //the row from which we start converting ResultSets to XML
-    private static final int START_ROW = 1;
-
     public XMLQueryVisitationStrategy() {
     }
 
@@ -112,6 +109,7 @@ public class XMLQueryVisitationStrategy {
 	        	    QuerySQL sql = createQuerySQL(queryElement);
 	         	    
 	        	    QueryTest q = new QueryTest(queryScenarioID, querySetID, queryName, new QuerySQL[] {sql});
+	        	    q.setBatch(Boolean.valueOf(queryElement.getAttributeValue(TagNames.Attributes.BATCH)).booleanValue());
 	        	    queries.add(q);
 	        	} else {
 	        		ClientPlugin.LOGGER.debug("=======  Creating QueryTest has multiple sql statements " + queryName);
@@ -122,10 +120,15 @@ public class XMLQueryVisitationStrategy {
 	        		while ( sqliter.hasNext() ) {
 	        			final Element sqlElement = (Element) sqliter.next();
 	        			QuerySQL sql = createQuerySQL(sqlElement);
+	        			// the timeout on the query applies to each sql that doesn't specify its own
+	        			if (sql.getTimeout() < 0) {
+	        				sql.setTimeout(getTimeout(queryElement));
+	        			}
 	        			querysql[c] = sql;
 	        			c++;	
 	        		}
 	        		QueryTest q = new QueryTest(queryScenarioID, querySetID, uniqueID, querysql);
+	        		q.setBatch(Boolean.valueOf(queryElement.getAttributeValue(TagNames.Attributes.BATCH)).booleanValue());
 	        		queries.add(q);
 	 	    
 	        	}
@@ -173,10 +176,30 @@ public class XMLQueryVisitationStrategy {
  	    	if (cnt > 0)
  	    		sql.setRunTimes(cnt);
  	    } 	    
+ 	    
+ 	    String warmup = queryElement.getAttributeValue(TagNames.Attributes.WARMUP);
+ 	    if (warmup != null && warmup.trim().length() > 0) {
+ 	    	sql.setWarmup(Integer.parseInt(warmup.trim()));
+ 	    }
+ 	    
+ 	    String iterations = queryElement.getAttributeValue(TagNames.Attributes.ITERATIONS);
+ 	    if (iterations != null && iterations.trim().length() > 0) {
+ 	    	sql.setIterations(Integer.parseInt(iterations.trim()));
+ 	    }
+	    
+	    sql.setTimeout(getTimeout(queryElement));
 	    
 	    return sql;	
     }
     
+    private int getTimeout(Element queryElement) {
+	    String timeout = queryElement.getAttributeValue(TagNames.Attributes.TIMEOUT);
+	    if (timeout != null && timeout.trim().length() > 0) {
+	    	return Integer.parseInt(timeout.trim());
+	    }
+	    return -1;
+    }
+    
     private Serializable createPayLoad(Element parent) {
 		List<Element> parmChildren = parent.getChildren(TagNames.Elements.PAYLOAD);
 		if (parmChildren == null) {
@@ -229,35 +252,35 @@ public class XMLQueryVisitationStrategy {
         final String typeName = cellElement.getAttributeValue(TagNames.Attributes.TYPE);
  
         if ( typeName.equalsIgnoreCase(TagNames.Elements.BOOLEAN) ) {
-            cellObject = consumeMsg((Boolean) cellObject, cellElement);
+            cellObject = consumeMsg((Boolean) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.STRING) ) {
-            cellObject = consumeMsg((String) cellObject, cellElement);
+            cellObject = consumeMsg((String) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.CHAR) ) {
-            cellObject = consumeMsg((Character) cellObject, cellElement);
+            cellObject = consumeMsg((Character) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.BYTE) ) {
-            cellObject = consumeMsg((Byte) cellObject, cellElement);
+            cellObject = consumeMsg((Byte) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.DOUBLE) ) {
-            cellObject = consumeMsg((Double) cellObject, cellElement);
+            cellObject = consumeMsg((Double) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.DATE) ) {
-            cellObject = consumeMsg((java.sql.Date) cellObject, cellElement);
+            cellObject = consumeMsg((java.sql.Date) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.TIME) ) {
-            cellObject = consumeMsg((Time) cellObject, cellElement);
+            cellObject = consumeMsg((Time) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.TIMESTAMP) ) {
-            cellObject = consumeMsg((Timestamp) cellObject, cellElement);
+            cellObject = consumeMsg((Timestamp) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.FLOAT) ) {
-            cellObject = consumeMsg((Float) cellObject, cellElement);
+            cellObject = consumeMsg((Float) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.BIGDECIMAL) ) {
-            cellObject = consumeMsg((BigDecimal) cellObject, cellElement);
+            cellObject = consumeMsg((BigDecimal) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.BIGINTEGER) ) {
-            cellObject = consumeMsg((BigInteger) cellObject, cellElement);
+            cellObject = consumeMsg((BigInteger) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.INTEGER) ) {
-            cellObject = consumeMsg((Integer) cellObject, cellElement);
+            cellObject = consumeMsg((Integer) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.LONG) ) {
-            cellObject = consumeMsg((Long) cellObject, cellElement);
+            cellObject = consumeMsg((Long) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.SHORT) ) {
-            cellObject = consumeMsg((Short) cellObject, cellElement);
+            cellObject = consumeMsg((Short) cellObject, cellElement.getName(), cellElement.getText());
         } else if ( typeName.equalsIgnoreCase(TagNames.Elements.OBJECT) ) {
-            cellObject = consumeMsg((String) cellObject, cellElement);
+            cellObject = consumeMsg((String) cellObject, cellElement.getName(), cellElement.getText());
         }
 
         return cellObject;
@@ -587,49 +610,62 @@ public class XMLQueryVisitationStrategy {
 
 
     /**
-     * Produce a JDOM Element for the instance of any Object.
+     * Consume an XML message for the instance of any Object.
      * <br>
-     * @param cellElement the XML element that is to produce the XML message.
-     * @return the root element of the XML segment that was produced.
-     * @exception JDOMException if there is an error producing XML.
+     * @param cellElement the XML element that contains the data
+     * @return the cell value
+     * @exception JDOMException if there is an error consuming the message.
      */
     private Object consumeMsg(Element cellElement) throws JDOMException {
+        return consumeCell(cellElement.getName(), cellElement.getText());
+    }
+
+    /**
+     * Consume the value element of a single table cell (e.g., <code>&lt;integer&gt;</code>),
+     * given its name and text, and return its value as the corresponding java object.  
+     * This allows the cells to be read without building a JDOM Element for them.
+     * <br>
+     * @param cellName the name of the XML element that contains the value
+     * @param cellText the text of the XML element
+     * @return the cell value
+     * @exception JDOMException if there is an error consuming the message.
+     */
+    public Object consumeCell(String cellName, String cellText) throws JDOMException {
 
         Object cellObject = null;;
-        String cellName = cellElement.getName();
 
         if ( cellName.equalsIgnoreCase(TagNames.Elements.BOOLEAN) ) {
-            cellObject = consumeMsg((Boolean) cellObject, cellElement);
+            cellObject = consumeMsg((Boolean) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.STRING) ) {
-            cellObject = consumeMsg((String) cellObject, cellElement);
+            cellObject = consumeMsg((String) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.CHAR) ) {
-            cellObject = consumeMsg((Character) cellObject, cellElement);
+            cellObject = consumeMsg((Character) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.BYTE) ) {
-            cellObject = consumeMsg((Byte) cellObject, cellElement);
+            cellObject = consumeMsg((Byte) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.DOUBLE) ) {
-            cellObject = consumeMsg((Double) cellObject, cellElement);
+            cellObject = consumeMsg((Double) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.DATE) ) {
-            cellObject = consumeMsg((java.sql.Date) cellObject, cellElement);
+            cellObject = consumeMsg((java.sql.Date) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.TIME) ) {
-            cellObject = consumeMsg((Time) cellObject, cellElement);
+            cellObject = consumeMsg((Time) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.TIMESTAMP) ) {
-            cellObject = consumeMsg((Timestamp) cellObject, cellElement);
+            cellObject = consumeMsg((Timestamp) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.FLOAT) ) {
-            cellObject = consumeMsg((Float) cellObject, cellElement);
+            cellObject = consumeMsg((Float) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.BIGDECIMAL) ) {
-            cellObject = consumeMsg((BigDecimal) cellObject, cellElement);
+            cellObject = consumeMsg((BigDecimal) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.BIGINTEGER) ) {
-            cellObject = consumeMsg((BigInteger) cellObject, cellElement);
+            cellObject = consumeMsg((BigInteger) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.INTEGER) ) {
-            cellObject = consumeMsg((Integer) cellObject, cellElement);
+            cellObject = consumeMsg((Integer) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.LONG) ) {
-            cellObject = consumeMsg((Long) cellObject, cellElement);
+            cellObject = consumeMsg((Long) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.SHORT) ) {
-            cellObject = consumeMsg((Short) cellObject, cellElement);
+            cellObject = consumeMsg((Short) cellObject, cellName, cellText);
         } else if ( cellName.equalsIgnoreCase(TagNames.Elements.OBJECT) ) {
-            cellObject = consumeMsg((String) cellObject, cellElement);
+            cellObject = consumeMsg((String) cellObject, cellName, cellText);
         } else {
-        	cellObject = consumeMsg(cellObject, cellElement);
+        	cellObject = consumeMsg(cellObject, cellName, cellText);
         }
 
         return cellObject;
@@ -639,23 +675,24 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Boolean instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Boolean object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Boolean object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         boolean result = false;
-        String value = cellElement.getTextTrim();
+        String value = cellText.trim();
         if ( value.equalsIgnoreCase(TagNames.Values.TRUE) ) {
             result = true;
         } else if ( value.equalsIgnoreCase(TagNames.Values.FALSE) ) {
             result = false;
         } else {
-            throw new JDOMException("Invalid value for " + cellElement.getName() + //$NON-NLS-1$
+            throw new JDOMException("Invalid value for " + cellName + //$NON-NLS-1$
                                     " element: \"" + value + "\" must be either \"" + //$NON-NLS-1$ //$NON-NLS-2$
                                     TagNames.Values.TRUE + "\" or \"" + //$NON-NLS-1$
                                     TagNames.Values.FALSE + "\""); //$NON-NLS-1$
@@ -668,18 +705,19 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified java.sql.Date instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(java.sql.Date object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(java.sql.Date object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         java.sql.Date result;
         try {
-            result = java.sql.Date.valueOf(cellElement.getTextTrim());
+            result = java.sql.Date.valueOf(cellText.trim());
         } catch ( Exception e ) {
             throw new JDOMException("Invalid input format ", e); //$NON-NLS-1$
         }
@@ -690,18 +728,19 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Time instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Time object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Time object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Time result;
         try {
-            result = Time.valueOf(cellElement.getTextTrim());
+            result = Time.valueOf(cellText.trim());
         } catch ( Exception e ) {
             throw new JDOMException("Invalid input format ", e); //$NON-NLS-1$
         }
@@ -712,18 +751,19 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Timestamp instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Timestamp object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Timestamp object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Timestamp result;
         try {
-            result = Timestamp.valueOf(cellElement.getTextTrim());
+            result = Timestamp.valueOf(cellText.trim());
         } catch ( Exception e ) {
             throw new JDOMException("Invalid input format ", e); //$NON-NLS-1$
         }
@@ -735,16 +775,17 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Double instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Double object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Double object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
-        String strElement = cellElement.getTextTrim();
+        String strElement = cellText.trim();
         Double result;
 
         if ( strElement.equals("NaN") ) { //$NON-NLS-1$
@@ -757,7 +798,7 @@ public class XMLQueryVisitationStrategy {
             try {
                 result = Double.valueOf(strElement);
             } catch ( NumberFormatException e ) {
-                throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
+                throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
                                         " element: " + strElement, e); //$NON-NLS-1$
             }
         }
@@ -768,16 +809,17 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Float instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Float object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Float object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
-        String strElement = cellElement.getTextTrim();
+        String strElement = cellText.trim();
         Float result;
 
         if ( strElement.equals("NaN") ) { //$NON-NLS-1$
@@ -790,7 +832,7 @@ public class XMLQueryVisitationStrategy {
             try {
                 result = Float.valueOf(strElement);
             } catch ( NumberFormatException e ) {
-                throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
+                throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
                                         " element: " + strElement, e); //$NON-NLS-1$
             }
         }
@@ -801,21 +843,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified BigDecimal instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(BigDecimal object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(BigDecimal object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         BigDecimal result;
         try {
-            result = new BigDecimal(cellElement.getTextTrim());
+            result = new BigDecimal(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-1$
         }
         return result;
     }
@@ -824,21 +867,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified BigInteger instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(BigInteger object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(BigInteger object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         BigInteger result;
         try {
-            result = new BigInteger(cellElement.getTextTrim());
+            result = new BigInteger(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-1$
         }
         return result;
     }
@@ -847,41 +891,43 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified String instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(String object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(String object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
 
-        return cellElement.getText();
+        return cellText;
     }
 
     /**
      * Consume an XML message and update the specified Character instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Character object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Character object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Character result;
         try {
-            if ( cellElement.getTextTrim().length() == 0 ) {
+            if ( cellText.trim().length() == 0 ) {
                 return null;
             }
-            result = new Character(cellElement.getTextTrim().charAt(0));
+            result = new Character(cellText.trim().charAt(0));
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-1$
         }
         return result;
     }
@@ -890,21 +936,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Byte instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Byte object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Byte object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Byte result;
         try {
-            result = new Byte(cellElement.getTextTrim());
+            result = new Byte(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-1$
         }
         return result;
     }
@@ -913,21 +960,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Integer instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Integer object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Integer object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Integer result;
         try {
-            result = Integer.valueOf(cellElement.getTextTrim());
+            result = Integer.valueOf(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
         }
         return result;
     }
@@ -936,21 +984,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Long instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Long object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Long object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Long result;
         try {
-            result = Long.valueOf(cellElement.getTextTrim());
+            result = Long.valueOf(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
         }
         return result;
     }
@@ -960,26 +1009,27 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Byte instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
     @SuppressWarnings("unused")
-	private Object consumeMsg(Object object, Element cellElement) throws JDOMException {
+	private Object consumeMsg(Object object, String cellName, String cellText) throws JDOMException {
 
 //        // -----------------------
 //        // Process the element ...
 //        // -----------------------
 //        Byte result;
 //        try {
-//            result = new Byte(cellElement.getTextTrim());
+//            result = new Byte(cellText.trim());
 //        } catch ( NumberFormatException e ) {
-//            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-//                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-1$
+//            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+//                                    " element: " + cellText.trim(), e); //$NON-NLS-1$
 //        }
 //        return result;
         
-    	return cellElement.getText();
+    	return cellText;
         // ----------------------
         // Create the Object element ...
         // ----------------------
@@ -1042,21 +1092,22 @@ public class XMLQueryVisitationStrategy {
      * Consume an XML message and update the specified Long instance.
      * <br>
      * @param object the instance that is to be updated with the XML message data.
-     * @param cellElement the XML element that contains the data
+     * @param cellName the name of the XML element that contains the data
+     * @param cellText the text of the XML element
      * @return the updated instance.
      * @exception JDOMException if there is an error consuming the message.
      */
-    private Object consumeMsg(Short object, Element cellElement) throws JDOMException {
+    private Object consumeMsg(Short object, String cellName, String cellText) throws JDOMException {
 
         // -----------------------
         // Process the element ...
         // -----------------------
         Short result;
         try {
-            result = Short.valueOf(cellElement.getTextTrim());
+            result = Short.valueOf(cellText.trim());
         } catch ( NumberFormatException e ) {
-            throw new JDOMException("Unable to parse the value for " + cellElement.getName() + //$NON-NLS-1$
-                                    " element: " + cellElement.getTextTrim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
+            throw new JDOMException("Unable to parse the value for " + cellName + //$NON-NLS-1$
+                                    " element: " + cellText.trim(), e); //$NON-NLS-2$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$ //$NON-NLS-1$
         }
         return result;
     }
@@ -1078,53 +1129,14 @@ public class XMLQueryVisitationStrategy {
      */
     public Element produceResults(ResultSet object) throws JDOMException, SQLException {
 
-        // When no begin and end
-        return produceResults(object, START_ROW, Integer.MAX_VALUE);
-    }
-
-    /**
-     * Produce a JDOM Element for an instance of Results object.
-     * <br>
-     * @param object for which the JDOM Element is to be produced.
-     * @param beginRow The starting row from which the results are to be converted to XML.
-     * @param endRow The row until which the results are to be converted to XML.
-     * @return the JDOM element of the results object that was converted to XML.
-     * @exception JDOMException if there is an error producing XML.
-     * @exception SQLException if there is an error walking through the ResultSet object.
-     */
-    private Element produceResults(ResultSet object, int beginRow, int endRow)
-            throws JDOMException, SQLException {
-
     	if (object.isClosed()) {
             throw new SQLException(
             "ResultSet is closed at this point, unable to product results"); //$NON-NLS-1$
     		
     	}
     	
-        if ( beginRow < START_ROW ) {
-            throw new IllegalArgumentException(
-                    "The starting row cannot be less than 1."); //$NON-NLS-1$
-        } else if ( beginRow > endRow ) {
-            throw new IllegalArgumentException(
-                    "The starting row cannot be less than the ending row."); //$NON-NLS-1$
-        }
-
-        int currentRow = object.getRow() + 1;
-
-        if ( beginRow > currentRow ) {
-            while ( !object.isLast() && currentRow != beginRow ) {
-                object.next();
-                currentRow++;
-            }
-
-        } else if ( beginRow < currentRow ) {
-            while ( !object.isFirst() && currentRow != beginRow ) {
-                object.previous();
-                currentRow--;
-            }
-        }
-
-        return produceMsg(object, endRow);
+        // the rows are read from the current position, forward only
+        return produceMsg(object, Integer.MAX_VALUE);
     }
 
     /**
@@ -1163,7 +1175,7 @@ public class XMLQueryVisitationStrategy {
             int rowCount = 0;
             int colCount = rmdata.getColumnCount();
 
-            while ( object.next() && (object.getRow() <= endRow) ) {
+            while ( rowCount < endRow && object.next() ) {
 
                 // -------------------------
                 // Add the ROW element ...
@@ -1320,6 +1332,73 @@ public class XMLQueryVisitationStrategy {
         return element;
     }
 
+    /**
+     * Return the name of the element that {@link #produceMsg(Object, Element)} 
+     * would produce for a cell value, so that the value can be written 
+     * without building the JDOM element.
+     * <br>
+     * @param object the cell value
+     * @return the element name
+     */
+    public String produceCellName(Object object) {
+        if ( object == null ) {
+            throw new IllegalArgumentException("Null object reference."); //$NON-NLS-1$
+        }
+        if ( object instanceof Boolean ) {
+            return TagNames.Elements.BOOLEAN;
+        } else if ( object instanceof String ) {
+            return TagNames.Elements.STRING;
+        } else if ( object instanceof Character ) {
+            return TagNames.Elements.CHAR;
+        } else if ( object instanceof Byte ) {
+            return TagNames.Elements.BYTE;
+        } else if ( object instanceof Double ) {
+            return TagNames.Elements.DOUBLE;
+        } else if ( object instanceof java.sql.Date ) {
+            return TagNames.Elements.DATE;
+        } else if ( object instanceof Time ) {
+            return TagNames.Elements.TIME;
+        } else if ( object instanceof Timestamp ) {
+            return TagNames.Elements.TIMESTAMP;
+        } else if ( object instanceof Float ) {
+            return TagNames.Elements.FLOAT;
+        } else if ( object instanceof BigDecimal ) {
+            return TagNames.Elements.BIGDECIMAL;
+        } else if ( object instanceof BigInteger ) {
+            return TagNames.Elements.BIGINTEGER;
+        } else if ( object instanceof Integer ) {
+            return TagNames.Elements.INTEGER;
+        } else if ( object instanceof Long ) {
+            return TagNames.Elements.LONG;
+        } else if ( object instanceof Short ) {
+            return TagNames.Elements.SHORT;
+        } else if ( object instanceof Throwable ) {
+            return TagNames.Elements.EXCEPTION;
+        }
+        return TagNames.Elements.OBJECT;
+    }
+
+    /**
+     * Return the text that {@link #produceMsg(Object, Element)} would set on the 
+     * element produced for a cell value.  Not valid for a Throwable, which
+     * produces child elements.
+     * <br>
+     * @param object the cell value
+     * @return the element text
+     * @throws SQLException if a LOB value cannot be read
+     */
+    public String produceCellText(Object object) throws SQLException {
+        if ( object == null ) {
+            throw new IllegalArgumentException("Null object reference."); //$NON-NLS-1$
+        }
+        if ( object instanceof Boolean ) {
+            return (((Boolean) object).booleanValue() ? TagNames.Values.TRUE : TagNames.Values.FALSE);
+        } else if ( object instanceof Character ) {
+            return object.toString().trim();
+        }
+        return produceObjectText(object);
+    }
+
     /**
      * new ----
      * @param select
@@ -1395,7 +1474,24 @@ public class XMLQueryVisitationStrategy {
         // Create the Object element ...
         // ----------------------
         Element objectElement = new Element(TagNames.Elements.OBJECT);
-        
+        objectElement.setText(produceObjectText(object));
+
+        if ( parent != null ) {
+            objectElement = parent.addContent(objectElement);
+        }
+
+        return objectElement;
+    }
+
+    /**
+     * Produce the text of the Object element for an instance of the Object, 
+     * reading the contents of a LOB.
+     * <br>
+     * @param object the instance for which the text is to be produced.
+     * @return the text for the Object element
+     * @throws SQLException 
+     */
+    private String produceObjectText(Object object) throws SQLException {
         String result = null;
         if (object instanceof Blob || object instanceof Clob || object instanceof SQLXML) {
        	 
@@ -1433,15 +1529,7 @@ public class XMLQueryVisitationStrategy {
         } else {
         	result = object.toString();
         }
-        
-        objectElement.setText(result);
-
-    
-        if ( parent != null ) {
-            objectElement = parent.addContent(objectElement);
-        }
-
-        return objectElement;
+        return result;
     }
 
     /**
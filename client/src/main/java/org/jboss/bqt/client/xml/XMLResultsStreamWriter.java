@@ -0,0 +1,721 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang.StringUtils;
+import org.jboss.bqt.client.results.ExpectedRowReader;
+import org.jboss.bqt.core.util.ExceptionUtil;
+
+/**
+ * XMLResultsStreamWriter writes the expected results and error files using a StAX
+ * {@link XMLStreamWriter}, so that each <code>tableRow</code> is written as it is
+ * read from the ResultSet, instead of first building a JDOM document of the 
+ * entire result.
+ * <p>
+ * The output is formatted the same as the JDOM <code>XMLOutputter</code> using
+ * <code>JdomHelper.getFormat("  ", true)</code>, so the files are identical to 
+ * those written before:  elements are indented by two spaces, text is trimmed,
+ * an element without content is written as <code>&lt;name /&gt;</code>, and
+ * text and attribute values are escaped the way JDOM escapes them.  The StAX
+ * writer always escapes attribute values itself, without the tab and line break 
+ * entities JDOM writes, so the tags are formatted here and the StAX writer 
+ * writes the declaration, text and CDATA.
+ * </p>
+ * <p>
+ * Because the <code>rowCount</code> attribute of the table precedes the rows, the
+ * rows are spooled, in memory and then to a temporary file for a large result,
+ * until the ResultSet has been read.
+ * </p>
+ */
+public class XMLResultsStreamWriter {
+	
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	private static final Charset CHARSET = Charset.forName(ENCODING);
+	private static final String INDENT = "  "; //$NON-NLS-1$
+	private static final String NEWLINE = "\n"; //$NON-NLS-1$
+	
+	/** StAX property of the JDK writer used to turn off its escaping */
+	private static final String ESCAPE_CHARACTERS = "escapeCharacters"; //$NON-NLS-1$
+	
+	/** the number of characters of spooled rows held in memory before using a temporary file */
+	private static final int SPOOL_MEMORY = 1024 * 1024;
+	
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	/** 
+	 * when the writer's escaping can be turned off, text is escaped here exactly as JDOM 
+	 * does, and the tags are passed through as characters 
+	 */
+	private static final boolean PRE_ESCAPED;
+	
+	static {
+		boolean preEscaped = false;
+		if (OUTPUT_FACTORY.isPropertySupported(ESCAPE_CHARACTERS)) {
+			OUTPUT_FACTORY.setProperty(ESCAPE_CHARACTERS, Boolean.FALSE);
+			preEscaped = true;
+		}
+		PRE_ESCAPED = preEscaped;
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+	
+	private final Writer out;
+	private final XMLStreamWriter writer;
+	private final XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+	private final List<String> elements = new ArrayList<String>();
+	private int depth;
+	
+	/**
+	 * Create a writer of an XML document to the stream, in UTF-8.  The
+	 * stream is not closed by {@link #close()}.
+	 * @param stream
+	 * @throws XMLStreamException
+	 */
+	public XMLResultsStreamWriter(OutputStream stream) throws XMLStreamException {
+		this(new OutputStreamWriter(stream, CHARSET), 0);
+	}
+	
+	private XMLResultsStreamWriter(Writer out, int depth) throws XMLStreamException {
+		this.out = out;
+		this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+		this.depth = depth;
+	}
+	
+	/**
+	 * Write the XML declaration and the start of the root element.
+	 * @param rootName
+	 * @throws XMLStreamException
+	 */
+	public void writeStartDocument(String rootName) throws XMLStreamException {
+		writer.writeStartDocument(ENCODING, "1.0"); //$NON-NLS-1$
+		newline();
+		writeStartElement(rootName);
+	}
+
+	/**
+	 * Write the end of the root element and flush the document.
+	 * @throws XMLStreamException
+	 */
+	public void writeEndDocument() throws XMLStreamException {
+		writeEndElement();
+		// XMLOutputter ends the document with a blank line
+		newline();
+		writer.writeEndDocument();
+		writer.flush();
+	}
+	
+	/**
+	 * Write the start of an element that will contain other elements.
+	 * @param name
+	 * @param attributes the name and value of each attribute, in pairs
+	 * @throws XMLStreamException
+	 */
+	public void writeStartElement(String name, String... attributes) throws XMLStreamException {
+		indent();
+		writeRaw(tag(name, attributes, ">")); //$NON-NLS-1$
+		newline();
+		elements.add(name);
+		depth++;
+	}
+	
+	/**
+	 * Write the end of the element last started by {@link #writeStartElement(String, String...)}.
+	 * @throws XMLStreamException
+	 */
+	public void writeEndElement() throws XMLStreamException {
+		depth--;
+		indent();
+		writeRaw(endTag(elements.remove(elements.size() - 1)));
+		newline();
+	}
+	
+	/**
+	 * Write an element that contains only text.
+	 * @param name
+	 * @param text
+	 * @param attributes the name and value of each attribute, in pairs
+	 * @throws XMLStreamException
+	 */
+	public void writeElement(String name, String text, String... attributes) throws XMLStreamException {
+		String value = trim(text);
+		if (value.length() == 0) {
+			writeEmptyElement(name, attributes);
+			return;
+		}
+		indent();
+		writeRaw(tag(name, attributes, ">")); //$NON-NLS-1$
+		writer.writeCharacters(PRE_ESCAPED ? escapeText(value) : value);
+		writeRaw(endTag(name));
+		newline();
+	}
+
+	/**
+	 * Write an element that contains only a CDATA section.
+	 * @param name
+	 * @param text
+	 * @param attributes the name and value of each attribute, in pairs
+	 * @throws XMLStreamException
+	 */
+	public void writeCDataElement(String name, String text, String... attributes) throws XMLStreamException {
+		String value = trim(text);
+		if (value.length() == 0) {
+			writeEmptyElement(name, attributes);
+			return;
+		}
+		indent();
+		writeRaw(tag(name, attributes, ">")); //$NON-NLS-1$
+		writer.writeCData(value);
+		writeRaw(endTag(name));
+		newline();
+	}
+
+	/**
+	 * Write an <code>exception</code> element for the exception, the same
+	 * as {@link XMLQueryVisitationStrategy#produceMsg(Object, org.jdom.Element)}.
+	 * @param ex
+	 * @throws XMLStreamException
+	 */
+	public void writeException(Throwable ex) throws XMLStreamException {
+		writeStartElement(TagNames.Elements.EXCEPTION);
+		writeElement(TagNames.Elements.EXCEPTION_TYPE, getExceptionType(ex));
+		writeElement(TagNames.Elements.MESSAGE, StringUtils.remove(ExceptionUtil.getExceptionMessage(ex), '\r'));
+		writeElement(TagNames.Elements.CLASS, ex.getClass().getName());
+		writeEndElement();
+	}
+
+	/**
+	 * Write the named element for the exception, the same as
+	 * {@link XMLQueryVisitationStrategy#jdomException(Throwable, org.jdom.Element)},
+	 * where the message is kept as written in a CDATA section.
+	 * @param name
+	 * @param ex
+	 * @throws XMLStreamException
+	 */
+	public void writeException(String name, Throwable ex) throws XMLStreamException {
+		writeStartElement(name);
+		writeElement(TagNames.Elements.EXCEPTION_TYPE, getExceptionType(ex));
+		writeCDataElement(TagNames.Elements.MESSAGE, ExceptionUtil.getExceptionMessage(ex));
+		writeElement(TagNames.Elements.CLASS, ex.getClass().getName());
+		writeEndElement();
+	}
+	
+	/**
+	 * Write the <code>select</code> and <code>table</code> elements for the remaining
+	 * rows of the ResultSet, reading forward only.
+	 * @param resultSet
+	 * @return the number of rows written
+	 * @throws XMLStreamException
+	 * @throws SQLException
+	 * @throws IOException if the rows cannot be spooled
+	 */
+	public int writeResults(ResultSet resultSet) throws XMLStreamException, SQLException, IOException {
+		if (resultSet.isClosed()) {
+			throw new SQLException(
+					"ResultSet is closed at this point, unable to product results"); //$NON-NLS-1$
+		}
+		ResultSetMetaData rmdata = resultSet.getMetaData();
+		int colCount = rmdata.getColumnCount();
+		List<String> identifiers = new ArrayList<String>(colCount);
+		List<String> types = new ArrayList<String>(colCount);
+		for (int i = 1; i <= colCount; i++) {
+			identifiers.add(rmdata.getColumnName(i));
+			types.add(rmdata.getColumnTypeName(i));
+		}
+		writeSelect(identifiers, types);
+		return writeTable(resultSet, null, colCount);
+	}
+
+	/**
+	 * Write the <code>select</code> and <code>table</code> elements for the remaining
+	 * rows of the expected results.
+	 * @param identifiers the column names
+	 * @param types the column type names
+	 * @param rows
+	 * @return the number of rows written
+	 * @throws XMLStreamException
+	 * @throws IOException if the rows cannot be spooled
+	 */
+	public int writeResults(List<String> identifiers, List<String> types, ExpectedRowReader rows) throws XMLStreamException, IOException {
+		writeSelect(identifiers, types);
+		try {
+			return writeTable(null, rows, identifiers.size());
+		} catch (SQLException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+	
+	private void writeSelect(List<String> identifiers, List<String> types) throws XMLStreamException {
+		if (identifiers.isEmpty()) {
+			writeEmptyElement(TagNames.Elements.SELECT);
+			return;
+		}
+		writeStartElement(TagNames.Elements.SELECT);
+		for (int i = 0; i < identifiers.size(); i++) {
+			writeElement(TagNames.Elements.DATA_ELEMENT, identifiers.get(i), 
+					TagNames.Attributes.TYPE, types.get(i));
+		}
+		writeEndElement();
+	}
+	
+	/**
+	 * Write the table of rows read from either the ResultSet or the expected rows.
+	 */
+	private int writeTable(ResultSet resultSet, ExpectedRowReader rows, int colCount) throws XMLStreamException, SQLException, IOException {
+		int rowCount = 0;
+		Spool spool = new Spool();
+		try {
+			XMLResultsStreamWriter rowWriter = new XMLResultsStreamWriter(spool, depth + 1);
+			while (true) {
+				List<Object> row = null;
+				if (resultSet != null) {
+					if (!resultSet.next()) {
+						break;
+					}
+				} else if ((row = rows.nextRow()) == null) {
+					break;
+				}
+				rowWriter.writeStartElement(TagNames.Elements.TABLE_ROW);
+				for (int i = 1; i <= colCount; i++) {
+					Object cellValue = (row == null ? resultSet.getObject(i) : row.get(i - 1));
+					if (cellValue == null) {
+						rowWriter.writeElement(TagNames.Elements.TABLE_CELL, TagNames.Elements.NULL);
+					} else {
+						rowWriter.writeStartElement(TagNames.Elements.TABLE_CELL);
+						rowWriter.writeValue(cellValue);
+						rowWriter.writeEndElement();
+					}
+				}
+				rowWriter.writeEndElement();
+				rowCount++;
+			}
+			rowWriter.writer.flush();
+			
+			writeSpooled(TagNames.Elements.TABLE, spool, 
+					TagNames.Attributes.TABLE_ROW_COUNT, Integer.toString(rowCount),
+					TagNames.Attributes.TABLE_COLUMN_COUNT, Integer.toString(colCount));
+		} finally {
+			spool.close();
+		}
+		return rowCount;
+	}
+	
+	/**
+	 * Write the named element containing the results from the expected results file, 
+	 * the same as {@link XMLQueryVisitationStrategy#parseXMLResultsFile(File, org.jdom.Element)}:
+	 * the <code>select</code> and <code>table</code> elements of a result, or the 
+	 * type, message and class of an exception.  The file is read with a
+	 * pull parser and copied as it is read.  If the file cannot be read,
+	 * an <code>exception</code> element for the error is written instead.
+	 * @param resultsFile
+	 * @param name
+	 * @throws XMLStreamException
+	 * @throws IOException if the results cannot be spooled
+	 */
+	public void writeExpectedResults(File resultsFile, String name) throws XMLStreamException, IOException {
+		Spool expected = new Spool();
+		try {
+			try {
+				XMLResultsStreamWriter expectedWriter = new XMLResultsStreamWriter(expected, depth + 1);
+				expectedWriter.copyResults(resultsFile);
+				expectedWriter.writer.flush();
+			} catch (Throwable e) {
+				writeException(e);
+				return;
+			}
+			writeSpooled(name, expected);
+		} finally {
+			expected.close();
+		}
+	}
+	
+	/**
+	 * Flush what has been written.  The underlying stream is not closed.
+	 * @throws XMLStreamException
+	 * @throws IOException
+	 */
+	public void close() throws XMLStreamException, IOException {
+		writer.flush();
+		writer.close();
+		out.flush();
+	}
+	
+	private void writeValue(Object value) throws XMLStreamException, SQLException {
+		if (value instanceof Throwable) {
+			writeException((Throwable) value);
+		} else {
+			writeElement(jstrat.produceCellName(value), jstrat.produceCellText(value));
+		}
+	}
+	
+	private void writeEmptyElement(String name, String... attributes) throws XMLStreamException {
+		indent();
+		writeRaw(tag(name, attributes, " />")); //$NON-NLS-1$
+		newline();
+	}
+	
+	private void writeSpooled(String name, Spool content, String... attributes) throws XMLStreamException, IOException {
+		if (content.isEmpty()) {
+			writeEmptyElement(name, attributes);
+			return;
+		}
+		writeStartElement(name, attributes);
+		content.copyTo(this);
+		writeEndElement();
+	}
+	
+	private static String tag(String name, String[] attributes, String close) {
+		StringBuilder markup = new StringBuilder();
+		markup.append('<').append(name);
+		for (int i = 0; i < attributes.length; i += 2) {
+			markup.append(' ').append(attributes[i]).append("=\""); //$NON-NLS-1$
+			markup.append(escapeAttribute(attributes[i + 1])).append('"');
+		}
+		return markup.append(close).toString();
+	}
+
+	private static String endTag(String name) {
+		return "</" + name + ">"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	private void writeRaw(String markup) throws XMLStreamException {
+		if (PRE_ESCAPED) {
+			writer.writeCharacters(markup);
+		} else {
+			writer.flush();
+			try {
+				out.write(markup);
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+	}
+
+	private void writeRaw(char[] markup, int length) throws XMLStreamException {
+		if (PRE_ESCAPED) {
+			writer.writeCharacters(markup, 0, length);
+		} else {
+			writer.flush();
+			try {
+				out.write(markup, 0, length);
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+	}
+
+	private void indent() throws XMLStreamException {
+		for (int i = 0; i < depth; i++) {
+			writer.writeCharacters(INDENT);
+		}
+	}
+	
+	private void newline() throws XMLStreamException {
+		writer.writeCharacters(NEWLINE);
+	}
+	
+	private void copyResults(File resultsFile) throws XMLStreamException, IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(resultsFile));
+		XMLStreamReader reader = null;
+		try {
+			reader = INPUT_FACTORY.createXMLStreamReader(in);
+			// the root element
+			reader.nextTag();
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					if (TagNames.Elements.QUERY_RESULTS.equals(reader.getLocalName())) {
+						copyQueryResults(reader);
+					} else {
+						skipElement(reader);
+					}
+				}
+			}
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+			in.close();
+		}
+	}
+	
+	private void copyQueryResults(XMLStreamReader reader) throws XMLStreamException {
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return;
+			}
+			if (event != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+			String name = reader.getLocalName();
+			if (TagNames.Elements.SELECT.equals(name) || TagNames.Elements.TABLE.equals(name)) {
+				copyElement(reader);
+			} else if (TagNames.Elements.EXCEPTION.equals(name)) {
+				copyException(reader);
+			} else {
+				skipElement(reader);
+			}
+		}
+	}
+	
+	private void copyException(XMLStreamReader reader) throws XMLStreamException {
+		String type = null;
+		String message = null;
+		String className = null;
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			if (TagNames.Elements.EXCEPTION_TYPE.equals(name)) {
+				type = reader.getElementText();
+			} else if (TagNames.Elements.MESSAGE.equals(name)) {
+				message = StringUtils.remove(trim(reader.getElementText()), '\r');
+			} else if (TagNames.Elements.CLASS.equals(name)) {
+				className = reader.getElementText();
+			} else {
+				skipElement(reader);
+			}
+		}
+		writeElement(TagNames.Elements.EXCEPTION_TYPE, type);
+		writeElement(TagNames.Elements.MESSAGE, message);
+		writeElement(TagNames.Elements.CLASS, className);
+	}
+	
+	/**
+	 * Copy the element at the reader's position.  Its content is read ahead to 
+	 * find whether it has child elements, or is written with only its text.
+	 */
+	private void copyElement(XMLStreamReader reader) throws XMLStreamException {
+		String name = reader.getLocalName();
+		String[] attributes = new String[reader.getAttributeCount() * 2];
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			attributes[i * 2] = reader.getAttributeLocalName(i);
+			attributes[i * 2 + 1] = reader.getAttributeValue(i);
+		}
+		
+		StringBuilder text = new StringBuilder();
+		boolean cdata = false;
+		boolean children = false;
+		while (true) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				if (!children) {
+					writeStartElement(name, attributes);
+					children = true;
+				}
+				copyElement(reader);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if (children) {
+					writeEndElement();
+				} else if (cdata) {
+					writeCDataElement(name, text.toString(), attributes);
+				} else {
+					writeElement(name, text.toString(), attributes);
+				}
+				return;
+			case XMLStreamConstants.CDATA:
+				cdata = true;
+				text.append(reader.getText());
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+				text.append(reader.getText());
+				break;
+			default:
+				break;
+			}
+		}
+	}
+	
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int level = 1;
+		while (level > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				level++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				level--;
+			}
+		}
+	}
+	
+	private static String getExceptionType(Throwable ex) {
+		String className = ex.getClass().getName();
+		int index = className.lastIndexOf('.');
+		if ( index != -1 && (++index) < className.length() ) {
+			className = className.substring(index);
+		}
+		return className;
+	}
+	
+	private static String trim(String text) {
+		return (text == null ? "" : text.trim()); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Escape element text as the JDOM 1.0 <code>XMLOutputter</code> does.
+	 */
+	static String escapeText(String text) {
+		StringBuilder buffer = null;
+		for (int i = 0; i < text.length(); i++) {
+			String entity = null;
+			switch (text.charAt(i)) {
+			case '<': entity = "&lt;"; break; //$NON-NLS-1$
+			case '>': entity = "&gt;"; break; //$NON-NLS-1$
+			case '&': entity = "&amp;"; break; //$NON-NLS-1$
+			case '\r': entity = "&#xD;"; break; //$NON-NLS-1$
+			default: break;
+			}
+			buffer = append(buffer, text, i, entity);
+		}
+		return (buffer == null ? text : buffer.toString());
+	}
+
+	/**
+	 * Escape an attribute value as the JDOM 1.0 <code>XMLOutputter</code> does.
+	 */
+	static String escapeAttribute(String text) {
+		StringBuilder buffer = null;
+		for (int i = 0; i < text.length(); i++) {
+			String entity = null;
+			switch (text.charAt(i)) {
+			case '<': entity = "&lt;"; break; //$NON-NLS-1$
+			case '>': entity = "&gt;"; break; //$NON-NLS-1$
+			case '"': entity = "&quot;"; break; //$NON-NLS-1$
+			case '&': entity = "&amp;"; break; //$NON-NLS-1$
+			case '\t': entity = "&#x9;"; break; //$NON-NLS-1$
+			case '\n': entity = "&#xA;"; break; //$NON-NLS-1$
+			case '\r': entity = "&#xD;"; break; //$NON-NLS-1$
+			default: break;
+			}
+			buffer = append(buffer, text, i, entity);
+		}
+		return (buffer == null ? text : buffer.toString());
+	}
+	
+	/**
+	 * Append the character at the index, or its entity, once the first
+	 * character requiring an entity has been found. 
+	 */
+	private static StringBuilder append(StringBuilder buffer, String text, int index, String entity) {
+		if (buffer == null) {
+			if (entity == null) {
+				return null;
+			}
+			buffer = new StringBuilder(text.length() + 16);
+			buffer.append(text, 0, index);
+		}
+		if (entity == null) {
+			buffer.append(text.charAt(index));
+		} else {
+			buffer.append(entity);
+		}
+		return buffer;
+	}
+	
+	/**
+	 * Spool is the Writer that holds the content of an element until its 
+	 * start tag can be written, in memory until it grows larger than
+	 * {@link XMLResultsStreamWriter#SPOOL_MEMORY}, and then in a temporary file.
+	 */
+	private static final class Spool extends Writer {
+		private StringBuilder buffer = new StringBuilder();
+		private File file;
+		private Writer fileWriter;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			if (fileWriter == null && buffer.length() + len <= SPOOL_MEMORY) {
+				buffer.append(cbuf, off, len);
+				return;
+			}
+			if (fileWriter == null) {
+				file = File.createTempFile("bqtxml", ".spool"); //$NON-NLS-1$ //$NON-NLS-2$
+				fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), CHARSET));
+				fileWriter.append(buffer);
+				buffer = null;
+			}
+			fileWriter.write(cbuf, off, len);
+		}
+		
+		boolean isEmpty() {
+			return (fileWriter == null && buffer.length() == 0);
+		}
+		
+		void copyTo(XMLResultsStreamWriter target) throws XMLStreamException, IOException {
+			if (fileWriter == null) {
+				target.writeRaw(buffer.toString());
+				return;
+			}
+			fileWriter.flush();
+			Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), CHARSET);
+			try {
+				char[] chars = new char[8192];
+				int len;
+				while ((len = reader.read(chars)) != -1) {
+					target.writeRaw(chars, len);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (fileWriter != null) {
+				fileWriter.close();
+				fileWriter = null;
+				file.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
+import org.jboss.bqt.core.util.FileUtils;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.junit.Test;
+
+/**
+ * Tests that the QueryFileCache shares the parsed queries between scenarios,
+ * and drops them once the query file changes.
+ */
+public class TestQueryFileCache {
+	
+	private static File copyQueryFile() throws Exception {
+		File queryFile = new File(UnitTestUtil.getTestDataPath(), 
+				"query_sets/test_query_set/test_queries/test_queries1.xml"); //$NON-NLS-1$
+		File copy = new File(UnitTestUtil.getTestScratchPath(), "query_cache/test_queries1.xml"); //$NON-NLS-1$
+		copy.getParentFile().mkdirs();
+		FileUtils.copy(queryFile.getAbsolutePath(), copy.getAbsolutePath(), true);
+		return copy;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSharedBetweenScenarios() throws Exception {
+		File queryFile = copyQueryFile();
+		QueryFileCache cache = new QueryFileCache();
+		assertNull(cache.get(queryFile, "scenario1")); //$NON-NLS-1$
+		
+		List<QueryTest> tests = new XMLQueryVisitationStrategy().parseXMLQueryFile("scenario1", queryFile, "test_queries1"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put(queryFile, tests);
+		
+		// the same file, by another path
+		File samePath = new File(queryFile.getParentFile(), "../query_cache/" + queryFile.getName()); //$NON-NLS-1$
+		List<QueryTest> copies = cache.get(samePath, "scenario2"); //$NON-NLS-1$
+		assertEquals(tests.size(), copies.size());
+		for (int i = 0; i < tests.size(); i++) {
+			assertEquals("scenario2", copies.get(i).getQueryScenarioID()); //$NON-NLS-1$
+			assertEquals(tests.get(i).getQuerySetID(), copies.get(i).getQuerySetID());
+			assertEquals(tests.get(i).getQueryID(), copies.get(i).getQueryID());
+			assertSame(tests.get(i).getQueries(), copies.get(i).getQueries());
+		}
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testChangedFile() throws Exception {
+		File queryFile = copyQueryFile();
+		QueryFileCache cache = new QueryFileCache();
+		cache.put(queryFile, new XMLQueryVisitationStrategy().parseXMLQueryFile("scenario1", queryFile, "test_queries1")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		FileWriter writer = new FileWriter(queryFile, true);
+		writer.write("\n"); //$NON-NLS-1$
+		writer.close();
+		
+		assertNull(cache.get(queryFile, "scenario1")); //$NON-NLS-1$
+	}
+
+}
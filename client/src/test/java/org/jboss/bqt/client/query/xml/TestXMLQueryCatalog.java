@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.query.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.core.util.FileUtils;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the query tests loaded from the XMLQueryCatalog are the same as
+ * those parsed, and that changed query files are not loaded from the catalog.
+ */
+public class TestXMLQueryCatalog {
+	
+	private File queryDir;
+	private File queryFile;
+	private File catalogFile;
+	
+	@Before
+	public void setUp() throws Exception {
+		queryDir = new File(UnitTestUtil.getTestScratchPath(), "query_catalog"); //$NON-NLS-1$
+		FileUtils.removeDirectoryAndChildren(queryDir);
+		queryDir.mkdirs();
+		queryFile = new File(queryDir, "test_queries1.xml"); //$NON-NLS-1$
+		FileUtils.copy(new File(UnitTestUtil.getTestDataPath(), 
+				"query_sets/test_query_set/test_queries/test_queries1.xml").getAbsolutePath(), //$NON-NLS-1$
+				queryFile.getAbsolutePath(), true);
+		catalogFile = new File(UnitTestUtil.getTestScratchPath(), "query_catalog.bqtc"); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testCompile() throws Exception {
+		assertEquals(1, XMLQueryCatalog.compile(queryDir, catalogFile));
+		
+		XMLQueryCatalog catalog = XMLQueryCatalog.load(catalogFile);
+		assertNotNull(catalog);
+		assertEquals(1, catalog.getQueryFileCount());
+		
+		List<QueryTest> parsed = XMLQueryReader.parseQueries("scenario", queryFile, "test_queries1"); //$NON-NLS-1$ //$NON-NLS-2$
+		List<QueryTest> loaded = catalog.getQueries(queryFile, "scenario"); //$NON-NLS-1$
+		assertEquals(parsed.size(), loaded.size());
+		for (int i = 0; i < parsed.size(); i++) {
+			QueryTest p = parsed.get(i);
+			QueryTest l = loaded.get(i);
+			assertEquals(p, l);
+			assertEquals(p.getQueries().length, l.getQueries().length);
+			for (int q = 0; q < p.getQueries().length; q++) {
+				QuerySQL ps = p.getQueries()[q];
+				QuerySQL ls = l.getQueries()[q];
+				assertEquals(ps.getSql(), ls.getSql());
+				assertArrayEquals(ps.getParms(), ls.getParms());
+				assertEquals(ps.getRowCnt(), ls.getRowCnt());
+				assertEquals(ps.getUpdateCnt(), ls.getUpdateCnt());
+				assertEquals(ps.getRunTimes(), ls.getRunTimes());
+				assertEquals(ps.getWarmup(), ls.getWarmup());
+				assertEquals(ps.getIterations(), ls.getIterations());
+				assertEquals(ps.getTimeout(), ls.getTimeout());
+				assertEquals(ps.getPayLoad(), ls.getPayLoad());
+			}
+		}
+	}
+	
+	@Test
+	public void testBatch() throws Exception {
+		FileWriter writer = new FileWriter(queryFile);
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n" //$NON-NLS-1$
+				+ "  <query name=\"Setup\" batch=\"true\">\n" //$NON-NLS-1$
+				+ "    <sql updatecnt=\"1\">Insert Into T Values (1)</sql>\n" //$NON-NLS-1$
+				+ "    <sql updatecnt=\"1\">Insert Into T Values (2)</sql>\n" //$NON-NLS-1$
+				+ "  </query>\n" //$NON-NLS-1$
+				+ "  <query name=\"Query1\">Select * From T</query>\n" //$NON-NLS-1$
+				+ "</root>\n"); //$NON-NLS-1$
+		writer.close();
+		
+		List<QueryTest> parsed = XMLQueryReader.parseQueries("scenario", queryFile, "test_queries1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, parsed.size());
+		assertTrue(parsed.get(0).isBatch());
+		assertEquals(2, parsed.get(0).getQueries().length);
+		assertFalse(parsed.get(1).isBatch());
+		
+		XMLQueryCatalog.compile(queryDir, catalogFile);
+		List<QueryTest> loaded = XMLQueryCatalog.load(catalogFile).getQueries(queryFile, "scenario"); //$NON-NLS-1$
+		assertTrue(loaded.get(0).isBatch());
+		assertFalse(loaded.get(1).isBatch());
+	}
+	
+	@Test
+	public void testBenchmark() throws Exception {
+		FileWriter writer = new FileWriter(queryFile);
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n" //$NON-NLS-1$
+				+ "  <query name=\"Query1\" warmup=\"3\" iterations=\"10\">Select * From T</query>\n" //$NON-NLS-1$
+				+ "  <query name=\"Query2\" numtimes=\"5\">Select * From T</query>\n" //$NON-NLS-1$
+				+ "</root>\n"); //$NON-NLS-1$
+		writer.close();
+		
+		List<QueryTest> parsed = XMLQueryReader.parseQueries("scenario", queryFile, "test_queries1"); //$NON-NLS-1$ //$NON-NLS-2$
+		QuerySQL benchmarked = parsed.get(0).getQueries()[0];
+		assertTrue(benchmarked.isBenchmark());
+		assertEquals(3, benchmarked.getWarmup());
+		assertEquals(10, benchmarked.getIterations());
+		QuerySQL repeated = parsed.get(1).getQueries()[0];
+		assertFalse(repeated.isBenchmark());
+		assertEquals(-1, repeated.getWarmup());
+		assertEquals(5, repeated.getRunTimes());
+		
+		XMLQueryCatalog.compile(queryDir, catalogFile);
+		List<QueryTest> loaded = XMLQueryCatalog.load(catalogFile).getQueries(queryFile, "scenario"); //$NON-NLS-1$
+		assertEquals(3, loaded.get(0).getQueries()[0].getWarmup());
+		assertEquals(10, loaded.get(0).getQueries()[0].getIterations());
+		assertFalse(loaded.get(1).getQueries()[0].isBenchmark());
+	}
+	
+	@Test
+	public void testChangedFile() throws Exception {
+		XMLQueryCatalog.compile(queryDir, catalogFile);
+		
+		// touched, but not changed
+		queryFile.setLastModified(queryFile.lastModified() + 10000);
+		assertNotNull(XMLQueryCatalog.load(catalogFile).getQueries(queryFile, "scenario")); //$NON-NLS-1$
+		
+		FileWriter writer = new FileWriter(queryFile, true);
+		writer.write("\n"); //$NON-NLS-1$
+		writer.close();
+		assertNull(XMLQueryCatalog.load(catalogFile).getQueries(queryFile, "scenario")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testInvalidCatalog() throws Exception {
+		assertNull(XMLQueryCatalog.load(new File(queryDir, "missing.bqtc"))); //$NON-NLS-1$
+		assertNull(XMLQueryCatalog.load(queryFile));
+	}
+
+}
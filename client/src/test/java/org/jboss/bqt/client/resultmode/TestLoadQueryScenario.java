@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.jboss.bqt.client.resultmode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Properties;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.TestResultsSummary;
+import org.jboss.bqt.client.api.ErrorWriter;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.testcase.LoadTest;
+import org.jboss.bqt.core.util.FileUtils;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.jboss.bqt.framework.ConfigPropertyLoader;
+import org.jboss.bqt.framework.ConfigPropertyNames;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TestResult;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the LOAD result mode
+ */
+public class TestLoadQueryScenario {
+
+	public TestLoadQueryScenario() {
+
+	}
+	
+    @Before
+    public void setUp() throws Exception {
+        
+    	ConfigPropertyLoader.reset();
+    }
+
+	// ===================================================================
+	// ACTUAL TESTS
+	// ===================================================================
+	
+	/**
+	 * Using Load result mode, the queries are read, but no results are compared or generated
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testCoreSupport() throws Exception {
+		System.setProperty("result.mode", "load");
+		
+		//  the following 3 properties are what's normally found in the scenario.properties file
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+	
+		//
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		
+		System.setProperty("output.dir", UnitTestUtil.getTestOutputPath() + File.separator + "sqltest" );
+		
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+
+		ConfigPropertyLoader _instance = ConfigPropertyLoader.getInstance();
+		Properties p = _instance.getProperties();
+		if (p == null || p.isEmpty()) {
+			throw new RuntimeException("Failed to load config properties file");
+		}
+
+		QueryScenario set = QueryScenario.createInstance("testscenario",p);
+		
+		assertTrue(set instanceof Load);
+		assertTrue(set.isLoad());
+		assertFalse(set.isCompare());
+		assertFalse(set.isExpectedResultsNeeded());
+		
+		assertEquals(TestProperties.RESULT_MODES.LOAD, set.getResultsMode());
+		assertTrue(set.getTestCase() instanceof LoadTest);
+		assertNull(set.getQueryWriter());
+		
+		assertEquals(2, set.getQueries("test_queries1").size());
+		
+	}
+	
+	/**
+	 * The clients fail the same query at the same time, so only the first failure
+	 * writes the error file.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testErrorFileOncePerQuery() throws Exception {
+		System.setProperty("result.mode", "load");
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		System.setProperty("output.dir", UnitTestUtil.getTestOutputPath() + File.separator + "sqltest" );
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+
+		QueryScenario set = spy(QueryScenario.createInstance("testscenario", ConfigPropertyLoader.getInstance().getProperties()));
+		ErrorWriter writer = mock(ErrorWriter.class);
+		doReturn(writer).when(set).getErrorWriter();
+		
+		TestCase first = failedTestCase("Query1", 1);
+		set.handleTestResult(first, null);
+		set.handleTestResult(failedTestCase("Query1", 2), null);
+		set.handleTestResult(failedTestCase("Query1", 1), null);
+		TestCase other = failedTestCase("Query2", 2);
+		set.handleTestResult(other, null);
+		
+		verify(writer, times(2)).generateErrorFile(any(TestResult.class), any(Throwable.class));
+		verify(writer).generateErrorFile(same(first.getTestResult()), any(Throwable.class));
+		verify(writer).generateErrorFile(same(other.getTestResult()), any(Throwable.class));
+	}
+	
+	/**
+	 * The load executions aren't kept by the summary, only their statistics, which
+	 * are what's printed.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testLoadResultsAreAggregated() throws Exception {
+		System.setProperty("result.mode", "load");
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		System.setProperty("output.dir", UnitTestUtil.getTestScratchPath() + File.separator + "load_summary" );
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+
+		QueryScenario set = QueryScenario.createInstance("testscenario", ConfigPropertyLoader.getInstance().getProperties());
+		FileUtils.removeDirectoryAndChildren(new File(set.getTestRunDir()));
+		TestResultsSummary summary = set.getTestResultsSummary();
+		
+		for (int c = 1; c <= 2; c++) {
+			for (int r = 0; r < 3; r++) {
+				TestResult result = new TestResult("test_queries1", "Query1");
+				result.setClientNum(c);
+				result.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+				result.recordLatency(1000000);
+				summary.addLoadTest(result.getQuerySetID(), result);
+			}
+			TestResult failed = failedTestCase("Query2", c).getTestResult();
+			summary.addLoadTest(failed.getQuerySetID(), failed);
+		}
+		assertNull(summary.getTests("test_queries1"));
+		
+		long now = System.currentTimeMillis();
+		summary.printResults("test_queries1", now - 2000, now, 2, 1);
+		
+		File file = new File(set.getTestRunDir(), "test_queries1_" + set.getResultsMode() + ".txt");
+		assertTrue(file.exists());
+		FileReader reader = new FileReader(file);
+		char[] chars = new char[(int) file.length()];
+		int len = reader.read(chars);
+		reader.close();
+		String printed = new String(chars, 0, len);
+		assertTrue(printed, printed.contains("Executions       : 8"));
+		assertTrue(printed, printed.contains("Number Failed    : 2"));
+		assertTrue(printed, printed.contains("Client 2"));
+	}
+	
+	private static TestCase failedTestCase(String queryID, int clientNum) {
+		TestCase testcase = new TestCase(new QueryTest("testscenario", "test_queries1", queryID, new QuerySQL[0]));
+		TestResult result = new TestResult("test_queries1", queryID);
+		result.setClientNum(clientNum);
+		result.setStatus(TestResult.RESULT_STATE.TEST_EXCEPTION);
+		result.setException(new Exception("failed"));
+		testcase.setTestResult(result);
+		return testcase;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the eviction and invalidation of the ExpectedResultsCache
+ */
+@SuppressWarnings("rawtypes")
+public class TestExpectedResultsCache {
+	
+	private File dir;
+	
+	@Before
+	public void setUp() {
+		dir = new File(UnitTestUtil.getTestScratchPath(), "results_cache"); //$NON-NLS-1$
+		dir.mkdirs();
+	}
+	
+	private File createFile(String name, String content) throws Exception {
+		File f = new File(dir, name);
+		FileWriter writer = new FileWriter(f);
+		writer.write(content);
+		writer.close();
+		return f;
+	}
+	
+	private static ExpectedResultsHolder createHolder(int rowCount) {
+		ExpectedResultsHolder holder = new ExpectedResultsHolder(TagNames.Elements.QUERY_RESULTS, 
+				new QueryTest(null, "set", "query", null)); //$NON-NLS-1$ //$NON-NLS-2$
+		holder.setIdentifiers(Arrays.asList("id", "name")); //$NON-NLS-1$ //$NON-NLS-2$
+		holder.setTypes(Arrays.asList("integer", "string")); //$NON-NLS-1$ //$NON-NLS-2$
+		List<List> rows = new ArrayList<List>();
+		for (int i = 0; i < rowCount; i++) {
+			rows.add(Arrays.asList(Integer.valueOf(i), "name " + i)); //$NON-NLS-1$
+		}
+		holder.setRows(rows);
+		return holder;
+	}
+	
+	@Test
+	public void testGetAndPut() throws Exception {
+		ExpectedResultsCache cache = new ExpectedResultsCache(1024 * 1024);
+		File f = createFile("a.xml", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		assertNull(cache.get(f));
+		ExpectedResultsHolder holder = createHolder(10);
+		cache.put(f, holder);
+		assertSame(holder, cache.get(f));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+	
+	@Test
+	public void testChangedFile() throws Exception {
+		ExpectedResultsCache cache = new ExpectedResultsCache(1024 * 1024);
+		File f = createFile("b.xml", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put(f, createHolder(10));
+		
+		createFile("b.xml", "changed"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get(f));
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getSize());
+	}
+	
+	@Test
+	public void testEviction() throws Exception {
+		ExpectedResultsCache cache = new ExpectedResultsCache(100 * 1024);
+		File f1 = createFile("c1.xml", "c1"); //$NON-NLS-1$ //$NON-NLS-2$
+		File f2 = createFile("c2.xml", "c2"); //$NON-NLS-1$ //$NON-NLS-2$
+		File f3 = createFile("c3.xml", "c3"); //$NON-NLS-1$ //$NON-NLS-2$
+		File f4 = createFile("c4.xml", "c4"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		// about 40K each
+		cache.put(f1, createHolder(250));
+		cache.put(f2, createHolder(250));
+		// f1 is now the most recently used
+		cache.get(f1);
+		cache.put(f3, createHolder(250));
+		
+		assertEquals(2, cache.getEntryCount());
+		assertNull(cache.get(f2));
+		assertEquals(2, cache.getEntryCount());
+		
+		// too large to be cached
+		cache.put(f4, createHolder(10000));
+		assertNull(cache.get(f4));
+		assertEquals(2, cache.getEntryCount());
+	}
+	
+	@Test
+	public void testDisabled() throws Exception {
+		ExpectedResultsCache cache = new ExpectedResultsCache(0);
+		File f = createFile("d.xml", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put(f, createHolder(1));
+		assertNull(cache.get(f));
+	}
+
+}
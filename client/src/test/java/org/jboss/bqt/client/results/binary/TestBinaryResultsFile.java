@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.results.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.results.xml.XMLExpectedResultsRowReader;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.client.xml.XMLResultsStreamWriter;
+import org.jboss.bqt.core.util.FileUtils;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.junit.Test;
+
+/**
+ * Tests that XML expected results converted to binary expected results 
+ * read back the same.
+ */
+public class TestBinaryResultsFile {
+	
+	private static final String EXPECTED_RESULTS = "query_sets/test_query_set/expected_results"; //$NON-NLS-1$
+	
+	private static File getXMLFile(String queryID) {
+		return new File(UnitTestUtil.getTestDataPath(), 
+				EXPECTED_RESULTS + "/test_queries1/test_queries1_" + queryID + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	private static File convert(String queryID) throws Exception {
+		File binaryFile = new File(UnitTestUtil.getTestScratchPath(), 
+				"test_queries1_" + queryID + BinaryResultsFile.EXTENSION); //$NON-NLS-1$
+		binaryFile.getParentFile().mkdirs();
+		BinaryResultsConverter.convertFile(getXMLFile(queryID), binaryFile);
+		return binaryFile;
+	}
+	
+	@Test
+	public void testConvertResults() throws Exception {
+		File binaryFile = convert("Query1"); //$NON-NLS-1$
+		assertTrue(BinaryResultsFile.isBinaryResultsFile(binaryFile));
+		assertFalse(BinaryResultsFile.isBinaryResultsFile(getXMLFile("Query1"))); //$NON-NLS-1$
+		
+		QueryTest test = new QueryTest(null, "test_queries1", "Query1", null); //$NON-NLS-1$ //$NON-NLS-2$
+		ExpectedResultsHolder xml = XMLExpectedResultsRowReader.load(test, getXMLFile("Query1")); //$NON-NLS-1$
+		ExpectedResultsHolder binary = BinaryResultsReader.load(test, binaryFile);
+		
+		assertEquals(xml.getQuery(), binary.getQuery());
+		assertEquals(xml.getExecutionTime(), binary.getExecutionTime());
+		assertEquals(xml.getIdentifiers(), binary.getIdentifiers());
+		assertEquals(xml.getTypes(), binary.getTypes());
+		assertEquals(17, binary.getRows().size());
+		assertEquals(xml.getRows(), binary.getRows());
+		assertFalse(binary.isExceptionExpected());
+		
+		ExpectedResultsHolder header = BinaryResultsReader.loadHeader(test, binaryFile);
+		assertTrue(header.isRowsStreamed());
+		assertEquals(xml.getIdentifiers(), header.getIdentifiers());
+	}
+	
+	@Test
+	public void testConvertException() throws Exception {
+		File binaryFile = convert("Query2"); //$NON-NLS-1$
+		
+		QueryTest test = new QueryTest(null, "test_queries1", "Query2", null); //$NON-NLS-1$ //$NON-NLS-2$
+		ExpectedResultsHolder xml = XMLExpectedResultsRowReader.load(test, getXMLFile("Query2")); //$NON-NLS-1$
+		ExpectedResultsHolder binary = BinaryResultsReader.load(test, binaryFile);
+		
+		assertTrue(binary.isExceptionExpected());
+		assertEquals(xml.getQuery(), binary.getQuery());
+		assertEquals(xml.getExceptionClassName(), binary.getExceptionClassName());
+		assertEquals(xml.getExceptionMsg(), binary.getExceptionMsg());
+		assertEquals(xml.isExceptionStartsWith(), binary.isExceptionStartsWith());
+		assertEquals(xml.isExceptionContains(), binary.isExceptionContains());
+		assertNull(BinaryResultsReader.loadHeader(test, binaryFile));
+	}
+	
+	/**
+	 * The error file written from the binary expected results must be the same
+	 * as the one copied from the XML expected results.
+	 */
+	@Test
+	public void testWriteExpectedResults() throws Exception {
+		File binaryFile = convert("Query1"); //$NON-NLS-1$
+		
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		XMLResultsStreamWriter writer = new XMLResultsStreamWriter(xml);
+		writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
+		writer.writeExpectedResults(getXMLFile("Query1"), TagNames.Elements.EXPECTED_QUERY_RESULTS); //$NON-NLS-1$
+		writer.writeEndDocument();
+		writer.close();
+		
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		writer = new XMLResultsStreamWriter(binary);
+		writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
+		BinaryResultsReader reader = new BinaryResultsReader(binaryFile);
+		try {
+			writer.writeStartElement(TagNames.Elements.EXPECTED_QUERY_RESULTS);
+			assertEquals(17, writer.writeResults(reader.getIdentifiers(), reader.getTypes(), reader));
+			writer.writeEndElement();
+		} finally {
+			reader.close();
+		}
+		writer.writeEndDocument();
+		writer.close();
+		
+		assertEquals(xml.toString("UTF-8"), binary.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test
+	public void testConvertDirectory() throws Exception {
+		File xmlDir = new File(UnitTestUtil.getTestDataPath(), EXPECTED_RESULTS);
+		File binaryDir = new File(UnitTestUtil.getTestScratchPath(), "binary_results"); //$NON-NLS-1$
+		FileUtils.removeDirectoryAndChildren(binaryDir);
+		
+		int count = new BinaryResultsConverter(2).convert(xmlDir, binaryDir);
+		
+		assertTrue(count >= 2);
+		assertTrue(new File(binaryDir, "test_queries1/test_queries1_Query1" + BinaryResultsFile.EXTENSION).exists()); //$NON-NLS-1$
+		assertTrue(new File(binaryDir, "test_queries1/test_queries1_Query2" + BinaryResultsFile.EXTENSION).exists()); //$NON-NLS-1$
+	}
+
+}
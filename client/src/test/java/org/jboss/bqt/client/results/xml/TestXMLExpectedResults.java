@@ -26,18 +26,31 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
+import org.jboss.bqt.client.QuerySQL;
 import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
 import org.jboss.bqt.client.api.ExpectedResults;
 import org.jboss.bqt.client.api.ExpectedResultsReader;
 import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
 import org.jboss.bqt.client.results.xml.XMLCompareResults;
 import org.jboss.bqt.client.results.xml.XMLExpectedResultsReader;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
 import org.jboss.bqt.core.util.UnitTestUtil;
 import org.jboss.bqt.framework.ConfigPropertyLoader;
@@ -47,6 +60,8 @@ import org.jboss.bqt.framework.TestResult;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Tests primarily the various cloning scenarios available with PropertiesUtils
@@ -269,4 +284,204 @@ public class TestXMLExpectedResults {
 	}
 	
 
+    /**
+     * An ordered query is compared by reading the expected results file row by row
+     * @throws Exception
+     */
+    @Test
+	public void testCompareResults_Streamed() throws Exception {
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+		
+		System.setProperty("result.mode", "compare");	
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		System.setProperty("output.dir", UnitTestUtil.getTestOutputPath() + File.separator + "sqltest" );
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+		
+		Properties p = ConfigPropertyLoader.getInstance().getProperties();
+
+		QueryScenario set = QueryScenario.createInstance("testscenario",p);
+		QuerySQL[] sql = new QuerySQL[] {new QuerySQL("Select ACCOUNT_ID, SSN, STATUS, TYPE, DATEOPENED, DATECLOSED From ACCOUNT order by ACCOUNT_ID", null)};
+		QueryTest qt = new QueryTest(set.getQueryScenarioIdentifier(), "test_queries1", "Query1", sql);
+		TestResult testResult = new TestResult(qt.getQuerySetID(), qt.getQueryID());
+		
+		TestCase testcase = new TestCase(qt);
+		testcase.setTestResult(testResult);
+		
+		ExpectedResultsHolder es = (ExpectedResultsHolder) set.getExpectedResultsReaders(testcase).get(0).getExpectedResults(qt);
+		assertTrue(es.isRowsStreamed());
+		assertFalse(es.hasRows());
+		assertEquals(6, es.getIdentifiers().size());
+		
+		// the fully loaded rows are used as the actual results
+		ExpectedResultsHolder loaded = new XMLQueryVisitationStrategy().parseXMLResultsFile(qt, set.getQueryScenarioIdentifier(), es.getExpectedResultsFile());
+		List<List<Object>> rows = loaded.getRows();
+		assertEquals(17, rows.size());
+		
+		testResult.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+		XMLCompareResults compare = XMLCompareResults.create(set.getProperties());
+		
+		compare.compareResults(testcase, es, createResultSet(loaded, rows), true);
+		
+		// change a value in the 3rd row, the compare should stop there
+		List<List<Object>> changed = new ArrayList<List<Object>>(rows);
+		List<Object> row = new ArrayList<Object>(changed.get(2));
+		row.set(1, "CHANGED");
+		changed.set(2, row);
+		try {
+			compare.compareResults(testcase, es, createResultSet(loaded, changed), true);
+			fail("Expected the compare to fail");
+		} catch (QueryTestFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("row 3 and column 2") > 0);
+		}
+		
+		// fewer actual rows than expected
+		try {
+			compare.compareResults(testcase, es, createResultSet(loaded, rows.subList(0, 10)), true);
+			fail("Expected the compare to fail");
+		} catch (QueryTestFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("Expected 17 records but received only 10") > 0);
+		}
+	}
+    
+    /**
+     * An unordered query is sorted before comparing, the sort memory of 0 
+     * causes each row to be written to disk
+     * @throws Exception
+     */
+    @Test
+	public void testCompareResults_Sorted() throws Exception {
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+		
+		System.setProperty("result.mode", "compare");	
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		System.setProperty("output.dir", UnitTestUtil.getTestOutputPath() + File.separator + "sqltest" );
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+		
+		Properties p = ConfigPropertyLoader.getInstance().getProperties();
+
+		QueryScenario set = QueryScenario.createInstance("testscenario",p);
+		QueryTest qt = new QueryTest(set.getQueryScenarioIdentifier(), "test_queries1", "Query1", null);
+		TestResult testResult = new TestResult(qt.getQuerySetID(), qt.getQueryID());
+		
+		TestCase testcase = new TestCase(qt);
+		testcase.setTestResult(testResult);
+		
+		ExpectedResultsHolder es = (ExpectedResultsHolder) set.getExpectedResultsReaders(testcase).get(0).getExpectedResults(qt);
+		assertTrue(es.isRowsStreamed());
+		
+		ExpectedResultsHolder loaded = new XMLQueryVisitationStrategy().parseXMLResultsFile(qt, set.getQueryScenarioIdentifier(), es.getExpectedResultsFile());
+		List<List<Object>> rows = new ArrayList<List<Object>>(loaded.getRows());
+		Collections.reverse(rows);
+		
+		testResult.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+		Properties props = (Properties) set.getProperties().clone();
+		props.setProperty(TestProperties.PROP_COMPARE_SORT_MEMORY, "0");
+		XMLCompareResults compare = XMLCompareResults.create(props);
+		
+		compare.compareResults(testcase, es, createResultSet(loaded, rows), false);
+		
+		// a row that isn't expected
+		List<Object> row = new ArrayList<Object>(rows.get(5));
+		row.set(0, Integer.valueOf(1));
+		rows.set(5, row);
+		try {
+			compare.compareResults(testcase, es, createResultSet(loaded, rows), false);
+			fail("Expected the compare to fail");
+		} catch (QueryTestFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("row 1 and column 1") > 0);
+		}
+	}
+	
+    /**
+     * An unordered query compared by counting the row hashes
+     * @throws Exception
+     */
+    @Test
+	public void testCompareResults_Hashed() throws Exception {
+		System.setProperty("queryset.dirname", "test_query_set");
+		System.setProperty("test.queries.dirname", "test_queries");
+		System.setProperty("expected.results.dirname", "expected_results");	
+		
+		System.setProperty("result.mode", "compare");	
+		System.setProperty("project.data.path", UnitTestUtil.getTestDataPath());
+		System.setProperty("output.dir", UnitTestUtil.getTestOutputPath() + File.separator + "sqltest" );
+		System.setProperty(ConfigPropertyNames.CONFIG_FILE, UnitTestUtil.getTestDataPath() + File.separator + "localconfig.properties");		
+		
+		Properties p = ConfigPropertyLoader.getInstance().getProperties();
+
+		QueryScenario set = QueryScenario.createInstance("testscenario",p);
+		QueryTest qt = new QueryTest(set.getQueryScenarioIdentifier(), "test_queries1", "Query1", null);
+		TestResult testResult = new TestResult(qt.getQuerySetID(), qt.getQueryID());
+		
+		TestCase testcase = new TestCase(qt);
+		testcase.setTestResult(testResult);
+		
+		ExpectedResultsHolder es = (ExpectedResultsHolder) set.getExpectedResultsReaders(testcase).get(0).getExpectedResults(qt);
+		
+		ExpectedResultsHolder loaded = new XMLQueryVisitationStrategy().parseXMLResultsFile(qt, set.getQueryScenarioIdentifier(), es.getExpectedResultsFile());
+		List<List<Object>> rows = new ArrayList<List<Object>>(loaded.getRows());
+		Collections.reverse(rows);
+		
+		testResult.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+		Properties props = (Properties) set.getProperties().clone();
+		props.setProperty(TestProperties.PROP_COMPARE_UNORDERED, TestProperties.COMPARE_UNORDERED.HASH);
+		XMLCompareResults compare = XMLCompareResults.create(props);
+		
+		compare.compareResults(testcase, es, createResultSet(loaded, rows), false);
+		
+		// a string that only differs by trailing whitespace is equal
+		List<Object> row = new ArrayList<Object>(rows.get(3));
+		row.set(1, row.get(1) + "  ");
+		rows.set(3, row);
+		compare.compareResults(testcase, es, createResultSet(loaded, rows), false);
+		
+		row = new ArrayList<Object>(rows.get(5));
+		row.set(0, Integer.valueOf(1));
+		rows.set(5, row);
+		try {
+			compare.compareResults(testcase, es, createResultSet(loaded, rows), false);
+			fail("Expected the compare to fail");
+		} catch (QueryTestFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("1 of 17 records do not match") > 0);
+			assertTrue(e.getMessage(), e.getMessage().indexOf("Unexpected records: ") > 0);
+			assertTrue(e.getMessage(), e.getMessage().indexOf("Missing records: ") > 0);
+		}
+		
+		try {
+			compare.compareResults(testcase, es, createResultSet(loaded, rows.subList(0, 16)), false);
+			fail("Expected the compare to fail");
+		} catch (QueryTestFailedException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("Expected 17 records but received only 16") > 0);
+		}
+	}
+	
+    private static ResultSet createResultSet(final ExpectedResultsHolder holder, final List<List<Object>> rows) throws SQLException {
+    	ResultSetMetaData md = mock(ResultSetMetaData.class);
+    	when(md.getColumnCount()).thenReturn(holder.getIdentifiers().size());
+    	for (int i = 0; i < holder.getIdentifiers().size(); i++) {
+    		when(md.getColumnName(i + 1)).thenReturn((String) holder.getIdentifiers().get(i));
+    		when(md.getColumnTypeName(i + 1)).thenReturn((String) holder.getTypes().get(i));
+    	}
+    	
+    	final int[] current = new int[] {-1};
+    	ResultSet rs = mock(ResultSet.class);
+    	when(rs.getMetaData()).thenReturn(md);
+    	when(rs.next()).thenAnswer(new Answer<Boolean>() {
+			public Boolean answer(InvocationOnMock invocation) {
+				return ++current[0] < rows.size();
+			}
+		});
+    	when(rs.getObject(anyInt())).thenAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				int col = ((Integer) invocation.getArguments()[0]).intValue();
+				return rows.get(current[0]).get(col - 1);
+			}
+		});
+    	return rs;
+    }
+	
 }
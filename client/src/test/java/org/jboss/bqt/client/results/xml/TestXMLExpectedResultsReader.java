@@ -36,6 +36,8 @@ import org.jboss.bqt.client.QueryTest;
 import org.jboss.bqt.client.api.ExpectedResults;
 import org.jboss.bqt.client.api.ExpectedResultsReader;
 import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.xml.XMLQueryVisitationStrategy;
 import org.jboss.bqt.core.exception.FrameworkException;
 import org.jboss.bqt.core.exception.QueryTestFailedException;
 import org.jboss.bqt.core.util.UnitTestUtil;
@@ -268,4 +270,40 @@ public class TestXMLExpectedResultsReader {
 	}
 	
 
+	/**
+	 * The expected results read with the pull parser should be the same as those 
+	 * parsed into a document.
+	 * @throws Exception
+	 */
+	@Test
+	public void testLoadSameAsDocument() throws Exception {
+		File dir = new File(UnitTestUtil.getTestDataPath() + File.separator + "query_sets" + File.separator + "test_query_set" 
+				+ File.separator + "expected_results" + File.separator + "test_queries1");
+		XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+		
+		QueryTest qt = new QueryTest("testscenario", "test_queries1", "Query1", null);
+		File f = new File(dir, "test_queries1_Query1.xml");
+		ExpectedResultsHolder doc = jstrat.parseXMLResultsFile(qt, "test_queries1", f);
+		ExpectedResultsHolder stax = XMLExpectedResultsRowReader.load(qt, f);
+		
+		assertTrue(stax.isResult());
+		assertEquals(doc.getQuery(), stax.getQuery());
+		assertEquals(doc.getExecutionTime(), stax.getExecutionTime());
+		assertEquals(doc.getIdentifiers(), stax.getIdentifiers());
+		assertEquals(doc.getTypes(), stax.getTypes());
+		assertEquals(17, stax.getRows().size());
+		assertEquals(doc.getRows(), stax.getRows());
+		
+		qt = new QueryTest("testscenario", "test_queries1", "Query2", null);
+		f = new File(dir, "test_queries1_Query2.xml");
+		doc = jstrat.parseXMLResultsFile(qt, "test_queries1", f);
+		stax = XMLExpectedResultsRowReader.load(qt, f);
+		
+		assertTrue(stax.isExceptionExpected());
+		assertEquals(doc.getExceptionClassName(), stax.getExceptionClassName());
+		assertEquals(doc.getExceptionMsg(), stax.getExceptionMsg());
+		assertEquals(doc.isExceptionStartsWith(), stax.isExceptionStartsWith());
+		assertEquals(doc.isExceptionContains(), stax.isExceptionContains());
+	}
+	
 }
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.api.ExpectedResults;
+import org.jboss.bqt.client.api.ExpectedResultsReader;
+import org.jboss.bqt.client.results.ExpectedResultsHolder;
+import org.jboss.bqt.client.xml.TagNames;
+import org.jboss.bqt.framework.ActualTest;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TransactionAPI;
+import org.junit.Test;
+
+/**
+ * Tests the look ahead and memory budget of the ExpectedResultsPrefetcher
+ */
+@SuppressWarnings("rawtypes")
+public class TestExpectedResultsPrefetcher {
+	
+	/**
+	 * Records the query tests prefetched, each with 100 rows
+	 */
+	private static class RecordingReader extends ExpectedResultsReader {
+		final List<String> prefetched = Collections.synchronizedList(new ArrayList<String>());
+		
+		RecordingReader() {
+			super(null, "set", createProperties()); //$NON-NLS-1$
+		}
+		
+		@Override
+		public ExpectedResults getExpectedResults(ActualTest queryTest) {
+			return null;
+		}
+		
+		@Override
+		public ExpectedResults prefetchExpectedResults(ActualTest queryTest, long maxLength) {
+			prefetched.add(((QueryTest) queryTest).getQueryID());
+			ExpectedResultsHolder holder = new ExpectedResultsHolder(TagNames.Elements.QUERY_RESULTS, (QueryTest) queryTest);
+			List<List> rows = new ArrayList<List>();
+			for (int i = 0; i < 100; i++) {
+				rows.add(Arrays.asList(Integer.valueOf(i)));
+			}
+			holder.setRows(rows);
+			return holder;
+		}
+
+		@Override
+		public void compareResults(TestCase testCase, TransactionAPI transaction, ExpectedResults expectedResults, boolean isOrdered) {
+		}
+	}
+	
+	private static Properties createProperties() {
+		Properties props = new Properties();
+		props.setProperty(TestProperties.PROP_EXPECTED_RESULTS_DIR_LOC, "."); //$NON-NLS-1$
+		return props;
+	}
+	
+	private static List<QueryTest> createTests(int count) {
+		List<QueryTest> tests = new ArrayList<QueryTest>();
+		for (int i = 0; i < count; i++) {
+			tests.add(new QueryTest(null, "set", "Query" + i, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return tests;
+	}
+	
+	@Test
+	public void testLookAhead() throws Exception {
+		RecordingReader reader = new RecordingReader();
+		List<QueryTest> tests = createTests(5);
+		ExpectedResultsPrefetcher prefetcher = new ExpectedResultsPrefetcher(
+				Collections.<ExpectedResultsReader>singletonList(reader), tests, 2, 1024 * 1024, 1, "test"); //$NON-NLS-1$
+		try {
+			for (QueryTest test : tests) {
+				prefetcher.started(test);
+				prefetcher.await(test);
+				prefetcher.completed(test);
+			}
+			prefetcher.await(tests.get(4));
+			// each query test is prefetched once, in order
+			assertEquals(Arrays.asList("Query0", "Query1", "Query2", "Query3", "Query4"), reader.prefetched); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		} finally {
+			prefetcher.close();
+		}
+	}
+	
+	@Test
+	public void testMemoryBudget() throws Exception {
+		RecordingReader reader = new RecordingReader();
+		List<QueryTest> tests = createTests(3);
+		// the budget is used up by the results of one query test
+		ExpectedResultsPrefetcher prefetcher = new ExpectedResultsPrefetcher(
+				Collections.<ExpectedResultsReader>singletonList(reader), tests, 3, 1024, 1, "test"); //$NON-NLS-1$
+		try {
+			prefetcher.started(tests.get(0));
+			prefetcher.await(tests.get(0));
+			assertEquals(Arrays.asList("Query0"), reader.prefetched); //$NON-NLS-1$
+			
+			prefetcher.started(tests.get(1));
+			prefetcher.await(tests.get(1));
+			assertEquals(1, reader.prefetched.size());
+			
+			// comparing the first releases its results, so the next can be prefetched
+			prefetcher.completed(tests.get(0));
+			prefetcher.await(tests.get(1));
+			assertEquals(Arrays.asList("Query0", "Query1"), reader.prefetched); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			prefetcher.close();
+		}
+	}
+
+}
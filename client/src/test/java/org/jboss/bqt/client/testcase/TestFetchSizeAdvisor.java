@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.jboss.bqt.framework.util.ResultSetMonitor;
+import org.junit.Test;
+
+/**
+ * Tests the fetch sizes learned by the FetchSizeAdvisor
+ */
+public class TestFetchSizeAdvisor {
+	
+	private static final long MB = 1024L * 1024L;
+	
+	@Test
+	public void testComputeFetchSize() {
+		// a narrow, large scan from a fast server is fetched in many round trips
+		assertEquals(1001, FetchSizeAdvisor.computeFetchSize(1000000, 20, 1, 4 * MB));
+		// a slow server is given fewer, larger fetches
+		assertEquals(FetchSizeAdvisor.MAX_FETCH_SIZE, FetchSizeAdvisor.computeFetchSize(1000000, 20, 500, 4 * MB));
+		// all the rows of a small result are fetched at once
+		assertEquals(51, FetchSizeAdvisor.computeFetchSize(50, 20, 1000, 4 * MB));
+		assertEquals(FetchSizeAdvisor.MIN_FETCH_SIZE, FetchSizeAdvisor.computeFetchSize(0, 0, 1, 4 * MB));
+		// wide rows are bounded by the memory ceiling
+		assertEquals(40, FetchSizeAdvisor.computeFetchSize(1000000, 100 * 1024, 500, 4 * MB));
+		assertEquals(1, FetchSizeAdvisor.computeFetchSize(1000, 8 * MB, 500, 4 * MB));
+	}
+	
+	@Test
+	public void testLearnAndReload() throws Exception {
+		File file = new File(UnitTestUtil.getTestScratchPath(), "fetchsizes.properties"); //$NON-NLS-1$
+		file.getParentFile().mkdirs();
+		file.delete();
+		
+		QueryTest test = new QueryTest("scenario", "set", "query", new QuerySQL[0]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		
+		FetchSizeAdvisor advisor = new FetchSizeAdvisor(file, "scenario", 4 * MB, 100); //$NON-NLS-1$
+		assertEquals(100, advisor.getFetchSize(test));
+		
+		// not all the rows were read, so nothing is learned
+		ResultSetMonitor partial = readRows(50, 10, false);
+		assertFalse(partial.isExhausted());
+		advisor.learn(test, partial);
+		assertEquals(100, advisor.getFetchSize(test));
+		
+		ResultSetMonitor monitor = readRows(50, 10, true);
+		assertTrue(monitor.isExhausted());
+		assertEquals(50, monitor.getRowCount());
+		assertEquals(20, monitor.getAverageRowSize());
+		assertTrue(monitor.getFirstRowNanos() >= 0);
+		assertTrue(monitor.getFetchNanos() > 0);
+		advisor.learn(test, monitor);
+		
+		int learned = advisor.getFetchSize(test);
+		assertEquals(FetchSizeAdvisor.computeFetchSize(50, 20, monitor.getFirstRowTime(), 4 * MB), learned);
+		
+		advisor.save();
+		assertTrue(file.exists());
+		
+		assertEquals(learned, new FetchSizeAdvisor(file, "scenario", 4 * MB, 100).getFetchSize(test)); //$NON-NLS-1$
+		
+		// learned against another scenario's source, so it isn't used
+		FetchSizeAdvisor other = new FetchSizeAdvisor(file, "other", 4 * MB, 100); //$NON-NLS-1$
+		assertEquals(100, other.getFetchSize(test));
+		
+		// and what the other scenario learns doesn't replace it
+		other.learn(test, readRows(5000, 10, true));
+		other.save();
+		assertEquals(learned, new FetchSizeAdvisor(file, "scenario", 4 * MB, 100).getFetchSize(test)); //$NON-NLS-1$
+		assertEquals(other.getFetchSize(test), new FetchSizeAdvisor(file, "other", 4 * MB, 100).getFetchSize(test)); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Read the rows of a result set with a single string column, of the given length, 
+	 * through a monitor
+	 */
+	private static ResultSetMonitor readRows(final int rows, int length, boolean all) throws SQLException {
+		ResultSet rs = mock(ResultSet.class);
+		Boolean[] next = new Boolean[rows];
+		for (int i = 0; i < rows; i++) {
+			next[i] = Boolean.TRUE;
+		}
+		next[rows - 1] = Boolean.FALSE;
+		when(rs.next()).thenReturn(Boolean.TRUE, next);
+		when(rs.getObject(1)).thenReturn(new String(new char[length]));
+		
+		ResultSetMonitor monitor = ResultSetMonitor.monitor(rs, System.currentTimeMillis());
+		ResultSet monitored = monitor.getResultSet();
+		int read = 0;
+		while ((all || read < rows - 1) && monitored.next()) {
+			monitored.getObject(1);
+			read++;
+		}
+		return monitor;
+	}
+
+}
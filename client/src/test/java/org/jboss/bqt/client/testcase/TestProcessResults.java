@@ -0,0 +1,410 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.bqt.client.QuerySQL;
+import org.jboss.bqt.client.QueryTest;
+import org.jboss.bqt.client.TestProperties;
+import org.jboss.bqt.client.TestResultsSummary;
+import org.jboss.bqt.client.api.QueryScenario;
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.jboss.bqt.framework.AbstractQuery;
+import org.jboss.bqt.framework.TestCase;
+import org.jboss.bqt.framework.TestResult;
+import org.jboss.bqt.framework.TransactionAPI;
+import org.jboss.bqt.framework.connection.ConnectionStrategy;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests the execution of the query tests by ProcessResults, using a scenario that doesn't 
+ * process the results, and transactions whose connections are mocked.
+ */
+public class TestProcessResults {
+	
+	private Properties props;
+	private QueryScenario scenario;
+	private TestResultsSummary summary;
+	
+	@Before
+	public void setUp() throws Exception {
+		props = new Properties();
+		scenario = mock(QueryScenario.class);
+		summary = mock(TestResultsSummary.class);
+		when(scenario.getProperties()).thenReturn(props);
+		when(scenario.getQueryScenarioIdentifier()).thenReturn("scenario"); //$NON-NLS-1$
+		when(scenario.getResultsMode()).thenReturn(TestProperties.RESULT_MODES.NONE);
+		when(scenario.isNone()).thenReturn(Boolean.TRUE);
+		when(scenario.getTestResultsSummary()).thenReturn(summary);
+	}
+	
+	/**
+	 * @return a transaction whose statements are created by the connection
+	 */
+	static AbstractQuery createTransaction(final Connection connection) {
+		ConnectionStrategy strategy = new ConnectionStrategy(new Properties()) {
+			@Override
+			public Connection getConnection() {
+				return connection;
+			}
+		};
+		return new AbstractQuery(strategy) {
+		};
+	}
+	
+	static Connection createConnection(Statement statement) throws SQLException {
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement(anyInt(), anyInt())).thenReturn(statement);
+		return connection;
+	}
+	
+	/**
+	 * @return a transaction whose queries take a little while to execute, counting the 
+	 * most executing at once
+	 */
+	static AbstractQuery createCountingTransaction(final AtomicInteger inflight, final AtomicInteger maxInflight) {
+		try {
+			Statement statement = mock(Statement.class);
+			when(statement.execute(anyString())).thenAnswer(new Answer<Boolean>() {
+				public Boolean answer(InvocationOnMock invocation) throws Throwable {
+					int n = inflight.incrementAndGet();
+					try {
+						int max;
+						while ((max = maxInflight.get()) < n && !maxInflight.compareAndSet(max, n)) {
+							// retry
+						}
+						Thread.sleep(20);
+					} finally {
+						inflight.decrementAndGet();
+					}
+					return Boolean.FALSE;
+				}
+			});
+			return createTransaction(createConnection(statement));
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	static QueryTest createQueryTest(String queryID, int timeout) {
+		QuerySQL sql = new QuerySQL("select * from t", null); //$NON-NLS-1$
+		sql.setTimeout(timeout);
+		return new QueryTest("scenario", "set", queryID, new QuerySQL[] {sql}); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	/**
+	 * The driver ignores the query timeout, so the watchdog cancels the statement, and the 
+	 * test is recorded as timed out.
+	 */
+	@Test
+	public void testWatchdogCancelsHungQuery() throws Exception {
+		final CountDownLatch canceled = new CountDownLatch(1);
+		Statement statement = mock(Statement.class);
+		when(statement.execute(anyString())).thenAnswer(new Answer<Boolean>() {
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				if (!canceled.await(30, TimeUnit.SECONDS)) {
+					throw new AssertionError("the query wasn't canceled"); //$NON-NLS-1$
+				}
+				throw new SQLException("canceled", "HY008"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		});
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				canceled.countDown();
+				return null;
+			}
+		}).when(statement).cancel();
+		
+		AbstractQuery transaction = createTransaction(createConnection(statement));
+		ProcessResults process = new ProcessResults(scenario);
+		process.setup(transaction);
+		
+		long begin = System.currentTimeMillis();
+		TestResult result = process.processQueryTest(createQueryTest("Hung", 1), transaction); //$NON-NLS-1$
+		
+		verify(statement).setQueryTimeout(1);
+		verify(statement).cancel();
+		assertEquals(TestResult.RESULT_STATE.TEST_TIMEOUT, result.getStatus());
+		assertEquals(TestResult.RESULT_STATE_STRING.TIMEOUT, result.getResultStatusString());
+		assertTrue(result.isFailure());
+		// canceled after the timeout, and the grace period the driver is given
+		assertTrue(System.currentTimeMillis() - begin >= 1000);
+	}
+	
+	/**
+	 * The watchdog is stopped once the query returns, so processing the results for longer
+	 * than the timeout doesn't cancel the statement, and a mismatch isn't reported as a timeout.
+	 */
+	@Test
+	public void testWatchdogStoppedAfterExecute() throws Exception {
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(2500);
+				((TestCase) invocation.getArguments()[0]).getTestResult().setStatus(TestResult.RESULT_STATE.TEST_EXCEPTION);
+				return null;
+			}
+		}).when(scenario).handleTestResult(any(TestCase.class), any(TransactionAPI.class));
+		
+		Statement statement = mock(Statement.class);
+		AbstractQuery transaction = createTransaction(createConnection(statement));
+		ProcessResults process = new ProcessResults(scenario);
+		process.setup(transaction);
+		
+		TestResult result = process.processQueryTest(createQueryTest("Slow", 1), transaction); //$NON-NLS-1$
+		
+		verify(statement).setQueryTimeout(1);
+		verify(statement, never()).cancel();
+		assertEquals(TestResult.RESULT_STATE.TEST_EXCEPTION, result.getStatus());
+	}
+	
+	/**
+	 * The timeout of a query that doesn't specify one is derived from its p99 in the run history. 
+	 */
+	@Test
+	public void testTimeoutFromHistory() throws Exception {
+		File file = new File(UnitTestUtil.getTestScratchPath(), "runhistory_timeout.properties"); //$NON-NLS-1$
+		file.getParentFile().mkdirs();
+		file.delete();
+		
+		RunHistory history = new RunHistory(file, "scenario", 5, 3, 3.5); //$NON-NLS-1$
+		TestResult previous = new TestResult("set", "Learned"); //$NON-NLS-1$ //$NON-NLS-2$
+		previous.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+		previous.recordLatency(2500L * 1000000L);
+		history.record(previous);
+		history.save();
+		assertEquals(2500000, history.getHighestP99("set", "Learned")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		props.setProperty(TestProperties.PROP_HISTORY_ENABLED, "true"); //$NON-NLS-1$
+		props.setProperty(TestProperties.PROP_HISTORY_FILE, file.getAbsolutePath());
+		props.setProperty(TestProperties.PROP_QUERY_TIMEOUT_HISTORY_FACTOR, "3"); //$NON-NLS-1$
+		
+		Statement statement = mock(Statement.class);
+		AbstractQuery transaction = createTransaction(createConnection(statement));
+		ProcessResults process = new ProcessResults(scenario);
+		process.setup(transaction);
+		
+		// 2.5 seconds times 3, rounded up
+		TestResult result = process.processQueryTest(createQueryTest("Learned", -1), transaction); //$NON-NLS-1$
+		assertEquals(TestResult.RESULT_STATE.TEST_SUCCESS, result.getStatus());
+		verify(statement).setQueryTimeout(8);
+		
+		// the timeout specified by the query is used instead
+		process.processQueryTest(createQueryTest("Learned", 2), transaction); //$NON-NLS-1$
+		verify(statement).setQueryTimeout(2);
+		
+		// no history, and no default timeout
+		process.processQueryTest(createQueryTest("Unknown", -1), transaction); //$NON-NLS-1$
+		verify(statement, never()).setQueryTimeout(0);
+		verify(statement, atLeastOnce()).execute(anyString());
+	}
+
+	
+	/**
+	 * A benchmarked query records its warm-up executions as the cold latencies, and each 
+	 * measured iteration in the latencies, and only the results of its last execution are 
+	 * processed, which runtimes doesn't change to NONE.
+	 */
+	@Test
+	public void testBenchmark() throws Exception {
+		when(scenario.getResultsMode()).thenReturn(TestProperties.RESULT_MODES.COMPARE);
+		when(scenario.isNone()).thenReturn(Boolean.FALSE);
+		when(scenario.isCompare()).thenReturn(Boolean.TRUE);
+		final List<String> handled = new ArrayList<String>();
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				TestResult result = ((TestCase) invocation.getArguments()[0]).getTestResult();
+				handled.add(result.getResultMode() + " " + result.getUpdateCount()); //$NON-NLS-1$
+				return null;
+			}
+		}).when(scenario).handleTestResult(any(TestCase.class), any(TransactionAPI.class));
+		
+		Statement statement = mock(Statement.class);
+		// each execution updates one more row, to tell them apart
+		when(statement.getUpdateCount()).thenReturn(1, 2, 3, 4, 5);
+		AbstractQuery transaction = createTransaction(createConnection(statement));
+		ProcessResults process = new ProcessResults(scenario);
+		process.setup(transaction);
+		
+		QueryTest test = createQueryTest("Benchmark", -1); //$NON-NLS-1$
+		QuerySQL sql = test.getQueries()[0];
+		sql.setWarmup(2);
+		sql.setIterations(3);
+		sql.setRunTimes(10);
+		TestResult result = process.processQueryTest(test, transaction);
+		
+		verify(statement, times(5)).execute(anyString());
+		assertEquals(2, result.getColdLatencies().getCount());
+		assertEquals(3, result.getLatencies().getCount());
+		assertEquals(Collections.singletonList(TestProperties.RESULT_MODES.COMPARE + " 5"), handled); //$NON-NLS-1$
+	}
+	
+	/**
+	 * A batch of plain statements, followed by a batch of parameterized procedure calls, 
+	 * each checking the update count of its statements.
+	 */
+	@Test
+	public void testBatch() throws Exception {
+		Statement statement = mock(Statement.class);
+		CallableStatement call = mock(CallableStatement.class);
+		Connection connection = createConnection(statement);
+		when(connection.prepareCall("{?=call proc(?)}")).thenReturn(call); //$NON-NLS-1$
+		when(call.executeBatch()).thenReturn(new int[] {1, 1});
+		when(statement.executeBatch()).thenReturn(new int[] {1, 2});
+		
+		AbstractQuery transaction = createTransaction(connection);
+		ProcessResults process = new ProcessResults(scenario);
+		process.setup(transaction);
+		
+		TestResult result = process.processQueryTest(createBatchTest(), transaction);
+		assertEquals(TestResult.RESULT_STATE.TEST_SUCCESS, result.getStatus());
+		verify(statement).addBatch("insert into t values (1)"); //$NON-NLS-1$
+		verify(statement).addBatch("update t set x = 1"); //$NON-NLS-1$
+		verify(call).setObject(1, Integer.valueOf(1));
+		verify(call).setObject(1, Integer.valueOf(2));
+		verify(call, times(2)).addBatch();
+		
+		// the update is expected to change 2 rows
+		when(statement.executeBatch()).thenReturn(new int[] {1, 3});
+		result = process.processQueryTest(createBatchTest(), transaction);
+		assertEquals(TestResult.RESULT_STATE.TEST_EXCEPTION, result.getStatus());
+		verify(call).executeBatch();
+		
+		// the driver didn't return a count for the update
+		when(statement.executeBatch()).thenReturn(new int[] {1});
+		result = process.processQueryTest(createBatchTest(), transaction);
+		assertEquals(TestResult.RESULT_STATE.TEST_EXCEPTION, result.getStatus());
+		assertTrue(result.getException().getMessage(), result.getException().getMessage().contains("only 1 counts")); //$NON-NLS-1$
+		verify(call).executeBatch();
+	}
+	
+	private static QueryTest createBatchTest() {
+		QuerySQL insert = new QuerySQL("insert into t values (1)", null); //$NON-NLS-1$
+		insert.setUpdateCnt(1);
+		QuerySQL update = new QuerySQL("update t set x = 1", null); //$NON-NLS-1$
+		update.setUpdateCnt(2);
+		QuerySQL call1 = new QuerySQL("exec proc(?)", new Object[] {Integer.valueOf(1)}); //$NON-NLS-1$
+		call1.setUpdateCnt(1);
+		QuerySQL call2 = new QuerySQL("exec proc(?)", new Object[] {Integer.valueOf(2)}); //$NON-NLS-1$
+		call2.setUpdateCnt(1);
+		QueryTest test = new QueryTest("scenario", "set", "Batch", new QuerySQL[] {insert, update, call1, call2}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		test.setBatch(true);
+		return test;
+	}
+	
+	/**
+	 * The query tests executed by the workers are added to the summary in the same order,
+	 * and with the same results, as when executed serially, and no more than the number of
+	 * threads are executing at once.
+	 */
+	@Test
+	public void testExecuteInParallel() throws Exception {
+		assertParallelExecution(false);
+	}
+	
+	/**
+	 * The same, executing each query test on its own thread, with the in-flight cap.
+	 */
+	@Test
+	public void testExecutePerQuery() throws Exception {
+		assertParallelExecution(true);
+	}
+	
+	private void assertParallelExecution(boolean perQuery) throws Exception {
+		List<QueryTest> queryTests = new ArrayList<QueryTest>();
+		for (int i = 1; i <= 12; i++) {
+			queryTests.add(createQueryTest("Query" + i, -1)); //$NON-NLS-1$
+		}
+		when(scenario.getQuerySetIDs()).thenReturn(Collections.singletonList("set")); //$NON-NLS-1$
+		when(scenario.getQueries("set")).thenReturn(queryTests); //$NON-NLS-1$
+		
+		AtomicInteger maxInflight = new AtomicInteger();
+		List<String> serial = runQuerySet(1, perQuery, maxInflight);
+		assertEquals(12, serial.size());
+		assertEquals("Query1 pass", serial.get(0)); //$NON-NLS-1$
+		assertEquals(1, maxInflight.get());
+		
+		maxInflight.set(0);
+		List<String> parallel = runQuerySet(3, perQuery, maxInflight);
+		assertEquals(serial, parallel);
+		assertTrue("in-flight " + maxInflight.get(), maxInflight.get() > 1 && maxInflight.get() <= 3); //$NON-NLS-1$
+	}
+	
+	/**
+	 * @return the query tests, and their status, in the order they're added to the summary
+	 */
+	private List<String> runQuerySet(int threads, boolean perQuery, final AtomicInteger maxInflight) {
+		props.setProperty(TestProperties.PROP_EXECUTION_THREADS, String.valueOf(threads));
+		props.setProperty(TestProperties.PROP_EXECUTION_VIRTUAL_THREADS, String.valueOf(perQuery));
+		
+		final List<String> added = new ArrayList<String>();
+		TestResultsSummary summary = mock(TestResultsSummary.class);
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				TestResult result = (TestResult) invocation.getArguments()[1];
+				added.add(result.getQueryID() + " " + result.getResultStatusString()); //$NON-NLS-1$
+				return null;
+			}
+		}).when(summary).addTest(anyString(), any(TestResult.class));
+		when(scenario.getTestResultsSummary()).thenReturn(summary);
+		
+		final AtomicInteger inflight = new AtomicInteger();
+		ProcessResults process = new ProcessResults(scenario) {
+			@Override
+			protected TransactionAPI createTransaction() {
+				return createCountingTransaction(inflight, maxInflight);
+			}
+		};
+		process.setup(createCountingTransaction(inflight, maxInflight));
+		process.runTestCase();
+		return added;
+	}
+
+}
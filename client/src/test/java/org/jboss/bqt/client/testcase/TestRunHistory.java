@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.testcase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.jboss.bqt.framework.TestResult;
+import org.junit.Test;
+
+/**
+ * Tests the regressions detected by the RunHistory
+ */
+public class TestRunHistory {
+	
+	private static TestResult result(long micros) {
+		TestResult r = new TestResult("set", "query"); //$NON-NLS-1$ //$NON-NLS-2$
+		r.setStatus(TestResult.RESULT_STATE.TEST_SUCCESS);
+		r.recordLatency(micros * 1000);
+		return r;
+	}
+	
+	@Test
+	public void testDetect() {
+		long[] runs = new long[] {100, 102, 98, 101, 99, 100, 500};
+		// the outlier in the previous runs doesn't hide a regression
+		assertNotNull(RunHistory.detect("q", 130, runs, 3.5)); //$NON-NLS-1$
+		assertNull(RunHistory.detect("q", 103, runs, 3.5)); //$NON-NLS-1$
+		// faster is never a regression
+		assertNull(RunHistory.detect("q", 10, runs, 3.5)); //$NON-NLS-1$
+		
+		// runs that didn't vary still need to be slower by the minimum increase
+		long[] stable = new long[] {100, 100, 100, 100, 100};
+		assertNull(RunHistory.detect("q", 105, stable, 3.5)); //$NON-NLS-1$
+		assertNotNull(RunHistory.detect("q", 120, stable, 3.5)); //$NON-NLS-1$
+		
+		assertEquals(100.5, RunHistory.median(new long[] {100, 101}), 0);
+	}
+	
+	@Test
+	public void testRecordAndReload() throws Exception {
+		File file = new File(UnitTestUtil.getTestScratchPath(), "runhistory.properties"); //$NON-NLS-1$
+		file.getParentFile().mkdirs();
+		file.delete();
+		
+		RunHistory history = new RunHistory(file, "scenario", 5, 3, 3.5); //$NON-NLS-1$
+		long[] latencies = new long[] {1000, 1010, 990, 1005, 995, 1000};
+		for (int i = 0; i < latencies.length; i++) {
+			assertNull(history.record(result(latencies[i])));
+		}
+		// only the last runs are kept
+		assertEquals(5, history.getRuns("scenario.set.query").length); //$NON-NLS-1$
+		
+		TestResult failed = result(5000);
+		failed.setStatus(TestResult.RESULT_STATE.TEST_EXCEPTION);
+		assertNull(history.record(failed));
+		
+		history.save();
+		assertTrue(file.exists());
+		
+		RunHistory reloaded = new RunHistory(file, "scenario", 5, 3, 3.5); //$NON-NLS-1$
+		assertEquals(5, reloaded.getRuns("scenario.set.query").length); //$NON-NLS-1$
+		assertNotNull(reloaded.record(result(2000)));
+		assertEquals(1, reloaded.getRegressions().size());
+		
+		File report = new File(UnitTestUtil.getTestScratchPath(), "Regressions_test.txt"); //$NON-NLS-1$
+		reloaded.writeReport(report, "test"); //$NON-NLS-1$
+		assertTrue(report.length() > 0);
+	}
+	
+	@Test
+	public void testScenariosShareFile() throws Exception {
+		File file = new File(UnitTestUtil.getTestScratchPath(), "runhistory_shared.properties"); //$NON-NLS-1$
+		file.getParentFile().mkdirs();
+		file.delete();
+		
+		// both are loaded before either is saved, as when the scenarios run at the same time
+		RunHistory first = new RunHistory(file, "first", 5, 3, 3.5); //$NON-NLS-1$
+		RunHistory second = new RunHistory(file, "second", 5, 3, 3.5); //$NON-NLS-1$
+		first.record(result(1000));
+		second.record(result(5000));
+		second.save();
+		first.save();
+		
+		RunHistory reloaded = new RunHistory(file, "first", 5, 3, 3.5); //$NON-NLS-1$
+		assertArrayEquals(new long[] {1000}, reloaded.getRuns("first.set.query")); //$NON-NLS-1$
+		assertArrayEquals(new long[] {5000}, reloaded.getRuns("second.set.query")); //$NON-NLS-1$
+		// the other scenario's latencies aren't compared
+		assertEquals("first.set.query", reloaded.getKey(result(1000))); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("rawtypes")
+public class TestExternalRecordSorter {
+	
+	private static List<List> createRecords(int cnt) {
+		Random r = new Random(11);
+		List<List> records = new ArrayList<List>(cnt);
+		for (int i = 0; i < cnt; i++) {
+			List<Object> record = new ArrayList<Object>(3);
+			record.add(Integer.valueOf(r.nextInt(50)));
+			record.add(r.nextBoolean() ? null : "value" + r.nextInt(10));
+			// not part of the sort, used to verify equal records stay in the order added
+			record.add(Integer.valueOf(i));
+			records.add(record);
+		}
+		return records;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void assertSorted(long memory, int cnt, boolean spilled) {
+		ListNestedSortComparator comparator = new ListNestedSortComparator(new int[] {0, 1}, true);
+		List<List> records = createRecords(cnt);
+		
+		ExternalRecordSorter sorter = new ExternalRecordSorter(comparator, memory);
+		try {
+			for (List record : records) {
+				sorter.add(record);
+			}
+			assertEquals(cnt, sorter.size());
+			assertEquals(spilled, sorter.getRunCount() > 0);
+			
+			Collections.sort(records, comparator);
+			
+			Iterator<List> it = sorter.sortedIterator();
+			for (List record : records) {
+				assertTrue(it.hasNext());
+				assertEquals(record, it.next());
+			}
+			assertFalse(it.hasNext());
+		} finally {
+			sorter.close();
+		}
+	}
+	
+	@Test
+	public void testInMemory() throws Exception {
+		assertSorted(1024 * 1024, 500, false);
+	}
+
+	@Test
+	public void testSpilled() throws Exception {
+		assertSorted(2048, 1000, true);
+	}
+	
+	@Test
+	public void testEmpty() throws Exception {
+		assertSorted(0, 0, false);
+	}
+
+}
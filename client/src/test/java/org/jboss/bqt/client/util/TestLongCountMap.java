@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestLongCountMap {
+
+	@Test
+	public void testCounts() throws Exception {
+		LongCountMap map = new LongCountMap(4);
+		
+		// enough keys to cause several resizes, 0 is a valid key
+		for (long k = 0; k < 5000; k++) {
+			assertEquals(1, map.add(k * 31, 1));
+		}
+		assertEquals(2, map.add(0, 1));
+		assertEquals(5000, map.size());
+		assertEquals(5001, map.sumPositive());
+		
+		for (long k = 0; k < 5000; k++) {
+			assertEquals(k == 0 ? 1 : 0, map.add(k * 31, -1));
+		}
+		assertEquals(1, map.get(0));
+		assertEquals(0, map.get(31));
+		assertEquals(0, map.get(-1));
+		assertEquals(1, map.sumPositive());
+		
+		assertEquals(-1, map.add(-1, -1));
+		assertEquals(5001, map.size());
+		assertEquals(1, map.sumPositive());
+	}
+
+}
@@ -22,10 +22,12 @@
 
 package org.jboss.bqt.client.xml;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.List;
 import java.util.Properties;
 
 import org.jboss.bqt.client.QueryTest;
@@ -156,5 +158,19 @@ public class TestXMLQueryVisitationStrategy {
 		assertFalse(expectedResult.isExceptionExpected());
 
 	}
+	
+	@Test
+	public void testQueryTimeout() throws Exception {
+		XMLQueryVisitationStrategy jstrat = new XMLQueryVisitationStrategy();
+
+		String filename = UnitTestUtil.getTestDataPath() + File.separator + "query_sets" + File.separator + "test_query_set" 
+				+ File.separator + "test_queries" + File.separator + "test_queries1.xml";
+		List<QueryTest> queries = jstrat.parseXMLQueryFile("testscenario", new File(filename), "test_queries1");
+		
+		assertEquals(2, queries.size());
+		// no timeout specified, so the default will be used
+		assertEquals(-1, queries.get(0).getQueries()[0].getTimeout());
+		assertEquals(30, queries.get(1).getQueries()[0].getTimeout());
+	}
  
 }
@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.client.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.bqt.core.util.UnitTestUtil;
+import org.jboss.bqt.core.xml.JdomHelper;
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * These tests verify XMLResultsStreamWriter writes the same bytes as the
+ * JDOM documents it replaces
+ */
+public class TestXMLResultsStreamWriter {
+	
+	private static final String[] NAMES = new String[] {"StringKey", "IntKey", "CharValue", "BooleanValue", "TimestampValue", "BigDecimalValue"}; 
+	private static final String[] TYPES = new String[] {"string", "integer", "char", "boolean", "timestamp", "bigdecimal"}; 
+	
+	private static final String QUERY = "  SELECT StringKey, IntKey \r\n FROM BQT1.SmallA WHERE StringKey < '5' & IntKey > 1  "; 
+
+	@Test
+	public void testWriteResults() throws Exception {
+		List<List<Object>> rows = new ArrayList<List<Object>>();
+		rows.add(Arrays.asList(new Object[] {"1", Integer.valueOf(1), Character.valueOf('a'), Boolean.TRUE, new Timestamp(0), new BigDecimal("1.50")}));
+		rows.add(Arrays.asList(new Object[] {"", Integer.valueOf(-2), Character.valueOf(' '), Boolean.FALSE, null, null}));
+		rows.add(Arrays.asList(new Object[] {"  padded  ", null, null, null, null, new BigDecimal("0")}));
+		rows.add(Arrays.asList(new Object[] {"a<b & c>\"d\" 'e'", Integer.valueOf(4), Character.valueOf('<'), Boolean.TRUE, new Timestamp(1000), null}));
+		rows.add(Arrays.asList(new Object[] {"line1\r\nline2\n\ttabbed", Integer.valueOf(5), null, null, null, null}));
+		rows.add(Arrays.asList(new Object[] {"é中", Integer.valueOf(6), null, null, null, null}));
+		
+		assertEquals(writeJDOMResults(rows), writeStreamedResults(rows));
+	}
+	
+	@Test
+	public void testWriteResults_NoRows() throws Exception {
+		List<List<Object>> rows = new ArrayList<List<Object>>();
+
+		String streamed = writeStreamedResults(rows);
+		assertEquals(writeJDOMResults(rows), streamed);
+		assertTrue(streamed, streamed.indexOf("<table rowCount=\"0\" columnCount=\"6\" />") > 0);
+	}
+
+	@Test
+	public void testWriteResults_Spooled() throws Exception {
+		// enough rows to be spooled to a temporary file
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			value.append((char) ('a' + (i % 26)));
+		}
+		List<List<Object>> rows = new ArrayList<List<Object>>();
+		for (int i = 0; i < 2000; i++) {
+			rows.add(Arrays.asList(new Object[] {value.toString(), Integer.valueOf(i), null, null, null, null}));
+		}
+		
+		assertEquals(writeJDOMResults(rows), writeStreamedResults(rows));
+	}
+	
+	@Test
+	public void testWriteErrorResults() throws Exception {
+		File expectedResults = new File(UnitTestUtil.getTestDataPath(), 
+				"query_sets/test_query_set/expected_results/test_queries1/test_queries1_Query1.xml");
+		File expectedException = new File(UnitTestUtil.getTestDataPath(), 
+				"query_sets/test_query_set/expected_results/test_queries1/test_queries1_Query2.xml");
+		File missing = new File(UnitTestUtil.getTestDataPath(), "no_such_file.xml");
+		
+		Throwable ex = new SQLException("Error \r\n in <query> & \"more\"");
+
+		assertEquals(writeJDOMError(ex, expectedResults, TagNames.Elements.EXPECTED_QUERY_RESULTS), 
+				writeStreamedError(ex, expectedResults, TagNames.Elements.EXPECTED_QUERY_RESULTS));
+		assertEquals(writeJDOMError(ex, expectedException, TagNames.Elements.EXPECTED_EXCEPTION), 
+				writeStreamedError(ex, expectedException, TagNames.Elements.EXPECTED_EXCEPTION));
+		
+		String streamed = writeStreamedError(ex, missing, TagNames.Elements.EXPECTED_QUERY_RESULTS);
+		assertTrue(streamed, streamed.indexOf("<exceptionType>FileNotFoundException</exceptionType>") > 0);
+	}
+	
+	private static String writeJDOMResults(List<List<Object>> rows) throws Exception {
+		Element rootElement = new Element(TagNames.Elements.ROOT_ELEMENT);
+		Element queryElement = new Element(TagNames.Elements.QUERY);
+		queryElement.addContent(new CDATA(QUERY));
+		rootElement.addContent(queryElement);
+		
+		Element resultsElement = new XMLQueryVisitationStrategy().produceResults(createResultSet(rows));
+		resultsElement.setAttribute(new Attribute(TagNames.Attributes.NAME, "set_query"));
+		resultsElement.setAttribute(new Attribute(TagNames.Attributes.EXECUTION_TIME, "10"));
+		rootElement.addContent(resultsElement);
+		
+		return output(rootElement);
+	}
+
+	private static String writeStreamedResults(List<List<Object>> rows) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		XMLResultsStreamWriter writer = new XMLResultsStreamWriter(stream);
+		writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
+		writer.writeCDataElement(TagNames.Elements.QUERY, QUERY);
+		writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, 
+				TagNames.Attributes.NAME, "set_query", 
+				TagNames.Attributes.EXECUTION_TIME, "10");
+		assertEquals(rows.size(), writer.writeResults(createResultSet(rows)));
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close();
+		return stream.toString("UTF-8");
+	}
+
+	private static String writeJDOMError(Throwable ex, File expectedFile, String expectedName) throws Exception {
+		Element rootElement = new Element(TagNames.Elements.ROOT_ELEMENT);
+		Element resultElement = new Element(TagNames.Elements.QUERY_RESULTS);
+		resultElement.setAttribute(new Attribute(TagNames.Attributes.NAME, "query"));
+		resultElement.setAttribute(new Attribute(TagNames.Attributes.VALUE, QUERY));
+		
+		Element actualExceptionElement = new Element(TagNames.Elements.ACTUAL_EXCEPTION);
+		resultElement.addContent(XMLQueryVisitationStrategy.jdomException(ex, actualExceptionElement));
+		
+		Element expectedResult = new XMLQueryVisitationStrategy().parseXMLResultsFile(expectedFile, new Element("bogus"));
+		expectedResult.setName(expectedName);
+		resultElement.addContent(expectedResult);
+		rootElement.addContent(resultElement);
+
+		return output(rootElement);
+	}
+
+	private static String writeStreamedError(Throwable ex, File expectedFile, String expectedName) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		XMLResultsStreamWriter writer = new XMLResultsStreamWriter(stream);
+		writer.writeStartDocument(TagNames.Elements.ROOT_ELEMENT);
+		writer.writeStartElement(TagNames.Elements.QUERY_RESULTS, 
+				TagNames.Attributes.NAME, "query", 
+				TagNames.Attributes.VALUE, QUERY);
+		writer.writeException(TagNames.Elements.ACTUAL_EXCEPTION, ex);
+		writer.writeExpectedResults(expectedFile, expectedName);
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close();
+		return stream.toString("UTF-8");
+	}
+
+	private static String output(Element rootElement) throws Exception {
+		OutputStream stream = new ByteArrayOutputStream();
+		XMLOutputter outputter = new XMLOutputter(JdomHelper.getFormat("  ", true)); //$NON-NLS-1$
+		outputter.output(new Document(rootElement), stream);
+		return ((ByteArrayOutputStream) stream).toString("UTF-8");
+	}
+	
+	private static ResultSet createResultSet(final List<List<Object>> rows) throws SQLException {
+		ResultSetMetaData md = mock(ResultSetMetaData.class);
+		when(md.getColumnCount()).thenReturn(NAMES.length);
+		for (int i = 0; i < NAMES.length; i++) {
+			when(md.getColumnName(i + 1)).thenReturn(NAMES[i]);
+			when(md.getColumnTypeName(i + 1)).thenReturn(TYPES[i]);
+		}
+		
+		final int[] current = new int[] {-1};
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getMetaData()).thenReturn(md);
+		when(rs.next()).thenAnswer(new Answer<Boolean>() {
+			public Boolean answer(InvocationOnMock invocation) {
+				return ++current[0] < rows.size();
+			}
+		});
+		when(rs.getObject(anyInt())).thenAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				int col = ((Integer) invocation.getArguments()[0]).intValue();
+				return rows.get(current[0]).get(col - 1);
+			}
+		});
+		return rs;
+	}
+
+}
@@ -29,7 +29,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.jboss.bqt.core.exception.FrameworkException;
@@ -41,6 +48,7 @@ import org.jboss.bqt.framework.connection.ConnectionStrategy;
 import org.jboss.bqt.framework.connection.ConnectionStrategyFactory;
 import org.jboss.bqt.framework.util.AssertResults;
 import org.jboss.bqt.framework.util.PrintResults;
+import org.jboss.bqt.framework.util.ResultSetMonitor;
 
 
 /**
@@ -68,6 +76,32 @@ public abstract class AbstractQuery implements TransactionAPI {
 	
 	private String testClassName = "n/a";
 	
+	/**
+	 * The number of milliseconds, after the query timeout, the watchdog will wait before
+	 * it cancels the query.  This allows the driver to enforce the timeout first.
+	 */
+	private static final long WATCHDOG_GRACE_MILLIS = 1000;
+	
+	private static ScheduledExecutorService WATCHDOG = null;
+	
+	// seconds, 0 indicates no timeout
+	private int queryTimeout = 0;
+	private ScheduledFuture<?> watchdog = null;
+	private boolean timedOut = false;
+	// set by the watchdog when it cancels the statement
+	private volatile boolean canceled = false;
+	
+	// the number of rows fetched from the server at a time, 0 leaves it to the driver
+	private int fetchSize = 0;
+	private boolean forwardOnly = false;
+	
+	private boolean monitorResults = false;
+	private ResultSetMonitor resultSetMonitor = null;
+	
+	private int statementCacheSize = 0;
+	// true when the current statement is held by the statement cache, and therefore isn't closed
+	private boolean statementCached = false;
+	
 	private TestCase testCase = null;
 
 	public AbstractQuery() {
@@ -80,6 +114,31 @@ public abstract class AbstractQuery implements TransactionAPI {
 
 	}
 	
+	/**
+	 * @param props the configuration properties used to create the connection strategy
+	 */
+	public AbstractQuery(Properties props) {
+		
+		this.testClassName = StringUtils.substringAfterLast(this.getClass().getName(),
+		".");
+
+		connStrategy = ConnectionStrategyFactory
+					.createConnectionStrategy(props);
+
+	}
+	
+	/**
+	 * @param strategy the connection strategy, which has already been configured
+	 */
+	protected AbstractQuery(ConnectionStrategy strategy) {
+		
+		this.testClassName = StringUtils.substringAfterLast(this.getClass().getName(),
+		".");
+
+		connStrategy = strategy;
+
+	}
+	
 	/*************************  
 	 * LifeCycle Methods
 	 *************************/
@@ -93,6 +152,8 @@ public abstract class AbstractQuery implements TransactionAPI {
 		
 		this.applicationException = null;
 		this.internalException = null;
+		this.timedOut = false;
+		this.canceled = false;
 		
 		try {
 			this.setConnection(this.connStrategy.getConnection());
@@ -121,9 +182,14 @@ public abstract class AbstractQuery implements TransactionAPI {
 		closeStatement();
 		// don't clear connection, it will be reused,
 		// just clear it out
+		this.connStrategy.releaseConnection();
 		this.internalConnection = null;
 		this.internalException = null;
 		this.applicationException = null;
+		this.timedOut = false;
+		this.canceled = false;
+		this.queryTimeout = 0;
+		recordFetchTimes();
 	}
 	
 	public ConnectionStrategy getConnectionStrategy() {
@@ -152,6 +218,109 @@ public abstract class AbstractQuery implements TransactionAPI {
 		return this.internalResultSet;
 	}
 	
+	/**
+	 * Set the timeout, in seconds, for the next query executed.  The timeout is
+	 * set on the statement, and a watchdog will cancel the query if it's still executing
+	 * shortly after the timeout.  The watchdog is stopped once the statement returns, 
+	 * so it doesn't cancel the query while the results are compared.  The timeout 
+	 * is cleared by {@link #cleanup()}.
+	 * @param seconds, zero or less indicates no timeout
+	 */
+	public void setQueryTimeout(int seconds) {
+		this.queryTimeout = (seconds > 0 ? seconds : 0);
+	}
+	
+	public int getQueryTimeout() {
+		return this.queryTimeout;
+	}
+	
+	/**
+	 * Set the number of rows the driver should fetch from the server at a time 
+	 * for the queries executed.
+	 * @param rows, zero leaves the fetch size to the driver
+	 */
+	public void setFetchSize(int rows) {
+		this.fetchSize = rows;
+	}
+	
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+	
+	/**
+	 * Set whether the queries executed create forward only result sets, which
+	 * the driver can stream from the server, instead of scrollable result sets.
+	 * @param forwardOnly
+	 */
+	public void setForwardOnly(boolean forwardOnly) {
+		this.forwardOnly = forwardOnly;
+	}
+	
+	public boolean isForwardOnly() {
+		return this.forwardOnly;
+	}
+	
+	/**
+	 * Set whether the result sets of the queries executed are {@link ResultSetMonitor monitored}
+	 * while they're read.
+	 * @param monitorResults
+	 */
+	public void setMonitorResults(boolean monitorResults) {
+		this.monitorResults = monitorResults;
+	}
+	
+	/**
+	 * Set the number of prepared (and callable) statements that are cached for the connection, 
+	 * so the statement is reused when the same SQL is executed again.
+	 * @param size, zero or less indicates the statements aren't cached
+	 */
+	public void setStatementCacheSize(int size) {
+		this.statementCacheSize = (size > 0 ? size : 0);
+	}
+	
+	public int getStatementCacheSize() {
+		return this.statementCacheSize;
+	}
+	
+	/**
+	 * @return the monitor of the result set of the last query executed, or <code>null</code>
+	 * when results aren't monitored or the query didn't return a result set
+	 */
+	public ResultSetMonitor getResultSetMonitor() {
+		return this.resultSetMonitor;
+	}
+	
+	/**
+	 * @return the nanoseconds spent reading the result set of the last query executed, 
+	 * or 0 when results aren't monitored
+	 */
+	public long getFetchNanos() {
+		return (this.resultSetMonitor != null ? this.resultSetMonitor.getFetchNanos() : 0);
+	}
+	
+	/**
+	 * Add the time spent reading the monitored result set to the {@link TestResult}, 
+	 * and stop monitoring it.
+	 */
+	private void recordFetchTimes() {
+		ResultSetMonitor monitor = this.resultSetMonitor;
+		this.resultSetMonitor = null;
+		if (monitor == null || this.testCase == null) {
+			return;
+		}
+		TestResult tr = this.testCase.getTestResult();
+		tr.addPhaseTime(TestResult.PHASE.FETCH, monitor.getFetchNanos());
+		tr.addPhaseTime(TestResult.PHASE.FIRST_ROW, monitor.getFirstRowNanos());
+	}
+	
+	/**
+	 * @return true if the last query executed failed because it exceeded the 
+	 * {@link #setQueryTimeout(int) query timeout}, and was canceled by the driver or the watchdog
+	 */
+	public boolean isTimedOut() {
+		return this.timedOut;
+	}
+	
 		
 	/**
 	 * @param sql 
@@ -170,8 +339,11 @@ public abstract class AbstractQuery implements TransactionAPI {
 	
 	public boolean execute(String sql, Object[] params, Serializable payload) throws QueryTestFailedException {
 		closeStatement();
+		recordFetchTimes();
 		long endTS = 0;
 		long beginTS = 0;
+		long beginNanos = 0;
+		long endNanos = 0;
 
 		boolean result = false;
 
@@ -181,38 +353,55 @@ public abstract class AbstractQuery implements TransactionAPI {
 			
 			if (params != null && params.length > 0) {
 				if (sql.toLowerCase().startsWith("exec ")) { //$NON-NLS-1$
-					sql = sql.substring(5);
-					this.internalStatement = createPrepareCallStatement(sql);
+					this.internalStatement = prepareStatement(sql.substring(5), true);
 				} else {
-					this.internalStatement = createPrepareStatement(sql);
+					this.internalStatement = prepareStatement(sql, false);
 				}
 				
 				setParameters((PreparedStatement) this.internalStatement,
 						params);
 				assignExecutionProperties(this.internalStatement);
 				this.setPayload(this.internalStatement, payload);
+				startWatchdog(this.internalStatement);
 				
 				beginTS = System.currentTimeMillis();
+				beginNanos = System.nanoTime();
 
-				result = ((PreparedStatement) this.internalStatement).execute();
+				try {
+					result = ((PreparedStatement) this.internalStatement).execute();
+				} finally {
+					stopWatchdog();
+				}
 								
+				endNanos = System.nanoTime();
 				endTS = System.currentTimeMillis();
 				
 			} else {
 				this.internalStatement = createStatement();
 				assignExecutionProperties(this.internalStatement);
 //				this.setPayload(this.internalStatement, payload);
+				startWatchdog(this.internalStatement);
 
 				beginTS = System.currentTimeMillis();
+				beginNanos = System.nanoTime();
 
-				result = this.internalStatement.execute(sql);
+				try {
+					result = this.internalStatement.execute(sql);
+				} finally {
+					stopWatchdog();
+				}
 				
+				endNanos = System.nanoTime();
 				endTS = System.currentTimeMillis();
 								
 			}
 
 			if (result) {
 				this.internalResultSet = this.internalStatement.getResultSet();
+				if (this.monitorResults && this.internalResultSet != null) {
+					this.resultSetMonitor = ResultSetMonitor.monitor(this.internalResultSet, beginTS);
+					this.internalResultSet = this.resultSetMonitor.getResultSet();
+				}
 				
 			} else {
 				
@@ -225,15 +414,75 @@ public abstract class AbstractQuery implements TransactionAPI {
 			endTS = -1;
 			beginTS = -1;
 
+			this.timedOut = isTimeout(e);
 			this.internalException = e;
-			this.connStrategy.shutdown();
+			// only reconnect when the connection is broken, not when the query failed (i.e., a syntax error)
+			if (this.connStrategy.isConnectionBroken(this.internalConnection, e)) {
+				closeStatementCache();
+				this.connStrategy.shutdown();
+			}
 			throw new QueryTestFailedException(e);
 		}
 		this.testCase.getTestResult().setBeginTS(beginTS);
 		this.testCase.getTestResult().setEndTS(endTS);
+		this.testCase.getTestResult().recordLatency(endNanos - beginNanos);
+		this.testCase.getTestResult().addPhaseTime(TestResult.PHASE.EXECUTE, endNanos - beginNanos);
 		return result;
 	}
 	
+	/**
+	 * Create the prepared, or callable, statement for the SQL, or reuse it from the 
+	 * statement cache when the {@link #setStatementCacheSize(int) cache size} is set.
+	 */
+	private Statement prepareStatement(String sql, boolean call) throws SQLException {
+		StatementCache cache = getStatementCache();
+		if (cache == null) {
+			return (call ? createPrepareCallStatement(sql) : createPrepareStatement(sql));
+		}
+		
+		String key = StatementCache.getKey(sql, call);
+		PreparedStatement stmt = cache.get(key);
+		if (stmt != null) {
+			// reset what the last execution set, that a new statement wouldn't have
+			stmt.clearParameters();
+			stmt.clearBatch();
+			stmt.setQueryTimeout(0);
+			stmt.setFetchSize(0);
+			this.testCase.getTestResult().addStatementCacheLookup(true);
+		} else {
+			stmt = (PreparedStatement) (call ? createPrepareCallStatement(sql) : createPrepareStatement(sql));
+			cache.put(key, stmt);
+			this.testCase.getTestResult().addStatementCacheLookup(false);
+		}
+		this.statementCached = true;
+		return stmt;
+	}
+	
+	/**
+	 * @return the statement cache kept with the current connection by the connection 
+	 * strategy, or <code>null</code> when statements aren't cached
+	 */
+	private StatementCache getStatementCache() {
+		StatementCache cache = (StatementCache) this.connStrategy.getStatementCache(this.internalConnection);
+		if (cache != null && cache.getMaxSize() != this.statementCacheSize) {
+			closeStatementCache();
+			cache = null;
+		}
+		if (cache == null && this.statementCacheSize > 0) {
+			cache = new StatementCache(this.internalConnection, this.statementCacheSize);
+			this.connStrategy.setStatementCache(this.internalConnection, cache);
+		}
+		return cache;
+	}
+	
+	private void closeStatementCache() {
+		if (this.statementCached) {
+			this.internalStatement = null;
+			this.statementCached = false;
+		}
+		this.connStrategy.setStatementCache(this.internalConnection, null);
+	}
+	
 	protected Statement createPrepareCallStatement(String sql)
 			throws SQLException {
 		return this.internalConnection.prepareCall("{?=call " + sql + "}"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -251,7 +500,8 @@ public abstract class AbstractQuery implements TransactionAPI {
 //	@Override
 	protected Statement createStatement() throws SQLException {
 		return this.internalConnection.createStatement(
-				ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+				(this.forwardOnly ? ResultSet.TYPE_FORWARD_ONLY : ResultSet.TYPE_SCROLL_INSENSITIVE), 
+				ResultSet.CONCUR_READ_ONLY);
 	}
 
 	private void setParameters(PreparedStatement stmt, Object[] params)
@@ -275,6 +525,7 @@ public abstract class AbstractQuery implements TransactionAPI {
 
 	public int[] executeBatch(String[] sql, int timeout) throws QueryTestFailedException {
 		closeStatement();
+		recordFetchTimes();
 
 		try {
 			ArgCheck.isNotNull(this.internalConnection, "Unable to execute batch, connection is null");
@@ -296,18 +547,97 @@ public abstract class AbstractQuery implements TransactionAPI {
 				this.internalStatement.addBatch(sql[i]);
 			}
 
-			return this.internalStatement.executeBatch();
+			return executeBatch(this.internalStatement);
 
 		} catch (SQLException e) {
-			this.internalException = e;
-//			if (!exceptionExpected()) {
-				throw new QueryTestFailedException(e);
-//			}
+			throw batchFailed(e);
 		}
 
 //		return null;
 
 	}
+	
+	/**
+	 * Execute the SQL as a prepared statement batch, adding a batch for each set of parameters.
+	 * SQL starting with <code>exec </code> is executed as a callable statement, the same as 
+	 * {@link #execute(String, Object[])}.
+	 * The {@link #setQueryTimeout(int) query timeout} applies to the batch as a whole.
+	 * @param sql 
+	 * @param params the parameters of each batch
+	 * @return the update count of each batch
+	 * @throws QueryTestFailedException 
+	 */
+	public int[] executeBatch(String sql, Object[][] params) throws QueryTestFailedException {
+		closeStatement();
+		recordFetchTimes();
+
+		try {
+			ArgCheck.isNotNull(this.internalConnection, "Unable to execute batch, connection is null");
+			ArgCheck.isTrue(!this.internalConnection.isClosed(), "Connection is closed");
+			
+			PreparedStatement stmt;
+			if (sql.toLowerCase().startsWith("exec ")) { //$NON-NLS-1$
+				stmt = (PreparedStatement) prepareStatement(sql.substring(5), true);
+			} else {
+				stmt = (PreparedStatement) prepareStatement(sql, false);
+			}
+			this.internalStatement = stmt;
+			for (int i = 0; i < params.length; i++) {
+				setParameters(stmt, params[i]);
+				stmt.addBatch();
+			}
+			assignExecutionProperties(stmt);
+
+			return executeBatch(stmt);
+
+		} catch (SQLException e) {
+			// a cached statement would otherwise execute the rows already added with the next batch
+			clearBatch(this.internalStatement);
+			throw batchFailed(e);
+		}
+	}
+	
+	private static void clearBatch(Statement stmt) {
+		if (stmt == null) return;
+		try {
+			stmt.clearBatch();
+		} catch (SQLException e) {
+			// ignore, the statement is cleared again when reused
+		}
+	}
+	
+	private int[] executeBatch(Statement stmt) throws SQLException {
+		startWatchdog(stmt);
+		
+		long beginTS = System.currentTimeMillis();
+		long beginNanos = System.nanoTime();
+		int[] counts;
+		try {
+			counts = stmt.executeBatch();
+		} finally {
+			stopWatchdog();
+		}
+		long endNanos = System.nanoTime();
+		long endTS = System.currentTimeMillis();
+		
+		if (this.testCase != null) {
+			this.testCase.getTestResult().setBeginTS(beginTS);
+			this.testCase.getTestResult().setEndTS(endTS);
+			this.testCase.getTestResult().recordLatency(endNanos - beginNanos);
+			this.testCase.getTestResult().addPhaseTime(TestResult.PHASE.EXECUTE, endNanos - beginNanos);
+		}
+		return counts;
+	}
+	
+	private QueryTestFailedException batchFailed(SQLException e) {
+		this.timedOut = isTimeout(e);
+		this.internalException = e;
+		if (this.connStrategy.isConnectionBroken(this.internalConnection, e)) {
+			closeStatementCache();
+			this.connStrategy.shutdown();
+		}
+		return new QueryTestFailedException(e);
+	}
 
 	/**
 	 * Override when you need to set an execution property on the statement
@@ -320,13 +650,21 @@ public abstract class AbstractQuery implements TransactionAPI {
 	 *      }
 	 * </code>
 	 * </p>
+	 * <p>
+	 * The {@link #setFetchSize(int) fetch size} is assigned here, so an override
+	 * should call this method.
+	 * </p>
 	 * 
 	 * @param stmt
+	 * @throws SQLException 
 	 * 
 	 * @since
 	 */
 
-	protected void assignExecutionProperties(Statement stmt) {
+	protected void assignExecutionProperties(Statement stmt) throws SQLException {
+		if (this.fetchSize != 0) {
+			stmt.setFetchSize(this.fetchSize);
+		}
 	}
 
 	public boolean exceptionOccurred() {
@@ -438,9 +776,68 @@ public abstract class AbstractQuery implements TransactionAPI {
 	}
 	
 
+	/**
+	 * Set the query timeout on the statement, and schedule the watchdog that will
+	 * cancel the statement when the driver doesn't enforce the timeout.
+	 */
+	private void startWatchdog(final Statement stmt) throws SQLException {
+		if (this.queryTimeout <= 0) return;
+		
+		stmt.setQueryTimeout(this.queryTimeout);
+		
+		this.canceled = false;
+		this.watchdog = getWatchdog().schedule(new Runnable() {
+			public void run() {
+				canceled = true;
+				debug("Query exceeded the timeout of " + queryTimeout + " seconds, canceling");
+				try {
+					stmt.cancel();
+				} catch (SQLException e) {
+					debug("Unable to cancel query: " + e.getMessage());
+				}
+			}
+		}, (this.queryTimeout * 1000L) + WATCHDOG_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param e thrown executing the statement
+	 * @return true if the driver timed out the statement, or it failed because the 
+	 * watchdog canceled it
+	 */
+	private boolean isTimeout(SQLException e) {
+		return (e instanceof SQLTimeoutException) || this.canceled;
+	}
+	
+	private void stopWatchdog() {
+		if (this.watchdog != null) {
+			this.watchdog.cancel(false);
+			this.watchdog = null;
+		}
+	}
+	
+	private static synchronized ScheduledExecutorService getWatchdog() {
+		if (WATCHDOG == null) {
+			WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "BQT-query-watchdog");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return WATCHDOG;
+	}
+
 	private void closeStatement() {
+		stopWatchdog();
 		closeResultSet();
 
+		if (this.statementCached) {
+			// left open to be reused
+			this.internalStatement = null;
+			this.statementCached = false;
+		}
+
 		if (this.internalStatement != null) {
 			try {
 				this.internalStatement.close();
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework;
+
+import java.util.Properties;
+
+import org.jboss.bqt.core.util.PropertiesUtils;
+
+/**
+ * The ConfigContext is an immutable snapshot of the configuration properties
+ * for a single scenario.  It is created by {@link ConfigPropertyLoader#createContext(String, Properties)}
+ * by applying the scenario properties on top of the loaded configuration, without 
+ * changing the loader.  Because of this, several scenarios can be run at the same
+ * time, each using its own context, instead of sharing (and resetting) the
+ * {@link ConfigPropertyLoader} instance.
+ */
+public final class ConfigContext {
+	
+	private final String name;
+	private final Properties props;
+
+	ConfigContext(String name, Properties props) {
+		this.name = name;
+		this.props = props;
+	}
+	
+	/**
+	 * @return String name of the scenario this context was created for
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	public String getProperty(String key) {
+		return this.props.getProperty(key);
+	}
+
+	/**
+	 * Returns a copy of the properties, so that changes made by the caller
+	 * will not be seen by other users of this context. 
+	 * @return Properties
+	 */
+	public Properties getProperties() {
+		return PropertiesUtils.clone(this.props);
+	}
+
+}
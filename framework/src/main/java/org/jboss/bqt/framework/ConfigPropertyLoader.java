@@ -140,6 +140,28 @@ public class ConfigPropertyLoader {
 
 		return p;
 	}
+	/**
+	 * Create a {@link ConfigContext} that contains the loaded configuration properties
+	 * with the <code>properties</code> applied on top.  Unlike {@link #setProperties(Properties)},
+	 * the overrides of this loader are not changed.
+	 * @param name identifies the context, normally the scenario name 
+	 * @param properties to apply to the configuration, normally the scenario properties
+	 * @return ConfigContext
+	 */
+	public synchronized ConfigContext createContext(String name, Properties properties) {
+		Properties ctxOverrides = new Properties();
+		ctxOverrides.putAll(this.props);
+		ctxOverrides.putAll(this.overrides);
+		ctxOverrides.putAll(properties);
+		ctxOverrides = PropertiesUtils.resolveNestedProperties(ctxOverrides, false);
+
+		Properties p = PropertiesUtils.clone(System.getProperties());
+		p.putAll(this.props);
+		p.putAll(ctxOverrides);
+		
+		return new ConfigContext(name, p);
+	}
+	
 	/**
 	 * The clearing of property overrides is used to reset on a per scenario basis.
 	 */
@@ -66,6 +66,8 @@ public interface ConfigPropertyNames {
 		public static final String DATASOURCE_CONNECTION = "datasource"; //$NON-NLS-1$
 		// used for when embedded is running in an appserver
 		public static final String JNDI_CONNECTION = "jndi"; //$NON-NLS-1$
+		// used to pool the jdbc driver connections
+		public static final String POOLED_CONNECTION = "pooled"; //$NON-NLS-1$
 
 	}
 
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StatementCache holds the prepared (and callable) statements of a connection, keyed by 
+ * their SQL, so that executing the same SQL again reuses the statement, and the plan the
+ * server prepared for it.  The least recently used statement is closed once there are
+ * more than the maximum number of statements.
+ * <p>
+ * The cache is only used by one {@link AbstractQuery} at a time, and therefore isn't thread safe.
+ * It's kept with its connection by the {@link org.jboss.bqt.framework.connection.ConnectionStrategy 
+ * ConnectionStrategy}, so a pooled connection takes its statements along when another test 
+ * borrows it, and they're closed when the connection is.
+ * </p>
+ */
+final class StatementCache implements Closeable {
+	
+	private final Connection connection;
+	private final int maxSize;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+	
+	/**
+	 * @param connection the statements are prepared on
+	 * @param maxSize the maximum number of statements held
+	 */
+	StatementCache(Connection connection, int maxSize) {
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					close(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * @param sql
+	 * @param call true for a callable statement
+	 * @return the key the statement for the SQL is cached by
+	 */
+	static String getKey(String sql, boolean call) {
+		return (call ? "call:" : "prepare:") + sql; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	Connection getConnection() {
+		return this.connection;
+	}
+	
+	int getMaxSize() {
+		return this.maxSize;
+	}
+	
+	/**
+	 * @param key
+	 * @return the cached statement, or <code>null</code> if it isn't cached
+	 */
+	PreparedStatement get(String key) {
+		return this.statements.get(key);
+	}
+	
+	/**
+	 * Cache the statement, closing the least recently used statement when the cache is full.
+	 * @param key
+	 * @param stmt
+	 */
+	void put(String key, PreparedStatement stmt) {
+		PreparedStatement previous = this.statements.put(key, stmt);
+		if (previous != null && previous != stmt) {
+			close(previous);
+		}
+	}
+	
+	/**
+	 * Close all the cached statements.
+	 */
+	public void close() {
+		for (Iterator<PreparedStatement> it = this.statements.values().iterator(); it.hasNext();) {
+			close(it.next());
+		}
+		this.statements.clear();
+	}
+	
+	private static void close(PreparedStatement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			// ignore, the statement is no longer used
+		}
+	}
+
+}
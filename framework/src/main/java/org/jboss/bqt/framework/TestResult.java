@@ -24,6 +24,8 @@ package org.jboss.bqt.framework;
 import java.io.Serializable;
 import java.util.Date;
 
+import org.jboss.bqt.framework.util.LatencyHistogram;
+
 /**
  * TestResult represents a single test and the state of it.
  * 
@@ -68,6 +70,51 @@ public class TestResult implements ConfigPropertyNames, Serializable {
 		 * TEST_PRERUN is used to indicate the test has not been executed yet.
 		 */
 		public static final int TEST_PRERUN = 16;
+		
+		/**
+		 * TEST_TIMEOUT - indicates the query was canceled because it
+		 * exceeded its query timeout
+		 */
+		public static final int TEST_TIMEOUT = 32;
+	}
+
+	/**
+	 * The PHASE identifies the parts of processing a query test that are timed,
+	 * so that the time spent in the database can be told apart from the time 
+	 * spent in the tool.
+	 */
+	public interface PHASE {
+		/**
+		 * EXECUTE - executing the statement, until it returned
+		 */
+		public static final int EXECUTE = 0;
+		/**
+		 * FIRST_ROW - waiting for the first row, after the statement returned its result set
+		 */
+		public static final int FIRST_ROW = 1;
+		/**
+		 * FETCH - reading the result set, which includes the time waiting for the first row
+		 */
+		public static final int FETCH = 2;
+		/**
+		 * EXPECTED_PARSE - reading the expected results file.  Rows that are streamed
+		 * from the file are read while comparing, so they're part of the comparison.
+		 */
+		public static final int EXPECTED_PARSE = 3;
+		/**
+		 * COMPARE - comparing the actual results with those expected, less the time
+		 * spent reading the result set
+		 */
+		public static final int COMPARE = 4;
+		/**
+		 * ERROR_WRITE - writing the error file, which includes reading the rest of
+		 * the result set into it
+		 */
+		public static final int ERROR_WRITE = 5;
+		
+		public static final String[] NAMES = new String[] {
+			"Execute", "FirstRow", "Fetch", "Parse", "Compare", "ErrorWrite"  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		};
 	}
 
 	public interface RESULT_STATE_STRING {
@@ -91,6 +138,12 @@ public class TestResult implements ConfigPropertyNames, Serializable {
 		 * {@link RESULT_STATE#TEST_EXECUTION_TIME_EXCEEDED_EXCEPTION occurs}
 		 */
 		public static final String EXEEDED_EXECUTION_TIME = "fail-exceeded-time";
+		
+		/**
+		 * The string value for when a
+		 * {@link RESULT_STATE#TEST_TIMEOUT occurs}
+		 */
+		public static final String TIMEOUT = "fail-timeout";
 
 		/**
 		 * The string value for when a status occurs that hasn't been defined
@@ -119,7 +172,21 @@ public class TestResult implements ConfigPropertyNames, Serializable {
 	private long rowCount;
 	private long updateCount;
 	
+	private int statementCacheHits;
+	private int statementCacheMisses;
+	
+	private LatencyHistogram latencies;
+	private LatencyHistogram coldLatencies;
+	
+	// when warming up, the latencies are counted as cold
+	private boolean warmup = false;
+	
+	private final long[] phaseTimes = new long[PHASE.NAMES.length];
+	
 private String resultMode = null;
+
+	// identifies the client that executed the test, when there are multiple clients
+	private int clientNum = 1;
 	
 	public TestResult(final String querySetID, final String queryID) {
 		this.querySetID = querySetID;
@@ -145,6 +212,8 @@ private String resultMode = null;
 			return RESULT_STATE_STRING.FAIL_EXPECTED_EXCEPTION;
 		case RESULT_STATE.TEST_EXECUTION_TIME_EXCEEDED_EXCEPTION:
 			return RESULT_STATE_STRING.EXEEDED_EXECUTION_TIME;
+		case RESULT_STATE.TEST_TIMEOUT:
+			return RESULT_STATE_STRING.TIMEOUT;
 		}
 		return RESULT_STATE_STRING.UNKNOWN;
 	}
@@ -185,6 +254,7 @@ private String resultMode = null;
 		switch (getStatus()) {
 		case RESULT_STATE.TEST_EXECUTION_TIME_EXCEEDED_EXCEPTION:
 		case RESULT_STATE.TEST_EXCEPTION:
+		case RESULT_STATE.TEST_TIMEOUT:
 			return true;
 		}
 		return false;
@@ -262,6 +332,99 @@ private String resultMode = null;
 		this.updateCount = updateCount;
 	}
 
+	public int getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	public int getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	/**
+	 * Count the lookup of the statement executed in the statement cache.
+	 * @param hit true when the statement was reused
+	 */
+	public void addStatementCacheLookup(boolean hit) {
+		if (hit) {
+			this.statementCacheHits++;
+		} else {
+			this.statementCacheMisses++;
+		}
+	}
+
+	/**
+	 * Count the latency of an execution of the test.
+	 * @param nanos the time taken to execute, in nanoseconds
+	 */
+	public synchronized void recordLatency(long nanos) {
+		if (this.warmup) {
+			getColdLatencies().record(nanos);
+		} else {
+			getLatencies().record(nanos);
+		}
+	}
+	
+	/**
+	 * @return the latencies of every execution of the test, never null
+	 */
+	public synchronized LatencyHistogram getLatencies() {
+		if (this.latencies == null) {
+			this.latencies = new LatencyHistogram();
+		}
+		return this.latencies;
+	}
+	
+	/**
+	 * @return the latencies of the executions while {@link #setWarmup(boolean) warming up}, 
+	 * which aren't included in {@link #getLatencies()}, never null
+	 */
+	public synchronized LatencyHistogram getColdLatencies() {
+		if (this.coldLatencies == null) {
+			this.coldLatencies = new LatencyHistogram();
+		}
+		return this.coldLatencies;
+	}
+	
+	/**
+	 * Indicate the executions that follow are warming up, so their latencies
+	 * are recorded as cold and kept apart from the measured latencies.
+	 * @param warmup
+	 */
+	public synchronized void setWarmup(boolean warmup) {
+		this.warmup = warmup;
+	}
+	
+	public synchronized boolean isWarmup() {
+		return this.warmup;
+	}
+
+	/**
+	 * Add to the time spent in the phase, which is the total of every execution of the test.
+	 * @param phase one of the {@link PHASE}s
+	 * @param nanos
+	 */
+	public synchronized void addPhaseTime(int phase, long nanos) {
+		if (nanos > 0) {
+			this.phaseTimes[phase] += nanos;
+		}
+	}
+	
+	/**
+	 * @param phase one of the {@link PHASE}s
+	 * @return the nanoseconds spent in the phase
+	 */
+	public synchronized long getPhaseTime(int phase) {
+		return this.phaseTimes[phase];
+	}
+
+	public int getClientNum() {
+		return clientNum;
+	}
+
+	public void setClientNum(int clientNum) {
+		this.clientNum = clientNum;
+	}
+
 	public long getExecutionTime() {
 		Date starttest = new Date(getBeginTS());
 		Date endtest = new Date(getEndTS());
@@ -64,23 +64,23 @@ public class TransactionFactory {
 
 		String type = props.getProperty(TRANSACTION_TYPE);
 		if (type == null) {
-            transacton = new UseDefaultTransaction();
+            transacton = new UseDefaultTransaction(props);
             FrameworkPlugin.LOGGER.debug("====  Create UseDefaultTransaction-Option: not defined");
 		} else {
 
             FrameworkPlugin.LOGGER.debug("====  Create Transaction-Option: " + type);
 
             if (type.equalsIgnoreCase(TRANSACTION_TYPES.LOCAL_TRANSACTION)) {
-                transacton = new LocalTransaction();
+                transacton = new LocalTransaction(props);
     //		} else if (type.equalsIgnoreCase(TRANSACTION_TYPES.XATRANSACTION)) {
     //			transacton = new XATransaction();
             } else if (type.equalsIgnoreCase(TRANSACTION_TYPES.JNDI_TRANSACTION)) {
-                transacton = new JNDITransaction();
+                transacton = new JNDITransaction(props);
             } else if (type.equalsIgnoreCase(TRANSACTION_TYPES.ONWRAP_TRANSACTION)) {
-                transacton = new OnWrapTransaction();
+                transacton = new OnWrapTransaction(props);
 
             } else {
-            	 transacton = new UseDefaultTransaction();
+            	 transacton = new UseDefaultTransaction(props);
             }
         }
 		
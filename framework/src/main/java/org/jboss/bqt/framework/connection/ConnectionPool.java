@@ -0,0 +1,323 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.connection;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.framework.FrameworkPlugin;
+
+/**
+ * ConnectionPool holds the connections of the {@link PooledConnection} strategies that
+ * connect using the same url and user.  A connection is borrowed for a test and released
+ * when the test is done, at which point it's idle and can be borrowed again.
+ * <p>
+ * The idle connections are validated when borrowed, and those idle longer than the idle
+ * timeout are closed, as long as the pool keeps its minimum size.  At most the maximum
+ * size are open at once; a borrower waits for one to be released when they're all in use.
+ * </p>
+ * <p>
+ * The statement cache of a connection is kept with it, and closed when the connection is.
+ * </p>
+ */
+final class ConnectionPool {
+	
+	/**
+	 * Creates the connections of the pool
+	 */
+	interface ConnectionFactory {
+		Connection createConnection() throws FrameworkException;
+	}
+	
+	private static class IdleConnection {
+		final Connection connection;
+		final long since;
+		
+		IdleConnection(Connection connection, long since) {
+			this.connection = connection;
+			this.since = since;
+		}
+	}
+	
+	private static ScheduledExecutorService EVICTOR = null;
+	
+	private final String name;
+	private final ConnectionFactory factory;
+	private final int minSize;
+	private final int maxSize;
+	private final boolean validate;
+	private final long idleTimeout;
+	private final long borrowTimeout;
+	
+	// most recently released first, so the same connections are reused
+	private final LinkedList<IdleConnection> idle = new LinkedList<IdleConnection>();
+	// the connections open, which includes those being created
+	private int size = 0;
+	// the statement caches of the open connections
+	private final Map<Connection, Closeable> statementCaches = new IdentityHashMap<Connection, Closeable>();
+	
+	/**
+	 * @param name of the pool, for logging
+	 * @param factory
+	 * @param minSize the number of connections kept open
+	 * @param maxSize the most connections open at once
+	 * @param validate true to validate an idle connection when it's borrowed
+	 * @param idleTimeout milliseconds a connection can be idle before it's closed, zero or less to keep them
+	 * @param borrowTimeout milliseconds to wait for a connection when the pool is exhausted
+	 */
+	ConnectionPool(String name, ConnectionFactory factory, int minSize, int maxSize, 
+			boolean validate, long idleTimeout, long borrowTimeout) {
+		this.name = name;
+		this.factory = factory;
+		this.maxSize = Math.max(maxSize, 1);
+		this.minSize = Math.min(Math.max(minSize, 0), this.maxSize);
+		this.validate = validate;
+		this.idleTimeout = idleTimeout;
+		this.borrowTimeout = borrowTimeout;
+		
+		if (idleTimeout > 0) {
+			long period = Math.max(idleTimeout / 2, 1000);
+			getEvictor().scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					evictIdle(System.currentTimeMillis());
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Borrow a connection, preferring the one last used by the borrower.
+	 * @param preferred the connection last released by the borrower, can be <code>null</code>
+	 * @return Connection
+	 * @throws FrameworkException if a connection cannot be created, or none is released in time
+	 */
+	Connection borrow(Connection preferred) throws FrameworkException {
+		long deadline = System.currentTimeMillis() + this.borrowTimeout;
+		
+		while (true) {
+			IdleConnection found = null;
+			boolean create = false;
+			synchronized (this) {
+				found = takeIdle(preferred);
+				if (found == null) {
+					if (this.size < this.maxSize) {
+						this.size++;
+						create = true;
+					} else {
+						long wait = deadline - System.currentTimeMillis();
+						if (wait <= 0) {
+							throw new FrameworkException("No connection was released to pool " + this.name  //$NON-NLS-1$
+									+ " within " + this.borrowTimeout + " ms, all " + this.maxSize + " are in use"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						}
+						try {
+							wait(wait);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new FrameworkException(e, "Interrupted waiting for a connection from pool " + this.name); //$NON-NLS-1$
+						}
+						continue;
+					}
+				}
+			}
+			
+			if (create) {
+				return create();
+			}
+			
+			if (!this.validate || ConnectionStrategy.isValid(found.connection, ConnectionStrategy.VALIDATION_TIMEOUT)) {
+				return found.connection;
+			}
+			FrameworkPlugin.LOGGER.debug("Discarding an invalid connection from pool " + this.name); //$NON-NLS-1$
+			discard(found.connection);
+		}
+	}
+	
+	/**
+	 * Return the connection to the pool, where it's idle until borrowed again.
+	 * @param conn
+	 */
+	void release(Connection conn) {
+		boolean closed;
+		try {
+			closed = conn.isClosed();
+		} catch (SQLException e) {
+			closed = true;
+		}
+		if (closed) {
+			discard(conn);
+			return;
+		}
+		synchronized (this) {
+			this.idle.addFirst(new IdleConnection(conn, System.currentTimeMillis()));
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Close the connection, because it's broken, making room in the pool for another.
+	 * @param conn
+	 */
+	void discard(Connection conn) {
+		close(conn);
+		synchronized (this) {
+			this.size--;
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Close the connections idle since before the idle timeout, keeping the minimum size.
+	 * @param now
+	 * @return the number of connections closed
+	 */
+	int evictIdle(long now) {
+		LinkedList<Connection> evicted = new LinkedList<Connection>();
+		synchronized (this) {
+			// the least recently released are at the end
+			while (this.size > this.minSize && !this.idle.isEmpty() 
+					&& now - this.idle.getLast().since > this.idleTimeout) {
+				evicted.add(this.idle.removeLast().connection);
+				this.size--;
+			}
+		}
+		for (Iterator<Connection> it = evicted.iterator(); it.hasNext();) {
+			close(it.next());
+		}
+		if (!evicted.isEmpty()) {
+			FrameworkPlugin.LOGGER.debug("Closed " + evicted.size() + " idle connections in pool " + this.name); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return evicted.size();
+	}
+	
+	/**
+	 * Open connections until the pool has its minimum size.
+	 * @throws FrameworkException
+	 */
+	void fill() throws FrameworkException {
+		while (true) {
+			synchronized (this) {
+				if (this.size >= this.minSize) {
+					return;
+				}
+				this.size++;
+			}
+			release(create());
+		}
+	}
+	
+	/**
+	 * @param conn
+	 * @return the statement cache kept with the connection, or <code>null</code>
+	 */
+	synchronized Closeable getStatementCache(Connection conn) {
+		return this.statementCaches.get(conn);
+	}
+	
+	/**
+	 * Keep the statement cache with the connection, closing the one it replaces.
+	 * @param conn borrowed from the pool
+	 * @param cache or <code>null</code> to close the cache of the connection
+	 */
+	void setStatementCache(Connection conn, Closeable cache) {
+		Closeable previous;
+		synchronized (this) {
+			previous = (cache != null ? this.statementCaches.put(conn, cache) : this.statementCaches.remove(conn));
+		}
+		if (previous != null && previous != cache) {
+			ConnectionStrategy.close(previous);
+		}
+	}
+	
+	synchronized int getSize() {
+		return this.size;
+	}
+	
+	synchronized int getIdleCount() {
+		return this.idle.size();
+	}
+	
+	private IdleConnection takeIdle(Connection preferred) {
+		if (preferred != null) {
+			for (Iterator<IdleConnection> it = this.idle.iterator(); it.hasNext();) {
+				IdleConnection ic = it.next();
+				if (ic.connection == preferred) {
+					it.remove();
+					return ic;
+				}
+			}
+		}
+		return this.idle.isEmpty() ? null : this.idle.removeFirst();
+	}
+	
+	/**
+	 * Create a connection, whose room in the pool has already been counted.
+	 */
+	private Connection create() throws FrameworkException {
+		boolean created = false;
+		try {
+			Connection conn = this.factory.createConnection();
+			created = true;
+			return conn;
+		} finally {
+			if (!created) {
+				synchronized (this) {
+					this.size--;
+					notifyAll();
+				}
+			}
+		}
+	}
+	
+	private void close(Connection conn) {
+		setStatementCache(conn, null);
+		try {
+			conn.close();
+		} catch (SQLException e) {
+			// ignore, it's no longer used
+		}
+	}
+	
+	private static synchronized ScheduledExecutorService getEvictor() {
+		if (EVICTOR == null) {
+			EVICTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "BQT-connection-evictor");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return EVICTOR;
+	}
+
+}
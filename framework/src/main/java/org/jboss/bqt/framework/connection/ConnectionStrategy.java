@@ -21,7 +21,13 @@
  */
 package org.jboss.bqt.framework.connection;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
 
 import javax.sql.XAConnection;
@@ -36,8 +42,22 @@ import org.jboss.bqt.core.util.PropertiesUtils;
  *
  */
 public abstract class ConnectionStrategy {
+	
+	/**
+	 * The SQLState class of the errors that indicate the connection failed.
+	 */
+	public static final String SQLSTATE_CONNECTION_EXCEPTION = "08"; //$NON-NLS-1$
+	
+	/**
+	 * The number of seconds to wait for a connection to be validated.
+	 */
+	public static final int VALIDATION_TIMEOUT = 5;
 
 	private Properties env = null;
+	
+	// the statement cache of the connection last used, see #setStatementCache
+	private Connection cachedConnection = null;
+	private Closeable statementCache = null;
 
 	public ConnectionStrategy(Properties props) {
 		this.env = PropertiesUtils.clone(props);
@@ -63,6 +83,106 @@ public abstract class ConnectionStrategy {
 	public void shutdown() {
 
 	}
+	
+	/**
+	 * Called when the test is done with the connection returned by {@link #getConnection()}.
+	 * The connection is kept for the next test, unless the strategy pools its connections.
+	 */
+	public void releaseConnection() {
+		
+	}
+	
+	/**
+	 * Return the statement cache kept with the connection, which lives as long as the
+	 * connection, rather than the test that created it.
+	 * @param conn returned by {@link #getConnection()}
+	 * @return the cache, or <code>null</code> if none is kept with the connection
+	 */
+	public synchronized Closeable getStatementCache(Connection conn) {
+		return (conn != null && conn == this.cachedConnection ? this.statementCache : null);
+	}
+	
+	/**
+	 * Keep the statement cache with the connection, closing the one it replaces.
+	 * This strategy keeps the cache of one connection, because it only uses one at a time.
+	 * @param conn returned by {@link #getConnection()}
+	 * @param cache to keep, or <code>null</code> to close the cache of the connection
+	 */
+	public synchronized void setStatementCache(Connection conn, Closeable cache) {
+		if (this.statementCache != null && this.statementCache != cache) {
+			close(this.statementCache);
+		}
+		this.cachedConnection = (cache != null ? conn : null);
+		this.statementCache = cache;
+	}
+	
+	static void close(Closeable cache) {
+		try {
+			cache.close();
+		} catch (IOException e) {
+			// ignore, the statements are no longer used
+		}
+	}
+	
+	/**
+	 * Classify the exception thrown while using the connection, to determine if the connection
+	 * is broken, and therefore needs to be {@link #shutdown() shutdown}, or if only the statement
+	 * failed (i.e., a syntax error), and the connection can still be used.  The connection is 
+	 * broken when the SQLState is a connection exception (class 08), the exception is a connection
+	 * or recoverable exception, or the connection is closed.  When the driver doesn't provide a
+	 * SQLState, the connection is validated.
+	 * @param conn
+	 * @param e
+	 * @return true if the connection can no longer be used
+	 */
+	public boolean isConnectionBroken(Connection conn, SQLException e) {
+		boolean stateKnown = false;
+		for (SQLException ex = e; ex != null; ex = ex.getNextException()) {
+			if (ex instanceof SQLNonTransientConnectionException 
+					|| ex instanceof SQLTransientConnectionException 
+					|| ex instanceof SQLRecoverableException) {
+				return true;
+			}
+			String state = ex.getSQLState();
+			if (state != null) {
+				if (state.startsWith(SQLSTATE_CONNECTION_EXCEPTION)) {
+					return true;
+				}
+				stateKnown = true;
+			}
+		}
+		if (conn == null) {
+			return true;
+		}
+		if (!stateKnown) {
+			return !isValid(conn, VALIDATION_TIMEOUT);
+		}
+		try {
+			return conn.isClosed();
+		} catch (SQLException ce) {
+			return true;
+		}
+	}
+	
+	/**
+	 * @param conn
+	 * @param timeout in seconds
+	 * @return true if the connection is still usable
+	 */
+	protected static boolean isValid(Connection conn, int timeout) {
+		try {
+			return conn.isValid(timeout);
+		} catch (SQLException e) {
+			return false;
+		} catch (AbstractMethodError e) {
+			// the driver doesn't implement JDBC 4
+			try {
+				return !conn.isClosed();
+			} catch (SQLException ce) {
+				return false;
+			}
+		}
+	}
 
 	private boolean autoCommit = true;
 
@@ -39,8 +39,19 @@ public class ConnectionStrategyFactory {
 
 		ConfigPropertyLoader configLoader = ConfigPropertyLoader.getInstance();
 
+		return createConnectionStrategy(configLoader.getProperties());
+	}
+
+	/**
+	 * Create the connection strategy based on the <code>props</code>, instead of
+	 * the properties from the {@link ConfigPropertyLoader}.  This is used when 
+	 * running a scenario using its own {@link org.jboss.bqt.framework.ConfigContext}.
+	 * @param props
+	 * @return ConnectionStrategy
+	 */
+	public static ConnectionStrategy createConnectionStrategy(Properties props) {
+
 		ConnectionStrategy strategy = null;
-		Properties props = configLoader.getProperties();
 
 		String type = props.getProperty(ConfigPropertyNames.CONNECTION_TYPE,
 				ConfigPropertyNames.CONNECTION_TYPES.DRIVER_CONNECTION);
@@ -63,6 +74,10 @@ public class ConnectionStrategyFactory {
 					.equalsIgnoreCase(ConfigPropertyNames.CONNECTION_TYPES.JNDI_CONNECTION)) {
 				strategy = new JEEConnection(props);
 				FrameworkPlugin.LOGGER.debug("Created JEE Strategy");
+			} else if (type
+					.equalsIgnoreCase(ConfigPropertyNames.CONNECTION_TYPES.POOLED_CONNECTION)) {
+				strategy = new PooledConnection(props);
+				FrameworkPlugin.LOGGER.debug("Created Pooled Strategy");
 			}
 
 			if (strategy == null) {
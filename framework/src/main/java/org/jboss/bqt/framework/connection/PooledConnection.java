@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.connection;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.jboss.bqt.core.util.PropertiesUtils;
+import org.jboss.bqt.framework.FrameworkPlugin;
+
+/**
+ * The PooledConnection strategy gets the connections using the jdbc driver, the same as the 
+ * {@link DriverConnection} strategy, but borrows them from a {@link ConnectionPool} shared by 
+ * all the strategies with the same url and user.  The connection is borrowed when the test 
+ * gets it, and returned to the pool when the test {@link #releaseConnection() releases} it.  
+ * A {@link #shutdown()} discards the borrowed connection, because it's broken, instead of 
+ * reconnecting the strategy.
+ * <p>
+ * The pool is configured by the properties of the first strategy that creates it:
+ * <li>{@link #POOL_MIN_SIZE} - the number of connections kept open, default is 0</li>
+ * <li>{@link #POOL_MAX_SIZE} - the most connections open at once, default is 10</li>
+ * <li>{@link #POOL_VALIDATE} - validate an idle connection when it's borrowed, default is true</li>
+ * <li>{@link #POOL_IDLE_TIMEOUT} - seconds a connection can be idle before it's closed, default is 300</li>
+ * <li>{@link #POOL_BORROW_TIMEOUT} - seconds to wait for a connection when they're all in use, default is 60</li>
+ * </p>
+ */
+public class PooledConnection extends DriverConnection {
+	
+	public static final String POOL_MIN_SIZE = "conn.pool.minsize"; //$NON-NLS-1$
+	public static final String POOL_MAX_SIZE = "conn.pool.maxsize"; //$NON-NLS-1$
+	public static final String POOL_VALIDATE = "conn.pool.validate"; //$NON-NLS-1$
+	public static final String POOL_IDLE_TIMEOUT = "conn.pool.idletimeout"; //$NON-NLS-1$
+	public static final String POOL_BORROW_TIMEOUT = "conn.pool.borrowtimeout"; //$NON-NLS-1$
+	
+	private static final Map<String, ConnectionPool> POOLS = new HashMap<String, ConnectionPool>();
+	
+	private final ConnectionPool pool;
+	
+	private Connection connection = null;
+	// the last connection borrowed, which is preferred when borrowing again
+	private Connection lastConnection = null;
+
+	public PooledConnection(Properties props) {
+		super(props);
+		this.pool = getPool(this);
+	}
+	
+	private static ConnectionPool getPool(final PooledConnection strategy) {
+		String key = strategy.getUrl() + "|" + strategy.getUsername(); //$NON-NLS-1$
+		synchronized (POOLS) {
+			ConnectionPool pool = POOLS.get(key);
+			if (pool == null) {
+				Properties env = strategy.getEnvironment();
+				int min = PropertiesUtils.getIntProperty(env, POOL_MIN_SIZE, 0);
+				int max = PropertiesUtils.getIntProperty(env, POOL_MAX_SIZE, 10);
+				
+				pool = new ConnectionPool(strategy.getUrl(), new ConnectionPool.ConnectionFactory() {
+							public Connection createConnection() throws FrameworkException {
+								return strategy.createConnection();
+							}
+						}, min, max,
+						PropertiesUtils.getBooleanProperty(env, POOL_VALIDATE, true),
+						PropertiesUtils.getLongProperty(env, POOL_IDLE_TIMEOUT, 300) * 1000L,
+						PropertiesUtils.getLongProperty(env, POOL_BORROW_TIMEOUT, 60) * 1000L);
+				POOLS.put(key, pool);
+				
+				FrameworkPlugin.LOGGER.info("Created Connection Pool: \"" + strategy.getUrl() + "\" min: " + min + " max: " + max); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return pool;
+		}
+	}
+
+	@Override
+	public synchronized Connection getConnection() throws FrameworkException {
+		if (this.connection == null) {
+			this.pool.fill();
+			this.connection = this.pool.borrow(this.lastConnection);
+			this.lastConnection = this.connection;
+		}
+		return this.connection;
+	}
+	
+	@Override
+	public synchronized void releaseConnection() {
+		if (this.connection != null) {
+			this.pool.release(this.connection);
+			this.connection = null;
+		}
+	}
+
+	/**
+	 * The statement cache is kept by the pool with the connection, so it's only used by the
+	 * test that borrowed the connection, and closed when the connection is.
+	 */
+	@Override
+	public Closeable getStatementCache(Connection conn) {
+		return this.pool.getStatementCache(conn);
+	}
+	
+	@Override
+	public void setStatementCache(Connection conn, Closeable cache) {
+		this.pool.setStatementCache(conn, cache);
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		super.shutdown();
+		if (this.connection != null) {
+			this.pool.discard(this.connection);
+			this.connection = null;
+			this.lastConnection = null;
+		}
+	}
+}
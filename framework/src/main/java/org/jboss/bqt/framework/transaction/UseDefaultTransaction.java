@@ -21,6 +21,8 @@
  */
 package org.jboss.bqt.framework.transaction;
 
+import java.util.Properties;
+
 import org.jboss.bqt.framework.AbstractQuery;
 
 /**
@@ -32,5 +34,9 @@ public class UseDefaultTransaction extends AbstractQuery {
 		super();
 	}
 
+	public UseDefaultTransaction(Properties props) {
+		super(props);
+	}
+
 	
 }
@@ -0,0 +1,242 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * LatencyHistogram counts latencies, in nanoseconds, in logarithmic buckets that are each 
+ * divided into {@link #SUB_BUCKET_COUNT} linear slots, the same layout as an HdrHistogram.  
+ * The value reported for a percentile is within 1/64th (about 1.5%) of the recorded value, 
+ * regardless of its magnitude, and the memory used is bounded no matter how many values 
+ * are recorded.  A bucket's slots are only allocated once a value falls in it, so a 
+ * histogram of a single query stays small.
+ * <p>
+ * Histograms are serializable and can be {@link #add(LatencyHistogram) added} together, 
+ * so the histograms of several runs, or machines, can be merged into one.
+ * </p>
+ */
+public class LatencyHistogram implements Serializable {
+
+	private static final long serialVersionUID = -2846153702217461135L;
+
+	/**
+	 * The number of slots in the first bucket, whose values are counted exactly.  Each
+	 * of the other buckets is twice as wide as the one before it, and has half as many slots.
+	 */
+	public static final int SUB_BUCKET_COUNT = 128;
+	
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+	/**
+	 * The largest latency that's counted in its own bucket, about 2.4 hours.  Larger values 
+	 * are counted in the last slot, but are still reflected in the {@link #getMax() max}.
+	 */
+	public static final long MAX_TRACKABLE = (1L << 43) - 1;
+	
+	private static final int BUCKET_COUNT = 43 - SUB_BUCKET_BITS + 1;
+	
+	private final long[][] counts = new long[BUCKET_COUNT][];
+	private long count = 0;
+	private long total = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	/**
+	 * Count one latency.
+	 * @param nanos the latency in nanoseconds, negative values are ignored
+	 */
+	public synchronized void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		int bucket = getBucket(nanos);
+		int slot = getSlot(nanos, bucket);
+		
+		if (counts[bucket] == null) {
+			counts[bucket] = new long[bucket == 0 ? SUB_BUCKET_COUNT : HALF_COUNT];
+		}
+		counts[bucket][slot]++;
+		
+		count++;
+		total += nanos;
+		if (nanos < min) min = nanos;
+		if (nanos > max) max = nanos;
+	}
+	
+	/**
+	 * Merge the counts of the other histogram into this one.
+	 * @param other
+	 */
+	public void add(LatencyHistogram other) {
+		if (other == null || other == this) {
+			return;
+		}
+		synchronized (other) {
+			synchronized (this) {
+				for (int b = 0; b < BUCKET_COUNT; b++) {
+					long[] from = other.counts[b];
+					if (from == null) {
+						continue;
+					}
+					if (counts[b] == null) {
+						counts[b] = new long[from.length];
+					}
+					for (int s = 0; s < from.length; s++) {
+						counts[b][s] += from[s];
+					}
+				}
+				count += other.count;
+				total += other.total;
+				if (other.min < min) min = other.min;
+				if (other.max > max) max = other.max;
+			}
+		}
+	}
+	
+	public synchronized long getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return the smallest latency recorded, or -1 when there are none
+	 */
+	public synchronized long getMin() {
+		return (count > 0 ? min : -1);
+	}
+
+	/**
+	 * @return the largest latency recorded, or -1 when there are none
+	 */
+	public synchronized long getMax() {
+		return (count > 0 ? max : -1);
+	}
+	
+	/**
+	 * @return the mean latency, or -1 when there are none
+	 */
+	public synchronized double getMean() {
+		return (count > 0 ? (double) total / count : -1.0);
+	}
+	
+	/**
+	 * Find the latency that the percentage of the recorded latencies are less than or
+	 * equal to, using the nearest rank.
+	 * @param pct between 0 and 100
+	 * @return the highest value that's equivalent to the slot of the percentile, 
+	 * 		or -1 when there are no values
+	 */
+	public synchronized long getValueAtPercentile(double pct) {
+		if (count == 0) {
+			return -1;
+		}
+		long rank = (long) Math.ceil((Math.min(pct, 100.0) / 100.0) * count);
+		rank = Math.max(1, rank);
+		
+		long seen = 0;
+		for (int b = 0; b < BUCKET_COUNT; b++) {
+			long[] slots = counts[b];
+			if (slots == null) {
+				continue;
+			}
+			for (int s = 0; s < slots.length; s++) {
+				seen += slots[s];
+				if (seen >= rank) {
+					return Math.min(max, Math.max(min, highestEquivalentValue(b, s)));
+				}
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * Write the histogram to the file, so it can be {@link #read(File) read} and merged later.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeObject(this);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Read a histogram that was {@link #write(File) written} to the file.
+	 * @param file
+	 * @return LatencyHistogram
+	 * @throws IOException
+	 */
+	public static LatencyHistogram read(File file) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			return (LatencyHistogram) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unable to read the latency histogram " + file.getAbsolutePath() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			in.close();
+		}
+	}
+	
+	private static int getBucket(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return 0;
+		}
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		return Math.min(msb - SUB_BUCKET_BITS + 1, BUCKET_COUNT - 1);
+	}
+	
+	private static int getSlot(long value, int bucket) {
+		if (bucket == 0) {
+			return (int) value;
+		}
+		if (value > MAX_TRACKABLE) {
+			return HALF_COUNT - 1;
+		}
+		return (int) (value >> bucket) - HALF_COUNT;
+	}
+	
+	private static long highestEquivalentValue(int bucket, int slot) {
+		if (bucket == 0) {
+			return slot;
+		}
+		if (bucket == BUCKET_COUNT - 1 && slot == HALF_COUNT - 1) {
+			// the last slot also counts the values beyond the trackable range
+			return Long.MAX_VALUE;
+		}
+		long lowest = ((long) slot + HALF_COUNT) << bucket;
+		return lowest + (1L << bucket) - 1;
+	}
+
+}
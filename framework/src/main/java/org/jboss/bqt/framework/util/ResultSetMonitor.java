@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * ResultSetMonitor observes a {@link ResultSet} while it's read, recording the number of 
+ * rows, the time until the first row and the average width of a row.  The width is estimated 
+ * from the values returned by the <code>getXXX</code> methods of the first {@link #SAMPLE_ROWS} 
+ * rows, so the values should be read once per row for the estimate to be accurate.
+ */
+public class ResultSetMonitor implements InvocationHandler {
+	
+	/**
+	 * The number of rows whose values are used to estimate the width of a row.
+	 */
+	public static final int SAMPLE_ROWS = 1000;
+	
+	private final ResultSet resultSet;
+	private final ResultSet proxy;
+	private final long beginTS;
+	private final long beginNanos = System.nanoTime();
+	
+	private long rowCount = 0;
+	private long firstRowTime = -1;
+	private long firstRowNanos = -1;
+	private long fetchNanos = 0;
+	private long sampledBytes = 0;
+	private boolean exhausted = false;
+	
+	/**
+	 * Wrap the result set so that it's monitored as it's read.
+	 * @param resultSet
+	 * @param beginTS when the query started executing
+	 * @return ResultSetMonitor
+	 */
+	public static ResultSetMonitor monitor(ResultSet resultSet, long beginTS) {
+		return new ResultSetMonitor(resultSet, beginTS);
+	}
+	
+	private ResultSetMonitor(ResultSet resultSet, long beginTS) {
+		this.resultSet = resultSet;
+		this.beginTS = beginTS;
+		this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), 
+				new Class[] {ResultSet.class}, this);
+	}
+	
+	/**
+	 * @return the monitored result set, which is to be read instead of the original
+	 */
+	public ResultSet getResultSet() {
+		return this.proxy;
+	}
+	
+	/**
+	 * @return the number of rows read so far
+	 */
+	public long getRowCount() {
+		return this.rowCount;
+	}
+	
+	/**
+	 * @return the milliseconds from when the query started executing until the first row
+	 * was read (or the end of the results was found), or -1 if the results haven't been read
+	 */
+	public long getFirstRowTime() {
+		return this.firstRowTime;
+	}
+	
+	/**
+	 * @return the nanoseconds from when the result set was returned until the first row 
+	 * was read (or the end of the results was found), or -1 if the results haven't been read
+	 */
+	public long getFirstRowNanos() {
+		return this.firstRowNanos;
+	}
+	
+	/**
+	 * @return the nanoseconds spent in the methods of the result set, which is the 
+	 * time taken to fetch the rows and their values
+	 */
+	public long getFetchNanos() {
+		return this.fetchNanos;
+	}
+	
+	/**
+	 * @return the estimated number of bytes in a row, based on the rows sampled
+	 */
+	public long getAverageRowSize() {
+		long sampled = Math.min(this.rowCount, SAMPLE_ROWS);
+		return (sampled == 0 ? 0 : this.sampledBytes / sampled);
+	}
+	
+	/**
+	 * @return true when all the rows have been read
+	 */
+	public boolean isExhausted() {
+		return this.exhausted;
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		Object result;
+		long begin = System.nanoTime();
+		try {
+			result = method.invoke(this.resultSet, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		} finally {
+			this.fetchNanos += System.nanoTime() - begin;
+		}
+		
+		String name = method.getName();
+		if (name.equals("next")) { //$NON-NLS-1$
+			if (this.firstRowTime < 0) {
+				this.firstRowTime = System.currentTimeMillis() - this.beginTS;
+				this.firstRowNanos = System.nanoTime() - this.beginNanos;
+			}
+			if (((Boolean) result).booleanValue()) {
+				this.rowCount++;
+			} else {
+				this.exhausted = true;
+			}
+		} else if (result != null && this.rowCount > 0 && this.rowCount <= SAMPLE_ROWS 
+				&& name.startsWith("get") && args != null && args.length >= 1) { //$NON-NLS-1$
+			// only the column getters take arguments
+			this.sampledBytes += estimateSize(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Estimate the size of a column value as it's held by the driver.
+	 * @param value
+	 * @return number of bytes
+	 */
+	static long estimateSize(Object value) {
+		if (value instanceof String) {
+			return ((String) value).length() * 2L;
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		}
+		try {
+			if (value instanceof Clob) {
+				return ((Clob) value).length() * 2L;
+			}
+			if (value instanceof Blob) {
+				return ((Blob) value).length();
+			}
+		} catch (SQLException e) {
+			// the value can no longer be read, so assume it's the size of a reference
+		}
+		return 8;
+	}
+
+}
@@ -180,6 +180,33 @@ public class TestConfigPropertyLoader {
     }
 
     
+    @Test
+    public void testCreateContext() throws Exception {
+    	System.setProperty(ConfigPropertyNames.CONFIG_FILE, "configtest.properties");
+ 
+		ConfigPropertyLoader _instance = ConfigPropertyLoader.getInstance();
+		
+		Properties sc1 = new Properties();
+		sc1.setProperty("scenario.prop", "${queryset.dirname}/one"); //$NON-NLS-1$ //$NON-NLS-2$
+		Properties sc2 = new Properties();
+		sc2.setProperty("scenario.prop", "${queryset.dirname}/two"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		ConfigContext ctx1 = _instance.createContext("sc1", sc1);
+		ConfigContext ctx2 = _instance.createContext("sc2", sc2);
+		
+		assertEquals("sc1", ctx1.getName()); //$NON-NLS-1$
+		assertEquals("querysetdirname/one", ctx1.getProperty("scenario.prop")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("querysetdirname/two", ctx2.getProperty("scenario.prop")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("myconntype", ctx1.getProperty("conn.type")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		// the loader isn't changed by creating a context
+		assertNull(_instance.getProperty("scenario.prop")); //$NON-NLS-1$
+		
+		// changes to the returned properties aren't seen by the context
+		ctx1.getProperties().setProperty("conn.type", "changed"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("myconntype", ctx1.getProperty("conn.type")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    
     
  
 }
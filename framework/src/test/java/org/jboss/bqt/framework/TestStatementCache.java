@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jboss.bqt.core.exception.QueryTestFailedException;
+import org.jboss.bqt.framework.connection.ConnectionStrategy;
+import org.junit.Test;
+
+/**
+ * Tests the least recently used eviction of the StatementCache, and the reset of a
+ * cached statement when it's reused
+ */
+public class TestStatementCache {
+	
+	private final Set<Object> closed = new HashSet<Object>();
+	
+	private PreparedStatement createStatement() {
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class[] {PreparedStatement.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("close")) { //$NON-NLS-1$
+					closed.add(proxy);
+				} else if (method.getName().equals("hashCode")) { //$NON-NLS-1$
+					return Integer.valueOf(System.identityHashCode(proxy));
+				} else if (method.getName().equals("equals")) { //$NON-NLS-1$
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				return null;
+			}
+		});
+	}
+	
+	@Test
+	public void testEviction() {
+		StatementCache cache = new StatementCache(null, 2);
+		
+		String a = StatementCache.getKey("select ?", false); //$NON-NLS-1$
+		String b = StatementCache.getKey("select ?", true); //$NON-NLS-1$
+		String c = StatementCache.getKey("select ? from t", false); //$NON-NLS-1$
+		
+		PreparedStatement stmtA = createStatement();
+		PreparedStatement stmtB = createStatement();
+		PreparedStatement stmtC = createStatement();
+		
+		cache.put(a, stmtA);
+		cache.put(b, stmtB);
+		// a is now the most recently used
+		assertSame(stmtA, cache.get(a));
+		
+		cache.put(c, stmtC);
+		assertNull(cache.get(b));
+		assertTrue(closed.contains(stmtB));
+		assertFalse(closed.contains(stmtA));
+		assertSame(stmtA, cache.get(a));
+		assertSame(stmtC, cache.get(c));
+		
+		cache.close();
+		assertTrue(closed.contains(stmtA));
+		assertTrue(closed.contains(stmtC));
+		assertNull(cache.get(a));
+	}
+
+	
+	/**
+	 * A reused statement doesn't keep the fetch size of the last test, nor the rows 
+	 * added to a batch that failed.
+	 */
+	@Test
+	public void testReuseResetsStatement() throws Exception {
+		final List<String> calls = new ArrayList<String>();
+		final PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class[] {PreparedStatement.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+				String name = method.getName();
+				calls.add(args != null && args.length == 1 ? name + "(" + args[0] + ")" : name); //$NON-NLS-1$ //$NON-NLS-2$
+				if (name.equals("setObject") && "bad".equals(args[1])) { //$NON-NLS-1$ //$NON-NLS-2$
+					throw new SQLException("bad value", "22018"); //$NON-NLS-1$ //$NON-NLS-2$
+				} else if (name.equals("executeBatch")) { //$NON-NLS-1$
+					return new int[] {1};
+				} else if (name.equals("getUpdateCount")) { //$NON-NLS-1$
+					return Integer.valueOf(-1);
+				} else if (method.getReturnType() == boolean.class) {
+					return Boolean.FALSE;
+				}
+				return null;
+			}
+		});
+		final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class[] {Connection.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("prepareStatement")) { //$NON-NLS-1$
+					return stmt;
+				} else if (method.getReturnType() == boolean.class) {
+					return Boolean.valueOf(method.getName().equals("isValid")); //$NON-NLS-1$
+				}
+				return null;
+			}
+		});
+		AbstractQuery query = new AbstractQuery(new ConnectionStrategy(new Properties()) {
+			@Override
+			public Connection getConnection() {
+				return connection;
+			}
+		}) {
+		};
+		query.setStatementCacheSize(2);
+		
+		query.before(createTestCase());
+		query.setFetchSize(100);
+		query.execute("select ?", new Object[] {Integer.valueOf(1)}); //$NON-NLS-1$
+		assertTrue(calls.contains("setFetchSize(100)")); //$NON-NLS-1$
+		query.cleanup();
+		
+		calls.clear();
+		query.before(createTestCase());
+		query.setFetchSize(0);
+		query.execute("select ?", new Object[] {Integer.valueOf(2)}); //$NON-NLS-1$
+		assertTrue(calls.toString(), calls.contains("setFetchSize(0)")); //$NON-NLS-1$
+		assertFalse(calls.toString(), calls.contains("setFetchSize(100)")); //$NON-NLS-1$
+		query.cleanup();
+		
+		calls.clear();
+		query.before(createTestCase());
+		try {
+			query.executeBatch("select ?", new Object[][] {{Integer.valueOf(1)}, {"bad"}}); //$NON-NLS-1$
+			fail("the second row can't be set"); //$NON-NLS-1$
+		} catch (QueryTestFailedException e) {
+			// expected
+		}
+		// the row added before the failure isn't left on the statement
+		assertEquals("clearBatch", calls.get(calls.size() - 1)); //$NON-NLS-1$
+		query.cleanup();
+		
+		calls.clear();
+		query.before(createTestCase());
+		query.executeBatch("select ?", new Object[][] {{Integer.valueOf(3)}}); //$NON-NLS-1$
+		assertTrue(calls.toString(), calls.indexOf("clearBatch") < calls.indexOf("addBatch")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(calls.toString(), calls.indexOf("clearBatch") >= 0); //$NON-NLS-1$
+		query.cleanup();
+	}
+	
+	private static TestCase createTestCase() {
+		TestCase testCase = new TestCase(new ActualTest() {
+		});
+		testCase.setTestResult(new TestResult("set", "query")); //$NON-NLS-1$ //$NON-NLS-2$
+		return testCase;
+	}
+
+}
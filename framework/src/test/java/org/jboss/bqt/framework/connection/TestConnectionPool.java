@@ -0,0 +1,228 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.Properties;
+
+import org.jboss.bqt.core.exception.FrameworkException;
+import org.junit.Test;
+
+/**
+ * Tests the borrowing, validation and eviction of the ConnectionPool, and the
+ * classification of the exceptions that break a connection
+ */
+public class TestConnectionPool {
+	
+	/**
+	 * A connection that is valid until it's closed, or made invalid
+	 */
+	private static class TestConnection implements InvocationHandler {
+		boolean closed = false;
+		boolean valid = true;
+		
+		Connection create() {
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), 
+					new Class[] {Connection.class}, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("close")) { //$NON-NLS-1$
+				closed = true;
+			} else if (name.equals("isClosed")) { //$NON-NLS-1$
+				return Boolean.valueOf(closed);
+			} else if (name.equals("isValid")) { //$NON-NLS-1$
+				return Boolean.valueOf(valid && !closed);
+			} else if (name.equals("hashCode")) { //$NON-NLS-1$
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if (name.equals("equals")) { //$NON-NLS-1$
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			return null;
+		}
+	}
+	
+	private static class Factory implements ConnectionPool.ConnectionFactory {
+		int created = 0;
+		TestConnection last;
+		
+		public Connection createConnection() {
+			created++;
+			last = new TestConnection();
+			return last.create();
+		}
+	}
+	
+	@Test
+	public void testBorrowAndRelease() throws Exception {
+		Factory factory = new Factory();
+		ConnectionPool pool = new ConnectionPool("test", factory, 0, 2, true, 0, 100); //$NON-NLS-1$
+		
+		Connection c1 = pool.borrow(null);
+		Connection c2 = pool.borrow(null);
+		assertNotSame(c1, c2);
+		assertEquals(2, factory.created);
+		
+		try {
+			pool.borrow(null);
+			fail("the pool is exhausted"); //$NON-NLS-1$
+		} catch (FrameworkException e) {
+			// expected
+		}
+		
+		pool.release(c1);
+		pool.release(c2);
+		assertEquals(2, pool.getIdleCount());
+		
+		// the preferred connection is reused, even though it wasn't the last released
+		assertSame(c1, pool.borrow(c1));
+		assertSame(c2, pool.borrow(null));
+		assertEquals(2, factory.created);
+	}
+	
+	@Test
+	public void testValidateOnBorrow() throws Exception {
+		Factory factory = new Factory();
+		ConnectionPool pool = new ConnectionPool("test", factory, 0, 1, true, 0, 100); //$NON-NLS-1$
+		
+		Connection c1 = pool.borrow(null);
+		TestConnection tc1 = factory.last;
+		pool.release(c1);
+		
+		tc1.valid = false;
+		Connection c2 = pool.borrow(c1);
+		assertNotSame(c1, c2);
+		assertTrue(tc1.closed);
+		assertEquals(1, pool.getSize());
+		
+		// a broken connection makes room for another
+		pool.discard(c2);
+		assertEquals(0, pool.getSize());
+		pool.borrow(null);
+		assertEquals(3, factory.created);
+	}
+	
+	@Test
+	public void testEvictIdle() throws Exception {
+		Factory factory = new Factory();
+		ConnectionPool pool = new ConnectionPool("test", factory, 1, 3, false, 1000, 100); //$NON-NLS-1$
+		pool.fill();
+		assertEquals(1, pool.getIdleCount());
+		
+		Connection c1 = pool.borrow(null);
+		Connection c2 = pool.borrow(null);
+		Connection c3 = pool.borrow(null);
+		pool.release(c1);
+		pool.release(c2);
+		pool.release(c3);
+		
+		long now = System.currentTimeMillis();
+		assertEquals(0, pool.evictIdle(now));
+		// the minimum size is kept
+		assertEquals(2, pool.evictIdle(now + 2000));
+		assertEquals(1, pool.getSize());
+		assertSame(c3, pool.borrow(null));
+	}
+	
+	@Test
+	public void testStatementCacheKeptWithConnection() throws Exception {
+		Factory factory = new Factory();
+		ConnectionPool pool = new ConnectionPool("test", factory, 0, 2, false, 1000, 100); //$NON-NLS-1$
+		
+		Connection c1 = pool.borrow(null);
+		Connection c2 = pool.borrow(null);
+		TestCache cache1 = new TestCache();
+		TestCache cache2 = new TestCache();
+		pool.setStatementCache(c1, cache1);
+		pool.setStatementCache(c2, cache2);
+		
+		// released and borrowed by another test, the connection keeps its statements open
+		pool.release(c1);
+		assertSame(c1, pool.borrow(null));
+		assertSame(cache1, pool.getStatementCache(c1));
+		assertSame(cache2, pool.getStatementCache(c2));
+		assertFalse(cache1.closed);
+		assertFalse(cache2.closed);
+		
+		// the cache is closed with its connection
+		pool.discard(c2);
+		assertTrue(cache2.closed);
+		assertEquals(null, pool.getStatementCache(c2));
+		pool.release(c1);
+		assertEquals(1, pool.evictIdle(System.currentTimeMillis() + 2000));
+		assertTrue(cache1.closed);
+		assertEquals(null, pool.getStatementCache(c1));
+	}
+	
+	private static class TestCache implements Closeable {
+		boolean closed = false;
+		
+		public void close() {
+			closed = true;
+		}
+	}
+	
+	@Test
+	public void testIsConnectionBroken() throws Exception {
+		ConnectionStrategy strategy = new ConnectionStrategy(new Properties()) {
+			@Override
+			public Connection getConnection() {
+				return null;
+			}
+		};
+		TestConnection tc = new TestConnection();
+		Connection conn = tc.create();
+		
+		// a syntax error only fails the query
+		assertFalse(strategy.isConnectionBroken(conn, new SQLException("syntax", "42000"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(strategy.isConnectionBroken(conn, new SQLException("link failure", "08S01"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(strategy.isConnectionBroken(conn, new SQLRecoverableException("recover"))); //$NON-NLS-1$
+		
+		SQLException chained = new SQLException("failed", "HY000"); //$NON-NLS-1$ //$NON-NLS-2$
+		chained.setNextException(new SQLException("closed", "08003")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(strategy.isConnectionBroken(conn, chained));
+		
+		// without a SQLState, the connection is validated
+		assertFalse(strategy.isConnectionBroken(conn, new SQLException("unknown"))); //$NON-NLS-1$
+		tc.valid = false;
+		assertTrue(strategy.isConnectionBroken(conn, new SQLException("unknown"))); //$NON-NLS-1$
+		
+		tc.closed = true;
+		assertTrue(strategy.isConnectionBroken(conn, new SQLException("syntax", "42000"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
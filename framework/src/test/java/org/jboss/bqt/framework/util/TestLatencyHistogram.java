@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.jboss.bqt.framework.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Tests the percentiles, merging and serialization of the LatencyHistogram
+ */
+public class TestLatencyHistogram {
+	
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected " + expected + " but was " + actual,  //$NON-NLS-1$ //$NON-NLS-2$
+				Math.abs(expected - actual) <= expected / 64);
+	}
+	
+	@Test public void testEmpty() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getCount());
+		assertEquals(-1, h.getMax());
+		assertEquals(-1, h.getValueAtPercentile(50));
+	}
+	
+	@Test public void testSmallValuesAreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			h.record(i);
+		}
+		assertEquals(100, h.getCount());
+		assertEquals(1, h.getMin());
+		assertEquals(50, h.getValueAtPercentile(50));
+		assertEquals(99, h.getValueAtPercentile(99));
+		assertEquals(100, h.getValueAtPercentile(100));
+		assertEquals(50.5, h.getMean(), 0.0001);
+	}
+	
+	@Test public void testPercentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		// 1ms to 1000ms
+		for (long i = 1; i <= 1000; i++) {
+			h.record(i * 1000000);
+		}
+		assertWithin(500000000L, h.getValueAtPercentile(50));
+		assertWithin(900000000L, h.getValueAtPercentile(90));
+		assertWithin(990000000L, h.getValueAtPercentile(99));
+		assertWithin(999000000L, h.getValueAtPercentile(99.9));
+		assertEquals(1000000000L, h.getMax());
+		assertTrue(h.getValueAtPercentile(99.9) <= h.getMax());
+	}
+	
+	@Test public void testValuesBeyondTheLastBucket() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(LatencyHistogram.MAX_TRACKABLE * 4);
+		h.record(10);
+		assertEquals(10, h.getValueAtPercentile(50));
+		assertEquals(LatencyHistogram.MAX_TRACKABLE * 4, h.getMax());
+		assertEquals(LatencyHistogram.MAX_TRACKABLE * 4, h.getValueAtPercentile(100));
+	}
+	
+	@Test public void testMerge() throws Exception {
+		LatencyHistogram a = new LatencyHistogram();
+		LatencyHistogram b = new LatencyHistogram();
+		LatencyHistogram all = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			long v = i * 12345;
+			((i % 2 == 0) ? a : b).record(v);
+			all.record(v);
+		}
+		
+		File f = File.createTempFile("latency", ".hist"); //$NON-NLS-1$ //$NON-NLS-2$
+		f.deleteOnExit();
+		b.write(f);
+		a.add(LatencyHistogram.read(f));
+		
+		assertEquals(all.getCount(), a.getCount());
+		assertEquals(all.getMin(), a.getMin());
+		assertEquals(all.getMax(), a.getMax());
+		assertEquals(all.getMean(), a.getMean(), 0.0001);
+		assertEquals(all.getValueAtPercentile(50), a.getValueAtPercentile(50));
+		assertEquals(all.getValueAtPercentile(99), a.getValueAtPercentile(99));
+	}
+
+}